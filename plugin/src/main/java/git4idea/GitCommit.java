@@ -39,6 +39,7 @@ import java.util.List;
  */
 public final class GitCommit extends VcsChangesLazilyParsedDetails
 {
+	private final boolean myPatchEquivalent;
 
 	public GitCommit(
 			Project project,
@@ -55,6 +56,61 @@ public final class GitCommit extends VcsChangesLazilyParsedDetails
 	{
 		super(hash, parents, time, root, subject, author, message, committer, authorTime, new MyChangesComputable(new Data(project, root,
 				reportedChanges, hash, time, parents)));
+		myPatchEquivalent = false;
+	}
+
+	/**
+	 * Creates a commit which changes are not known yet: they are loaded by the given loader when requested for the first time.
+	 *
+	 * @param patchEquivalent whether the commit has a patch-equivalent commit on the other side of a comparison
+	 */
+	public GitCommit(
+			@Nonnull Hash hash,
+			@Nonnull List<Hash> parents,
+			long time,
+			@Nonnull VirtualFile root,
+			@Nonnull String subject,
+			@Nonnull VcsUser author,
+			@Nonnull String message,
+			@Nonnull VcsUser committer,
+			long authorTime,
+			boolean patchEquivalent,
+			@Nonnull ThrowableComputable<Collection<Change>, VcsException> changesLoader)
+	{
+		super(hash, parents, time, root, subject, author, message, committer, authorTime, new MyLoadingChangesComputable(changesLoader));
+		myPatchEquivalent = patchEquivalent;
+	}
+
+	/**
+	 * @return true if the commit was compared with another branch which has a commit introducing the same patch,
+	 * i.e. it is marked with {@code =} by {@code git log --cherry-mark}
+	 */
+	public boolean isPatchEquivalent()
+	{
+		return myPatchEquivalent;
+	}
+
+	private static class MyLoadingChangesComputable implements ThrowableComputable<Collection<Change>, VcsException>
+	{
+
+		private ThrowableComputable<Collection<Change>, VcsException> myLoader;
+		private Collection<Change> myChanges;
+
+		public MyLoadingChangesComputable(ThrowableComputable<Collection<Change>, VcsException> loader)
+		{
+			myLoader = loader;
+		}
+
+		@Override
+		public synchronized Collection<Change> compute() throws VcsException
+		{
+			if(myChanges == null)
+			{
+				myChanges = myLoader.compute();
+				myLoader = null;
+			}
+			return myChanges;
+		}
 
 	}
 
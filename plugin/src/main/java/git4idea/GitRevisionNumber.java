@@ -24,6 +24,7 @@ import consulo.versionControlSystem.history.ShortVcsRevisionNumber;
 import consulo.versionControlSystem.history.VcsRevisionNumber;
 import consulo.virtualFileSystem.VirtualFile;
 import git4idea.commands.GitCommand;
+import git4idea.commands.GitObjectQueries;
 import git4idea.commands.GitSimpleHandler;
 import jakarta.annotation.Nonnull;
 
@@ -220,6 +221,10 @@ public class GitRevisionNumber implements ShortVcsRevisionNumber {
      */
     @Nonnull
     public static GitRevisionNumber resolve(Project project, VirtualFile vcsRoot, String rev) throws VcsException {
+        GitObjectQueries.CommitInfo commit = GitObjectQueries.getInstance(project).readCommit(vcsRoot, rev);
+        if (commit != null && commit != GitObjectQueries.MISSING) {
+            return commit.toRevisionNumber();
+        }
         GitSimpleHandler h = new GitSimpleHandler(project, vcsRoot, GitCommand.REV_LIST);
         h.setSilent(true);
         h.addParameters("--timestamp", "--max-count=1", rev);
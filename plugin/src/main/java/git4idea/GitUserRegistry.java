@@ -30,6 +30,7 @@ import consulo.versionControlSystem.VcsListener;
 import consulo.versionControlSystem.log.VcsLogObjectsFactory;
 import consulo.versionControlSystem.log.VcsUser;
 import consulo.virtualFileSystem.VirtualFile;
+import git4idea.commands.GitProcessScheduler;
 import git4idea.config.GitConfigUtil;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -114,11 +115,11 @@ public class GitUserRegistry implements Disposable, VcsListener {
     VirtualFile[] roots = myVcsManager.getRootsUnderVcs(vcs);
     Collection<VirtualFile> rootsToCheck = ContainerUtil.filter(roots, root -> getUser(root) == null);
     if (!rootsToCheck.isEmpty()) {
-      Application.get().executeOnPooledThread((Runnable) () -> {
+      Application.get().executeOnPooledThread((Runnable) () -> GitProcessScheduler.runWithPriority(GitProcessScheduler.Priority.BACKGROUND, () -> {
         for (VirtualFile root : rootsToCheck) {
           getOrReadUser(root);
         }
-      });
+      }));
     }
   }
 }
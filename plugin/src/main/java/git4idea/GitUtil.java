@@ -19,6 +19,7 @@ import consulo.application.progress.ProgressIndicator;
 import consulo.application.progress.Task;
 import consulo.git.localize.GitLocalize;
 import consulo.localize.LocalizeValue;
+import consulo.process.ProcessOutputTypes;
 import consulo.project.Project;
 import consulo.ui.annotation.RequiredUIAccess;
 import consulo.ui.ex.awt.DialogBuilder;
@@ -26,6 +27,7 @@ import consulo.ui.ex.awt.MultiLineLabel;
 import consulo.ui.ex.awt.UIUtil;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.collection.HashingStrategy;
+import consulo.util.dataholder.Key;
 import consulo.util.interner.Interner;
 import consulo.util.io.FileUtil;
 import consulo.util.lang.ObjectUtil;
@@ -553,48 +555,93 @@ public class GitUtil {
         return String.format("%015x%x", (rev >>> 4), rev & 0xF);
     }
 
+    /**
+     * <p>Reads the commits selected by the parameters and passes them to the consumer one by one, as the output of {@code git log} is read.
+     * The consumer is called on the output reading thread, so Git waits while the consumer is busy
+     * and the log is never kept in memory as a whole.</p>
+     *
+     * <p>The changes of the changelists are created only when they are requested: until then a changelist keeps the status letters
+     * and the paths of its commit. Errors, e.g. in resolving the parent commit, are thrown from here.</p>
+     */
     public static void getLocalCommittedChanges(
         Project project,
         VirtualFile root,
-        Consumer<GitSimpleHandler> parametersSpecifier,
+        Consumer<? super GitLineHandler> parametersSpecifier,
         Consumer<GitCommittedChangeList> consumer,
         boolean skipDiffsForMerge
     ) throws VcsException {
-        GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.LOG);
+        GitLineHandler h = new GitLineHandler(project, root, GitCommand.LOG);
         h.setSilent(true);
+        h.setStdoutSuppressed(true);
         h.addParameters("--pretty=format:%x04%x01" + GitChangeUtils.COMMITTED_CHANGELIST_FORMAT, "--name-status");
         parametersSpecifier.accept(h);
 
-        String output = h.run();
-        LOG.debug("getLocalCommittedChanges output: '{}'", output);
-        StringScanner s = new StringScanner(output);
-        StringBuilder sb = new StringBuilder();
-        boolean firstStep = true;
-        while (s.hasMoreData()) {
-            String line = s.line();
-            boolean lineIsAStart = line.startsWith("\u0004\u0001");
-            if (!firstStep && lineIsAStart) {
-                StringScanner innerScanner = new StringScanner(sb.toString());
-                sb.setLength(0);
-                consumer.accept(GitChangeUtils.parseChangeList(project, root, innerScanner, skipDiffsForMerge, h, false, false));
+        StringBuilder record = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        Throwable[] failure = new Throwable[1];
+        h.addLineListener(new GitLineHandlerListener() {
+            @Override
+            public void onLineAvailable(String line, Key outputType) {
+                if (outputType == ProcessOutputTypes.STDERR) {
+                    errors.append(line).append('\n');
+                }
+                else if (outputType == ProcessOutputTypes.STDOUT && failure[0] == null) {
+                    try {
+                        boolean lineIsAStart = line.startsWith("\u0004\u0001");
+                        if (lineIsAStart && record.length() > 0) {
+                            consumeRecord(project, root, record, skipDiffsForMerge, h, consumer);
+                        }
+                        record.append(lineIsAStart ? line.substring(2) : line).append('\n');
+                    }
+                    catch (VcsException | RuntimeException e) {
+                        failure[0] = e;
+                        h.destroyProcess();
+                    }
+                }
+            }
+
+            @Override
+            public void processTerminated(int exitCode) {
+                if (exitCode != 0 && failure[0] == null) {
+                    String errorMessage = errors.length() == 0 ? GitLocalize.gitErrorExit(exitCode).get() : errors.toString();
+                    failure[0] = new VcsException(errorMessage + "\nCommand line: [" + h.printableCommandLine() + "]");
+                }
+            }
+
+            @Override
+            public void startFailed(Throwable e) {
+                failure[0] = new VcsException(e);
             }
-            sb.append(lineIsAStart ? line.substring(2) : line).append('\n');
-            firstStep = false;
+        });
+        h.runInCurrentThread(null);
+        if (failure[0] instanceof VcsException vcsException) {
+            throw vcsException;
         }
-        if (sb.length() > 0) {
-            StringScanner innerScanner = new StringScanner(sb.toString());
-            sb.setLength(0);
-            consumer.accept(GitChangeUtils.parseChangeList(project, root, innerScanner, skipDiffsForMerge, h, false, false));
+        if (failure[0] instanceof RuntimeException runtimeException) {
+            throw runtimeException;
         }
-        if (s.hasMoreData()) {
-            throw new IllegalStateException("More input is available: " + s.line());
+        if (record.length() > 0) {
+            consumeRecord(project, root, record, skipDiffsForMerge, h, consumer);
         }
     }
 
+    private static void consumeRecord(
+        Project project,
+        VirtualFile root,
+        StringBuilder record,
+        boolean skipDiffsForMerge,
+        GitHandler handler,
+        Consumer<GitCommittedChangeList> consumer
+    ) throws VcsException {
+        StringScanner s = new StringScanner(record.toString());
+        record.setLength(0);
+        consumer.accept(GitChangeUtils.parseChangeListLazily(project, root, s, skipDiffsForMerge, handler, false));
+    }
+
     public static List<GitCommittedChangeList> getLocalCommittedChanges(
         Project project,
         VirtualFile root,
-        Consumer<GitSimpleHandler> parametersSpecifier
+        Consumer<? super GitLineHandler> parametersSpecifier
     ) throws VcsException {
         List<GitCommittedChangeList> rc = new ArrayList<>();
 
@@ -645,6 +692,21 @@ public class GitUtil {
                     case 'n':
                         rc.append('\n');
                         break;
+                    case 'r':
+                        rc.append('\r');
+                        break;
+                    case 'a':
+                        rc.append('\u0007');
+                        break;
+                    case 'b':
+                        rc.append('\b');
+                        break;
+                    case 'f':
+                        rc.append('\f');
+                        break;
+                    case 'v':
+                        rc.append('\u000B');
+                        break;
                     case '"':
                         rc.append('"');
                         break;
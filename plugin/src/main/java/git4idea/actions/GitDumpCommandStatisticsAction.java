@@ -0,0 +1,42 @@
+package git4idea.actions;
+
+import consulo.annotation.component.ActionImpl;
+import consulo.git.localize.GitLocalize;
+import consulo.logging.Logger;
+import consulo.project.Project;
+import consulo.ui.annotation.RequiredUIAccess;
+import consulo.ui.ex.action.AnActionEvent;
+import consulo.ui.ex.action.DumbAwareAction;
+import git4idea.GitVcs;
+import git4idea.commands.GitCommandStatistics;
+import jakarta.annotation.Nonnull;
+
+/**
+ * Dumps {@link GitCommandStatistics} to the version control console and to the log.
+ */
+@ActionImpl(id = "Git.DumpCommandStatistics")
+public class GitDumpCommandStatisticsAction extends DumbAwareAction {
+    private static final Logger LOG = Logger.getInstance(GitDumpCommandStatisticsAction.class);
+
+    public GitDumpCommandStatisticsAction() {
+        super(GitLocalize.actionDumpCommandStatisticsText(), GitLocalize.actionDumpCommandStatisticsDescription());
+    }
+
+    @Override
+    @RequiredUIAccess
+    public void actionPerformed(@Nonnull AnActionEvent e) {
+        Project project = e.getData(Project.KEY);
+        String dump = GitCommandStatistics.getInstance().dump(project);
+        LOG.info(dump);
+        GitVcs vcs = project == null ? null : GitVcs.getInstance(project);
+        if (vcs != null) {
+            vcs.showMessages(dump);
+        }
+    }
+
+    @Override
+    @RequiredUIAccess
+    public void update(@Nonnull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getData(Project.KEY) != null);
+    }
+}
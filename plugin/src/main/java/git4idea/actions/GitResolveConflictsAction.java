@@ -16,6 +16,7 @@
 package git4idea.actions;
 
 import consulo.annotation.component.ActionImpl;
+import consulo.disposer.Disposer;
 import consulo.git.localize.GitLocalize;
 import consulo.project.Project;
 import consulo.ui.annotation.RequiredUIAccess;
@@ -28,8 +29,8 @@ import consulo.versionControlSystem.change.ContentRevision;
 import consulo.virtualFileSystem.VirtualFile;
 import consulo.virtualFileSystem.status.FileStatus;
 import git4idea.GitUtil;
-import git4idea.GitVcs;
 import git4idea.actions.GitAction;
+import git4idea.merge.GitMergeProvider;
 import git4idea.repo.GitRepository;
 import jakarta.annotation.Nonnull;
 
@@ -74,8 +75,13 @@ public class GitResolveConflictsAction extends GitAction {
             }
         }
 
-        AbstractVcsHelper.getInstance(project)
-            .showMergeDialog(new ArrayList<>(conflictedFiles), GitVcs.getInstance(project).getMergeProvider());
+        GitMergeProvider mergeProvider = GitMergeProvider.detect(project);
+        try {
+            AbstractVcsHelper.getInstance(project).showMergeDialog(new ArrayList<>(conflictedFiles), mergeProvider);
+        }
+        finally {
+            Disposer.dispose(mergeProvider);
+        }
         for (GitRepository repository : GitUtil.getRepositoriesForFiles(project, conflictedFiles)) {
             repository.update();
         }
@@ -19,6 +19,7 @@ import consulo.annotation.component.ComponentScope;
 import consulo.annotation.component.ServiceAPI;
 import consulo.annotation.component.ServiceImpl;
 import consulo.application.Application;
+import consulo.application.progress.EmptyProgressIndicator;
 import consulo.application.progress.ProgressIndicator;
 import consulo.application.progress.ProgressManager;
 import consulo.git.localize.GitLocalize;
@@ -51,6 +52,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Git annotation provider implementation.
@@ -107,13 +110,12 @@ public class GitAnnotationProvider implements AnnotationProvider, VcsCacheableAn
         final Exception[] exception = new Exception[1];
         Runnable command = () -> {
             final ProgressIndicator progress = ProgressManager.getInstance().getProgressIndicator();
+            final FilePath currentFilePath = VcsUtil.getFilePath(file.getPath());
+            // the history is only needed for tooltips, so it is loaded concurrently and is not waited for
+            final EmptyProgressIndicator historyIndicator = new EmptyProgressIndicator();
+            final CompletableFuture<List<VcsFileRevision>> revisions = loadHistory(currentFilePath, historyIndicator);
             try {
-                final FilePath currentFilePath = VcsUtil.getFilePath(file.getPath());
                 final FilePath realFilePath;
-                if (progress != null) {
-                    progress.setText(GitLocalize.gettingHistory(file.getName()));
-                }
-                final List<VcsFileRevision> revisions = GitHistoryUtils.history(myProject, currentFilePath);
                 if (revision == null) {
                     realFilePath = GitHistoryUtils.getLastCommitName(myProject, currentFilePath);
                 }
@@ -123,10 +125,12 @@ public class GitAnnotationProvider implements AnnotationProvider, VcsCacheableAn
                 if (progress != null) {
                     progress.setText(GitLocalize.computingAnnotation(file.getName()));
                 }
-                final GitFileAnnotation result = annotate(realFilePath, revision, revisions, file);
+                final GitFileAnnotation result = annotate(realFilePath, revision, file);
+                result.setLogEntries(revisions, historyIndicator);
                 annotation[0] = result;
             }
             catch (Exception e) {
+                historyIndicator.cancel();
                 exception[0] = e;
             }
         };
@@ -150,12 +154,38 @@ public class GitAnnotationProvider implements AnnotationProvider, VcsCacheableAn
         return annotation[0];
     }
 
+    /**
+     * Starts loading the file history on a pooled thread
+     *
+     * @param filePath  the current file path
+     * @param indicator the indicator cancelling the load
+     * @return the future of the revision list
+     */
+    private CompletableFuture<List<VcsFileRevision>> loadHistory(final FilePath filePath, final ProgressIndicator indicator) {
+        CompletableFuture<List<VcsFileRevision>> result = new CompletableFuture<>();
+        Application.get().executeOnPooledThread((Runnable) () -> {
+            try {
+                result.complete(ProgressManager.getInstance().runProcess(() -> {
+                    try {
+                        return GitHistoryUtils.history(myProject, filePath);
+                    }
+                    catch (VcsException e) {
+                        throw new CompletionException(e);
+                    }
+                }, indicator));
+            }
+            catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
     /**
      * Calculate annotations
      *
      * @param repositoryFilePath the file path in the repository
      * @param revision           the revision to checkout
-     * @param revisions          the revision list from history
      * @param file               a virtual file for the action
      * @return a file annotation object
      * @throws VcsException if there is a problem with running git
@@ -163,7 +193,6 @@ public class GitAnnotationProvider implements AnnotationProvider, VcsCacheableAn
     private GitFileAnnotation annotate(
         final FilePath repositoryFilePath,
         final VcsFileRevision revision,
-        final List<VcsFileRevision> revisions,
         final VirtualFile file
     ) throws VcsException {
         GitSimpleHandler h = new GitSimpleHandler(myProject, GitUtil.getGitRoot(repositoryFilePath), GitCommand.BLAME);
@@ -230,7 +259,6 @@ public class GitAnnotationProvider implements AnnotationProvider, VcsCacheableAn
             String line = s.line(true);
             annotation.appendLineInfo(commit.date, commit.revision, commit.author, line, lineNum);
         }
-        annotation.addLogEntries(revisions);
         return annotation;
     }
 
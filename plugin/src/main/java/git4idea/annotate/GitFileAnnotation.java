@@ -15,6 +15,7 @@
  */
 package git4idea.annotate;
 
+import consulo.application.progress.ProgressIndicator;
 import consulo.application.util.DateFormatUtil;
 import consulo.git.localize.GitLocalize;
 import consulo.localize.LocalizeValue;
@@ -36,6 +37,8 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Git file annotation implementation
@@ -61,7 +64,12 @@ public class GitFileAnnotation extends FileAnnotation {
     /**
      * Map from revision numbers to revisions
      */
-    private final Map<VcsRevisionNumber, VcsFileRevision> myRevisionMap = new HashMap<>();
+    private final Map<VcsRevisionNumber, VcsFileRevision> myRevisionMap = new ConcurrentHashMap<>();
+    /**
+     * Cancels loading of the revisions, if they are still being loaded
+     */
+    @Nullable
+    private volatile ProgressIndicator myLogEntriesIndicator;
 
     /**
      * the virtual file for which annotations are generated
@@ -114,6 +122,20 @@ public class GitFileAnnotation extends FileAnnotation {
         myBaseRevision = revision == null ? (myVcs.getDiffProvider().getCurrentRevision(file)) : revision;
     }
 
+    /**
+     * A copy of the annotation with all the revisions loaded so far, to replace the annotation being shown
+     */
+    private GitFileAnnotation(@Nonnull GitFileAnnotation annotation) {
+        super(annotation.myProject);
+        myProject = annotation.myProject;
+        myVcs = annotation.myVcs;
+        myFile = annotation.myFile;
+        myBaseRevision = annotation.myBaseRevision;
+        myLines.addAll(annotation.myLines);
+        myContentBuffer.append(annotation.myContentBuffer);
+        myRevisionMap.putAll(annotation.myRevisionMap);
+    }
+
     /**
      * Add revisions to the list (from log)
      *
@@ -125,11 +147,42 @@ public class GitFileAnnotation extends FileAnnotation {
         }
     }
 
+    /**
+     * Add revisions to the list when they are loaded: the annotation is shown without waiting for the history.
+     * When it arrives, the shown annotation is {@link #reload reloaded} with a copy having the revisions, so that the actions reading
+     * them once, e.g. coloring by revision and the history popup, see them too, not only the tooltips.
+     *
+     * @param revisions the revisions being loaded
+     * @param indicator the indicator cancelling the load when the annotation is disposed
+     */
+    public void setLogEntries(@Nonnull CompletableFuture<List<VcsFileRevision>> revisions, @Nonnull ProgressIndicator indicator) {
+        myLogEntriesIndicator = indicator;
+        revisions.whenComplete((result, error) -> {
+            myLogEntriesIndicator = null;
+            if (result != null) {
+                addLogEntries(result);
+                // nothing is reloaded if the annotation is not shown yet: then it is shown with the revisions
+                myProject.getApplication().invokeLater(() -> {
+                    if (!myProject.isDisposed() && !indicator.isCanceled()) {
+                        reload(new GitFileAnnotation(this));
+                    }
+                });
+            }
+            else if (!indicator.isCanceled()) {
+                LOG.warn("Couldn't load the history of " + myFile.getPath(), error);
+            }
+        });
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void dispose() {
+        ProgressIndicator indicator = myLogEntriesIndicator;
+        if (indicator != null) {
+            indicator.cancel();
+        }
     }
 
     /**
@@ -16,15 +16,24 @@
 package git4idea.branch;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import jakarta.annotation.Nonnull;
 
 import consulo.application.ApplicationManager;
+import consulo.application.progress.ProgressIndicator;
+import consulo.application.progress.ProgressManager;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.component.ProcessCanceledException;
 import consulo.logging.Logger;
 import consulo.project.Project;
 import consulo.ui.ex.awt.Messages;
 import consulo.util.lang.Couple;
+import consulo.util.lang.Pair;
 import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.change.Change;
 import consulo.util.collection.ContainerUtil;
@@ -165,10 +174,46 @@ public final class GitBranchWorker
 	private GitCommitCompareInfo loadCommitsToCompare(List<GitRepository> repositories, String branchName)
 	{
 		GitCommitCompareInfo compareInfo = new GitCommitCompareInfo();
-		for(GitRepository repository : repositories)
+		if(repositories.size() == 1)
 		{
+			GitRepository repository = repositories.get(0);
 			compareInfo.put(repository, loadCommitsToCompare(repository, branchName));
 			compareInfo.put(repository, loadTotalDiff(repository, branchName));
+			return compareInfo;
+		}
+
+		// repositories are independent, so they are compared in parallel
+		ProgressIndicator indicator = myUiHandler.getProgressIndicator();
+		Map<GitRepository, Future<Pair<Couple<List<GitCommit>>, Collection<Change>>>> futures = new LinkedHashMap<>();
+		for(GitRepository repository : repositories)
+		{
+			futures.put(repository, AppExecutorUtil.getAppExecutorService().submit(() -> ProgressManager.getInstance().runProcess(
+					() -> Pair.create(loadCommitsToCompare(repository, branchName), loadTotalDiff(repository, branchName)), indicator)));
+		}
+		try
+		{
+			for(Map.Entry<GitRepository, Future<Pair<Couple<List<GitCommit>>, Collection<Change>>>> entry : futures.entrySet())
+			{
+				Pair<Couple<List<GitCommit>>, Collection<Change>> result = entry.getValue().get();
+				compareInfo.put(entry.getKey(), result.getFirst());
+				compareInfo.put(entry.getKey(), result.getSecond());
+			}
+		}
+		catch(InterruptedException e)
+		{
+			futures.values().forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new ProcessCanceledException(e);
+		}
+		catch(ExecutionException e)
+		{
+			futures.values().forEach(future -> future.cancel(true));
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException runtimeException)
+			{
+				throw runtimeException;
+			}
+			throw new GitExecutionException("Couldn't compare with [" + branchName + "]", cause);
 		}
 		return compareInfo;
 	}
@@ -191,19 +236,16 @@ public final class GitBranchWorker
 	@Nonnull
 	private Couple<List<GitCommit>> loadCommitsToCompare(@Nonnull GitRepository repository, @Nonnull final String branchName)
 	{
-		final List<GitCommit> headToBranch;
-		final List<GitCommit> branchToHead;
 		try
 		{
-			headToBranch = GitHistoryUtils.history(myProject, repository.getRoot(), ".." + branchName);
-			branchToHead = GitHistoryUtils.history(myProject, repository.getRoot(), branchName + "..");
+			// one walk splits the commits into both sides; changes of each commit are loaded when it is selected
+			return GitHistoryUtils.loadSymmetricDifference(myProject, repository.getRoot(), "HEAD", branchName);
 		}
 		catch(VcsException e)
 		{
 			// we treat it as critical and report an error
-			throw new GitExecutionException("Couldn't get [git log .." + branchName + "] on repository [" + repository.getRoot() + "]", e);
+			throw new GitExecutionException("Couldn't get [git log HEAD..." + branchName + "] on repository [" + repository.getRoot() + "]", e);
 		}
-		return Couple.of(headToBranch, branchToHead);
 	}
 
 	private void displayCompareDialog(@Nonnull String branchName, @Nonnull String currentBranch, @Nonnull GitCommitCompareInfo compareInfo, @Nonnull GitRepository selectedRepository)
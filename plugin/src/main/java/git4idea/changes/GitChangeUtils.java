@@ -33,6 +33,7 @@ import git4idea.GitUtil;
 import git4idea.GitVcs;
 import git4idea.commands.GitCommand;
 import git4idea.commands.GitHandler;
+import git4idea.commands.GitObjectQueries;
 import git4idea.commands.GitSimpleHandler;
 import git4idea.history.browser.SHAHash;
 import git4idea.util.StringScanner;
@@ -195,6 +196,10 @@ public class GitChangeUtils {
         @Nonnull VirtualFile vcsRoot,
         @Nonnull String reference
     ) throws VcsException {
+        GitObjectQueries.CommitInfo commit = GitObjectQueries.getInstance(project).readCommit(vcsRoot, reference);
+        if (commit != null && commit != GitObjectQueries.MISSING) {
+            return commit.toRevisionNumber();
+        }
         GitSimpleHandler handler = createRefResolveHandler(project, vcsRoot, reference);
         String output = handler.run();
         StringTokenizer stk = new StringTokenizer(output, "\n\r \t", false);
@@ -295,6 +300,12 @@ public class GitChangeUtils {
         List<VirtualFile> paths,
         String... parameters
     ) {
+        if (paths == null || paths.isEmpty()) {
+            GitObjectQueries.CommitInfo commit = readNewestCommit(project, root, ArrayUtil.append(parameters, anyReference));
+            if (commit != null) {
+                return commit == GitObjectQueries.MISSING ? null : new SHAHash(commit.getHash());
+            }
+        }
         GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.LOG);
         h.setSilent(true);
         h.addParameters(parameters);
@@ -314,6 +325,29 @@ public class GitChangeUtils {
         }
     }
 
+    /**
+     * Answers {@code git log --max-count=1 <references>} without starting a process:
+     * the log starts from the tip with the latest commit time, the first given one on a tie.
+     *
+     * @return the commit, {@link GitObjectQueries#MISSING} if some reference doesn't exist,
+     * or null if the references can't be read by {@link GitObjectQueries}, e.g. if some of them is an option.
+     */
+    @Nullable
+    private static GitObjectQueries.CommitInfo readNewestCommit(Project project, VirtualFile root, String[] references) {
+        GitObjectQueries queries = GitObjectQueries.getInstance(project);
+        GitObjectQueries.CommitInfo newest = null;
+        for (String reference : references) {
+            GitObjectQueries.CommitInfo commit = queries.readCommit(root, reference);
+            if (commit == null || commit == GitObjectQueries.MISSING) {
+                return commit;
+            }
+            if (newest == null || commit.getCommitTime() > newest.getCommitTime()) {
+                newest = commit;
+            }
+        }
+        return newest;
+    }
+
     /**
      * Parse changelist
      *
@@ -338,7 +372,40 @@ public class GitChangeUtils {
         boolean local,
         boolean revertible
     ) throws VcsException {
-        List<Change> changes = new ArrayList<>();
+        return parseChangeList(project, root, s, skipDiffsForMerge, handler, local, revertible, false);
+    }
+
+    /**
+     * Parse changelist the same way as {@link #parseChangeList(Project, VirtualFile, StringScanner, boolean, GitHandler, boolean, boolean)},
+     * but create the {@link Change changes} only when they are requested. The rest of the scanner is consumed.
+     * <p>
+     * Only the status letters and the unescaped paths of the name-status lines are kept until then; the parent revision is
+     * resolved and the paths are unescaped right away, so that errors are reported here, as by the eager parsing.
+     * Merges are diffed against their parents by separate git commands, so their changes are loaded right away as well.
+     */
+    @Nonnull
+    public static GitCommittedChangeList parseChangeListLazily(
+        Project project,
+        VirtualFile root,
+        StringScanner s,
+        boolean skipDiffsForMerge,
+        GitHandler handler,
+        boolean revertible
+    ) throws VcsException {
+        return parseChangeList(project, root, s, skipDiffsForMerge, handler, false, revertible, true);
+    }
+
+    @Nonnull
+    private static GitCommittedChangeList parseChangeList(
+        Project project,
+        VirtualFile root,
+        StringScanner s,
+        boolean skipDiffsForMerge,
+        GitHandler handler,
+        boolean local,
+        boolean revertible,
+        boolean lazy
+    ) throws VcsException {
         // parse commit information
         Date commitDate = GitUtil.parseTimestampWithNFEReport(s.line(), handler, s.getAllText());
         String revisionNumber = s.line();
@@ -362,7 +429,139 @@ public class GitChangeUtils {
             fullComment = commentSubject + "\n" + commentBody;
         }
         GitRevisionNumber thisRevision = new GitRevisionNumber(revisionNumber, commitDate);
+        String changeListName = String.format("%s(%s)", commentSubject, revisionNumber);
+        GitVcs vcs = assertNotNull(GitVcs.getInstance(project));
+
+        if (lazy && (skipDiffsForMerge || parents.length <= 1)) {
+            GitRevisionNumber parentRevision = parents.length > 0 ? resolveReference(project, root, parents[0]) : null;
+            NameStatus nameStatus = readNameStatus(s);
+            return new GitCommittedChangeList(
+                changeListName,
+                fullComment,
+                committerName,
+                thisRevision,
+                commitDate,
+                () -> nameStatus.createChanges(project, root, thisRevision, parentRevision),
+                vcs,
+                revertible
+            );
+        }
+        return new GitCommittedChangeList(
+            changeListName,
+            fullComment,
+            committerName,
+            thisRevision,
+            commitDate,
+            loadChanges(project, root, thisRevision, parents, s, skipDiffsForMerge, local),
+            vcs,
+            revertible
+        );
+    }
 
+    /**
+     * Reads the name-status lines up to the first line which is not one, the same lines as {@link #parseChanges} parses
+     */
+    @Nonnull
+    private static NameStatus readNameStatus(@Nonnull StringScanner s) throws VcsException {
+        StringBuilder statuses = new StringBuilder();
+        List<String> paths = new ArrayList<>();
+        while (s.hasMoreData()) {
+            if (s.isEol()) {
+                s.nextLine();
+                continue;
+            }
+            if ("CADUMRT".indexOf(s.peek()) == -1) {
+                break;
+            }
+            String[] tokens = s.line().split("\t");
+            char status = tokens[0].charAt(0);
+            if (status == 'R') {
+                paths.add(GitUtil.unescapePath(tokens[1]));
+            }
+            paths.add(GitUtil.unescapePath(tokens[tokens.length - 1]));
+            statuses.append(status);
+        }
+        return new NameStatus(statuses.toString(), ArrayUtil.toStringArray(paths));
+    }
+
+    /**
+     * The name-status lines of a commit: the status letter of each line, and its unescaped path, preceded by the old path for renames
+     */
+    private static class NameStatus {
+        @Nonnull
+        private final String myStatuses;
+        @Nonnull
+        private final String[] myPaths;
+
+        NameStatus(@Nonnull String statuses, @Nonnull String[] paths) {
+            myStatuses = statuses;
+            myPaths = paths;
+        }
+
+        /**
+         * Creates the changes the same way as {@link #parseChanges} does
+         */
+        @Nonnull
+        List<Change> createChanges(
+            @Nonnull Project project,
+            @Nonnull VirtualFile root,
+            @Nonnull GitRevisionNumber thisRevision,
+            @Nullable GitRevisionNumber parentRevision
+        ) throws VcsException {
+            List<Change> changes = new ArrayList<>(myStatuses.length());
+            int next = 0;
+            for (int i = 0; i < myStatuses.length(); i++) {
+                ContentRevision before;
+                ContentRevision after;
+                FileStatus status;
+                switch (myStatuses.charAt(i)) {
+                    case 'C':
+                    case 'A':
+                        status = FileStatus.ADDED;
+                        before = null;
+                        after = GitContentRevision.createRevision(root, myPaths[next++], thisRevision, project, false, false, false);
+                        break;
+                    case 'U':
+                    case 'M':
+                        status = myStatuses.charAt(i) == 'U' ? FileStatus.MERGED_WITH_CONFLICTS : FileStatus.MODIFIED;
+                        before = GitContentRevision.createRevision(root, myPaths[next], parentRevision, project, false, true, false);
+                        after = GitContentRevision.createRevision(root, myPaths[next++], thisRevision, project, false, false, false);
+                        break;
+                    case 'D':
+                        status = FileStatus.DELETED;
+                        before = GitContentRevision.createRevision(root, myPaths[next++], parentRevision, project, true, true, false);
+                        after = null;
+                        break;
+                    case 'R':
+                        status = FileStatus.MODIFIED;
+                        before = GitContentRevision.createRevision(root, myPaths[next++], parentRevision, project, true, true, false);
+                        after = GitContentRevision.createRevision(root, myPaths[next++], thisRevision, project, false, false, false);
+                        break;
+                    case 'T':
+                        status = FileStatus.MODIFIED;
+                        before = GitContentRevision.createRevision(root, myPaths[next], parentRevision, project, true, true, false);
+                        after = GitContentRevision.createRevisionForTypeChange(project, root, myPaths[next++], thisRevision, false);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown file status: " + myStatuses.charAt(i));
+                }
+                changes.add(new Change(before, after, status));
+            }
+            return changes;
+        }
+    }
+
+    @Nonnull
+    private static List<Change> loadChanges(
+        Project project,
+        VirtualFile root,
+        GitRevisionNumber thisRevision,
+        String[] parents,
+        StringScanner s,
+        boolean skipDiffsForMerge,
+        boolean local
+    ) throws VcsException {
+        List<Change> changes = new ArrayList<>();
         if (skipDiffsForMerge || (parents.length <= 1)) {
             GitRevisionNumber parentRevision = parents.length > 0 ? resolveReference(project, root, parents[0]) : null;
             // This is the first or normal commit with the single parent.
@@ -387,17 +586,7 @@ public class GitChangeUtils {
                 }
             }
         }
-        String changeListName = String.format("%s(%s)", commentSubject, revisionNumber);
-        return new GitCommittedChangeList(
-            changeListName,
-            fullComment,
-            committerName,
-            thisRevision,
-            commitDate,
-            changes,
-            assertNotNull(GitVcs.getInstance(project)),
-            revertible
-        );
+        return changes;
     }
 
     public static long longForSHAHash(String revisionNumber) {
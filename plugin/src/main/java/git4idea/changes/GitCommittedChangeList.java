@@ -15,21 +15,31 @@
  */
 package git4idea.changes;
 
+import consulo.application.util.function.ThrowableComputable;
+import consulo.logging.Logger;
 import consulo.versionControlSystem.AbstractVcs;
+import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.change.Change;
 import consulo.versionControlSystem.versionBrowser.CommittedChangeListForRevision;
 import git4idea.GitRevisionNumber;
 import git4idea.GitVcs;
 
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
 public class GitCommittedChangeList extends CommittedChangeListForRevision
 {
+	private static final Logger LOG = Logger.getInstance(GitCommittedChangeList.class);
 
 	private final boolean myModifiable;
 	private final AbstractVcs myVcs;
+	@Nullable
+	private ThrowableComputable<Collection<Change>, VcsException> myChangesLoader;
+	@Nullable
+	private Collection<Change> myLoadedChanges;
 
 	@SuppressWarnings("unused") // used externally
 	@Deprecated
@@ -60,6 +70,47 @@ public class GitCommittedChangeList extends CommittedChangeListForRevision
 		myModifiable = isModifiable;
 	}
 
+	/**
+	 * Creates a changelist which creates its changes by the given loader when they are requested for the first time.
+	 * The loader is not expected to fail: everything which may fail, e.g. running Git, should be done before.
+	 */
+	public GitCommittedChangeList(@Nonnull String name,
+			@Nonnull String comment,
+			@Nonnull String committerName,
+			@Nonnull GitRevisionNumber revisionNumber,
+			@Nonnull Date commitDate,
+			@Nonnull ThrowableComputable<Collection<Change>, VcsException> changesLoader,
+			@Nonnull GitVcs vcs,
+			boolean isModifiable)
+	{
+		this(name, comment, committerName, revisionNumber, commitDate, Collections.<Change>emptyList(), vcs, isModifiable);
+		myChangesLoader = changesLoader;
+	}
+
+	@Override
+	public Collection<Change> getChanges()
+	{
+		synchronized(this)
+		{
+			if(myChangesLoader == null)
+			{
+				return myLoadedChanges != null ? myLoadedChanges : super.getChanges();
+			}
+			try
+			{
+				myLoadedChanges = myChangesLoader.compute();
+			}
+			catch(VcsException e)
+			{
+				// the loader only creates the changes from the data checked when the changelist was created
+				LOG.error("Couldn't create the changes of " + getRevisionNumber().asString(), e);
+				return Collections.emptyList();
+			}
+			myChangesLoader = null;
+			return myLoadedChanges;
+		}
+	}
+
 	@Override
 	public boolean isModifiable()
 	{
@@ -17,12 +17,12 @@ package git4idea.changes;
 
 import consulo.logging.Logger;
 import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
 import consulo.util.lang.Pair;
 import consulo.versionControlSystem.FilePath;
 import consulo.versionControlSystem.ProjectLevelVcsManager;
 import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.VcsOutgoingChangesProvider;
-import consulo.versionControlSystem.action.VcsContextFactory;
 import consulo.versionControlSystem.change.Change;
 import consulo.versionControlSystem.history.VcsRevisionNumber;
 import consulo.versionControlSystem.util.ObjectsConvertor;
@@ -32,16 +32,30 @@ import git4idea.GitBranch;
 import git4idea.GitBranchesSearcher;
 import git4idea.GitRevisionNumber;
 import git4idea.GitUtil;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitSimpleHandler;
 import git4idea.history.GitHistoryUtils;
-import git4idea.history.browser.SHAHash;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+/**
+ * <p>The outgoing commits of the current branch (the commits which are not reachable from its tracked branch) are kept per root and
+ * per tracked branch, together with the merge base and the author times of the commits, and are reused while neither tip moves.</p>
+ *
+ * <p>When HEAD moves forward, only the new commits are walked. Otherwise the outgoing commits are read again, the walk
+ * being bounded by the outgoing commits anyway. The merge base is taken from the boundary of the walk if it is unambiguous.</p>
+ */
 public class GitOutgoingChangesProvider implements VcsOutgoingChangesProvider<CommittedChangeList> {
   private final static Logger LOG = Logger.getInstance(GitOutgoingChangesProvider.class);
   private final Project myProject;
+  // root -> "<local branch> <tracked branch>" -> the outgoing commits
+  private final Map<VirtualFile, Map<String, OutgoingHolder>> myOutgoing = ContainerUtil.newConcurrentMap();
 
   public GitOutgoingChangesProvider(Project project) {
     myProject = project;
@@ -55,13 +69,12 @@ public class GitOutgoingChangesProvider implements VcsOutgoingChangesProvider<Co
     if (searcher.getLocal() == null || searcher.getRemote() == null) {
       return new Pair<>(null, Collections.<CommittedChangeList>emptyList());
     }
-    GitRevisionNumber base = getMergeBase(myProject, vcsRoot, searcher.getLocal(), searcher.getRemote());
-    if (base == null) {
+    OutgoingCommits outgoing = getOutgoingCommits(vcsRoot, searcher.getLocal(), searcher.getRemote());
+    if (outgoing.myBase == null) {
       return new Pair<>(null, Collections.<CommittedChangeList>emptyList());
     }
-    List<GitCommittedChangeList> lists =
-      GitUtil.getLocalCommittedChanges(myProject, vcsRoot, handler -> handler.addParameters(base.asString() + "..HEAD"));
-    return new Pair<>(base, ObjectsConvertor.convert(lists, o -> o));
+    List<GitCommittedChangeList> lists = getChangeLists(vcsRoot, outgoing);
+    return new Pair<>(outgoing.myBase, ObjectsConvertor.convert(lists, o -> o));
   }
 
   @Nullable
@@ -80,7 +93,7 @@ public class GitOutgoingChangesProvider implements VcsOutgoingChangesProvider<Co
       LOG.info("local or remote not found");
       return null;
     }
-    GitRevisionNumber base = getMergeBase(myProject, root, searcher.getLocal(), searcher.getRemote());
+    GitRevisionNumber base = getOutgoingCommits(root, searcher.getLocal(), searcher.getRemote()).myBase;
     LOG.debug("found base: " + ((base == null) ? null : base.asString()));
     return base;
   }
@@ -92,35 +105,25 @@ public class GitOutgoingChangesProvider implements VcsOutgoingChangesProvider<Co
     if (searcher.getLocal() == null || searcher.getRemote() == null) {
       return new ArrayList<>(localChanges); // no information, better strict approach (see getOutgoingChanges() code)
     }
-    GitRevisionNumber base;
+    OutgoingCommits outgoing;
     try {
-      base = getMergeBase(myProject, vcsRoot, searcher.getLocal(), searcher.getRemote());
+      outgoing = getOutgoingCommits(vcsRoot, searcher.getLocal(), searcher.getRemote());
     }
     catch (VcsException e) {
       LOG.info(e);
       return new ArrayList<>(localChanges);
     }
-    if (base == null) {
+    if (outgoing.myBase == null) {
       return new ArrayList<>(localChanges); // no information, better strict approach (see getOutgoingChanges() code)
     }
-    List<Pair<SHAHash, Date>> hashes = GitHistoryUtils.onlyHashesHistory(
-      myProject,
-      VcsContextFactory.getInstance().createFilePathOn(vcsRoot),
-      vcsRoot,
-      (base.asString() + "..HEAD")
-    );
 
-    if (hashes.isEmpty()) return Collections.emptyList(); // no local commits
-    String first = hashes.get(0).getFirst().getValue(); // optimization
-    Set<String> localHashes = new HashSet<>();
-    for (Pair<SHAHash, Date> hash : hashes) {
-      localHashes.add(hash.getFirst().getValue());
-    }
+    Set<String> localHashes = outgoing.myAuthorTimes.keySet();
+    if (localHashes.isEmpty()) return Collections.emptyList(); // no local commits
     Collection<Change> result = new ArrayList<>();
     for (Change change : localChanges) {
       if (change.getBeforeRevision() != null) {
         String changeBeforeRevision = change.getBeforeRevision().getRevisionNumber().asString().trim();
-        if (first.equals(changeBeforeRevision) || localHashes.contains(changeBeforeRevision)) {
+        if (localHashes.contains(changeBeforeRevision)) {
           result.add(change);
         }
       }
@@ -132,6 +135,10 @@ public class GitOutgoingChangesProvider implements VcsOutgoingChangesProvider<Co
   @Override
   public Date getRevisionDate(VcsRevisionNumber revision, FilePath file) {
     if (VcsRevisionNumber.NULL.equals(revision)) return null;
+    Long authorTime = getCachedAuthorTime(file, revision.asString());
+    if (authorTime != null) {
+      return new Date(authorTime);
+    }
     try {
       return new Date(GitHistoryUtils.getAuthorTime(myProject, file, revision.asString()));
     }
@@ -140,14 +147,217 @@ public class GitOutgoingChangesProvider implements VcsOutgoingChangesProvider<Co
     }
   }
 
+  @Nullable
+  private Long getCachedAuthorTime(@Nonnull FilePath file, @Nonnull String hash) {
+    VirtualFile root = GitUtil.getGitRootOrNull(file);
+    Map<String, OutgoingHolder> holders = root == null ? null : myOutgoing.get(root);
+    if (holders == null) {
+      return null;
+    }
+    for (OutgoingHolder holder : holders.values()) {
+      OutgoingCommits outgoing = holder.myCommits;
+      Long authorTime = outgoing == null ? null : outgoing.myAuthorTimes.get(hash);
+      if (authorTime != null) {
+        return authorTime;
+      }
+    }
+    return null;
+  }
+
   /**
-   * Get a merge base between the current branch and specified branch.
-   *
-   * @return the common commit or null if the there is no common commit
+   * The outgoing commits for the given tips
    */
-  @Nullable
-  private static GitRevisionNumber getMergeBase(@Nonnull Project project, @Nonnull VirtualFile root,
-                                                @Nonnull GitBranch currentBranch, @Nonnull GitBranch branch) throws VcsException {
-    return GitHistoryUtils.getMergeBase(project, root, currentBranch.getFullName(), branch.getFullName());
+  private static class OutgoingCommits {
+    @Nonnull private final String myHead;
+    @Nonnull private final String myUpstream;
+    /**
+     * The merge base, or null if there is no common commit
+     */
+    @Nullable private final GitRevisionNumber myBase;
+    /**
+     * The outgoing commits, newest first, with their author times
+     */
+    @Nonnull private final Map<String, Long> myAuthorTimes;
+    /**
+     * The change lists of the outgoing commits loaded so far
+     */
+    @Nonnull private final Map<String, GitCommittedChangeList> myChangeLists = ContainerUtil.newConcurrentMap();
+
+    OutgoingCommits(@Nonnull String head,
+                    @Nonnull String upstream,
+                    @Nullable GitRevisionNumber base,
+                    @Nonnull Map<String, Long> authorTimes,
+                    @Nullable OutgoingCommits previous) {
+      myHead = head;
+      myUpstream = upstream;
+      myBase = base;
+      myAuthorTimes = authorTimes;
+      if (previous != null) {
+        for (Map.Entry<String, GitCommittedChangeList> entry : previous.myChangeLists.entrySet()) {
+          if (authorTimes.containsKey(entry.getKey())) {
+            myChangeLists.put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+    }
+  }
+
+  private static class OutgoingHolder {
+    @Nullable private volatile OutgoingCommits myCommits;
+  }
+
+  @Nonnull
+  private OutgoingCommits getOutgoingCommits(@Nonnull VirtualFile root, @Nonnull GitBranch currentBranch, @Nonnull GitBranch branch)
+    throws VcsException {
+    String head = GitChangeUtils.resolveReference(myProject, root, currentBranch.getFullName()).asString();
+    String upstream = GitChangeUtils.resolveReference(myProject, root, branch.getFullName()).asString();
+    OutgoingHolder holder = myOutgoing.computeIfAbsent(root, r -> ContainerUtil.newConcurrentMap())
+      .computeIfAbsent(currentBranch.getFullName() + " " + branch.getFullName(), key -> new OutgoingHolder());
+    synchronized (holder) {
+      OutgoingCommits outgoing = holder.myCommits;
+      if (outgoing == null || !outgoing.myHead.equals(head) || !outgoing.myUpstream.equals(upstream)) {
+        long start = System.currentTimeMillis();
+        outgoing = update(root, outgoing, head, upstream);
+        holder.myCommits = outgoing;
+        LOG.debug("Updated the outgoing commits of " + currentBranch.getName() + " in " + root.getPath() +
+                  " in " + (System.currentTimeMillis() - start) + " ms, " + outgoing.myAuthorTimes.size() + " commits");
+      }
+      return outgoing;
+    }
+  }
+
+  @Nonnull
+  private OutgoingCommits update(@Nonnull VirtualFile root, @Nullable OutgoingCommits old, @Nonnull String head, @Nonnull String upstream)
+    throws VcsException {
+    if (old != null && old.myUpstream.equals(upstream) && isAncestor(root, old.myHead, head)) {
+      // HEAD has moved forward: only the new commits are walked
+      Walk walk = walk(root, head, "^" + old.myHead, "^" + upstream);
+      Map<String, Long> authorTimes = new LinkedHashMap<>(walk.myAuthorTimes);
+      authorTimes.putAll(old.myAuthorTimes);
+      // if the new commits are based on the old outgoing commits only, nothing has become common with the upstream
+      Set<String> known = new HashSet<>(old.myAuthorTimes.keySet());
+      known.add(old.myHead);
+      boolean sameBase = !walk.myAuthorTimes.isEmpty() && known.containsAll(walk.myBoundary);
+      GitRevisionNumber base = sameBase ? old.myBase : GitHistoryUtils.getMergeBase(myProject, root, head, upstream);
+      return new OutgoingCommits(head, upstream, base, authorTimes, old);
+    }
+
+    Walk walk = walk(root, head, "^" + upstream);
+    GitRevisionNumber base;
+    if (walk.myAuthorTimes.isEmpty()) {
+      // HEAD is reachable from the upstream
+      base = GitChangeUtils.resolveReference(myProject, root, head);
+    }
+    else if (walk.myBoundary.isEmpty()) {
+      // no common commits
+      base = null;
+    }
+    else if (walk.myBoundary.size() == 1) {
+      // every common commit is reachable from the single parent of the outgoing commits which is not outgoing itself
+      base = GitChangeUtils.resolveReference(myProject, root, walk.myBoundary.iterator().next());
+    }
+    else {
+      base = GitHistoryUtils.getMergeBase(myProject, root, head, upstream);
+    }
+    return new OutgoingCommits(head, upstream, base, walk.myAuthorTimes, old);
+  }
+
+  private static class Walk {
+    /**
+     * The walked commits, newest first, with their author times
+     */
+    @Nonnull private final Map<String, Long> myAuthorTimes = new LinkedHashMap<>();
+    /**
+     * The excluded parents of the walked commits
+     */
+    @Nonnull private final Set<String> myBoundary = new HashSet<>();
+  }
+
+  @Nonnull
+  private Walk walk(@Nonnull VirtualFile root, @Nonnull String... revisions) throws VcsException {
+    GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.LOG);
+    h.setSilent(true);
+    h.addParameters("--boundary", "--format=%m%H %at");
+    h.addParameters(revisions);
+    h.endOptions();
+    String output = h.run();
+
+    Walk walk = new Walk();
+    for (String line : output.split("\n")) {
+      if (line.length() < 2) {
+        continue;
+      }
+      int separator = line.indexOf(' ');
+      if (separator < 0) {
+        throw new VcsException("Unexpected output of git log: " + line);
+      }
+      String hash = line.substring(1, separator);
+      if (line.charAt(0) == '-') {
+        walk.myBoundary.add(hash);
+      }
+      else {
+        try {
+          walk.myAuthorTimes.put(hash, Long.parseLong(line.substring(separator + 1).trim()) * 1000);
+        }
+        catch (NumberFormatException e) {
+          throw new VcsException("Unexpected output of git log: " + line);
+        }
+      }
+    }
+    return walk;
+  }
+
+  private boolean isAncestor(@Nonnull VirtualFile root, @Nonnull String ancestor, @Nonnull String descendant) {
+    GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.MERGE_BASE);
+    h.setSilent(true);
+    h.addParameters("--is-ancestor", ancestor, descendant);
+    try {
+      h.run();
+      return true;
+    }
+    catch (VcsException e) {
+      // exit code 1 means "not an ancestor"
+      return false;
+    }
+  }
+
+  /**
+   * Loads the change lists of the outgoing commits, which were not loaded yet, in one {@code git log --no-walk --stdin} call.
+   */
+  @Nonnull
+  private List<GitCommittedChangeList> getChangeLists(@Nonnull VirtualFile root, @Nonnull OutgoingCommits outgoing)
+    throws VcsException {
+    List<String> missing = new ArrayList<>();
+    for (String hash : outgoing.myAuthorTimes.keySet()) {
+      if (!outgoing.myChangeLists.containsKey(hash)) {
+        missing.add(hash);
+      }
+    }
+    if (!missing.isEmpty()) {
+      GitUtil.getLocalCommittedChanges(myProject, root, h -> {
+        h.addParameters("--no-walk", "--stdin");
+        h.setInputProcessor(stdin -> {
+          try (Writer out = new OutputStreamWriter(stdin, StandardCharsets.US_ASCII)) {
+            for (String hash : missing) {
+              out.write(hash + "\n");
+            }
+            return true;
+          }
+          catch (IOException e) {
+            LOG.warn("Couldn't pass the outgoing commits to git log", e);
+            return false;
+          }
+        });
+      }, list -> outgoing.myChangeLists.put(list.getRevisionNumber().asString(), list), false);
+    }
+
+    List<GitCommittedChangeList> result = new ArrayList<>();
+    for (String hash : outgoing.myAuthorTimes.keySet()) {
+      GitCommittedChangeList list = outgoing.myChangeLists.get(hash);
+      if (list != null) {
+        result.add(list);
+      }
+    }
+    return result;
   }
 }
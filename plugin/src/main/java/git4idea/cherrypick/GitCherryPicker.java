@@ -27,11 +27,13 @@ import consulo.project.ui.notification.event.NotificationListener;
 import consulo.ui.annotation.RequiredUIAccess;
 import consulo.util.collection.ArrayUtil;
 import consulo.util.collection.ContainerUtil;
+import consulo.util.io.FileUtil;
 import consulo.util.lang.ObjectUtil;
 import consulo.util.lang.StringUtil;
 import consulo.versionControlSystem.AbstractVcsHelper;
 import consulo.versionControlSystem.FilePath;
 import consulo.versionControlSystem.VcsKey;
+import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.VcsNotifier;
 import consulo.versionControlSystem.change.*;
 import consulo.versionControlSystem.distributed.DvcsUtil;
@@ -46,15 +48,19 @@ import consulo.versionControlSystem.update.RefreshVFsSynchronously;
 import consulo.virtualFileSystem.LocalFileSystem;
 import consulo.virtualFileSystem.VirtualFile;
 import git4idea.GitLocalBranch;
+import git4idea.GitRevisionNumber;
 import git4idea.GitUtil;
 import git4idea.GitVcs;
 import git4idea.commands.Git;
+import git4idea.commands.GitCommand;
 import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitSimpleHandler;
 import git4idea.commands.GitSimpleEventDetector;
 import git4idea.commands.GitUntrackedFilesOverwrittenByOperationDetector;
 import git4idea.config.GitVcsSettings;
 import git4idea.merge.GitConflictResolver;
 import git4idea.repo.GitRepository;
+import git4idea.repo.GitRepositoryFiles;
 import git4idea.repo.GitRepositoryManager;
 import git4idea.util.GitUntrackedFilesHelper;
 import jakarta.annotation.Nonnull;
@@ -143,13 +149,28 @@ public class GitCherryPicker extends VcsCherryPicker {
         @Nonnull List<VcsFullCommitDetails> commits,
         @Nonnull List<GitCommitWrapper> successfulCommits,
         @Nonnull List<GitCommitWrapper> alreadyPicked
+    ) {
+        boolean autoCommit = isAutoCommit();
+        if (autoCommit && commits.size() > 1) {
+            return cherryPickInBatch(repository, commits, successfulCommits, alreadyPicked);
+        }
+        return cherryPickOneByOne(repository, commits, autoCommit, successfulCommits, alreadyPicked);
+    }
+
+    // return true to continue with other roots, false to break execution
+    @RequiredUIAccess
+    private boolean cherryPickOneByOne(
+        @Nonnull GitRepository repository,
+        @Nonnull List<VcsFullCommitDetails> commits,
+        boolean autoCommit,
+        @Nonnull List<GitCommitWrapper> successfulCommits,
+        @Nonnull List<GitCommitWrapper> alreadyPicked
     ) {
         for (VcsFullCommitDetails commit : commits) {
             GitSimpleEventDetector conflictDetector = new GitSimpleEventDetector(CHERRY_PICK_CONFLICT);
             GitSimpleEventDetector localChangesOverwrittenDetector = new GitSimpleEventDetector(LOCAL_CHANGES_OVERWRITTEN_BY_CHERRY_PICK);
             GitUntrackedFilesOverwrittenByOperationDetector untrackedFilesDetector =
                 new GitUntrackedFilesOverwrittenByOperationDetector(repository.getRoot());
-            boolean autoCommit = isAutoCommit();
             GitCommandResult result = myGit.cherryPick(
                 repository,
                 commit.getId().asString(),
@@ -158,87 +179,232 @@ public class GitCherryPicker extends VcsCherryPicker {
                 localChangesOverwrittenDetector,
                 untrackedFilesDetector
             );
-            GitCommitWrapper commitWrapper = new GitCommitWrapper(commit);
-            if (result.success()) {
-                if (autoCommit) {
-                    successfulCommits.add(commitWrapper);
-                }
-                else {
-                    boolean committed = updateChangeListManagerShowCommitDialogAndRemoveChangeListOnSuccess(
-                        repository,
-                        commitWrapper,
-                        successfulCommits,
-                        alreadyPicked
-                    );
-                    if (!committed) {
-                        notifyCommitCancelled(commitWrapper, successfulCommits);
-                        return false;
-                    }
-                }
+            Continuation continuation = handleResult(
+                repository,
+                new GitCommitWrapper(commit),
+                result,
+                autoCommit,
+                conflictDetector,
+                localChangesOverwrittenDetector,
+                untrackedFilesDetector,
+                successfulCommits,
+                alreadyPicked
+            );
+            if (continuation != Continuation.NEXT_COMMIT) {
+                return continuation == Continuation.NEXT_ROOT;
             }
-            else if (conflictDetector.hasHappened()) {
-                boolean mergeCompleted = new CherryPickConflictResolver(
-                    myProject,
-                    myGit,
-                    repository.getRoot(),
-                    commit.getId().asString(),
-                    VcsUserUtil.getShortPresentation(commit.getAuthor()),
-                    commit.getSubject()
-                ).merge();
-
-                if (mergeCompleted) {
-                    boolean committed = updateChangeListManagerShowCommitDialogAndRemoveChangeListOnSuccess(
-                        repository,
-                        commitWrapper,
-                        successfulCommits,
-                        alreadyPicked
-                    );
-                    if (!committed) {
-                        notifyCommitCancelled(commitWrapper, successfulCommits);
-                        return false;
-                    }
-                }
-                else {
-                    updateChangeListManager(commit);
-                    notifyConflictWarning(repository, commitWrapper, successfulCommits);
-                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cherry-picks all commits by a single {@code git cherry-pick} sequencer run instead of a process per commit.
+     * If the sequencer stops at some commit, the commits picked before it are reported as successful,
+     * and the sequencer state is dropped, so that the stopped commit is left as after a single cherry-pick:
+     * it is handled as such (e.g. conflicts are offered to be resolved), and the rest of the commits are picked one by one.
+     * The VFS is refreshed once for the commits picked by the sequencer.
+     */
+    @RequiredUIAccess
+    private boolean cherryPickInBatch(
+        @Nonnull GitRepository repository,
+        @Nonnull List<VcsFullCommitDetails> commits,
+        @Nonnull List<GitCommitWrapper> successfulCommits,
+        @Nonnull List<GitCommitWrapper> alreadyPicked
+    ) {
+        List<VcsFullCommitDetails> pickedCommits = new ArrayList<>();
+        List<VcsFullCommitDetails> remaining;
+        GitCommandResult result;
+        GitSimpleEventDetector conflictDetector = new GitSimpleEventDetector(CHERRY_PICK_CONFLICT);
+        GitSimpleEventDetector localChangesOverwrittenDetector = new GitSimpleEventDetector(LOCAL_CHANGES_OVERWRITTEN_BY_CHERRY_PICK);
+        GitUntrackedFilesOverwrittenByOperationDetector untrackedFilesDetector =
+            new GitUntrackedFilesOverwrittenByOperationDetector(repository.getRoot());
+        try {
+            String startHead = GitRevisionNumber.resolve(myProject, repository.getRoot(), "HEAD").asString();
+            result = myGit.cherryPick(
+                repository,
+                ContainerUtil.map(commits, commit -> commit.getId().asString()),
+                true,
+                conflictDetector,
+                localChangesOverwrittenDetector,
+                untrackedFilesDetector
+            );
+            if (result.success()) {
+                pickedCommits.addAll(commits);
+                for (VcsFullCommitDetails commit : commits) {
+                    successfulCommits.add(new GitCommitWrapper(commit));
                 }
+                return true;
             }
-            else if (untrackedFilesDetector.wasMessageDetected()) {
-                String description = commitDetails(commitWrapper) + "<br/>" +
-                    "Some untracked working tree files would be overwritten by cherry-pick.<br/>" +
-                    "Please move, remove or add them before you can cherry-pick. <a href='view'>View them</a>";
-                description += getSuccessfulCommitDetailsIfAny(successfulCommits);
-
-                GitUntrackedFilesHelper.notifyUntrackedFilesOverwrittenBy(
-                    myProject,
-                    repository.getRoot(),
-                    untrackedFilesDetector.getRelativeFilePaths(),
-                    LocalizeValue.localizeTODO("cherry-pick"),
-                    LocalizeValue.localizeTODO(description)
-                );
+
+            // each successfully picked commit creates exactly one new commit, the sequencer stops at the next one
+            int pickedCount = countCommitsSince(repository, startHead);
+            if (pickedCount >= commits.size()) {
+                LOG.warn("Cherry-pick failed, but " + pickedCount + " commits were picked from " + commits.size());
+                myGit.cherryPickQuit(repository);
+                notifyError(result.getErrorOutputAsHtmlValue(), new GitCommitWrapper(commits.get(0)), successfulCommits);
                 return false;
             }
-            else if (localChangesOverwrittenDetector.hasHappened()) {
-                notifyError(
-                    LocalizeValue.localizeTODO(
-                        "Your local changes would be overwritten by cherry-pick.<br/>Commit your changes or stash them to proceed."
-                    ),
+            for (VcsFullCommitDetails commit : commits.subList(0, pickedCount)) {
+                pickedCommits.add(commit);
+                successfulCommits.add(new GitCommitWrapper(commit));
+            }
+            remaining = commits.subList(pickedCount, commits.size());
+            dropSequencerState(repository);
+        }
+        catch (VcsException e) {
+            LOG.warn("Couldn't cherry-pick in batch in " + repository, e);
+            myGit.cherryPickQuit(repository);
+            notifyError(LocalizeValue.localizeTODO(e.getMessage()), new GitCommitWrapper(commits.get(0)), successfulCommits);
+            return false;
+        }
+        finally {
+            Collection<Change> changes = new ArrayList<>();
+            for (VcsFullCommitDetails commit : pickedCommits) {
+                changes.addAll(commit.getChanges());
+            }
+            if (!changes.isEmpty()) {
+                RefreshVFsSynchronously.updateChanges(changes);
+            }
+        }
+
+        Continuation continuation = handleResult(
+            repository,
+            new GitCommitWrapper(remaining.get(0)),
+            result,
+            true,
+            conflictDetector,
+            localChangesOverwrittenDetector,
+            untrackedFilesDetector,
+            successfulCommits,
+            alreadyPicked
+        );
+        if (continuation != Continuation.NEXT_COMMIT) {
+            return continuation == Continuation.NEXT_ROOT;
+        }
+        return cherryPickOneByOne(repository, remaining.subList(1, remaining.size()), true, successfulCommits, alreadyPicked);
+    }
+
+    /**
+     * Drops the state of the stopped sequencer, which would fail the next cherry-pick or revert.
+     * If the sequencer stopped on a conflict, {@code CHERRY_PICK_HEAD} is kept, as a single cherry-pick keeps it,
+     * so that the conflict can be resolved and committed, or the cherry-pick aborted.
+     */
+    private void dropSequencerState(@Nonnull GitRepository repository) {
+        GitRepositoryFiles files = repository.getRepositoryFiles();
+        if (files.getCherryPickHead().exists()) {
+            FileUtil.delete(files.getSequencerDir());
+        }
+        else {
+            myGit.cherryPickQuit(repository);
+        }
+    }
+
+    private int countCommitsSince(@Nonnull GitRepository repository, @Nonnull String startHead) throws VcsException {
+        GitSimpleHandler h = new GitSimpleHandler(myProject, repository.getRoot(), GitCommand.REV_LIST);
+        h.setSilent(true);
+        h.addParameters("--count", startHead + "..HEAD");
+        h.endOptions();
+        String output = h.run().trim();
+        try {
+            return Integer.parseInt(output);
+        }
+        catch (NumberFormatException e) {
+            throw new VcsException("Couldn't parse the output: [" + output + "]", e);
+        }
+    }
+
+    @Nonnull
+    @RequiredUIAccess
+    private Continuation handleResult(
+        @Nonnull GitRepository repository,
+        @Nonnull GitCommitWrapper commitWrapper,
+        @Nonnull GitCommandResult result,
+        boolean autoCommit,
+        @Nonnull GitSimpleEventDetector conflictDetector,
+        @Nonnull GitSimpleEventDetector localChangesOverwrittenDetector,
+        @Nonnull GitUntrackedFilesOverwrittenByOperationDetector untrackedFilesDetector,
+        @Nonnull List<GitCommitWrapper> successfulCommits,
+        @Nonnull List<GitCommitWrapper> alreadyPicked
+    ) {
+        if (result.success()) {
+            if (autoCommit) {
+                successfulCommits.add(commitWrapper);
+            }
+            else {
+                boolean committed = updateChangeListManagerShowCommitDialogAndRemoveChangeListOnSuccess(
+                    repository,
                     commitWrapper,
-                    successfulCommits
+                    successfulCommits,
+                    alreadyPicked
                 );
-                return false;
+                if (!committed) {
+                    notifyCommitCancelled(commitWrapper, successfulCommits);
+                    return Continuation.STOP;
+                }
             }
-            else if (isNothingToCommitMessage(result)) {
-                alreadyPicked.add(commitWrapper);
-                return true;
+        }
+        else if (conflictDetector.hasHappened()) {
+            boolean mergeCompleted = new CherryPickConflictResolver(
+                myProject,
+                myGit,
+                repository.getRoot(),
+                commitWrapper.getCommit().getId().asString(),
+                VcsUserUtil.getShortPresentation(commitWrapper.getCommit().getAuthor()),
+                commitWrapper.getCommit().getSubject()
+            ).merge();
+
+            if (mergeCompleted) {
+                boolean committed = updateChangeListManagerShowCommitDialogAndRemoveChangeListOnSuccess(
+                    repository,
+                    commitWrapper,
+                    successfulCommits,
+                    alreadyPicked
+                );
+                if (!committed) {
+                    notifyCommitCancelled(commitWrapper, successfulCommits);
+                    return Continuation.STOP;
+                }
             }
             else {
-                notifyError(result.getErrorOutputAsHtmlValue(), commitWrapper, successfulCommits);
-                return false;
+                updateChangeListManager(commitWrapper.getCommit());
+                notifyConflictWarning(repository, commitWrapper, successfulCommits);
+                return Continuation.STOP;
             }
         }
-        return true;
+        else if (untrackedFilesDetector.wasMessageDetected()) {
+            String description = commitDetails(commitWrapper) + "<br/>" +
+                "Some untracked working tree files would be overwritten by cherry-pick.<br/>" +
+                "Please move, remove or add them before you can cherry-pick. <a href='view'>View them</a>";
+            description += getSuccessfulCommitDetailsIfAny(successfulCommits);
+
+            GitUntrackedFilesHelper.notifyUntrackedFilesOverwrittenBy(
+                myProject,
+                repository.getRoot(),
+                untrackedFilesDetector.getRelativeFilePaths(),
+                LocalizeValue.localizeTODO("cherry-pick"),
+                LocalizeValue.localizeTODO(description)
+            );
+            return Continuation.STOP;
+        }
+        else if (localChangesOverwrittenDetector.hasHappened()) {
+            notifyError(
+                LocalizeValue.localizeTODO(
+                    "Your local changes would be overwritten by cherry-pick.<br/>Commit your changes or stash them to proceed."
+                ),
+                commitWrapper,
+                successfulCommits
+            );
+            return Continuation.STOP;
+        }
+        else if (isNothingToCommitMessage(result)) {
+            alreadyPicked.add(commitWrapper);
+            return Continuation.NEXT_ROOT;
+        }
+        else {
+            notifyError(result.getErrorOutputAsHtmlValue(), commitWrapper, successfulCommits);
+            return Continuation.STOP;
+        }
+        return Continuation.NEXT_COMMIT;
     }
 
     private static boolean isNothingToCommitMessage(@Nonnull GitCommandResult result) {
@@ -653,6 +819,12 @@ public class GitCherryPicker extends VcsCherryPicker {
         return null;
     }
 
+    private enum Continuation {
+        NEXT_COMMIT,
+        NEXT_ROOT, // continue with other roots
+        STOP // break execution
+    }
+
     private static class CherryPickData {
         @Nonnull
         private final LocalChangeList myChangeList;
@@ -34,6 +34,7 @@ import java.io.File;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 @ServiceAPI(ComponentScope.APPLICATION)
@@ -71,6 +72,19 @@ public interface Git {
         @Nullable Collection<VirtualFile> files
     ) throws VcsException;
 
+    /**
+     * Streams paths of untracked files, relative to the root, to the consumer as soon as they are reported by
+     * {@code git ls-files --others --exclude-standard}, without buffering the whole output.
+     *
+     * @param files files that are to be checked for the unversioned files among them, {@code null} to query the whole repository.
+     */
+    void untrackedFilePaths(
+        @Nonnull Project project,
+        @Nonnull VirtualFile root,
+        @Nullable Collection<VirtualFile> files,
+        @Nonnull Consumer<String> relativePathConsumer
+    ) throws VcsException;
+
     /**
      * Returns files that are ignored by Git (match an ignore pattern).
      * Runs {@code git ls-files --others --ignored --exclude-standard -z} on the given root.
@@ -210,6 +224,24 @@ public interface Git {
         @Nonnull GitLineHandlerListener... listeners
     );
 
+    /**
+     * Cherry-picks the given commits in the given order by a single {@code git cherry-pick} run.
+     * If a commit can't be picked, the sequencer stops and keeps its state until {@link #cherryPickQuit(GitRepository)}.
+     */
+    @Nonnull
+    GitCommandResult cherryPick(
+        @Nonnull GitRepository repository,
+        @Nonnull List<String> hashes,
+        boolean autoCommit,
+        @Nonnull GitLineHandlerListener... listeners
+    );
+
+    /**
+     * Forgets about the stopped cherry-pick sequence, leaving HEAD, the index and the working tree as is.
+     */
+    @Nonnull
+    GitCommandResult cherryPickQuit(@Nonnull GitRepository repository);
+
     @Nonnull
     GitCommandResult getUnmergedFiles(@Nonnull GitRepository repository);
 
@@ -77,6 +77,9 @@ public class GitBinaryHandler extends GitHandler {
                             break;
                         }
                         out.write(buffer, 0, rc);
+                        if (out == myStdout) {
+                            countOutput(rc);
+                        }
                     }
                 }
                 catch (IOException e) {
@@ -0,0 +1,212 @@
+package git4idea.commands;
+
+import consulo.process.ExecutionException;
+import consulo.project.Project;
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Long-living {@code git cat-file --batch} process answering object queries for a root one by one:
+ * each query is a line with an object name, the answer is the header {@code <hash> <type> <size>} and the object content,
+ * or {@code <name> missing}.</p>
+ *
+ * <p>Object names may use the revision syntax ({@code HEAD~1}, {@code v1.0^{commit}}), so references are resolved by the worker too.</p>
+ */
+class GitCatFileWorker extends GitHandler {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    @Nullable
+    private DataInputStream myOut;
+    @Nullable
+    private OutputStream myIn;
+    private volatile long myLastUsed = System.currentTimeMillis();
+
+    GitCatFileWorker(@Nonnull Project project, @Nonnull VirtualFile root) {
+        super(project, root, GitCommand.CAT_FILE);
+        setSilent(true);
+        setNotScheduled();
+        addParameters("--batch");
+    }
+
+    /**
+     * The object read by the worker
+     */
+    static class GitObject {
+        @Nonnull
+        final String hash;
+        @Nonnull
+        final String type;
+        @Nonnull
+        final byte[] content;
+
+        GitObject(@Nonnull String hash, @Nonnull String type, @Nonnull byte[] content) {
+            this.hash = hash;
+            this.type = type;
+            this.content = content;
+        }
+    }
+
+    @Override
+    protected Process startProcess() throws ExecutionException {
+        return myCommandLine.createProcess();
+    }
+
+    @Override
+    protected void startHandlingStreams() {
+        myIn = new BufferedOutputStream(myProcess.getOutputStream());
+        myOut = new DataInputStream(new BufferedInputStream(myProcess.getInputStream(), BUFFER_SIZE));
+        InputStream stderr = myProcess.getErrorStream();
+        Thread t = new Thread(
+            () -> {
+                try {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int rc;
+                    while ((rc = stderr.read(buffer)) != -1) {
+                        LOG.debug("cat-file: " + new String(buffer, 0, rc, StandardCharsets.UTF_8));
+                    }
+                }
+                catch (IOException e) {
+                    LOG.debug(e);
+                }
+            },
+            "Git cat-file stderr reader"
+        );
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * @param name the object name, which may use the revision syntax
+     * @return the object, or null if there is no such object
+     * @throws IOException if the worker has failed and can't be used anymore
+     */
+    @Nullable
+    synchronized GitObject read(@Nonnull String name) throws IOException {
+        if (myIn == null || myOut == null) {
+            throw new IOException("cat-file is not started");
+        }
+        myLastUsed = System.currentTimeMillis();
+        myIn.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+        myIn.flush();
+
+        String header = readLine(myOut);
+        String[] parts = header.split(" ");
+        if (parts.length != 3 || parts[0].length() < 40) {
+            // "<name> missing" or "<name> ambiguous"
+            return null;
+        }
+        int size;
+        try {
+            size = Integer.parseInt(parts[2]);
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Unexpected cat-file header: " + header, e);
+        }
+        byte[] content = new byte[size];
+        myOut.readFully(content);
+        if (myOut.read() != '\n') {
+            throw new IOException("Unexpected end of the object " + parts[0]);
+        }
+        return new GitObject(parts[0], parts[1], content);
+    }
+
+    /**
+     * @param name the object name, which may use the revision syntax
+     * @return the type of the object, or null if there is no such object; the content is skipped
+     * @throws IOException if the worker has failed and can't be used anymore
+     */
+    @Nullable
+    synchronized String readType(@Nonnull String name) throws IOException {
+        if (myIn == null || myOut == null) {
+            throw new IOException("cat-file is not started");
+        }
+        myLastUsed = System.currentTimeMillis();
+        myIn.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+        myIn.flush();
+
+        String header = readLine(myOut);
+        String[] parts = header.split(" ");
+        if (parts.length != 3 || parts[0].length() < 40) {
+            return null;
+        }
+        long size;
+        try {
+            size = Long.parseLong(parts[2]);
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Unexpected cat-file header: " + header, e);
+        }
+        // the content and the trailing line feed
+        for (long left = size + 1; left > 0; ) {
+            int skipped = myOut.skipBytes((int)Math.min(left, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                if (myOut.read() == -1) {
+                    throw new EOFException("cat-file has exited");
+                }
+                skipped = 1;
+            }
+            left -= skipped;
+        }
+        return parts[1];
+    }
+
+    @Nonnull
+    private static String readLine(@Nonnull InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("cat-file has exited");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    long getLastUsed() {
+        return myLastUsed;
+    }
+
+    @Override
+    public void destroyProcess() {
+        if (myProcess != null) {
+            myProcess.destroy();
+        }
+    }
+
+    @Override
+    protected void waitForProcess() {
+        try {
+            myProcess.waitFor();
+            setExitCode(myProcess.exitValue());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            setExitCode(255);
+        }
+    }
+
+    /**
+     * Stops the worker: closing stdin makes cat-file exit.
+     */
+    void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (myIn != null) {
+                    myIn.close();
+                }
+            }
+        }
+        catch (IOException e) {
+            destroyProcess();
+        }
+        waitForProcess();
+    }
+}
@@ -39,6 +39,7 @@ public class GitCommand {
     public static final GitCommand ADD = write("add");
     public static final GitCommand BLAME = read("blame");
     public static final GitCommand BRANCH = read("branch");
+    public static final GitCommand CAT_FILE = read("cat-file");
     public static final GitCommand CHECKOUT = write("checkout");
     public static final GitCommand CHECK_ATTR = read("check-attr");
     public static final GitCommand COMMIT = write("commit");
@@ -47,7 +48,9 @@ public class GitCommand {
     public static final GitCommand CHERRY_PICK = write("cherry-pick");
     public static final GitCommand CLONE = write("clone");
     public static final GitCommand DIFF = read("diff");
+    public static final GitCommand DIFF_TREE = read("diff-tree");
     public static final GitCommand FETCH = read("fetch");  // fetch is a read-command, because it doesn't modify the index
+    public static final GitCommand FOR_EACH_REF = read("for-each-ref");
     public static final GitCommand INIT = write("init");
     public static final GitCommand LOG = read("log");
     public static final GitCommand LS_FILES = read("ls-files");
@@ -0,0 +1,234 @@
+package git4idea.commands;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.Application;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.util.io.FileUtil;
+import git4idea.config.GitConfigCache;
+import git4idea.status.GitNewChangesCollector;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jdk.jfr.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Statistics of the Git processes started by {@link GitHandler}: the number of runs, failures, wall time, time spent waiting
+ * for the {@link git4idea.GitVcs#getCommandLock() command lock} and in the {@link GitProcessScheduler} queue, and the size of the standard output,
+ * aggregated per {@link GitCommand} and per working directory.</p>
+ *
+ * <p>Each run is also emitted as the {@code git4idea.GitCommand} JFR event, so it can be correlated with the rest of a recording.
+ * The aggregated statistics can be dumped to the version control console with the "Dump Git Command Statistics" action.</p>
+ *
+ * <p>Recording is lock-free, so it doesn't add contention to the commands themselves.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.APPLICATION)
+@ServiceImpl
+public class GitCommandStatistics {
+    @Nonnull
+    private final Map<String, Stats> myCommands = ContainerUtil.newConcurrentMap();
+    @Nonnull
+    private final Map<String, Stats> myRoots = ContainerUtil.newConcurrentMap();
+
+    @Inject
+    GitCommandStatistics() {
+    }
+
+    @Nonnull
+    public static GitCommandStatistics getInstance() {
+        return Application.get().getInstance(GitCommandStatistics.class);
+    }
+
+    /**
+     * @param exitCode the exit code, or null if the process couldn't be started
+     */
+    void record(
+        @Nonnull GitCommand command,
+        @Nonnull String workingDirectory,
+        long wallTime,
+        long lockWaitTime,
+        long queueWaitTime,
+        long outputBytes,
+        @Nullable Integer exitCode
+    ) {
+        boolean failed = exitCode == null || exitCode != 0;
+        myCommands.computeIfAbsent(command.name(), name -> new Stats()).add(wallTime, lockWaitTime, queueWaitTime, outputBytes, failed);
+        myRoots.computeIfAbsent(workingDirectory, name -> new Stats()).add(wallTime, lockWaitTime, queueWaitTime, outputBytes, failed);
+
+        GitCommandEvent event = new GitCommandEvent();
+        if (event.shouldCommit()) {
+            event.command = command.name();
+            event.workingDirectory = workingDirectory;
+            event.wallTime = wallTime;
+            event.lockWaitTime = lockWaitTime;
+            event.queueWaitTime = queueWaitTime;
+            event.outputBytes = outputBytes;
+            event.exitCode = exitCode == null ? -1 : exitCode;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param project the project to add the {@link GitConfigCache} statistics of, if any
+     * @return the statistics as a text table, commands and roots sorted by the total wall time
+     */
+    @Nonnull
+    public String dump(@Nullable Project project) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Git command statistics\n");
+        dump(sb, "Command", myCommands);
+        sb.append('\n');
+        dump(sb, "Working directory", myRoots);
+        sb.append('\n');
+        sb.append(GitProcessScheduler.getInstance().getStatistics());
+        sb.append(String.format(
+            "Change collection: HEAD read without full repository update %d times%n",
+            GitNewChangesCollector.getAvoidedFullUpdatesCount()
+        ));
+        if (project != null && !project.isDisposed()) {
+            GitConfigCache configCache = GitConfigCache.getInstance(project);
+            sb.append(String.format(
+                "Config cache: %d hits, %d misses%n",
+                configCache.getHitCount(),
+                configCache.getMissCount()
+            ));
+        }
+        return sb.toString();
+    }
+
+    private static void dump(@Nonnull StringBuilder sb, @Nonnull String keyTitle, @Nonnull Map<String, Stats> statsMap) {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(statsMap.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Stats> entry) -> entry.getValue().myTotalTime.sum()).reversed());
+        sb.append(String.format(
+            "%-30s %8s %8s %10s %8s %8s %8s %8s %10s %10s %12s%n",
+            keyTitle, "runs", "failed", "total ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "lock ms", "queue ms", "stdout KB"
+        ));
+        for (Map.Entry<String, Stats> entry : entries) {
+            Stats stats = entry.getValue();
+            String key = entry.getKey();
+            sb.append(String.format(
+                "%-30s %8d %8d %10d %8d %8d %8d %8d %10d %10d %12d%n",
+                key.length() > 30 ? "…" + key.substring(key.length() - 29) : key,
+                stats.myCount.sum(),
+                stats.myFailed.sum(),
+                stats.myTotalTime.sum(),
+                stats.myHistogram.percentile(0.5),
+                stats.myHistogram.percentile(0.9),
+                stats.myHistogram.percentile(0.99),
+                stats.myMaxTime.get(),
+                stats.myLockWaitTime.sum(),
+                stats.myQueueWaitTime.sum(),
+                stats.myOutputBytes.sum() / 1024
+            ));
+        }
+    }
+
+    /**
+     * Forgets the collected statistics
+     */
+    public void reset() {
+        myCommands.clear();
+        myRoots.clear();
+    }
+
+    @Nonnull
+    static String getWorkingDirectoryKey(@Nonnull File workingDirectory) {
+        return FileUtil.toSystemIndependentName(workingDirectory.getPath());
+    }
+
+    private static class Stats {
+        private final LongAdder myCount = new LongAdder();
+        private final LongAdder myFailed = new LongAdder();
+        private final LongAdder myTotalTime = new LongAdder();
+        private final LongAccumulator myMaxTime = new LongAccumulator(Math::max, 0);
+        private final LongAdder myLockWaitTime = new LongAdder();
+        private final LongAdder myQueueWaitTime = new LongAdder();
+        private final LongAdder myOutputBytes = new LongAdder();
+        private final Histogram myHistogram = new Histogram();
+
+        void add(long wallTime, long lockWaitTime, long queueWaitTime, long outputBytes, boolean failed) {
+            myCount.increment();
+            if (failed) {
+                myFailed.increment();
+            }
+            myTotalTime.add(wallTime);
+            myMaxTime.accumulate(wallTime);
+            myLockWaitTime.add(lockWaitTime);
+            myQueueWaitTime.add(queueWaitTime);
+            myOutputBytes.add(outputBytes);
+            myHistogram.add(wallTime);
+        }
+    }
+
+    /**
+     * Latency histogram with power of two buckets: the bucket {@code i} counts values in {@code [2^(i-1), 2^i)} ms.
+     * Percentiles are reported as the upper bound of the bucket, which is precise enough to tell hot paths.
+     */
+    private static class Histogram {
+        private static final int BUCKETS = 40;
+        private final AtomicLongArray myCounts = new AtomicLongArray(BUCKETS);
+
+        void add(long value) {
+            int bucket = value <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            myCounts.incrementAndGet(bucket);
+        }
+
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += myCounts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += myCounts.get(i);
+                if (seen >= threshold) {
+                    return i == 0 ? 0 : 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+
+    @Name("git4idea.GitCommand")
+    @Label("Git Command")
+    @Category({"Consulo", "Git"})
+    @Description("A Git process started by the Git plugin")
+    @StackTrace(false)
+    static class GitCommandEvent extends Event {
+        @Label("Command")
+        String command;
+        @Label("Working Directory")
+        String workingDirectory;
+        @Label("Wall Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long wallTime;
+        @Label("Lock Wait Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long lockWaitTime;
+        @Label("Queue Wait Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long queueWaitTime;
+        @Label("Standard Output")
+        @DataAmount
+        long outputBytes;
+        @Label("Exit Code")
+        int exitCode;
+    }
+}
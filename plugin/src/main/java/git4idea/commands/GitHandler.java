@@ -46,8 +46,10 @@ import git4idea.config.GitVcsSettings;
 import git4idea.config.GitVersionSpecialty;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import org.jetbrains.git4idea.rt.GitRpcProtocol;
 import org.jetbrains.git4idea.rt.http.GitAskPassXmlRpcHandler;
 import org.jetbrains.git4idea.rt.ssh.GitSSHHandler;
+import org.jetbrains.git4idea.ssh.GitSshConnectionPool;
 import org.jetbrains.git4idea.ssh.GitXmlRpcSshService;
 
 import java.io.File;
@@ -56,6 +58,7 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
 import static git4idea.commands.GitCommand.LockingPolicy.WRITE;
@@ -112,6 +115,14 @@ public abstract class GitHandler {
     private GitVcsSettings myProjectSettings;
 
     private long myStartTime; // git execution start timestamp
+    private long myLockWaitTime; // time spent waiting for the command lock before start
+    private long myQueueWaitTime; // time spent waiting for a permit of the process scheduler
+    private boolean myHoldsPermit; // if true, the permit of the process scheduler must be returned when the process ends
+    private boolean myScheduled = true; // if false, the process is not limited by the process scheduler
+    private volatile boolean myCancelled; // cancelled by the user, possibly before the process has started
+    @Nullable
+    private GitProcessScheduler.Priority myPriority;
+    private final AtomicLong myOutputBytes = new AtomicLong(); // the size of stdout, for statistics
     private static final long LONG_TIME = 10 * 1000;
     @Nullable
     private Collection<String> myUrls;
@@ -414,13 +425,50 @@ public abstract class GitHandler {
         return myIsCancellable;
     }
 
+    /**
+     * Set processor for the standard input of the process. It is called after the process is started,
+     * and it is responsible for closing the stream.
+     *
+     * @param inputProcessor the processor which writes to the standard input
+     */
+    public void setInputProcessor(@Nullable Predicate<OutputStream> inputProcessor) {
+        checkNotStarted();
+        myInputProcessor = inputProcessor;
+    }
+
+    /**
+     * Set the priority lane of the process in the {@link GitProcessScheduler}.
+     * By default it is chosen by the command and {@link GitProcessScheduler#runWithPriority the calling code}.
+     */
+    public void setPriority(@Nonnull GitProcessScheduler.Priority priority) {
+        checkNotStarted();
+        myPriority = priority;
+    }
+
+    /**
+     * Don't limit the process by the {@link GitProcessScheduler}: for long-living processes which are idle most of the time.
+     */
+    void setNotScheduled() {
+        checkNotStarted();
+        myScheduled = false;
+    }
+
     /**
      * Start process
      */
-    public synchronized void start() {
+    public void start() {
         checkNotStarted();
+        // outside of the handler monitor, so that waiting doesn't block cancel(),
+        // and outside of the try: if waiting for the permit is cancelled, the caller must see the cancellation
+        acquirePermit();
+        doStart();
+    }
 
+    private synchronized void doStart() {
         try {
+            if (myCancelled) {
+                throw new ProcessCanceledException();
+            }
             myStartTime = System.currentTimeMillis();
             if (!myProject.isDefault() && !mySilent && (myVcs != null)) {
                 myVcs.showCommandLine("[" + stringifyWorkingDir() + "] " + printableCommandLine());
@@ -454,12 +502,15 @@ public abstract class GitHandler {
         }
         catch (ProcessCanceledException pce) {
             cleanupEnv();
+            releasePermit();
         }
         catch (Throwable t) {
             if (!myProject.getApplication().isUnitTestMode() || !myProject.isDisposed()) {
                 LOG.error(t); // will surely happen if called during unit test disposal, because the working dir is simply removed then
             }
             cleanupEnv();
+            releasePermit();
+            recordStatistics(null);
             myListeners.getMulticaster().startFailed(t);
         }
     }
@@ -481,6 +532,7 @@ public abstract class GitHandler {
         myEnv.put(GitAskPassXmlRpcHandler.GIT_ASK_PASS_HANDLER_ENV, myHttpHandler.toString());
         int port = service.getXmlRcpPort();
         myEnv.put(GitAskPassXmlRpcHandler.GIT_ASK_PASS_PORT_ENV, Integer.toString(port));
+        myEnv.put(GitRpcProtocol.TOKEN_ENV, service.getRpcToken());
         LOG.debug(String.format("handler=%s, port=%s", myHttpHandler, port));
         addAuthListener(httpAuthenticator);
     }
@@ -512,8 +564,15 @@ public abstract class GitHandler {
         myEnv.put(GitSSHHandler.SSH_HANDLER_ENV, mySshHandler.toString());
         int port = ssh.getXmlRcpPort();
         myEnv.put(GitSSHHandler.SSH_PORT_ENV, Integer.toString(port));
+        myEnv.put(GitRpcProtocol.TOKEN_ENV, ssh.getRpcToken());
         LOG.debug(String.format("handler=%s, port=%s", mySshHandler, port));
 
+        if (GitSshConnectionPool.isEnabled()) {
+            GitSshConnectionPool pool = GitSshConnectionPool.getInstance();
+            myEnv.put(GitSSHHandler.SSH_POOL_PORT_ENV, Integer.toString(pool.getPort()));
+            myEnv.put(GitSSHHandler.SSH_POOL_TOKEN_ENV, pool.getToken());
+        }
+
         HttpProxyManager httpProxyManager = HttpProxyManager.getInstance();
         boolean useHttpProxy =
             httpProxyManager.isHttpProxyEnabled() && !isSshUrlExcluded(httpProxyManager, ObjectUtil.assertNotNull(myUrls));
@@ -585,14 +644,18 @@ public abstract class GitHandler {
     }
 
     /**
-     * Cancel activity
+     * Cancel activity: destroys the process, or stops waiting for the permit to start it
      */
-    public synchronized void cancel() {
-        checkStarted();
+    public void cancel() {
         if (!myIsCancellable) {
             throw new IllegalStateException("The process is not cancellable.");
         }
-        destroyProcess();
+        myCancelled = true;
+        synchronized (this) {
+            if (isStarted()) {
+                destroyProcess();
+            }
+        }
     }
 
     /**
@@ -616,6 +679,8 @@ public abstract class GitHandler {
     protected synchronized void setExitCode(int exitCode) {
         if (myExitCode == null) {
             myExitCode = exitCode;
+            releasePermit();
+            recordStatistics(exitCode);
         }
         else {
             LOG.info("Not setting exit code " + exitCode + ", because it was already set to " + myExitCode);
@@ -753,11 +818,18 @@ public abstract class GitHandler {
             return;
         }
 
-        if (WRITE == myCommand.lockingPolicy()) {
-            // need to lock only write operations: reads can be performed even when a write operation is going on
-            vcs.getCommandLock().writeLock().lock();
-        }
+        // the permit is taken before the write lock: a writer holding the lock must not wait in the queue
+        // behind the processes which are themselves blocked by the lock
+        acquirePermit();
+        boolean locked = false;
         try {
+            if (WRITE == myCommand.lockingPolicy()) {
+                // need to lock only write operations: reads can be performed even when a write operation is going on
+                long lockStart = System.currentTimeMillis();
+                vcs.getCommandLock().writeLock().lock();
+                locked = true;
+                myLockWaitTime = System.currentTimeMillis() - lockStart;
+            }
             start();
             if (isStarted()) {
                 if (postStartAction != null) {
@@ -767,9 +839,12 @@ public abstract class GitHandler {
             }
         }
         finally {
-            if (WRITE == myCommand.lockingPolicy()) {
+            if (locked) {
                 vcs.getCommandLock().writeLock().unlock();
             }
+            if (!isStarted()) {
+                releasePermit();
+            }
 
             logTime();
         }
@@ -790,6 +865,58 @@ public abstract class GitHandler {
         return myWorkingDirectory.getPath();
     }
 
+    /**
+     * Adds the size of the standard output read from the process, for {@link GitCommandStatistics}
+     */
+    protected void countOutput(long bytes) {
+        myOutputBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Waits for a permit of the {@link GitProcessScheduler}, unless it is already taken or the process is not scheduled.
+     * Processes started by a {@link GitProcessScheduler#runNested nested request} of a running process don't wait:
+     * the running process holds a permit and can't finish until they do.
+     * Called by the thread starting the process, without holding the handler monitor: {@link #cancel()} stops the waiting.
+     */
+    private void acquirePermit() {
+        if (isScheduled() && !myHoldsPermit && !GitProcessScheduler.isNested()) {
+            GitProcessScheduler.Priority priority = myPriority != null ? myPriority : GitProcessScheduler.getDefaultPriority(myCommand);
+            long waited = GitProcessScheduler.getInstance().acquire(myProject, priority, () -> myCancelled);
+            synchronized (this) {
+                myQueueWaitTime = waited;
+                myHoldsPermit = true;
+            }
+        }
+    }
+
+    /**
+     * Remote commands and commands with an editor are not limited: they run as long as the network or the user takes,
+     * and holding permits for that time would starve the short local commands
+     */
+    private boolean isScheduled() {
+        return myScheduled && !isRemote() && !myEnv.containsKey(GitCommand.GIT_EDITOR_ENV);
+    }
+
+    private synchronized void releasePermit() {
+        if (myHoldsPermit) {
+            myHoldsPermit = false;
+            GitProcessScheduler.getInstance().release();
+        }
+    }
+
+    private void recordStatistics(@Nullable Integer exitCode) {
+        long wallTime = myStartTime > 0 ? System.currentTimeMillis() - myStartTime : 0;
+        GitCommandStatistics.getInstance().record(
+            myCommand,
+            GitCommandStatistics.getWorkingDirectoryKey(myWorkingDirectory),
+            wallTime,
+            myLockWaitTime,
+            myQueueWaitTime,
+            myOutputBytes.get(),
+            exitCode
+        );
+    }
+
     private void logTime() {
         if (myStartTime > 0) {
             long time = System.currentTimeMillis() - myStartTime;
@@ -47,6 +47,12 @@ public abstract class GitHttpAuthService extends GitXmlRpcHandlerService<GitHttp
     return new InternalRequestHandlerDelegate();
   }
 
+  @Nonnull
+  @Override
+  protected Class<?> getRpcInterface() {
+    return GitAskPassXmlRpcHandler.class;
+  }
+
   /**
    * Creates new {@link GitHttpAuthenticator} that will be requested to handle username and password requests from Git.
    */
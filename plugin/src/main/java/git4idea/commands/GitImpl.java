@@ -16,7 +16,9 @@
 package git4idea.commands;
 
 import consulo.annotation.component.ServiceImpl;
+import consulo.git.localize.GitLocalize;
 import consulo.logging.Logger;
+import consulo.process.ProcessOutputTypes;
 import consulo.project.Project;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.dataholder.Key;
@@ -28,6 +30,7 @@ import consulo.versionControlSystem.util.VcsFileUtil;
 import consulo.versionControlSystem.util.VcsUtil;
 import consulo.virtualFileSystem.VirtualFile;
 import consulo.virtualFileSystem.util.VirtualFileUtil;
+import git4idea.GitUtil;
 import git4idea.GitVcs;
 import git4idea.branch.GitRebaseParams;
 import git4idea.config.GitVersionSpecialty;
@@ -46,6 +49,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -109,6 +113,72 @@ public class GitImpl implements Git {
     return untrackedFiles;
   }
 
+  @Override
+  public void untrackedFilePaths(@Nonnull Project project,
+                                 @Nonnull VirtualFile root,
+                                 @Nullable Collection<VirtualFile> files,
+                                 @Nonnull Consumer<String> relativePathConsumer) throws VcsException {
+    if (files == null) {
+      untrackedFilePathsNoChunk(project, root, null, relativePathConsumer);
+    }
+    else {
+      for (List<String> relativePaths : VcsFileUtil.chunkFiles(root, files)) {
+        untrackedFilePathsNoChunk(project, root, relativePaths, relativePathConsumer);
+      }
+    }
+  }
+
+  // paths are read line by line instead of '-z' to avoid accumulating the whole output: unusual names are quoted by Git then
+  private static void untrackedFilePathsNoChunk(@Nonnull Project project,
+                                                @Nonnull VirtualFile root,
+                                                @Nullable List<String> relativePaths,
+                                                @Nonnull Consumer<String> relativePathConsumer) throws VcsException {
+    GitLineHandler h = new GitLineHandler(project, root, GitCommand.LS_FILES);
+    h.setSilent(true);
+    h.setStdoutSuppressed(true);
+    h.addParameters("--exclude-standard", "--others");
+    h.endOptions();
+    if (relativePaths != null) {
+      h.addParameters(relativePaths);
+    }
+
+    StringBuilder errors = new StringBuilder();
+    AtomicReference<VcsException> exception = new AtomicReference<>();
+    h.addLineListener(new GitLineHandlerAdapter() {
+      @Override
+      public void onLineAvailable(String line, Key outputType) {
+        if (outputType == ProcessOutputTypes.STDERR) {
+          errors.append(line).append("\n");
+        }
+        else if (outputType == ProcessOutputTypes.STDOUT && !line.isEmpty() && exception.get() == null) {
+          try {
+            relativePathConsumer.accept(GitUtil.unescapePath(line));
+          }
+          catch (VcsException e) {
+            exception.set(e);
+          }
+        }
+      }
+
+      @Override
+      public void processTerminated(int exitCode) {
+        if (exitCode != 0 && exception.get() == null) {
+          String message = errors.length() > 0 ? errors.toString() : GitLocalize.gitErrorExit(exitCode).get();
+          exception.set(new VcsException(message + "\nCommand line: [" + h.printableCommandLine() + "]"));
+        }
+      }
+
+      @Override
+      public void startFailed(Throwable e) {
+        exception.set(new VcsException(e));
+      }
+    });
+    h.runInCurrentThread(null);
+    if (exception.get() != null) {
+      throw exception.get();
+    }
+  }
+
   @Override
   @Nonnull
   public Set<FilePath> ignoredFilePaths(@Nonnull Project project, @Nonnull VirtualFile root) throws VcsException {
@@ -137,20 +207,7 @@ public class GitImpl implements Git {
                                                        @Nonnull VirtualFile root,
                                                        @Nullable List<String> relativePaths) throws VcsException {
     final Set<VirtualFile> untrackedFiles = new HashSet<>();
-    GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.LS_FILES);
-    h.setSilent(true);
-    h.addParameters("--exclude-standard", "--others", "-z");
-    h.endOptions();
-    if (relativePaths != null) {
-      h.addParameters(relativePaths);
-    }
-
-    final String output = h.run();
-    if (StringUtil.isEmptyOrSpaces(output)) {
-      return untrackedFiles;
-    }
-
-    for (String relPath : output.split("\u0000")) {
+    untrackedFilePathsNoChunk(project, root, relativePaths, relPath -> {
       VirtualFile f = root.findFileByRelativePath(relPath);
       if (f == null) {
         // files was created on disk, but VirtualFile hasn't yet been created,
@@ -160,8 +217,7 @@ public class GitImpl implements Git {
       else {
         untrackedFiles.add(f);
       }
-    }
-
+    });
     return untrackedFiles;
   }
 
@@ -512,18 +568,36 @@ public class GitImpl implements Git {
                                      @Nonnull String hash,
                                      boolean autoCommit,
                                      @Nonnull GitLineHandlerListener... listeners) {
+    return cherryPick(repository, Collections.singletonList(hash), autoCommit, listeners);
+  }
+
+  @Nonnull
+  @Override
+  public GitCommandResult cherryPick(@Nonnull GitRepository repository,
+                                     @Nonnull List<String> hashes,
+                                     boolean autoCommit,
+                                     @Nonnull GitLineHandlerListener... listeners) {
     final GitLineHandler handler = new GitLineHandler(repository.getProject(), repository.getRoot(), GitCommand.CHERRY_PICK);
     handler.addParameters("-x");
     if (!autoCommit) {
       handler.addParameters("-n");
     }
-    handler.addParameters(hash);
+    handler.addParameters(hashes);
     addListeners(handler, listeners);
     handler.setSilent(false);
     handler.setStdoutSuppressed(false);
     return run(handler);
   }
 
+  @Nonnull
+  @Override
+  public GitCommandResult cherryPickQuit(@Nonnull GitRepository repository) {
+    GitLineHandler handler = new GitLineHandler(repository.getProject(), repository.getRoot(), GitCommand.CHERRY_PICK);
+    handler.addParameters("--quit");
+    handler.setSilent(true);
+    return run(handler);
+  }
+
   @Nonnull
   @Override
   public GitCommandResult getUnmergedFiles(@Nonnull GitRepository repository) {
@@ -0,0 +1,305 @@
+package git4idea.commands;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.disposer.Disposable;
+import consulo.logging.Logger;
+import consulo.project.Project;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.GitRevisionNumber;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Answers small read-only queries about commits (resolving a reference, author and commit time) and blobs from a long-living
+ * {@link GitCatFileWorker} per root, so that each query costs a pipe round-trip instead of starting a Git process.</p>
+ *
+ * <p>The queries return null if they can't be answered this way: the worker is disabled by {@code git.cat.file.worker},
+ * the reference uses a syntax not supported by {@code cat-file} (ranges, exclusions, options), or the worker has failed.
+ * In this case the callers fall back to their usual Git commands.</p>
+ *
+ * <p>Workers idle for {@code git.cat.file.worker.idle.ms} are stopped.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GitObjectQueries implements Disposable {
+    private static final Logger LOG = Logger.getInstance(GitObjectQueries.class);
+
+    private static final long IDLE_CHECK_PERIOD_MS = 10_000;
+
+    /**
+     * The commit is not found
+     */
+    public static final CommitInfo MISSING = new CommitInfo("", 0, 0);
+
+    @Nonnull
+    private final Project myProject;
+    @Nonnull
+    private final Map<VirtualFile, GitCatFileWorker> myWorkers = new HashMap<>();
+    @Nonnull
+    private final Object myLock = new Object();
+    @Nullable
+    private ScheduledFuture<?> myIdleCheck;
+    private boolean myDisposed;
+
+    @Inject
+    public GitObjectQueries(@Nonnull Project project) {
+        myProject = project;
+    }
+
+    @Nonnull
+    public static GitObjectQueries getInstance(@Nonnull Project project) {
+        return project.getInstance(GitObjectQueries.class);
+    }
+
+    /**
+     * The commit information read from the commit object
+     */
+    public static class CommitInfo {
+        @Nonnull
+        private final String myHash;
+        private final long myAuthorTime;
+        private final long myCommitTime;
+
+        CommitInfo(@Nonnull String hash, long authorTime, long commitTime) {
+            myHash = hash;
+            myAuthorTime = authorTime;
+            myCommitTime = commitTime;
+        }
+
+        @Nonnull
+        public String getHash() {
+            return myHash;
+        }
+
+        /**
+         * @return the author time, ms
+         */
+        public long getAuthorTime() {
+            return myAuthorTime;
+        }
+
+        /**
+         * @return the committer time, ms
+         */
+        public long getCommitTime() {
+            return myCommitTime;
+        }
+
+        /**
+         * @return the revision number as {@code git rev-list --timestamp --max-count=1} would return it
+         */
+        @Nonnull
+        public GitRevisionNumber toRevisionNumber() {
+            return new GitRevisionNumber(myHash, new Date(myCommitTime));
+        }
+    }
+
+    /**
+     * @param reference the reference, a hash or a revision expression pointing to a single commit
+     * @return the commit, {@link #MISSING} if there is no such commit, or null if the query can't be answered by the worker.
+     */
+    @Nullable
+    public CommitInfo readCommit(@Nonnull VirtualFile root, @Nonnull String reference) {
+        if (!isSupported(reference)) {
+            return null;
+        }
+        GitCatFileWorker worker = getWorker(root);
+        if (worker == null) {
+            return null;
+        }
+        try {
+            GitCatFileWorker.GitObject object = worker.read(reference + "^{commit}");
+            if (object == null) {
+                return MISSING;
+            }
+            return parseCommit(object.hash, object.content);
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.info("cat-file worker failed for " + root.getPath() + ", falling back to the Git commands", e);
+            stopWorker(root, worker);
+            return null;
+        }
+    }
+
+    /**
+     * @param hash the hash of a blob
+     * @return the content of the blob, or null if there is no such blob or the query can't be answered by the worker.
+     */
+    @Nullable
+    public byte[] readBlob(@Nonnull VirtualFile root, @Nonnull String hash) {
+        GitCatFileWorker worker = getWorker(root);
+        if (worker == null) {
+            return null;
+        }
+        try {
+            GitCatFileWorker.GitObject object = worker.read(hash);
+            return object == null || !"blob".equals(object.type) ? null : object.content;
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.info("cat-file worker failed for " + root.getPath() + ", falling back to the Git commands", e);
+            stopWorker(root, worker);
+            return null;
+        }
+    }
+
+    /**
+     * @param revision     the revision, a hash or a revision expression pointing to a single commit
+     * @param relativePath the path relative to the root
+     * @return whether the path exists at the revision, or null if the query can't be answered by the worker.
+     */
+    @Nullable
+    public Boolean exists(@Nonnull VirtualFile root, @Nonnull String revision, @Nonnull String relativePath) {
+        if (!isSupported(revision) || relativePath.indexOf('\n') >= 0) {
+            return null;
+        }
+        GitCatFileWorker worker = getWorker(root);
+        if (worker == null) {
+            return null;
+        }
+        try {
+            return worker.readType(revision + ":" + relativePath) != null;
+        }
+        catch (IOException | RuntimeException e) {
+            LOG.info("cat-file worker failed for " + root.getPath() + ", falling back to the Git commands", e);
+            stopWorker(root, worker);
+            return null;
+        }
+    }
+
+    private static boolean isSupported(@Nonnull String reference) {
+        if (reference.isEmpty() || reference.startsWith("-") || reference.startsWith("^")) {
+            return false;
+        }
+        for (int i = 0; i < reference.length(); i++) {
+            if (Character.isWhitespace(reference.charAt(i))) {
+                return false;
+            }
+        }
+        return !reference.contains("..") && !reference.contains("^@") && !reference.contains("^!") && !reference.contains("^-");
+    }
+
+    @Nonnull
+    private static CommitInfo parseCommit(@Nonnull String hash, @Nonnull byte[] content) throws IOException {
+        long authorTime = -1;
+        long commitTime = -1;
+        String text = new String(content, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end == start) {
+                // the end of the headers
+                break;
+            }
+            String line = text.substring(start, end);
+            if (line.startsWith("author ")) {
+                authorTime = parseTimestamp(line);
+            }
+            else if (line.startsWith("committer ")) {
+                commitTime = parseTimestamp(line);
+            }
+            start = end + 1;
+        }
+        if (authorTime < 0 || commitTime < 0) {
+            throw new IOException("Couldn't parse the commit " + hash);
+        }
+        return new CommitInfo(hash, authorTime, commitTime);
+    }
+
+    /**
+     * Parses the time from the {@code author Name <email> 1700000000 +0100} line
+     */
+    private static long parseTimestamp(@Nonnull String line) throws IOException {
+        int emailEnd = line.lastIndexOf('>');
+        String[] parts = line.substring(emailEnd + 1).trim().split(" ");
+        try {
+            return Long.parseLong(parts[0]) * 1000;
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("Couldn't parse the time: " + line, e);
+        }
+    }
+
+    @Nullable
+    private GitCatFileWorker getWorker(@Nonnull VirtualFile root) {
+        if (!Registry.is("git.cat.file.worker", true)) {
+            return null;
+        }
+        synchronized (myLock) {
+            if (myDisposed) {
+                return null;
+            }
+            GitCatFileWorker worker = myWorkers.get(root);
+            if (worker != null) {
+                return worker;
+            }
+            worker = new GitCatFileWorker(myProject, root);
+            worker.start();
+            if (!worker.isStarted()) {
+                return null;
+            }
+            myWorkers.put(root, worker);
+            if (myIdleCheck == null) {
+                myIdleCheck = AppExecutorUtil.getAppScheduledExecutorService()
+                    .scheduleWithFixedDelay(this::stopIdleWorkers, IDLE_CHECK_PERIOD_MS, IDLE_CHECK_PERIOD_MS, TimeUnit.MILLISECONDS);
+            }
+            return worker;
+        }
+    }
+
+    private void stopWorker(@Nonnull VirtualFile root, @Nonnull GitCatFileWorker worker) {
+        synchronized (myLock) {
+            myWorkers.remove(root, worker);
+        }
+        worker.destroyProcess();
+    }
+
+    private void stopIdleWorkers() {
+        long idleTimeout = Registry.intValue("git.cat.file.worker.idle.ms", 60_000);
+        long now = System.currentTimeMillis();
+        List<GitCatFileWorker> idle = new ArrayList<>();
+        synchronized (myLock) {
+            for (Iterator<GitCatFileWorker> it = myWorkers.values().iterator(); it.hasNext(); ) {
+                GitCatFileWorker worker = it.next();
+                if (now - worker.getLastUsed() > idleTimeout) {
+                    it.remove();
+                    idle.add(worker);
+                }
+            }
+        }
+        for (GitCatFileWorker worker : idle) {
+            worker.stop();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        List<GitCatFileWorker> workers;
+        synchronized (myLock) {
+            myDisposed = true;
+            if (myIdleCheck != null) {
+                myIdleCheck.cancel(false);
+            }
+            workers = new ArrayList<>(myWorkers.values());
+            myWorkers.clear();
+        }
+        for (GitCatFileWorker worker : workers) {
+            worker.destroyProcess();
+        }
+    }
+}
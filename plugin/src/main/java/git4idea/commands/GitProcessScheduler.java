@@ -0,0 +1,278 @@
+package git4idea.commands;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.Application;
+import consulo.application.progress.ProgressManager;
+import consulo.application.util.function.ThrowableComputable;
+import consulo.application.util.registry.Registry;
+import consulo.component.ProcessCanceledException;
+import consulo.logging.Logger;
+import consulo.project.Project;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * <p>Limits the number of Git processes running at the same time, so that many roots or many background activities
+ * don't start dozens of processes at once and thrash the disk.</p>
+ *
+ * <p>{@link GitHandler} takes a permit before starting the process and returns it when the process terminates.
+ * Remote commands (fetch, push, pull, clone) and commands with an editor (interactive rebase) don't take permits:
+ * they last as long as the network or the user takes, and would starve the short local commands.
+ * When no permit is available, the calling thread waits in the queue of its {@link Priority priority lane}:
+ * waiting interactive commands are started before the waiting background ones.
+ * Waiting is cancelled if the progress is cancelled or the project is disposed.</p>
+ *
+ * <p>The limit is {@code git.process.max.concurrent} (by default the number of processors, at least 2).
+ * A command waiting longer than {@code git.process.max.wait.ms} is started anyway: a command may be started
+ * from a listener of a running one, and such chains must not deadlock.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.APPLICATION)
+@ServiceImpl
+public class GitProcessScheduler {
+    private static final Logger LOG = Logger.getInstance(GitProcessScheduler.class);
+
+    private static final long WAIT_CHECK_INTERVAL_MS = 100;
+
+    /**
+     * The priority lane of a Git process
+     */
+    public enum Priority {
+        /**
+         * Commands the user is waiting for: blame, show, diff, and all commands modifying the repository
+         */
+        INTERACTIVE,
+        NORMAL,
+        /**
+         * Commands not visible to the user: ignored files scan, log indexing, user name lookup
+         */
+        BACKGROUND
+    }
+
+    private static final ThreadLocal<Priority> ourThreadPriority = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> ourNested = new ThreadLocal<>();
+
+    @Nonnull
+    private final Object myLock = new Object();
+    // guarded by myLock
+    @Nonnull
+    private final PriorityQueue<Waiter> myQueue = new PriorityQueue<>();
+    private int myRunning;
+    private long myNextWaiterNumber;
+    private int myMaxQueueDepth;
+
+    @Nonnull
+    private final AtomicLong myWaitCount = new AtomicLong();
+    @Nonnull
+    private final AtomicLong myWaitTime = new AtomicLong();
+
+    @Inject
+    GitProcessScheduler() {
+    }
+
+    @Nonnull
+    public static GitProcessScheduler getInstance() {
+        return Application.get().getInstance(GitProcessScheduler.class);
+    }
+
+    /**
+     * Runs the computation so that Git processes started by it in the current thread get the given priority,
+     * unless the priority is {@link GitHandler#setPriority(Priority) set} explicitly.
+     */
+    public static <T, E extends Throwable> T computeWithPriority(@Nonnull Priority priority, @Nonnull ThrowableComputable<T, E> computation)
+        throws E {
+        Priority previous = ourThreadPriority.get();
+        ourThreadPriority.set(priority);
+        try {
+            return computation.compute();
+        }
+        finally {
+            ourThreadPriority.set(previous);
+        }
+    }
+
+    public static void runWithPriority(@Nonnull Priority priority, @Nonnull Runnable runnable) {
+        computeWithPriority(priority, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a request made by a running Git process, e.g. to its editor or askpass helper.
+     * Git processes started by it in the current thread are not limited: the requesting process holds a permit
+     * and waits for the answer, so making them wait for a permit could only stall it.
+     */
+    public static <T, E extends Throwable> T computeNested(@Nonnull ThrowableComputable<T, E> computation) throws E {
+        Boolean previous = ourNested.get();
+        ourNested.set(Boolean.TRUE);
+        try {
+            return computation.compute();
+        }
+        finally {
+            ourNested.set(previous);
+        }
+    }
+
+    public static void runNested(@Nonnull Runnable runnable) {
+        computeNested(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return true if the current thread runs a request of a running Git process, see {@link #computeNested}
+     */
+    static boolean isNested() {
+        return ourNested.get() == Boolean.TRUE;
+    }
+
+    /**
+     * @return the priority given to the current thread by {@link #computeWithPriority}, or null if there is none;
+     * to be passed to the threads the computation is continued in
+     */
+    @Nullable
+    public static Priority getThreadPriority() {
+        return ourThreadPriority.get();
+    }
+
+    /**
+     * @return the priority of the command started in the current thread, if it is not set explicitly
+     */
+    @Nonnull
+    static Priority getDefaultPriority(@Nonnull GitCommand command) {
+        Priority threadPriority = ourThreadPriority.get();
+        if (threadPriority != null) {
+            return threadPriority;
+        }
+        if (command.lockingPolicy() == GitCommand.LockingPolicy.WRITE
+            || command == GitCommand.BLAME || command == GitCommand.SHOW || command == GitCommand.DIFF || command == GitCommand.CAT_FILE) {
+            return Priority.INTERACTIVE;
+        }
+        return Priority.NORMAL;
+    }
+
+    /**
+     * Waits for a permit to start a process; the permit must be returned by {@link #release()}.
+     *
+     * @param cancelled checked while waiting, e.g. if the handler of the process is cancelled
+     * @return the time spent waiting, ms
+     * @throws ProcessCanceledException if the progress or the process is cancelled or the project is disposed while waiting
+     */
+    long acquire(@Nullable Project project, @Nonnull Priority priority, @Nonnull BooleanSupplier cancelled) {
+        int limit = getLimit();
+        Waiter waiter;
+        synchronized (myLock) {
+            if (myRunning < limit && myQueue.isEmpty()) {
+                myRunning++;
+                return 0;
+            }
+            waiter = new Waiter(priority, myNextWaiterNumber++);
+            myQueue.add(waiter);
+            myMaxQueueDepth = Math.max(myMaxQueueDepth, myQueue.size());
+        }
+
+        long start = System.currentTimeMillis();
+        long maxWait = Registry.intValue("git.process.max.wait.ms", 30_000);
+        try {
+            synchronized (myLock) {
+                while (!waiter.myGranted) {
+                    if (project != null && project.isDisposed() || cancelled.getAsBoolean()) {
+                        throw new ProcessCanceledException();
+                    }
+                    ProgressManager.checkCanceled();
+                    long waited = System.currentTimeMillis() - start;
+                    if (waited >= maxWait) {
+                        LOG.warn("Git process of priority " + priority + " waited " + waited + " ms for a permit, starting it anyway");
+                        myQueue.remove(waiter);
+                        waiter.myGranted = true;
+                        myRunning++;
+                        break;
+                    }
+                    myLock.wait(WAIT_CHECK_INTERVAL_MS);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        }
+        finally {
+            synchronized (myLock) {
+                if (!waiter.myGranted) {
+                    myQueue.remove(waiter);
+                }
+            }
+        }
+
+        long waited = System.currentTimeMillis() - start;
+        myWaitCount.incrementAndGet();
+        myWaitTime.addAndGet(waited);
+        return waited;
+    }
+
+    /**
+     * Returns the permit taken by {@link #acquire(Project, Priority)} and starts the next waiting process, if any.
+     */
+    void release() {
+        synchronized (myLock) {
+            myRunning--;
+            while (myRunning < getLimit() && !myQueue.isEmpty()) {
+                Waiter next = myQueue.poll();
+                next.myGranted = true;
+                myRunning++;
+            }
+            myLock.notifyAll();
+        }
+    }
+
+    private static int getLimit() {
+        return Math.max(1, Registry.intValue("git.process.max.concurrent", Math.max(2, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * @return the current state of the scheduler, for {@link GitCommandStatistics}
+     */
+    @Nonnull
+    String getStatistics() {
+        synchronized (myLock) {
+            return String.format(
+                "Process scheduler: limit %d, running %d, queued %d, max queued %d, waited %d times for %d ms in total%n",
+                getLimit(),
+                myRunning,
+                myQueue.size(),
+                myMaxQueueDepth,
+                myWaitCount.get(),
+                myWaitTime.get()
+            );
+        }
+    }
+
+    private static class Waiter implements Comparable<Waiter> {
+        @Nonnull
+        private final Priority myPriority;
+        private final long myNumber;
+        // guarded by GitProcessScheduler.myLock
+        private boolean myGranted;
+
+        Waiter(@Nonnull Priority priority, long number) {
+            myPriority = priority;
+            myNumber = number;
+        }
+
+        @Override
+        public int compareTo(@Nonnull Waiter other) {
+            int result = myPriority.compareTo(other.myPriority);
+            return result != 0 ? result : Long.compare(myNumber, other.myNumber);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import consulo.process.ExecutionException;
 import consulo.process.NativeProcessHandler;
 import consulo.process.ProcessHandler;
 import consulo.process.ProcessHandlerBuilder;
+import consulo.process.ProcessOutputTypes;
 import consulo.process.cmd.GeneralCommandLine;
 import consulo.process.event.ProcessEvent;
 import consulo.process.event.ProcessListener;
@@ -29,6 +30,8 @@ import consulo.virtualFileSystem.VirtualFile;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The handler for git commands with text outputs
@@ -92,6 +95,9 @@ public abstract class GitTextHandler extends GitHandler {
 
       @Override
       public void onTextAvailable(final ProcessEvent event, final Key outputType) {
+        if (outputType == ProcessOutputTypes.STDOUT) {
+          countOutput(encodedLength(event.getText()));
+        }
         GitTextHandler.this.onTextAvailable(event.getText(), outputType);
       }
     });
@@ -113,6 +119,35 @@ public abstract class GitTextHandler extends GitHandler {
    */
   protected abstract void onTextAvailable(final String text, final Key outputType);
 
+  /**
+   * @return the number of bytes the process wrote for the text, since the statistics count bytes for all handlers
+   */
+  private long encodedLength(@Nonnull String text) {
+    Charset charset = getCharset();
+    if (!StandardCharsets.UTF_8.equals(charset)) {
+      return text.getBytes(charset).length;
+    }
+    // counted without encoding, since the output can be large
+    long length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      }
+      else if (c < 0x800) {
+        length += 2;
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+        length += 4;
+        i++;
+      }
+      else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
   @Override
   public void destroyProcess() {
     synchronized (myProcessStateLock) {
@@ -0,0 +1,374 @@
+package git4idea.config;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.component.messagebus.MessageBusConnection;
+import consulo.disposer.Disposable;
+import consulo.logging.Logger;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.util.io.FileUtil;
+import consulo.versionControlSystem.VcsException;
+import consulo.virtualFileSystem.LocalFileSystem;
+import consulo.virtualFileSystem.VirtualFile;
+import consulo.virtualFileSystem.event.BulkFileListener;
+import consulo.virtualFileSystem.event.VFileCreateEvent;
+import consulo.virtualFileSystem.event.VFileEvent;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitSimpleHandler;
+import git4idea.repo.GitRepoInfoPart;
+import git4idea.repo.GitRepository;
+import git4idea.repo.GitRepositoryChangeListener;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Caches the effective Git configuration of each root, so that {@link GitConfigUtil} reads values from memory
+ * instead of starting a {@code git config} process for each key.</p>
+ *
+ * <p>The configuration is loaded by a single {@code git config --list -z --show-origin} call.
+ * It is invalidated when any of the files it was read from (the repository config, included files, the global and system config)
+ * changes in the VFS, and when it is modified via {@link GitConfigUtil}. The directories of the global config files Git looks for
+ * are watched too, so that a global config created after the configuration was read is picked up.
+ * A configuration with {@code includeIf "onbranch:..."} sections is also invalidated when HEAD of its repository changes.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GitConfigCache implements Disposable, BulkFileListener {
+    private static final Logger LOG = Logger.getInstance(GitConfigCache.class);
+
+    private static final String FILE_ORIGIN_PREFIX = "file:";
+    private static final String ON_BRANCH_INCLUDE_PREFIX = "includeif.onbranch:";
+
+    @Nonnull
+    private final Project myProject;
+    @Nonnull
+    private final ConcurrentMap<VirtualFile, EffectiveConfig> myConfigs = ContainerUtil.newConcurrentMap();
+    @Nonnull
+    private final Set<String> myWatchedPaths = ContainerUtil.newConcurrentSet();
+    @Nonnull
+    private final Set<LocalFileSystem.WatchRequest> myWatchRequests = ContainerUtil.newConcurrentSet();
+    // the global config files Git reads if they exist, see watchGlobalConfigs()
+    @Nonnull
+    private final Set<String> myGlobalConfigPaths = ContainerUtil.newConcurrentSet();
+    @Nonnull
+    private final AtomicBoolean myGlobalConfigsWatched = new AtomicBoolean();
+    @Nonnull
+    private final AtomicLong myModificationCount = new AtomicLong();
+    @Nonnull
+    private final AtomicLong myHits = new AtomicLong();
+    @Nonnull
+    private final AtomicLong myMisses = new AtomicLong();
+
+    @Inject
+    public GitConfigCache(@Nonnull Project project) {
+        myProject = project;
+        if (!project.isDisposed()) {
+            MessageBusConnection connection = project.getMessageBus().connect(this);
+            connection.subscribe(BulkFileListener.class, this);
+            connection.subscribe(GitRepositoryChangeListener.class, new GitRepositoryChangeListener() {
+                @Override
+                public void repositoryChanged(@Nonnull GitRepository repository) {
+                }
+
+                @Override
+                public void repositoryChanged(@Nonnull GitRepository repository, @Nonnull Set<GitRepoInfoPart> changedParts) {
+                    headChanged(repository, changedParts);
+                }
+            });
+        }
+    }
+
+    @Nonnull
+    public static GitConfigCache getInstance(@Nonnull Project project) {
+        return project.getInstance(GitConfigCache.class);
+    }
+
+    /**
+     * @return the last value of the key as {@code git config --get} would return it, or null if the key is not defined.
+     */
+    @Nullable
+    public String getValue(@Nonnull VirtualFile root, @Nonnull String key) throws VcsException {
+        List<String> values = getConfig(root).myValues.get(normalizeKey(key));
+        return values == null ? null : values.get(values.size() - 1);
+    }
+
+    /**
+     * @return all values of the key in the order they are defined, as {@code git config --get-all} would return them.
+     */
+    @Nonnull
+    public List<String> getAllValues(@Nonnull VirtualFile root, @Nonnull String key) throws VcsException {
+        List<String> values = getConfig(root).myValues.get(normalizeKey(key));
+        return values == null ? Collections.emptyList() : values;
+    }
+
+    /**
+     * @param keyMask the regular expression matched against the canonical key names, or null to return all keys.
+     * @return keys matching the mask mapped to their last values.
+     */
+    @Nonnull
+    public Map<String, String> getValues(@Nonnull VirtualFile root, @Nullable String keyMask) throws VcsException {
+        Pattern pattern = keyMask == null ? null : Pattern.compile(keyMask);
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : getConfig(root).myValues.entrySet()) {
+            if (pattern == null || pattern.matcher(entry.getKey()).find()) {
+                List<String> values = entry.getValue();
+                result.put(entry.getKey(), values.get(values.size() - 1));
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(@Nonnull VirtualFile root) {
+        myModificationCount.incrementAndGet();
+        myConfigs.remove(root);
+    }
+
+    public void invalidateAll() {
+        myModificationCount.incrementAndGet();
+        myConfigs.clear();
+    }
+
+    /**
+     * @return how many times the configuration was read from the cache, for {@link git4idea.commands.GitCommandStatistics}
+     */
+    public long getHitCount() {
+        return myHits.get();
+    }
+
+    /**
+     * @return how many times the configuration was loaded by {@code git config}
+     */
+    public long getMissCount() {
+        return myMisses.get();
+    }
+
+    @Nonnull
+    private EffectiveConfig getConfig(@Nonnull VirtualFile root) throws VcsException {
+        EffectiveConfig config = myConfigs.get(root);
+        if (config != null) {
+            myHits.incrementAndGet();
+            return config;
+        }
+        myMisses.incrementAndGet();
+        long modificationCount = myModificationCount.get();
+        config = readConfig(root);
+        // don't cache the config if it was invalidated while being read: it may be outdated
+        if (modificationCount == myModificationCount.get()) {
+            myConfigs.put(root, config);
+        }
+        watchOrigins(config.myOrigins);
+        watchGlobalConfigs();
+        return config;
+    }
+
+    private void headChanged(@Nonnull GitRepository repository, @Nonnull Set<GitRepoInfoPart> changedParts) {
+        EffectiveConfig config = myConfigs.get(repository.getRoot());
+        if (config != null && config.myOnBranchIncludes && changedParts.contains(GitRepoInfoPart.HEAD)) {
+            LOG.debug("HEAD changed in " + repository.getRoot() + " with onbranch includes in the config");
+            invalidate(repository.getRoot());
+        }
+    }
+
+    @Nonnull
+    private EffectiveConfig readConfig(@Nonnull VirtualFile root) throws VcsException {
+        try {
+            return parse(root, runConfigList(root, true), true);
+        }
+        catch (VcsException e) {
+            // --show-origin is not supported by Git < 2.8
+            LOG.debug("Couldn't read config with origins in " + root, e);
+            return parse(root, runConfigList(root, false), false);
+        }
+    }
+
+    @Nonnull
+    private String runConfigList(@Nonnull VirtualFile root, boolean showOrigin) throws VcsException {
+        GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.CONFIG);
+        h.setSilent(true);
+        h.setStdoutSuppressed(true);
+        h.addParameters("--list", "--null");
+        if (showOrigin) {
+            h.addParameters("--show-origin");
+        }
+        return h.run();
+    }
+
+    @Nonnull
+    private static EffectiveConfig parse(@Nonnull VirtualFile root, @Nonnull String output, boolean withOrigins) {
+        Map<String, List<String>> values = new HashMap<>();
+        Set<String> origins = new HashSet<>();
+        boolean onBranchIncludes = false;
+        int start = 0;
+        while (start < output.length()) {
+            if (withOrigins) {
+                int originEnd = output.indexOf('\u0000', start);
+                if (originEnd < 0) {
+                    break;
+                }
+                String origin = output.substring(start, originEnd);
+                if (origin.startsWith(FILE_ORIGIN_PREFIX)) {
+                    origins.add(toAbsolutePath(root, origin.substring(FILE_ORIGIN_PREFIX.length())));
+                }
+                start = originEnd + 1;
+            }
+
+            int entryEnd = output.indexOf('\u0000', start);
+            if (entryEnd < 0) {
+                break;
+            }
+            String entry = output.substring(start, entryEnd);
+            start = entryEnd + 1;
+
+            // "key\nvalue", or just "key" for keys without value
+            int newLine = entry.indexOf('\n');
+            String key = newLine < 0 ? entry : entry.substring(0, newLine);
+            String value = newLine < 0 ? "" : entry.substring(newLine + 1);
+            String normalizedKey = normalizeKey(key);
+            onBranchIncludes |= normalizedKey.startsWith(ON_BRANCH_INCLUDE_PREFIX);
+            values.computeIfAbsent(normalizedKey, k -> new ArrayList<>(1)).add(value);
+        }
+        return new EffectiveConfig(values, origins, onBranchIncludes);
+    }
+
+    @Nonnull
+    private static String toAbsolutePath(@Nonnull VirtualFile root, @Nonnull String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(root.getPath(), path);
+        }
+        return FileUtil.toSystemIndependentName(FileUtil.toCanonicalPath(file.getPath()));
+    }
+
+    /**
+     * Section and key names are case-insensitive, subsection names are case-sensitive.
+     */
+    @Nonnull
+    static String normalizeKey(@Nonnull String key) {
+        int firstDot = key.indexOf('.');
+        int lastDot = key.lastIndexOf('.');
+        if (firstDot < 0) {
+            return key.toLowerCase(Locale.ROOT);
+        }
+        return key.substring(0, firstDot).toLowerCase(Locale.ROOT)
+            + key.substring(firstDot, lastDot)
+            + key.substring(lastDot).toLowerCase(Locale.ROOT);
+    }
+
+    private void watchOrigins(@Nonnull Set<String> origins) {
+        List<String> newPaths = ContainerUtil.filter(origins, myWatchedPaths::add);
+        if (newPaths.isEmpty() || myProject.isDisposed()) {
+            return;
+        }
+        // files outside of the project should be known to the VFS to receive events about their changes
+        myProject.getApplication().executeOnPooledThread((Runnable) () -> {
+            LocalFileSystem lfs = LocalFileSystem.getInstance();
+            myWatchRequests.addAll(lfs.addRootsToWatch(newPaths, false));
+            for (String path : newPaths) {
+                lfs.refreshAndFindFileByPath(path);
+            }
+        });
+    }
+
+    /**
+     * Watches the directories of {@code ~/.gitconfig} and {@code $XDG_CONFIG_HOME/git/config} ({@code ~/.config/git/config} by default),
+     * since a global config which doesn't exist yet is not an origin of any configuration.
+     */
+    private void watchGlobalConfigs() {
+        if (!myGlobalConfigsWatched.compareAndSet(false, true) || myProject.isDisposed()) {
+            return;
+        }
+        String home = System.getProperty("user.home");
+        String xdgConfigHome = System.getenv("XDG_CONFIG_HOME");
+        File configHome = xdgConfigHome == null || xdgConfigHome.isEmpty() ? new File(home, ".config") : new File(xdgConfigHome);
+        File xdgConfig = new File(new File(configHome, "git"), "config");
+        for (File file : Arrays.asList(new File(home, ".gitconfig"), xdgConfig)) {
+            myGlobalConfigPaths.add(FileUtil.toSystemIndependentName(file.getPath()));
+        }
+        // the git directory may be missing as well: then its creation is seen in the config home
+        List<String> directories = Arrays.asList(
+            FileUtil.toSystemIndependentName(home),
+            FileUtil.toSystemIndependentName(configHome.getPath()),
+            FileUtil.toSystemIndependentName(xdgConfig.getParent())
+        );
+        myProject.getApplication().executeOnPooledThread((Runnable) () -> {
+            LocalFileSystem lfs = LocalFileSystem.getInstance();
+            myWatchRequests.addAll(lfs.addRootsToWatch(directories, false));
+            for (String path : directories) {
+                VirtualFile directory = lfs.refreshAndFindFileByPath(path);
+                if (directory != null) {
+                    // the children must be loaded to receive the events about created files
+                    directory.getChildren();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void after(@Nonnull List<? extends VFileEvent> events) {
+        if (myConfigs.isEmpty()) {
+            return;
+        }
+        for (VFileEvent event : events) {
+            String path = event.getPath();
+            if (myGlobalConfigPaths.contains(path) || event instanceof VFileCreateEvent && isGlobalConfigDirectory(path)) {
+                LOG.debug("Global Git config changed: " + path);
+                invalidateAll();
+                return;
+            }
+            for (Map.Entry<VirtualFile, EffectiveConfig> entry : myConfigs.entrySet()) {
+                if (entry.getValue().myOrigins.contains(path)) {
+                    LOG.debug("Git config changed: " + path);
+                    invalidate(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true for a directory containing a global config, e.g. a created {@code ~/.config/git}
+     */
+    private boolean isGlobalConfigDirectory(@Nonnull String path) {
+        for (String configPath : myGlobalConfigPaths) {
+            if (configPath.startsWith(path + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void dispose() {
+        myConfigs.clear();
+        LocalFileSystem.getInstance().removeWatchedRoots(myWatchRequests);
+        myWatchRequests.clear();
+    }
+
+    private static class EffectiveConfig {
+        // normalized key -> values in the order of definition
+        @Nonnull
+        private final Map<String, List<String>> myValues;
+        // absolute system-independent paths of files the config was read from
+        @Nonnull
+        private final Set<String> myOrigins;
+        // whether the config has includeIf "onbranch:..." sections, which depend on HEAD
+        private final boolean myOnBranchIncludes;
+
+        EffectiveConfig(@Nonnull Map<String, List<String>> values, @Nonnull Set<String> origins, boolean onBranchIncludes) {
+            myValues = values;
+            myOrigins = origins;
+            myOnBranchIncludes = onBranchIncludes;
+        }
+    }
+}
@@ -43,7 +43,7 @@ public class GitConfigUtil {
     }
 
     /**
-     * Get configuration values for the repository. Note that the method executes a git command.
+     * Get configuration values for the repository. The values are read from the {@link GitConfigCache}.
      *
      * @param project the context project
      * @param root    the git root
@@ -52,28 +52,7 @@ public class GitConfigUtil {
      * @throws VcsException if there is a problem with running git
      */
     public static void getValues(Project project, VirtualFile root, String keyMask, Map<String, String> result) throws VcsException {
-        GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.CONFIG);
-        h.setSilent(true);
-        h.addParameters("--null");
-        if (keyMask != null) {
-            h.addParameters("--get-regexp", keyMask);
-        }
-        else {
-            h.addParameters("-l");
-        }
-        String output = h.run();
-        int start = 0;
-        int pos;
-        while ((pos = output.indexOf('\n', start)) != -1) {
-            String key = output.substring(start, pos);
-            start = pos + 1;
-            if ((pos = output.indexOf('\u0000', start)) == -1) {
-                break;
-            }
-            String value = output.substring(start, pos);
-            start = pos + 1;
-            result.put(key, value);
-        }
+        result.putAll(GitConfigCache.getInstance(project).getValues(root, keyMask));
     }
 
     /**
@@ -94,7 +73,7 @@ public class GitConfigUtil {
     }
 
     /**
-     * Get configuration values for the repository. Note that the method executes a git command.
+     * Get configuration values for the repository. The values are read from the {@link GitConfigCache}.
      *
      * @param project the context project
      * @param root    the git root
@@ -104,15 +83,7 @@ public class GitConfigUtil {
      */
     public static List<Couple<String>> getAllValues(Project project, VirtualFile root, String key) throws VcsException {
         List<Couple<String>> result = new ArrayList<>();
-        GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.CONFIG);
-        h.setSilent(true);
-        h.addParameters("--null", "--get-all", key);
-        String output = h.run();
-        int start = 0;
-        int pos;
-        while ((pos = output.indexOf('\u0000', start)) != -1) {
-            String value = output.substring(start, pos);
-            start = pos + 1;
+        for (String value : GitConfigCache.getInstance(project).getAllValues(root, key)) {
             result.add(Couple.of(key, value));
         }
         return result;
@@ -120,7 +91,7 @@ public class GitConfigUtil {
 
 
     /**
-     * Get configuration value for the repository. Note that the method executes a git command.
+     * Get configuration value for the repository. The value is read from the {@link GitConfigCache}.
      *
      * @param project the context project
      * @param root    the git root
@@ -130,20 +101,11 @@ public class GitConfigUtil {
      */
     @Nullable
     public static String getValue(Project project, VirtualFile root, String key) throws VcsException {
-        GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.CONFIG);
-        h.setSilent(true);
-        h.ignoreErrorCode(1);
-        h.addParameters("--null", "--get", key);
-        String output = h.run();
-        int pos = output.indexOf('\u0000');
-        if (h.getExitCode() != 0 || pos == -1) {
-            return null;
-        }
-        return output.substring(0, pos);
+        return GitConfigCache.getInstance(project).getValue(root, key);
     }
 
     /**
-     * Get boolean configuration value for the repository. Note that the method executes a git command.
+     * Get boolean configuration value for the repository. The value is read from the {@link GitConfigCache}.
      *
      * @param project the context project
      * @param root    the git root
@@ -236,7 +198,12 @@ public class GitConfigUtil {
         h.setSilent(true);
         h.ignoreErrorCode(1);
         h.addParameters("--unset", key);
-        h.run();
+        try {
+            h.run();
+        }
+        finally {
+            GitConfigCache.getInstance(project).invalidate(root);
+        }
     }
 
     /**
@@ -260,6 +227,18 @@ public class GitConfigUtil {
         h.ignoreErrorCode(1);
         h.addParameters(additionalParameters);
         h.addParameters(key, value);
-        h.run();
+        try {
+            h.run();
+        }
+        finally {
+            GitConfigCache cache = GitConfigCache.getInstance(project);
+            if (additionalParameters.length > 0) {
+                // e.g. --global affects all roots
+                cache.invalidateAll();
+            }
+            else {
+                cache.invalidate(root);
+            }
+        }
     }
 }
@@ -65,6 +65,10 @@ public class GitDiffProvider implements DiffProvider {
      * The status manager for the project
      */
     private final FileStatusManager myStatusManager;
+    /**
+     * Finds paths of files at revisions
+     */
+    private final GitPathAtRevisionResolver myPathResolver;
 
     private static final Set<FileStatus> ourGoodStatuses;
 
@@ -88,6 +92,7 @@ public class GitDiffProvider implements DiffProvider {
     public GitDiffProvider(@Nonnull Project project) {
         myProject = project;
         myStatusManager = FileStatusManager.getInstance(myProject);
+        myPathResolver = new GitPathAtRevisionResolver(project);
     }
 
     /**
@@ -151,12 +156,18 @@ public class GitDiffProvider implements DiffProvider {
             return null;
         }
         String path = selectedFile.getPath();
-        if (GitUtil.gitRootOrNull(selectedFile) == null) {
+        VirtualFile root = GitUtil.gitRootOrNull(selectedFile);
+        if (root == null) {
             return null;
         }
 
-        // faster, if there were no renames
         FilePath filePath = VcsUtil.getFilePath(path);
+        FilePath pathAtRevision = myPathResolver.resolve(root, filePath, revisionNumber);
+        if (pathAtRevision != null) {
+            return GitContentRevision.createRevision(pathAtRevision, revisionNumber, myProject, selectedFile.getCharset());
+        }
+
+        // faster, if there were no renames
         try {
             CommittedChangesProvider committedChangesProvider = GitVcs.getInstance(myProject).getCommittedChangesProvider();
             Pair<CommittedChangeList, FilePath> pair = committedChangesProvider.getOneList(selectedFile, revisionNumber);
@@ -0,0 +1,79 @@
+package git4idea.diff;
+
+import consulo.project.Project;
+import consulo.versionControlSystem.FilePath;
+import consulo.versionControlSystem.history.VcsRevisionNumber;
+import consulo.versionControlSystem.util.VcsFileUtil;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.commands.GitObjectQueries;
+import git4idea.history.GitHistoryUtils;
+import git4idea.history.GitRenameIndex;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Finds the path a file had at a revision, for {@link GitDiffProvider#createFileContent}.</p>
+ *
+ * <p>The renames made after the revision are undone using the {@link GitRenameIndex}: the current path is used only if the file
+ * wasn't renamed since the revision, since another file could have had the path then. The resulting path is checked to exist at
+ * the revision by the {@link GitObjectQueries cat-file worker}. If the index or the worker is not available, the path is left
+ * to the caller. Resolved paths are kept in a small LRU cache, since clicking through the revisions in the history view asks for them again.</p>
+ */
+class GitPathAtRevisionResolver {
+    private static final int CACHE_SIZE = 500;
+
+    @Nonnull
+    private final Project myProject;
+    // guarded by itself
+    @Nonnull
+    private final Map<String, FilePath> myCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FilePath> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    GitPathAtRevisionResolver(@Nonnull Project project) {
+        myProject = project;
+    }
+
+    /**
+     * @param path the current path of the file
+     * @return the path of the file at the revision, or null if it can't be resolved this way or the file didn't exist at the revision
+     */
+    @Nullable
+    FilePath resolve(@Nonnull VirtualFile root, @Nonnull FilePath path, @Nonnull VcsRevisionNumber revision) {
+        String key = revision.asString() + ":" + path.getPath();
+        synchronized (myCache) {
+            FilePath cached = myCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        FilePath lastCommittedPath = GitHistoryUtils.getLastCommitName(myProject, path);
+        FilePath result = GitRenameIndex.getInstance(myProject).getPathAtRevision(root, lastCommittedPath, revision.asString());
+        if (result != null && !existsAtRevision(root, result, revision)) {
+            // the file didn't exist at the revision, or the worker can't tell
+            result = null;
+        }
+        if (result != null) {
+            synchronized (myCache) {
+                myCache.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    private boolean existsAtRevision(@Nonnull VirtualFile root, @Nonnull FilePath path, @Nonnull VcsRevisionNumber revision) {
+        String relativePath = VcsFileUtil.relativePath(root, path);
+        if (relativePath == null) {
+            return false;
+        }
+        Boolean exists = GitObjectQueries.getInstance(myProject).exists(root, revision.asString(), relativePath);
+        return exists != null && exists;
+    }
+}
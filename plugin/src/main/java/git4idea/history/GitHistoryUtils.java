@@ -24,7 +24,6 @@ import consulo.process.ProcessOutputTypes;
 import consulo.project.Project;
 import consulo.util.collection.ArrayUtil;
 import consulo.util.collection.ContainerUtil;
-import consulo.util.collection.Sets;
 import consulo.util.collection.SmartList;
 import consulo.util.dataholder.Key;
 import consulo.util.lang.*;
@@ -45,6 +44,7 @@ import consulo.virtualFileSystem.VirtualFile;
 import consulo.virtualFileSystem.status.FileStatus;
 import git4idea.*;
 import git4idea.branch.GitBranchUtil;
+import git4idea.changes.GitChangeUtils;
 import git4idea.commands.*;
 import git4idea.config.GitVersion;
 import git4idea.config.GitVersionSpecialty;
@@ -53,8 +53,8 @@ import git4idea.history.browser.SHAHash;
 import git4idea.history.browser.SymbolicRefs;
 import git4idea.history.browser.SymbolicRefsI;
 import git4idea.history.wholeTree.AbstractHash;
-import git4idea.log.GitLogProvider;
 import git4idea.log.GitRefManager;
+import git4idea.log.GitRefTable;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
@@ -99,6 +99,12 @@ public class GitHistoryUtils {
         @Nullable String branch
     ) throws VcsException {
         filePath = getLastCommitName(project, filePath);
+        if (GitUtil.HEAD.equals(branch)) {
+            GitLastCommitIndex.LastCommit lastCommit = GitLastCommitIndex.getInstance(project).getLastCommitInHead(filePath);
+            if (lastCommit != null) {
+                return lastCommit.getRevision();
+            }
+        }
         GitSimpleHandler h = new GitSimpleHandler(project, GitUtil.getGitRoot(filePath), GitCommand.LOG);
         GitLogParser parser = new GitLogParser(project, HASH, COMMIT_TIME);
         h.setSilent(true);
@@ -124,13 +130,24 @@ public class GitHistoryUtils {
         @Nonnull FilePath filePath
     ) throws VcsException {
         filePath = getLastCommitName(project, filePath);
+        GitLastCommitIndex.LastCommit lastCommit = GitLastCommitIndex.getInstance(project).getLastCommitInHead(filePath);
+        if (lastCommit != null && lastCommit.getRevision() == null) {
+            return null;
+        }
         GitSimpleHandler h = new GitSimpleHandler(project, GitUtil.getGitRoot(filePath), GitCommand.LOG);
         GitLogParser parser = new GitLogParser(project, HASH, COMMIT_TIME, AUTHOR_NAME, COMMITTER_NAME, SUBJECT, BODY, RAW_BODY);
         h.setSilent(true);
         h.addParameters("-n1", parser.getPretty());
-        h.addParameters("--all");
-        h.endOptions();
-        h.addRelativePaths(filePath);
+        if (lastCommit != null) {
+            // the commit is known from the index, only its details are read
+            h.addParameters(lastCommit.getRevision().asString());
+            h.endOptions();
+        }
+        else {
+            h.addParameters("--all");
+            h.endOptions();
+            h.addRelativePaths(filePath);
+        }
         String result = h.run();
         if (result.length() == 0) {
             return null;
@@ -162,6 +179,12 @@ public class GitHistoryUtils {
      */
     @Nullable
     public static ItemLatestState getLastRevision(@Nonnull Project project, @Nonnull FilePath filePath) throws VcsException {
+        GitLastCommitIndex.LastCommit lastCommit =
+            GitLastCommitIndex.getInstance(project).getLastCommitInUpstream(getLastCommitName(project, filePath));
+        if (lastCommit != null) {
+            GitRevisionNumber revision = lastCommit.getRevision();
+            return revision == null ? null : new ItemLatestState(revision, !lastCommit.isDeleted(), false);
+        }
         VirtualFile root = GitUtil.getGitRoot(filePath);
         GitBranch c = GitBranchUtil.getCurrentBranch(project, root);
         GitBranch t = c == null ? null : GitBranchUtil.tracked(project, root, c.getName());
@@ -393,8 +416,17 @@ public class GitHistoryUtils {
             }
 
             try {
-                Pair<String, FilePath> firstCommitParentAndPath =
-                    getFirstCommitParentAndPathIfRename(project, finalRoot, firstCommit.get(), currentPath.get(), version);
+                Pair<String, FilePath> firstCommitParentAndPath;
+                GitRenameIndex.Rename rename =
+                    GitRenameIndex.getInstance(project).findRename(finalRoot, firstCommit.get(), currentPath.get());
+                if (rename != null) {
+                    firstCommitParentAndPath =
+                        rename == GitRenameIndex.NO_RENAME ? null : Pair.create(rename.getParent(), rename.getOldPath());
+                }
+                else {
+                    firstCommitParentAndPath =
+                        getFirstCommitParentAndPathIfRename(project, finalRoot, firstCommit.get(), currentPath.get(), version);
+                }
                 currentPath.set(firstCommitParentAndPath == null ? null : firstCommitParentAndPath.second);
                 firstCommitParent.set(firstCommitParentAndPath == null ? null : firstCommitParentAndPath.first);
                 skipFurtherOutput.set(false);
@@ -652,6 +684,7 @@ public class GitHistoryUtils {
         if (factory == null) {
             return;
         }
+        GitRefTable refTable = GitRefTable.getInstance(project);
 
         GitLineHandler h = new GitLineHandler(project, root, GitCommand.LOG);
         GitLogParser parser =
@@ -666,7 +699,7 @@ public class GitHistoryUtils {
         processHandlerOutputByLine(
             h,
             buffer -> {
-                List<TimedVcsCommit> commits = parseCommit(parser, buffer, userConsumer, refConsumer, factory, root);
+                List<TimedVcsCommit> commits = parseCommit(parser, buffer, userConsumer, refConsumer, factory, refTable, root);
                 for (TimedVcsCommit commit : commits) {
                     commitConsumer.accept(commit);
                 }
@@ -682,6 +715,7 @@ public class GitHistoryUtils {
         @Nonnull Consumer<VcsUser> userRegistry,
         @Nonnull Consumer<VcsRef> refConsumer,
         @Nonnull VcsLogObjectsFactory factory,
+        @Nonnull GitRefTable refTable,
         @Nonnull VirtualFile root
     ) {
         List<GitLogRecord> gitLogRecords = parser.parse(record.toString());
@@ -691,7 +725,7 @@ public class GitHistoryUtils {
                 if (gitLogRecord == null) {
                     return null;
                 }
-                Pair<TimedVcsCommit, Collection<VcsRef>> pair = convert(gitLogRecord, factory, root);
+                Pair<TimedVcsCommit, Collection<VcsRef>> pair = convert(gitLogRecord, factory, refTable, root);
                 TimedVcsCommit commit = pair.first;
                 for (VcsRef ref : pair.second) {
                     refConsumer.accept(ref);
@@ -706,19 +740,20 @@ public class GitHistoryUtils {
     private static Pair<TimedVcsCommit, Collection<VcsRef>> convert(
         @Nonnull GitLogRecord rec,
         @Nonnull VcsLogObjectsFactory factory,
+        @Nonnull GitRefTable refTable,
         @Nonnull VirtualFile root
     ) {
         Hash hash = HashImpl.build(rec.getHash());
         List<Hash> parents = getParentHashes(factory, rec);
         TimedVcsCommit commit = factory.createTimedCommit(hash, parents, rec.getCommitTime());
-        return Pair.create(commit, parseRefs(rec.getRefs(), hash, factory, root));
+        return Pair.create(commit, parseRefs(rec.getRefs(), hash, refTable, root));
     }
 
     @Nonnull
     private static Collection<VcsRef> parseRefs(
         @Nonnull Collection<String> refs,
         @Nonnull Hash hash,
-        @Nonnull VcsLogObjectsFactory factory,
+        @Nonnull GitRefTable refTable,
         @Nonnull VirtualFile root
     ) {
         return ContainerUtil.mapNotNull(
@@ -726,7 +761,7 @@ public class GitHistoryUtils {
             refName -> {
                 VcsRefType type = GitRefManager.getRefType(refName);
                 refName = GitBranchUtil.stripRefsPrefix(refName);
-                return refName.equals(GitUtil.ORIGIN_HEAD) ? null : factory.createRef(hash, refName, type, root);
+                return refName.equals(GitUtil.ORIGIN_HEAD) ? null : refTable.intern(root, hash, refName, type);
             }
         );
     }
@@ -892,17 +927,18 @@ public class GitHistoryUtils {
         if (factory == null) {
             return LogDataImpl.empty();
         }
-        Set<VcsRef> refs = Sets.newHashSet(GitLogProvider.DONT_CONSIDER_SHA);
+        GitRefTable refTable = GitRefTable.getInstance(project);
+        GitRefTable.RefCollector refs = new GitRefTable.RefCollector();
         List<VcsCommitMetadata> commits = collectDetails(project,
             root,
             true,
             false,
             record -> {
                 GitCommit commit = createCommit(project, root, record, factory);
-                Collection<VcsRef> refsInRecord = parseRefs(record.getRefs(), commit.getId(), factory, root);
+                Collection<VcsRef> refsInRecord = parseRefs(record.getRefs(), commit.getId(), refTable, root);
                 for (VcsRef ref : refsInRecord) {
-                    if (!refs.add(ref)) {
-                        VcsRef otherRef = ContainerUtil.find(refs, r -> GitLogProvider.DONT_CONSIDER_SHA.equals(r, ref));
+                    VcsRef otherRef = refs.add(ref);
+                    if (otherRef != null) {
                         LOG.error("Adding duplicate element {} to the set containing {}", ref, otherRef);
                     }
                 }
@@ -910,7 +946,7 @@ public class GitHistoryUtils {
             },
             params
         );
-        return new LogDataImpl(refs, commits);
+        return new LogDataImpl(refs.toSet(), commits);
     }
 
     /**
@@ -928,6 +964,143 @@ public class GitHistoryUtils {
         return collectDetails(project, root, false, true, record -> createCommit(project, root, record, factory), parameters);
     }
 
+    /**
+     * <p>Loads the commits which exist only in {@code left} and only in {@code right} in a single {@code git log --left-right left...right} walk.
+     * Commits which have a patch-equivalent commit on the other side ({@code --cherry-mark}) are returned on their side
+     * and are {@link GitCommit#isPatchEquivalent() marked}.</p>
+     *
+     * <p>Only the metadata is read: the changes of each commit are loaded by a separate command when they are requested,
+     * so comparing long diverged branches doesn't hold the changed paths of all commits in memory.</p>
+     *
+     * @return the commits existing only in {@code right} ({@code git log left..right}) and only in {@code left} ({@code git log right..left})
+     */
+    @Nonnull
+    public static Couple<List<GitCommit>> loadSymmetricDifference(
+        @Nonnull Project project,
+        @Nonnull VirtualFile root,
+        @Nonnull String left,
+        @Nonnull String right
+    ) throws VcsException {
+        List<GitCommit> leftToRight = new ArrayList<>();
+        List<GitCommit> rightToLeft = new ArrayList<>();
+        VcsLogObjectsFactory factory = getObjectsFactoryWithDisposeCheck(project);
+        if (factory == null) {
+            return Couple.of(leftToRight, rightToLeft);
+        }
+
+        GitLineHandler h = new GitLineHandler(project, root, GitCommand.LOG);
+        GitLogParser parser = new GitLogParser(
+            project,
+            GitLogParser.NameStatus.NONE,
+            HASH,
+            LEFT_RIGHT_MARK,
+            COMMIT_TIME,
+            AUTHOR_NAME,
+            AUTHOR_TIME,
+            AUTHOR_EMAIL,
+            COMMITTER_NAME,
+            COMMITTER_EMAIL,
+            PARENTS,
+            SUBJECT,
+            BODY,
+            RAW_BODY
+        );
+        h.setStdoutSuppressed(true);
+        h.addParameters("--left-right", "--cherry-mark", left + "..." + right);
+        h.addParameters(parser.getPretty(), "--encoding=UTF-8");
+        h.endOptions();
+
+        List<GitLogRecord> records = new ArrayList<>();
+        processHandlerOutputByLine(h, parser, records::add);
+
+        Map<String, Boolean> isLeft = findSides(project, root, left, right, records);
+        for (GitLogRecord record : records) {
+            Boolean side = isLeft.get(record.getHash());
+            if (side == null) {
+                LOG.warn("Couldn't find the side of " + record.getHash() + " in " + left + "..." + right);
+                continue;
+            }
+            GitCommit commit = createCommitWithLazyChanges(project, root, record, factory, "=".equals(record.getLeftRightMark()));
+            (side ? rightToLeft : leftToRight).add(commit);
+        }
+        return Couple.of(leftToRight, rightToLeft);
+    }
+
+    /**
+     * {@code --cherry-mark} prints {@code =} instead of the side mark for patch-equivalent commits.
+     * Such a commit is on the side of its children from the walk, since every commit of the symmetric difference
+     * is reachable from one tip only, or it is a tip itself.
+     *
+     * @return hash -> true for the commits of {@code left}, false for the commits of {@code right}
+     */
+    @Nonnull
+    private static Map<String, Boolean> findSides(
+        @Nonnull Project project,
+        @Nonnull VirtualFile root,
+        @Nonnull String left,
+        @Nonnull String right,
+        @Nonnull List<GitLogRecord> records
+    ) throws VcsException {
+        Map<String, Boolean> isLeft = new HashMap<>();
+        Map<String, GitLogRecord> byHash = new HashMap<>();
+        for (GitLogRecord record : records) {
+            String mark = record.getLeftRightMark();
+            if ("<".equals(mark) || ">".equals(mark)) {
+                isLeft.put(record.getHash(), "<".equals(mark));
+            }
+            byHash.put(record.getHash(), record);
+        }
+        if (isLeft.size() == records.size()) {
+            return isLeft;
+        }
+
+        Deque<String> queue = new ArrayDeque<>(isLeft.keySet());
+        String[] tips = {left, right};
+        for (int i = 0; i < tips.length; i++) {
+            String hash = GitChangeUtils.resolveReference(project, root, tips[i]).asString();
+            if (byHash.containsKey(hash) && isLeft.putIfAbsent(hash, i == 0) == null) {
+                queue.add(hash);
+            }
+        }
+        while (!queue.isEmpty()) {
+            String hash = queue.poll();
+            Boolean side = isLeft.get(hash);
+            for (String parent : byHash.get(hash).getParentsHashes()) {
+                if (byHash.containsKey(parent) && isLeft.putIfAbsent(parent, side) == null) {
+                    queue.add(parent);
+                }
+            }
+        }
+        return isLeft;
+    }
+
+    @Nonnull
+    private static GitCommit createCommitWithLazyChanges(
+        @Nonnull Project project,
+        @Nonnull VirtualFile root,
+        @Nonnull GitLogRecord record,
+        @Nonnull VcsLogObjectsFactory factory,
+        boolean patchEquivalent
+    ) {
+        String hash = record.getHash();
+        return new GitCommit(
+            HashImpl.build(hash),
+            getParentHashes(factory, record),
+            record.getCommitTime(),
+            root,
+            record.getSubject(),
+            factory.createUser(record.getAuthorName(), record.getAuthorEmail()),
+            record.getFullMessage(),
+            factory.createUser(record.getCommitterName(), record.getCommitterEmail()),
+            record.getAuthorTimeStamp(),
+            patchEquivalent,
+            () -> {
+                List<GitCommit> commits = history(project, root, "--max-count=1", hash);
+                return commits.isEmpty() ? Collections.emptyList() : commits.get(0).getChanges();
+            }
+        );
+    }
+
     @Nonnull
     private static GitLogParser createParserForDetails(
         @Nonnull GitTextHandler h,
@@ -1158,6 +1331,10 @@ public class GitHistoryUtils {
         // adjust path using change manager
         path = getLastCommitName(project, path);
         VirtualFile root = GitUtil.getGitRoot(path);
+        GitObjectQueries.CommitInfo commit = GitObjectQueries.getInstance(project).readCommit(root, commitsId);
+        if (commit != null && commit != GitObjectQueries.MISSING) {
+            return commit.getAuthorTime();
+        }
         GitSimpleHandler h = new GitSimpleHandler(project, root, GitCommand.SHOW);
         GitLogParser parser = new GitLogParser(project, GitLogParser.NameStatus.STATUS, AUTHOR_TIME);
         h.setSilent(true);
@@ -0,0 +1,476 @@
+package git4idea.history;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.component.ProcessCanceledException;
+import consulo.git.localize.GitLocalize;
+import consulo.logging.Logger;
+import consulo.process.ProcessOutputTypes;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.util.dataholder.Key;
+import consulo.versionControlSystem.FilePath;
+import consulo.versionControlSystem.ProjectLevelVcsManager;
+import consulo.versionControlSystem.VcsException;
+import consulo.versionControlSystem.log.Hash;
+import consulo.versionControlSystem.util.VcsFileUtil;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.GitRemoteBranch;
+import git4idea.GitRevisionNumber;
+import git4idea.GitUtil;
+import git4idea.GitVcs;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitLineHandler;
+import git4idea.commands.GitLineHandlerListener;
+import git4idea.commands.GitProcessScheduler;
+import git4idea.commands.GitSimpleHandler;
+import git4idea.repo.GitBranchTrackInfo;
+import git4idea.repo.GitRepository;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>Index of the last commit modifying each path, for the current HEAD and for its tracked upstream branch of each root.
+ * It answers {@link GitHistoryUtils#getCurrentRevision} and {@link GitHistoryUtils#getLastRevision} queries without walking the history
+ * of every file separately.</p>
+ *
+ * <p>The index of a tip is built in background by a single {@code git log --name-status} walk, and when the tip moves forward,
+ * only the new commits are read. If the tip is rewritten (reset, rebase, forced update of the upstream), the index is built again.
+ * Until the index of the current tip is ready, and while it is being updated, the queries return null without waiting,
+ * and the callers ask Git for the single file as before.
+ * Paths are stored as a tree of interned path segments, each file referring to the index of the commit in the list of commits.</p>
+ *
+ * <p>Merge commits are read with {@code -m}, i.e. diffed against each parent. A merge differing from all of its parents in a path
+ * (a resolved conflict or a change made in the merge itself) is the last commit of the path, as {@code git log -n1 -- <path>} shows it.
+ * A merge taking a path from one side as is makes {@code git log} follow only that side, while the newest commit modifying the path
+ * may be on the other side: such paths are marked as ambiguous, and the queries for them fall back to Git.</p>
+ *
+ * <p>Only the index of the current upstream is kept for a root: when the current branch or its upstream changes, the index of
+ * the previous upstream is dropped. The indices of the roots removed from the VCS mappings are dropped as well.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GitLastCommitIndex {
+    private static final Logger LOG = Logger.getInstance(GitLastCommitIndex.class);
+
+    private static final String COMMIT_START = "\u0001";
+
+    @Nonnull
+    private final Project myProject;
+    @Nonnull
+    private final Map<VirtualFile, RootIndices> myIndices = ContainerUtil.newConcurrentMap();
+
+    @Inject
+    public GitLastCommitIndex(@Nonnull Project project) {
+        myProject = project;
+        project.getMessageBus().connect().subscribe(ProjectLevelVcsManager.VCS_CONFIGURATION_CHANGED, this::dropRemovedRoots);
+    }
+
+    @Nonnull
+    public static GitLastCommitIndex getInstance(@Nonnull Project project) {
+        return project.getInstance(GitLastCommitIndex.class);
+    }
+
+    /**
+     * The last commit modifying a path
+     */
+    public static class LastCommit {
+        @Nullable
+        private final GitRevisionNumber myRevision;
+        private final boolean myDeleted;
+
+        LastCommit(@Nullable GitRevisionNumber revision, boolean deleted) {
+            myRevision = revision;
+            myDeleted = deleted;
+        }
+
+        /**
+         * @return the commit, or null if the path was never committed
+         */
+        @Nullable
+        public GitRevisionNumber getRevision() {
+            return myRevision;
+        }
+
+        /**
+         * @return true if the path was deleted by the commit
+         */
+        public boolean isDeleted() {
+            return myDeleted;
+        }
+    }
+
+    private static final LastCommit NOT_COMMITTED = new LastCommit(null, false);
+
+    /**
+     * @return the last commit reachable from HEAD which modified the file, or null if the index can't answer the query
+     */
+    @Nullable
+    public LastCommit getLastCommitInHead(@Nonnull FilePath filePath) {
+        GitRepository repository = getRepository(filePath);
+        if (repository == null) {
+            return null;
+        }
+        String head = repository.getCurrentRevision();
+        if (head == null) {
+            return null;
+        }
+        return getLastCommit(repository.getRoot(), GitUtil.HEAD, head, filePath);
+    }
+
+    /**
+     * @return the last commit reachable from the upstream of the current branch which modified the file,
+     * or null if there is no upstream or the index can't answer the query
+     */
+    @Nullable
+    public LastCommit getLastCommitInUpstream(@Nonnull FilePath filePath) {
+        GitRepository repository = getRepository(filePath);
+        if (repository == null) {
+            return null;
+        }
+        GitBranchTrackInfo trackInfo = GitUtil.getTrackInfoForCurrentBranch(repository);
+        if (trackInfo == null) {
+            return null;
+        }
+        GitRemoteBranch upstream = trackInfo.getRemoteBranch();
+        Hash tip = repository.getBranches().getHash(upstream);
+        if (tip == null) {
+            return null;
+        }
+        return getLastCommit(repository.getRoot(), upstream.getFullName(), tip.asString(), filePath);
+    }
+
+    @Nullable
+    private GitRepository getRepository(@Nonnull FilePath filePath) {
+        if (!Registry.is("git.last.commit.index", true) || filePath.isDirectory()) {
+            return null;
+        }
+        VirtualFile root = GitUtil.getGitRootOrNull(filePath);
+        if (root == null) {
+            return null;
+        }
+        return GitUtil.getRepositoryManager(myProject).getRepositoryForRoot(root);
+    }
+
+    @Nullable
+    private LastCommit getLastCommit(
+        @Nonnull VirtualFile root,
+        @Nonnull String ref,
+        @Nonnull String tip,
+        @Nonnull FilePath filePath
+    ) {
+        String relativePath = VcsFileUtil.relativePath(root, filePath);
+        if (relativePath == null || relativePath.isEmpty() || relativePath.startsWith("../")) {
+            return null;
+        }
+        TipIndex index = myIndices.computeIfAbsent(root, r -> new RootIndices()).get(ref);
+        return index.find(root, tip, relativePath);
+    }
+
+    private void dropRemovedRoots() {
+        GitVcs vcs = GitVcs.getInstance(myProject);
+        Set<VirtualFile> roots = vcs == null
+            ? Collections.emptySet()
+            : new HashSet<>(Arrays.asList(ProjectLevelVcsManager.getInstance(myProject).getRootsUnderVcs(vcs)));
+        myIndices.keySet().retainAll(roots);
+    }
+
+    /**
+     * The indices of HEAD and of the current upstream of a root
+     */
+    private class RootIndices {
+        @Nonnull
+        private final TipIndex myHead = new TipIndex(GitUtil.HEAD);
+        @Nullable
+        private TipIndex myUpstream; // guarded by this
+
+        @Nonnull
+        synchronized TipIndex get(@Nonnull String ref) {
+            if (GitUtil.HEAD.equals(ref)) {
+                return myHead;
+            }
+            if (myUpstream == null || !myUpstream.myRef.equals(ref)) {
+                myUpstream = new TipIndex(ref);
+            }
+            return myUpstream;
+        }
+    }
+
+    private class TipIndex {
+        private static final int DELETED = 1;
+        private static final int AMBIGUOUS = 2;
+        private static final int FLAGS = 2;
+
+        @Nonnull
+        private final String myRef;
+        // held by the update, the queries only try it
+        @Nonnull
+        private final ReadWriteLock myLock = new ReentrantReadWriteLock();
+        @Nonnull
+        private final AtomicBoolean myUpdating = new AtomicBoolean();
+        // the indexed tip, null while the index is being built or updated
+        @Nullable
+        private volatile String myTip;
+        @Nonnull
+        private Node myPaths = new Node();
+        @Nonnull
+        private List<GitRevisionNumber> myCommits = new ArrayList<>();
+        @Nonnull
+        private Map<String, String> mySegments = new HashMap<>();
+
+        TipIndex(@Nonnull String ref) {
+            myRef = ref;
+        }
+
+        /**
+         * @return the last commit of the path, or null if the index of the tip is not ready or the path is ambiguous
+         */
+        @Nullable
+        LastCommit find(@Nonnull VirtualFile root, @Nonnull String tip, @Nonnull String relativePath) {
+            if (!tip.equals(myTip)) {
+                scheduleUpdate(root, tip);
+                return null;
+            }
+            if (!myLock.readLock().tryLock()) {
+                return null;
+            }
+            try {
+                return tip.equals(myTip) ? find(relativePath) : null;
+            }
+            finally {
+                myLock.readLock().unlock();
+            }
+        }
+
+        private void scheduleUpdate(@Nonnull VirtualFile root, @Nonnull String tip) {
+            if (!myUpdating.compareAndSet(false, true)) {
+                return;
+            }
+            AppExecutorUtil.getAppExecutorService().execute(() -> {
+                myLock.writeLock().lock();
+                try {
+                    if (!myProject.isDisposed()) {
+                        GitProcessScheduler.computeWithPriority(GitProcessScheduler.Priority.BACKGROUND, () -> {
+                            update(root, tip);
+                            return null;
+                        });
+                    }
+                }
+                catch (VcsException | ProcessCanceledException e) {
+                    LOG.info("Couldn't update the last commit index of " + myRef + " in " + root.getPath(), e);
+                }
+                finally {
+                    myLock.writeLock().unlock();
+                    myUpdating.set(false);
+                }
+            });
+        }
+
+        // under the write lock
+        private void update(@Nonnull VirtualFile root, @Nonnull String tip) throws VcsException {
+            if (tip.equals(myTip)) {
+                return;
+            }
+            String indexedTip = myTip;
+            myTip = null;
+            boolean incremental = indexedTip != null && isAncestor(root, indexedTip, tip);
+            if (!incremental) {
+                myPaths = new Node();
+                myCommits = new ArrayList<>();
+                mySegments = new HashMap<>();
+            }
+            String range = incremental ? indexedTip + ".." + tip : tip;
+            long start = System.currentTimeMillis();
+            readLog(root, range, myCommits.size());
+            myTip = tip;
+            LOG.debug(
+                (incremental ? "Updated" : "Built") + " the last commit index of " + myRef + " in " + root.getPath() +
+                    " in " + (System.currentTimeMillis() - start) + " ms, " + myCommits.size() + " commits"
+            );
+        }
+
+        @Nullable
+        private LastCommit find(@Nonnull String relativePath) {
+            Node node = myPaths;
+            for (String segment : relativePath.split("/")) {
+                node = node.myChildren == null ? null : node.myChildren.get(segment);
+                if (node == null) {
+                    return NOT_COMMITTED;
+                }
+            }
+            if (node.myCommit < 0) {
+                return NOT_COMMITTED;
+            }
+            if ((node.myCommit & AMBIGUOUS) != 0) {
+                return null;
+            }
+            return new LastCommit(myCommits.get(node.myCommit >>> FLAGS), (node.myCommit & DELETED) != 0);
+        }
+
+        /**
+         * Reads the commits of the range, newest first: the first commit touching a path wins over the commits read before
+         * the update, which have indices below {@code updateStart}, and over the older commits of the range.
+         * A merge is diffed against each of its parents, and decides on the paths differing from at least one of them.
+         */
+        private void readLog(@Nonnull VirtualFile root, @Nonnull String range, int updateStart) throws VcsException {
+            GitLineHandler h = new GitLineHandler(myProject, root, GitCommand.LOG);
+            h.setSilent(true);
+            h.setStdoutSuppressed(true);
+            h.addParameters("--name-status", "-m", "--no-renames", "--format=" + "%x01%H %ct %P", range);
+            h.endOptions();
+
+            StringBuilder errors = new StringBuilder();
+            VcsException[] exception = new VcsException[1];
+            h.addLineListener(new GitLineHandlerListener() {
+                @Nullable
+                private GitRevisionNumber myCommit;
+                private int myParents;
+                private int myCommitIndex = -1;
+                // for a merge: path -> the number of parents it differs from, negative if it is deleted against all of them
+                @Nonnull
+                private final Map<String, Integer> myMergePaths = new LinkedHashMap<>();
+
+                @Override
+                public void onLineAvailable(String line, Key outputType) {
+                    if (outputType == ProcessOutputTypes.STDERR) {
+                        errors.append(line).append("\n");
+                    }
+                    else if (outputType == ProcessOutputTypes.STDOUT && exception[0] == null) {
+                        try {
+                            processLine(line);
+                        }
+                        catch (VcsException | RuntimeException e) {
+                            exception[0] = e instanceof VcsException vcsException ? vcsException : new VcsException(e);
+                        }
+                    }
+                }
+
+                private void processLine(@Nonnull String line) throws VcsException {
+                    if (line.startsWith(COMMIT_START)) {
+                        String[] parts = line.substring(1).trim().split(" ");
+                        if (myCommit != null && myCommit.asString().equals(parts[0])) {
+                            // the diff of a merge against its next parent
+                            return;
+                        }
+                        flushMerge();
+                        myCommit = new GitRevisionNumber(parts[0], new Date(Long.parseLong(parts[1]) * 1000));
+                        myParents = parts.length - 2;
+                        myCommitIndex = -1;
+                        return;
+                    }
+                    int tab = line.indexOf('\t');
+                    if (tab <= 0 || myCommit == null) {
+                        return;
+                    }
+                    String path = GitUtil.unescapePath(line.substring(tab + 1));
+                    boolean deleted = line.charAt(0) == 'D';
+                    if (myParents < 2) {
+                        touch(path, deleted ? DELETED : 0);
+                    }
+                    else {
+                        myMergePaths.merge(path, deleted ? -1 : 1, (count, one) -> {
+                            int total = Math.abs(count) + 1;
+                            return count < 0 && one < 0 ? -total : total;
+                        });
+                    }
+                }
+
+                private void flushMerge() {
+                    for (Map.Entry<String, Integer> entry : myMergePaths.entrySet()) {
+                        int count = entry.getValue();
+                        if (Math.abs(count) < myParents) {
+                            touch(entry.getKey(), AMBIGUOUS);
+                        }
+                        else {
+                            touch(entry.getKey(), count < 0 ? DELETED : 0);
+                        }
+                    }
+                    myMergePaths.clear();
+                }
+
+                private void touch(@Nonnull String path, int flags) {
+                    Node node = getOrCreate(path);
+                    if (node.myCommit < 0 || (node.myCommit >>> FLAGS) < updateStart) {
+                        if (myCommitIndex < 0) {
+                            myCommitIndex = myCommits.size();
+                            myCommits.add(myCommit);
+                        }
+                        node.myCommit = (myCommitIndex << FLAGS) | flags;
+                    }
+                }
+
+                @Override
+                public void processTerminated(int exitCode) {
+                    if (exitCode != 0 && exception[0] == null) {
+                        String errorMessage = errors.length() == 0 ? GitLocalize.gitErrorExit(exitCode).get() : errors.toString();
+                        exception[0] = new VcsException(errorMessage + "\nCommand line: [" + h.printableCommandLine() + "]");
+                    }
+                    else if (exception[0] == null) {
+                        flushMerge();
+                    }
+                }
+
+                @Override
+                public void startFailed(Throwable e) {
+                    exception[0] = new VcsException(e);
+                }
+            });
+            h.runInCurrentThread(null);
+            if (exception[0] != null) {
+                throw exception[0];
+            }
+        }
+
+        @Nonnull
+        private Node getOrCreate(@Nonnull String relativePath) {
+            Node node = myPaths;
+            for (String segment : relativePath.split("/")) {
+                if (node.myChildren == null) {
+                    node.myChildren = new HashMap<>(4);
+                }
+                Node child = node.myChildren.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.myChildren.put(mySegments.computeIfAbsent(segment, s -> s), child);
+                }
+                node = child;
+            }
+            return node;
+        }
+    }
+
+    private boolean isAncestor(@Nonnull VirtualFile root, @Nonnull String ancestor, @Nonnull String descendant) {
+        GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.MERGE_BASE);
+        h.setSilent(true);
+        h.addParameters("--is-ancestor", ancestor, descendant);
+        try {
+            h.run();
+            return true;
+        }
+        catch (VcsException e) {
+            // exit code 1 means "not an ancestor": the history was rewritten
+            return false;
+        }
+    }
+
+    private static class Node {
+        @Nullable
+        private Map<String, Node> myChildren;
+        /**
+         * The index of the commit shifted left by two, the lowest bit is set if the path was deleted by the commit,
+         * the next one if the path is ambiguous (see {@link TipIndex#readLog}); -1 for directories
+         */
+        private int myCommit = -1;
+    }
+}
@@ -124,7 +124,12 @@ public class GitLogParser {
         PARENTS("P"),
         REF_NAMES("d"),
         SHORT_REF_LOG_SELECTOR("gd"),
-        RAW_BODY("B");
+        RAW_BODY("B"),
+        /**
+         * {@code <} or {@code >} for commits of the left or right side of {@code --left-right},
+         * {@code =} for patch-equivalent commits of {@code --cherry-mark}
+         */
+        LEFT_RIGHT_MARK("m");
 
         private String myPlaceholder;
 
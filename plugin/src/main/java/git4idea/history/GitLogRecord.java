@@ -140,6 +140,11 @@ class GitLogRecord
 		return lookup(SHORT_REF_LOG_SELECTOR);
 	}
 
+	String getLeftRightMark()
+	{
+		return lookup(LEFT_RIGHT_MARK);
+	}
+
 	// access methods with some formatting or conversion
 
 	Date getDate()
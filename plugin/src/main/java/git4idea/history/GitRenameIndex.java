@@ -0,0 +1,667 @@
+package git4idea.history;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.progress.EmptyProgressIndicator;
+import consulo.application.progress.ProgressIndicator;
+import consulo.application.progress.ProgressManager;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.component.ProcessCanceledException;
+import consulo.container.boot.ContainerPathManager;
+import consulo.disposer.Disposable;
+import consulo.git.localize.GitLocalize;
+import consulo.logging.Logger;
+import consulo.process.ProcessOutputTypes;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.util.dataholder.Key;
+import consulo.versionControlSystem.FilePath;
+import consulo.versionControlSystem.VcsException;
+import consulo.versionControlSystem.log.Hash;
+import consulo.versionControlSystem.util.VcsFileUtil;
+import consulo.versionControlSystem.util.VcsUtil;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.GitBranch;
+import git4idea.GitUtil;
+import git4idea.branch.GitBranchesCollection;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitLineHandler;
+import git4idea.commands.GitLineHandlerListener;
+import git4idea.commands.GitProcessScheduler;
+import git4idea.commands.GitSimpleHandler;
+import git4idea.repo.GitRepository;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>Index of the renames made by the commits of each root: for a commit, the new and the old path of each renamed file,
+ * as reported by {@code git log -M --name-status --diff-filter=R} against the first parent.
+ * It lets {@link GitHistoryUtils#history} continue the history of a renamed file without asking Git whether each segment starts
+ * with a rename, and lets the path of a file at a revision be found without walking the whole history of the file.</p>
+ *
+ * <p>The index covers the commits reachable from HEAD and the local and remote branches.
+ * When the branches move, only the commits not reachable from the previously indexed tips are read.
+ * The index is built and updated in background; until it is ready, the queries return null and the callers ask Git as before.
+ * The index is stored in the system directory, so it is not built again after restart.</p>
+ *
+ * <p>Only the commits the index has walked are answered. Commits reachable only from tags or detached revisions, merge commits,
+ * and commits adding and deleting too many files for the inexact rename detection within {@link #RENAME_LIMIT} are left to Git.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GitRenameIndex implements Disposable {
+    private static final Logger LOG = Logger.getInstance(GitRenameIndex.class);
+
+    private static final String COMMIT_START = "\u0001";
+    private static final String FORMAT_VERSION = "git-rename-index 2";
+    private static final int MAX_PATH_AT_REVISION_STEPS = 100;
+    /**
+     * The limit of the inexact rename detection passed to {@code git log -l}: commits with more added and deleted files
+     * are not answered from the index, since Git skips the detection for them
+     */
+    private static final int RENAME_LIMIT = 1000;
+
+    @Nonnull
+    private final Project myProject;
+    @Nonnull
+    private final Map<VirtualFile, RootIndex> myIndices = ContainerUtil.newConcurrentMap();
+    // guarded by itself
+    @Nonnull
+    private final Set<ProgressIndicator> myIndicators = new HashSet<>();
+    private volatile boolean myDisposed;
+
+    @Inject
+    public GitRenameIndex(@Nonnull Project project) {
+        myProject = project;
+    }
+
+    @Nonnull
+    public static GitRenameIndex getInstance(@Nonnull Project project) {
+        return project.getInstance(GitRenameIndex.class);
+    }
+
+    /**
+     * The rename of a file made by a commit
+     */
+    public static class Rename {
+        @Nullable
+        private final String myParent;
+        @Nonnull
+        private final FilePath myOldPath;
+
+        Rename(@Nullable String parent, @Nonnull FilePath oldPath) {
+            myParent = parent;
+            myOldPath = oldPath;
+        }
+
+        /**
+         * @return the first parent of the commit
+         */
+        @Nullable
+        public String getParent() {
+            return myParent;
+        }
+
+        /**
+         * @return the path of the file before the commit
+         */
+        @Nonnull
+        public FilePath getOldPath() {
+            return myOldPath;
+        }
+    }
+
+    /**
+     * The result of {@link #findRename} for a commit which doesn't rename the file
+     */
+    public static final Rename NO_RENAME = new Rename(null, VcsUtil.getFilePath("/"));
+
+    /**
+     * @param commit a commit reachable from HEAD or a branch
+     * @return the rename of the file made by the commit, {@link #NO_RENAME} if the commit didn't rename it,
+     * or null if the commit is not indexed and Git should be asked
+     */
+    @Nullable
+    public Rename findRename(@Nonnull VirtualFile root, @Nonnull String commit, @Nonnull FilePath path) {
+        GitRepository repository = getRepository(root);
+        // the renames of an indexed commit don't change, so an index which is being updated can answer too
+        IndexData index = repository == null ? null : getIndex(repository, false);
+        if (index == null || !index.isWalked(commit)) {
+            return null;
+        }
+        String relativePath = VcsFileUtil.relativePath(root, path);
+        CommitRenames renames = index.myCommits.get(commit);
+        String oldPath = renames == null ? null : renames.myRenames.get(relativePath);
+        return oldPath == null ? NO_RENAME : new Rename(renames.myParent, toFilePath(root, oldPath));
+    }
+
+    /**
+     * Finds the path of a file at a revision by undoing the renames made after the revision.
+     * A rename counts if the renaming commit is reachable from HEAD, and the revision is an ancestor of its parent.
+     * Git is asked that for each rename of the file, which there are few of, instead of walking the history of the file.
+     *
+     * @param path     the path of the file at HEAD
+     * @param revision the revision reachable from HEAD
+     * @return the path of the file at the revision, or null if the index is not available
+     */
+    @Nullable
+    public FilePath getPathAtRevision(@Nonnull VirtualFile root, @Nonnull FilePath path, @Nonnull String revision) {
+        GitRepository repository = getRepository(root);
+        String head = repository == null ? null : repository.getCurrentRevision();
+        IndexData index = head == null ? null : getIndex(repository, true);
+        if (index == null) {
+            return null;
+        }
+        String current = VcsFileUtil.relativePath(root, path);
+        Set<String> usedRenames = new HashSet<>();
+        for (int step = 0; step < MAX_PATH_AT_REVISION_STEPS; step++) {
+            CommitRename applicable = null;
+            for (CommitRename candidate : index.getRenamesTo(current)) {
+                if (candidate.myParent != null && !usedRenames.contains(candidate.myCommit)
+                    && isAncestor(root, revision, candidate.myParent) && isAncestor(root, candidate.myCommit, head)) {
+                    applicable = candidate;
+                    break;
+                }
+            }
+            if (applicable == null) {
+                return step == 0 ? path : toFilePath(root, current);
+            }
+            usedRenames.add(applicable.myCommit);
+            current = applicable.myOldPath;
+        }
+        return null;
+    }
+
+    @Nonnull
+    private static FilePath toFilePath(@Nonnull VirtualFile root, @Nonnull String relativePath) {
+        return VcsUtil.getFilePathForDeletedFile(root.getPath() + "/" + relativePath, false);
+    }
+
+    @Nullable
+    private GitRepository getRepository(@Nonnull VirtualFile root) {
+        if (!Registry.is("git.rename.index", true) || myDisposed) {
+            return null;
+        }
+        return GitUtil.getRepositoryManager(myProject).getRepositoryForRoot(root);
+    }
+
+    /**
+     * @param upToDate if true, returns the index only if it covers the current tips of the repository
+     * @return the index, or null if it is not ready; in this case the index is built or updated in background
+     */
+    @Nullable
+    private IndexData getIndex(@Nonnull GitRepository repository, boolean upToDate) {
+        Set<String> tips = getTips(repository);
+        if (tips.isEmpty()) {
+            return null;
+        }
+        RootIndex index = myIndices.computeIfAbsent(repository.getRoot(), RootIndex::new);
+        IndexData data = index.myData;
+        if (data == null || !data.myTips.equals(tips)) {
+            index.scheduleUpdate(tips);
+            if (upToDate) {
+                return null;
+            }
+        }
+        return data;
+    }
+
+    @Nonnull
+    private static Set<String> getTips(@Nonnull GitRepository repository) {
+        Set<String> tips = new HashSet<>();
+        String head = repository.getCurrentRevision();
+        if (head != null) {
+            tips.add(head);
+        }
+        GitBranchesCollection branches = repository.getBranches();
+        List<GitBranch> allBranches = new ArrayList<>(branches.getLocalBranches());
+        allBranches.addAll(branches.getRemoteBranches());
+        for (GitBranch branch : allBranches) {
+            Hash hash = branches.getHash(branch);
+            if (hash != null) {
+                tips.add(hash.asString());
+            }
+        }
+        return tips;
+    }
+
+    private boolean isAncestor(@Nonnull VirtualFile root, @Nonnull String ancestor, @Nonnull String descendant) {
+        GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.MERGE_BASE);
+        h.setSilent(true);
+        h.addParameters("--is-ancestor", ancestor, descendant);
+        try {
+            h.run();
+            return true;
+        }
+        catch (VcsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the first 64 bits of the hash, or 0 if it is not a full hash
+     */
+    private static long hashPrefix(@Nonnull String hash) {
+        if (hash.length() < 40) {
+            return 0;
+        }
+        try {
+            return Long.parseUnsignedLong(hash.substring(0, 16), 16);
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        myDisposed = true;
+        synchronized (myIndicators) {
+            for (ProgressIndicator indicator : myIndicators) {
+                indicator.cancel();
+            }
+        }
+    }
+
+    private static class CommitRenames {
+        @Nullable
+        private final String myParent;
+        /**
+         * New path to old path, relative to the root
+         */
+        @Nonnull
+        private final Map<String, String> myRenames = new HashMap<>(2);
+
+        CommitRenames(@Nullable String parent) {
+            myParent = parent;
+        }
+    }
+
+    private static class CommitRename {
+        @Nonnull
+        private final String myCommit;
+        @Nullable
+        private final String myParent;
+        @Nonnull
+        private final String myOldPath;
+
+        CommitRename(@Nonnull String commit, @Nullable String parent, @Nonnull String oldPath) {
+            myCommit = commit;
+            myParent = parent;
+            myOldPath = oldPath;
+        }
+    }
+
+    /**
+     * An immutable state of the index of a root, replaced as a whole when the index is updated
+     */
+    private static class IndexData {
+        @Nonnull
+        private final Set<String> myTips;
+        @Nonnull
+        private final Map<String, CommitRenames> myCommits;
+        /**
+         * The sorted {@link #hashPrefix hash prefixes} of the walked non-merge commits, whose renames are all in {@link #myCommits}
+         */
+        @Nonnull
+        private final long[] myWalked;
+
+        IndexData(@Nonnull Set<String> tips, @Nonnull Map<String, CommitRenames> commits, @Nonnull long[] walked) {
+            myTips = tips;
+            myCommits = commits;
+            myWalked = walked;
+        }
+
+        boolean isWalked(@Nonnull String commit) {
+            long prefix = hashPrefix(commit);
+            return prefix != 0 && Arrays.binarySearch(myWalked, prefix) >= 0;
+        }
+
+        @Nonnull
+        List<CommitRename> getRenamesTo(@Nonnull String newPath) {
+            List<CommitRename> result = new ArrayList<>();
+            for (Map.Entry<String, CommitRenames> entry : myCommits.entrySet()) {
+                String oldPath = entry.getValue().myRenames.get(newPath);
+                if (oldPath != null) {
+                    result.add(new CommitRename(entry.getKey(), entry.getValue().myParent, oldPath));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The commits read by an update of the index
+     */
+    private static class NewCommits {
+        @Nonnull
+        private final Map<String, CommitRenames> myRenames = new HashMap<>();
+        @Nonnull
+        private final Set<String> myOverRenameLimit = new HashSet<>();
+        @Nonnull
+        private long[] myWalked = new long[1024];
+        private int myWalkedCount;
+
+        void addRename(@Nonnull String commit, @Nullable String parent, @Nonnull String oldPath, @Nonnull String newPath) {
+            myRenames.computeIfAbsent(commit, c -> new CommitRenames(parent)).myRenames.put(newPath, oldPath);
+        }
+
+        void addWalked(long prefix) {
+            if (myWalkedCount == myWalked.length) {
+                myWalked = Arrays.copyOf(myWalked, myWalkedCount * 2);
+            }
+            myWalked[myWalkedCount++] = prefix;
+        }
+
+        @Nonnull
+        IndexData merge(@Nullable IndexData previous, @Nonnull Set<String> tips) {
+            Map<String, CommitRenames> commits = previous == null ? new HashMap<>() : new HashMap<>(previous.myCommits);
+            commits.putAll(myRenames);
+            long[] previousWalked = previous == null ? new long[0] : previous.myWalked;
+            long[] walked = Arrays.copyOf(previousWalked, previousWalked.length + myWalkedCount);
+            System.arraycopy(myWalked, 0, walked, previousWalked.length, myWalkedCount);
+            Arrays.sort(walked);
+            return new IndexData(new HashSet<>(tips), commits, walked);
+        }
+    }
+
+    private class RootIndex {
+        @Nonnull
+        private final VirtualFile myRoot;
+        @Nonnull
+        private final File myFile;
+        @Nullable
+        private volatile IndexData myData;
+        @Nonnull
+        private final AtomicBoolean myUpdating = new AtomicBoolean();
+
+        RootIndex(@Nonnull VirtualFile root) {
+            myRoot = root;
+            String name = root.getName() + "-" + Integer.toHexString(root.getPath().hashCode()) + ".txt";
+            myFile = new File(new File(ContainerPathManager.get().getSystemPath(), "git-rename-index"), name);
+        }
+
+        void scheduleUpdate(@Nonnull Set<String> tips) {
+            if (!myUpdating.compareAndSet(false, true)) {
+                return;
+            }
+            AppExecutorUtil.getAppExecutorService().execute(() -> {
+                ProgressIndicator indicator = new EmptyProgressIndicator();
+                synchronized (myIndicators) {
+                    myIndicators.add(indicator);
+                }
+                try {
+                    if (!myDisposed) {
+                        ProgressManager.getInstance().runProcess(
+                            () -> GitProcessScheduler.runWithPriority(GitProcessScheduler.Priority.BACKGROUND, () -> update(tips)),
+                            indicator
+                        );
+                    }
+                }
+                catch (ProcessCanceledException e) {
+                    LOG.debug("The update of the rename index of " + myRoot.getPath() + " was cancelled");
+                }
+                finally {
+                    synchronized (myIndicators) {
+                        myIndicators.remove(indicator);
+                    }
+                    myUpdating.set(false);
+                }
+            });
+        }
+
+        private void update(@Nonnull Set<String> tips) {
+            IndexData data = myData;
+            if (data == null) {
+                data = load();
+                myData = data;
+            }
+            if (data != null && data.myTips.equals(tips)) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Set<String> indexedTips = data == null ? Collections.emptySet() : data.myTips;
+            NewCommits newCommits;
+            try {
+                try {
+                    newCommits = readNewCommits(tips, indexedTips);
+                }
+                catch (VcsException e) {
+                    if (indexedTips.isEmpty()) {
+                        throw e;
+                    }
+                    // some of the indexed tips may have been garbage collected
+                    LOG.info("Couldn't update the rename index of " + myRoot.getPath() + " incrementally, building it again", e);
+                    data = null;
+                    newCommits = readNewCommits(tips, Collections.emptySet());
+                }
+            }
+            catch (VcsException e) {
+                LOG.warn("Couldn't update the rename index of " + myRoot.getPath(), e);
+                return;
+            }
+            data = newCommits.merge(data, tips);
+            myData = data;
+            save(data);
+            LOG.debug("Updated the rename index of " + myRoot.getPath() + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        @Nonnull
+        private NewCommits readNewCommits(@Nonnull Set<String> tips, @Nonnull Set<String> indexedTips) throws VcsException {
+            NewCommits newCommits = new NewCommits();
+            readRenames(tips, indexedTips, newCommits);
+            // the log shows only the commits with added, deleted or renamed files, so the walked commits are listed separately
+            GitLineHandler h = new GitLineHandler(myProject, myRoot, GitCommand.REV_LIST);
+            h.addParameters("--no-merges");
+            runWalk(h, tips, indexedTips, line -> {
+                String hash = line.trim();
+                long prefix = hashPrefix(hash);
+                if (prefix != 0 && !newCommits.myOverRenameLimit.contains(hash)) {
+                    newCommits.addWalked(prefix);
+                }
+            });
+            return newCommits;
+        }
+
+        private void readRenames(@Nonnull Set<String> tips, @Nonnull Set<String> indexedTips, @Nonnull NewCommits newCommits)
+            throws VcsException {
+            GitLineHandler h = new GitLineHandler(myProject, myRoot, GitCommand.LOG);
+            h.addParameters("-M", "-l" + RENAME_LIMIT, "--name-status", "--diff-filter=ADR", "--format=" + "%x01%H %P");
+            int[] addedAndDeleted = new int[2];
+            String[] commit = new String[2];
+            Runnable finishCommit = () -> {
+                if (commit[0] != null && (long) addedAndDeleted[0] * addedAndDeleted[1] > (long) RENAME_LIMIT * RENAME_LIMIT) {
+                    newCommits.myOverRenameLimit.add(commit[0]);
+                }
+            };
+            runWalk(h, tips, indexedTips, line -> {
+                if (line.startsWith(COMMIT_START)) {
+                    finishCommit.run();
+                    String[] hashes = line.substring(1).trim().split(" ");
+                    commit[0] = hashes[0];
+                    commit[1] = hashes.length > 1 ? hashes[1] : null;
+                    addedAndDeleted[0] = addedAndDeleted[1] = 0;
+                    return;
+                }
+                String[] parts = line.split("\t");
+                if (commit[0] == null || parts.length < 2) {
+                    return;
+                }
+                if (parts[0].equals("A")) {
+                    addedAndDeleted[0]++;
+                }
+                else if (parts[0].equals("D")) {
+                    addedAndDeleted[1]++;
+                }
+                else if (parts.length == 3 && parts[0].startsWith("R")) {
+                    newCommits.addRename(commit[0], commit[1], GitUtil.unescapePath(parts[1]), GitUtil.unescapePath(parts[2]));
+                }
+            });
+            finishCommit.run();
+        }
+
+        /**
+         * Runs the walk from the tips excluding the indexed tips, which are passed via stdin,
+         * since there may be too many of them for the command line
+         */
+        private void runWalk(
+            @Nonnull GitLineHandler h,
+            @Nonnull Set<String> tips,
+            @Nonnull Set<String> indexedTips,
+            @Nonnull LineConsumer lineConsumer
+        ) throws VcsException {
+            h.setSilent(true);
+            h.setStdoutSuppressed(true);
+            h.addParameters("--stdin");
+            h.endOptions();
+            h.setInputProcessor(stdin -> {
+                try (Writer out = new OutputStreamWriter(stdin, StandardCharsets.US_ASCII)) {
+                    for (String tip : tips) {
+                        out.write(tip + "\n");
+                    }
+                    for (String tip : indexedTips) {
+                        out.write("^" + tip + "\n");
+                    }
+                    return true;
+                }
+                catch (IOException e) {
+                    LOG.warn("Couldn't pass the tips to git " + h.printableCommandLine(), e);
+                    return false;
+                }
+            });
+
+            StringBuilder errors = new StringBuilder();
+            VcsException[] exception = new VcsException[1];
+            h.addLineListener(new GitLineHandlerListener() {
+                @Override
+                public void onLineAvailable(String line, Key outputType) {
+                    if (outputType == ProcessOutputTypes.STDERR) {
+                        errors.append(line).append("\n");
+                    }
+                    else if (outputType == ProcessOutputTypes.STDOUT && exception[0] == null) {
+                        try {
+                            lineConsumer.consume(line);
+                        }
+                        catch (VcsException e) {
+                            exception[0] = e;
+                        }
+                    }
+                }
+
+                @Override
+                public void processTerminated(int exitCode) {
+                    if (exitCode != 0 && exception[0] == null) {
+                        String errorMessage = errors.length() == 0 ? GitLocalize.gitErrorExit(exitCode).get() : errors.toString();
+                        exception[0] = new VcsException(errorMessage + "\nCommand line: [" + h.printableCommandLine() + "]");
+                    }
+                }
+
+                @Override
+                public void startFailed(Throwable e) {
+                    exception[0] = new VcsException(e);
+                }
+            });
+            h.runInCurrentThread(null);
+            if (exception[0] != null) {
+                throw exception[0];
+            }
+        }
+
+        /**
+         * The file has the format version line, the indexed tips line, the number of walked commits line followed by their
+         * hash prefixes, one per line, and a line {@code <commit> <parent> \t <old path> \t <new path>} for each rename,
+         * with paths escaped as in the Git output.
+         */
+        @Nullable
+        private IndexData load() {
+            if (!myFile.isFile()) {
+                return null;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(myFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!FORMAT_VERSION.equals(reader.readLine())) {
+                    return null;
+                }
+                String tips = reader.readLine();
+                String walkedCount = reader.readLine();
+                if (tips == null || walkedCount == null) {
+                    return null;
+                }
+                long[] walked = new long[Integer.parseInt(walkedCount)];
+                for (int i = 0; i < walked.length; i++) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        throw new IOException("Unexpected end of the walked commits");
+                    }
+                    walked[i] = Long.parseUnsignedLong(line, 16);
+                }
+                NewCommits commits = new NewCommits();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t");
+                    String[] hashes = parts[0].split(" ");
+                    if (parts.length != 3 || hashes.length != 2) {
+                        throw new IOException("Invalid line: " + line);
+                    }
+                    String parent = "-".equals(hashes[1]) ? null : hashes[1];
+                    commits.addRename(hashes[0], parent, GitUtil.unescapePath(parts[1]), GitUtil.unescapePath(parts[2]));
+                }
+                Set<String> tipSet = tips.isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(tips.split(" ")));
+                Arrays.sort(walked);
+                return new IndexData(tipSet, commits.myRenames, walked);
+            }
+            catch (IOException | VcsException | NumberFormatException e) {
+                LOG.info("Couldn't load the rename index of " + myRoot.getPath() + ", building it again", e);
+                return null;
+            }
+        }
+
+        private void save(@Nonnull IndexData data) {
+            File directory = myFile.getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                LOG.info("Couldn't create " + directory);
+                return;
+            }
+            try (Writer writer = Files.newBufferedWriter(myFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(FORMAT_VERSION + "\n");
+                writer.write(String.join(" ", data.myTips) + "\n");
+                writer.write(data.myWalked.length + "\n");
+                for (long prefix : data.myWalked) {
+                    writer.write(Long.toHexString(prefix) + "\n");
+                }
+                for (Map.Entry<String, CommitRenames> entry : data.myCommits.entrySet()) {
+                    CommitRenames renames = entry.getValue();
+                    for (Map.Entry<String, String> rename : renames.myRenames.entrySet()) {
+                        writer.write(entry.getKey() + " " + (renames.myParent == null ? "-" : renames.myParent) + "\t" +
+                            escape(rename.getValue()) + "\t" + escape(rename.getKey()) + "\n");
+                    }
+                }
+            }
+            catch (IOException e) {
+                LOG.info("Couldn't save the rename index of " + myRoot.getPath(), e);
+            }
+        }
+    }
+
+    private interface LineConsumer {
+        void consume(@Nonnull String line) throws VcsException;
+    }
+
+    /**
+     * Escapes the path the way {@link GitUtil#unescapePath} reads it
+     */
+    @Nonnull
+    private static String escape(@Nonnull String path) {
+        return path.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,737 @@
+package git4idea.log;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.util.registry.Registry;
+import consulo.disposer.Disposable;
+import consulo.git.localize.GitLocalize;
+import consulo.logging.Logger;
+import consulo.process.ProcessOutputTypes;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.util.dataholder.Key;
+import consulo.versionControlSystem.FilePath;
+import consulo.versionControlSystem.ProjectLevelVcsManager;
+import consulo.versionControlSystem.VcsException;
+import consulo.versionControlSystem.log.*;
+import consulo.versionControlSystem.log.util.VcsUserUtil;
+import consulo.versionControlSystem.util.VcsFileUtil;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.GitBranch;
+import git4idea.GitVcs;
+import git4idea.branch.GitBranchesCollection;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitLineHandler;
+import git4idea.commands.GitLineHandlerListener;
+import git4idea.commands.GitSimpleHandler;
+import git4idea.history.GitHistoryUtils;
+import git4idea.repo.GitRepository;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * <p>In-memory table of the commits of each root (hash, parents, commit time and author), answering the branch, user and date
+ * filters of the log without running {@code git log} over the whole history for each filter.</p>
+ *
+ * <p>The table is read once by a {@code git log} of all the references and then extended by walking only the commits
+ * which are not reachable from the branch and tag tips indexed before. Apart from listing the tags, the query is answered
+ * without starting Git while the branches and tags don't move. The commits which are not reachable from the current branches
+ * and tags are not reported.</p>
+ *
+ * <p>The structure filter is answered if the commit-graph has changed-path Bloom filters (Git 2.27+): the commits matching
+ * the other filters are checked against the Bloom filters, and only the commits that may have changed the paths are checked by
+ * a single {@code git diff-tree --stdin}. Which merges {@code git log --full-history --simplify-merges} keeps depends on
+ * the simplified history of the paths, not on the merges alone, so if any merge matches the other filters, the structure filter
+ * is left to {@code git log}.</p>
+ *
+ * <p>Text filters are left to {@code git log}. The index is enabled by {@code git.log.filter.index}.
+ * The table of a root is dropped when the root is removed from the VCS mappings, and all of them when the project is closed.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GitCommitFilterIndex implements Disposable {
+    private static final Logger LOG = Logger.getInstance(GitCommitFilterIndex.class);
+
+    private static final char SEPARATOR = '\u0002';
+    private static final String COMMIT_START = "\u0001";
+
+    @Nonnull
+    private final Project myProject;
+    @Nonnull
+    private final Map<VirtualFile, RootIndex> myIndices = ContainerUtil.newConcurrentMap();
+
+    @Inject
+    public GitCommitFilterIndex(@Nonnull Project project) {
+        myProject = project;
+        project.getMessageBus().connect(this).subscribe(ProjectLevelVcsManager.VCS_CONFIGURATION_CHANGED, this::dropRemovedRoots);
+    }
+
+    @Nonnull
+    public static GitCommitFilterIndex getInstance(@Nonnull Project project) {
+        return project.getInstance(GitCommitFilterIndex.class);
+    }
+
+    /**
+     * @return the commits matching the filters, newest first, or null if the filters can't be answered by the index
+     */
+    @Nullable
+    public List<TimedVcsCommit> getCommitsMatchingFilter(
+        @Nonnull GitRepository repository,
+        @Nonnull VcsLogFilterCollection filters,
+        int maxCount,
+        @Nonnull VcsLogObjectsFactory factory
+    ) throws VcsException {
+        if (!Registry.is("git.log.filter.index", true) || filters.getTextFilter() != null) {
+            return null;
+        }
+        VcsLogStructureFilter structureFilter = filters.getStructureFilter();
+        return getCommitsMatchingFilter(
+            repository,
+            filters.getBranchFilter(),
+            filters.getUserFilter(),
+            filters.getDateFilter(),
+            structureFilter == null ? null : structureFilter.getFiles(),
+            maxCount,
+            factory
+        );
+    }
+
+    /**
+     * @param files the files of the structure filter, or null if there is no structure filter
+     */
+    @Nullable
+    List<TimedVcsCommit> getCommitsMatchingFilter(
+        @Nonnull GitRepository repository,
+        @Nullable VcsLogBranchFilter branchFilter,
+        @Nullable VcsLogUserFilter userFilter,
+        @Nullable VcsLogDateFilter dateFilter,
+        @Nullable Collection<FilePath> files,
+        int maxCount,
+        @Nonnull VcsLogObjectsFactory factory
+    ) throws VcsException {
+        VirtualFile root = repository.getRoot();
+        List<String> paths = null;
+        if (files != null && !files.isEmpty()) {
+            paths = new ArrayList<>();
+            for (FilePath file : files) {
+                String path = VcsFileUtil.relativePath(root, file);
+                if (path == null || path.isEmpty() || path.equals(".") || path.startsWith("../")) {
+                    return null;
+                }
+                paths.add(path);
+            }
+        }
+
+        Set<String> tips = getTips(repository, branchFilter);
+        if (tips.isEmpty()) {
+            // no such branches in this repository => filter matches nothing
+            return Collections.emptyList();
+        }
+
+        RootIndex index = myIndices.computeIfAbsent(root, RootIndex::new);
+        synchronized (index) {
+            // tags are not a part of the repository model, so they are listed each time
+            Set<String> tagTips = index.readTagTips();
+            Set<String> allTips = getTips(repository, null);
+            allTips.addAll(tagTips);
+            index.update(allTips, tagTips);
+            Predicate<String> mayChangePaths = null;
+            if (paths != null) {
+                GitCommitGraph commitGraph = index.getCommitGraph(repository);
+                if (commitGraph == null || !commitGraph.hasBloomFilters()) {
+                    return null;
+                }
+                mayChangePaths = commitGraph.mayChangeAnyOf(paths);
+            }
+
+            List<Integer> matching = index.filter(
+                tips,
+                branchFilter == null,
+                userFilter == null ? null : getUserNames(userFilter, root),
+                dateFilter
+            );
+            if (paths != null) {
+                matching = index.filterByPaths(matching, mayChangePaths, paths);
+                if (matching == null) {
+                    return null;
+                }
+            }
+            if (maxCount > 0 && matching.size() > maxCount) {
+                matching = matching.subList(0, maxCount);
+            }
+
+            List<TimedVcsCommit> commits = new ArrayList<>(matching.size());
+            for (int commit : matching) {
+                commits.add(index.createCommit(commit, factory));
+            }
+            return commits;
+        }
+    }
+
+    private void dropRemovedRoots() {
+        GitVcs vcs = GitVcs.getInstance(myProject);
+        Set<VirtualFile> roots = vcs == null
+            ? Collections.emptySet()
+            : new HashSet<>(Arrays.asList(ProjectLevelVcsManager.getInstance(myProject).getRootsUnderVcs(vcs)));
+        myIndices.keySet().retainAll(roots);
+    }
+
+    @Override
+    public void dispose() {
+        myIndices.clear();
+    }
+
+    /**
+     * @param branchFilter the filter, or null for all the branches
+     * @return the hashes of HEAD and of the branches matching the filter
+     */
+    @Nonnull
+    private static Set<String> getTips(@Nonnull GitRepository repository, @Nullable VcsLogBranchFilter branchFilter) {
+        Set<String> tips = new HashSet<>();
+        GitBranchesCollection branches = repository.getBranches();
+        List<GitBranch> allBranches = new ArrayList<>(branches.getLocalBranches());
+        allBranches.addAll(branches.getRemoteBranches());
+        for (GitBranch branch : allBranches) {
+            if (branchFilter == null || branchFilter.matches(branch.getName())) {
+                Hash hash = branches.getHash(branch);
+                if (hash != null) {
+                    tips.add(hash.asString());
+                }
+            }
+        }
+        String head = repository.getCurrentRevision();
+        if (head != null && (branchFilter == null || branchFilter.matches("HEAD"))) {
+            tips.add(head);
+        }
+        return tips;
+    }
+
+    /**
+     * @return the users as {@code git log --author} matches them: "name &lt;email&gt;", ignoring the case
+     */
+    @Nonnull
+    private static List<String> getUserNames(@Nonnull VcsLogUserFilter userFilter, @Nonnull VirtualFile root) {
+        List<String> names = new ArrayList<>();
+        for (VcsUser user : userFilter.getUsers(root)) {
+            names.add(VcsUserUtil.toExactString(user).toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    private class RootIndex {
+        @Nonnull
+        private final VirtualFile myRoot;
+
+        private int myCount;
+        private int myHashLength;
+        @Nonnull
+        private byte[] myHashes = new byte[0];
+        /**
+         * The parents of commit {@code i} are {@code myParents[myParentStarts[i]..myParentStarts[i + 1])}, -1 for a parent which is not indexed
+         */
+        @Nonnull
+        private int[] myParentStarts = new int[1];
+        @Nonnull
+        private int[] myParents = new int[0];
+        /**
+         * The commit times, seconds
+         */
+        @Nonnull
+        private long[] myTimes = new long[0];
+        @Nonnull
+        private int[] myAuthors = new int[0];
+        @Nonnull
+        private final List<String> myAuthorNames = new ArrayList<>();
+        @Nonnull
+        private final Map<String, Integer> myAuthorIds = new HashMap<>();
+        /**
+         * The commits sorted by hash, for lookups
+         */
+        @Nonnull
+        private int[] mySortedByHash = new int[0];
+        /**
+         * The commits the current tags point to
+         */
+        @Nonnull
+        private final BitSet myTagged = new BitSet();
+        @Nonnull
+        private Set<String> myIndexedTips = new HashSet<>();
+
+        @Nullable
+        private GitCommitGraph myCommitGraph;
+        private long myCommitGraphStamp = -1;
+
+        RootIndex(@Nonnull VirtualFile root) {
+            myRoot = root;
+        }
+
+        /**
+         * @param tips    the commits of HEAD, of all the branches and of all the tags
+         * @param tagTips the commits of all the tags
+         */
+        void update(@Nonnull Set<String> tips, @Nonnull Set<String> tagTips) throws VcsException {
+            boolean allIndexed = true;
+            for (String tip : tips) {
+                if (find(tip) < 0) {
+                    allIndexed = false;
+                    break;
+                }
+            }
+            if (!allIndexed) {
+                long start = System.currentTimeMillis();
+                NewCommits newCommits = readLog(myIndexedTips);
+                add(newCommits);
+                LOG.debug(
+                    "Added " + newCommits.myHashes.size() + " commits to the filter index of " + myRoot.getPath() +
+                        " in " + (System.currentTimeMillis() - start) + " ms, " + myCount + " commits"
+                );
+            }
+            myIndexedTips = tips;
+
+            // deleted and moved tags must not keep their old commits reachable
+            myTagged.clear();
+            for (String tip : tagTips) {
+                int commit = find(tip);
+                if (commit >= 0) {
+                    myTagged.set(commit);
+                }
+            }
+        }
+
+        /**
+         * @return the commits the tags point to; tags of trees and blobs are skipped, since they are not in the log
+         */
+        @Nonnull
+        Set<String> readTagTips() throws VcsException {
+            GitSimpleHandler h = new GitSimpleHandler(myProject, myRoot, GitCommand.FOR_EACH_REF);
+            h.setSilent(true);
+            h.setStdoutSuppressed(true);
+            h.addParameters("--format=%(objecttype) %(objectname) %(*objecttype) %(*objectname)", "refs/tags");
+            Set<String> tips = new HashSet<>();
+            for (String line : h.run().split("\n")) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length >= 2 && fields[0].equals("commit")) {
+                    tips.add(fields[1]);
+                }
+                else if (fields.length >= 4 && fields[2].equals("commit")) {
+                    // an annotated tag
+                    tips.add(fields[3]);
+                }
+            }
+            return tips;
+        }
+
+        @Nonnull
+        private NewCommits readLog(@Nonnull Set<String> indexedTips) throws VcsException {
+            GitLineHandler h = new GitLineHandler(myProject, myRoot, GitCommand.LOG);
+            h.setSilent(true);
+            h.setStdoutSuppressed(true);
+            h.addParameters("--format=" + "%x01%H%x02%P%x02%ct%x02%an <%ae>");
+            h.addParameters(GitHistoryUtils.LOG_ALL);
+            h.addParameters("--stdin");
+            h.endOptions();
+            // the indexed tips are passed via stdin, since there may be too many of them for the command line
+            h.setInputProcessor(stdin -> {
+                try (Writer out = new OutputStreamWriter(stdin, StandardCharsets.US_ASCII)) {
+                    for (String tip : indexedTips) {
+                        if (find(tip) >= 0) {
+                            out.write("^" + tip + "\n");
+                        }
+                    }
+                    return true;
+                }
+                catch (IOException e) {
+                    LOG.warn("Couldn't pass the indexed tips to git log", e);
+                    return false;
+                }
+            });
+
+            NewCommits newCommits = new NewCommits();
+            StringBuilder errors = new StringBuilder();
+            VcsException[] exception = new VcsException[1];
+            h.addLineListener(new GitLineHandlerListener() {
+                @Override
+                public void onLineAvailable(String line, Key outputType) {
+                    if (outputType == ProcessOutputTypes.STDERR) {
+                        errors.append(line).append("\n");
+                    }
+                    else if (outputType == ProcessOutputTypes.STDOUT && exception[0] == null && line.startsWith(COMMIT_START)) {
+                        try {
+                            newCommits.add(line.substring(COMMIT_START.length()));
+                        }
+                        catch (RuntimeException e) {
+                            exception[0] = new VcsException("Couldn't parse the output of git log: " + line, e);
+                        }
+                    }
+                }
+
+                @Override
+                public void processTerminated(int exitCode) {
+                    if (exitCode != 0 && exception[0] == null) {
+                        String errorMessage = errors.length() == 0 ? GitLocalize.gitErrorExit(exitCode).get() : errors.toString();
+                        exception[0] = new VcsException(errorMessage + "\nCommand line: [" + h.printableCommandLine() + "]");
+                    }
+                }
+
+                @Override
+                public void startFailed(Throwable e) {
+                    exception[0] = new VcsException(e);
+                }
+            });
+            h.runInCurrentThread(null);
+            if (exception[0] != null) {
+                throw exception[0];
+            }
+            return newCommits;
+        }
+
+        private void add(@Nonnull NewCommits newCommits) {
+            int added = newCommits.myHashes.size();
+            if (added == 0) {
+                return;
+            }
+            if (myCount == 0) {
+                myHashLength = newCommits.myHashes.get(0).length() / 2;
+            }
+            int count = myCount + added;
+            byte[] hashes = Arrays.copyOf(myHashes, count * myHashLength);
+            long[] times = Arrays.copyOf(myTimes, count);
+            int[] authors = Arrays.copyOf(myAuthors, count);
+            for (int i = 0; i < added; i++) {
+                int commit = myCount + i;
+                String hash = newCommits.myHashes.get(i);
+                for (int j = 0; j < myHashLength; j++) {
+                    hashes[commit * myHashLength + j] = (byte)Integer.parseInt(hash.substring(2 * j, 2 * j + 2), 16);
+                }
+                times[commit] = newCommits.myTimes.get(i);
+                authors[commit] = myAuthorIds.computeIfAbsent(newCommits.myAuthors.get(i), author -> {
+                    myAuthorNames.add(author);
+                    return myAuthorNames.size() - 1;
+                });
+            }
+            myHashes = hashes;
+            myTimes = times;
+            myAuthors = authors;
+            int oldCount = myCount;
+            myCount = count;
+            mySortedByHash = mergeSortedByHash(oldCount);
+
+            // the parents are resolved when all the new commits are added, since a parent may be listed after its child
+            int parentCount = myParents.length;
+            for (String[] parents : newCommits.myParents) {
+                parentCount += parents.length;
+            }
+            int[] parentStarts = Arrays.copyOf(myParentStarts, count + 1);
+            int[] allParents = Arrays.copyOf(myParents, parentCount);
+            int next = myParents.length;
+            for (int i = 0; i < added; i++) {
+                for (String parent : newCommits.myParents.get(i)) {
+                    allParents[next++] = find(parent);
+                }
+                parentStarts[oldCount + i + 1] = next;
+            }
+            myParentStarts = parentStarts;
+            myParents = allParents;
+        }
+
+        /**
+         * @return {@link #mySortedByHash} with the commits added after {@code oldCount} merged in
+         */
+        @Nonnull
+        private int[] mergeSortedByHash(int oldCount) {
+            int added = myCount - oldCount;
+            // sorted by the first 31 bits of the hash, then the commits sharing them are ordered by the whole hash
+            long[] keys = new long[added];
+            for (int i = 0; i < added; i++) {
+                int commit = oldCount + i;
+                keys[i] = ((long)(getHashPrefix(commit) >>> 1) << 32) | commit;
+            }
+            Arrays.sort(keys);
+            int[] newSorted = new int[added];
+            for (int i = 0; i < added; i++) {
+                int commit = (int)keys[i];
+                int j = i - 1;
+                while (j >= 0 && compare(newSorted[j], commit) > 0) {
+                    newSorted[j + 1] = newSorted[j];
+                    j--;
+                }
+                newSorted[j + 1] = commit;
+            }
+
+            int[] sorted = new int[myCount];
+            int oldIndex = 0;
+            int newIndex = 0;
+            for (int i = 0; i < myCount; i++) {
+                if (newIndex == added || (oldIndex < oldCount && compare(mySortedByHash[oldIndex], newSorted[newIndex]) < 0)) {
+                    sorted[i] = mySortedByHash[oldIndex++];
+                }
+                else {
+                    sorted[i] = newSorted[newIndex++];
+                }
+            }
+            return sorted;
+        }
+
+        private int getHashPrefix(int commit) {
+            int prefix = 0;
+            for (int j = 0; j < 4; j++) {
+                prefix = (prefix << 8) | (j < myHashLength ? myHashes[commit * myHashLength + j] & 0xff : 0);
+            }
+            return prefix;
+        }
+
+        private int compare(int commit1, int commit2) {
+            for (int j = 0; j < myHashLength; j++) {
+                int difference = (myHashes[commit1 * myHashLength + j] & 0xff) - (myHashes[commit2 * myHashLength + j] & 0xff);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return the index of the commit, or -1 if it is not indexed
+         */
+        private int find(@Nonnull String hash) {
+            if (myCount == 0 || hash.length() != myHashLength * 2) {
+                return -1;
+            }
+            int low = 0;
+            int high = myCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int commit = mySortedByHash[middle];
+                int comparison = compare(commit, hash);
+                if (comparison < 0) {
+                    low = middle + 1;
+                }
+                else if (comparison > 0) {
+                    high = middle - 1;
+                }
+                else {
+                    return commit;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int commit, @Nonnull String hash) {
+            for (int j = 0; j < myHashLength; j++) {
+                int difference = (myHashes[commit * myHashLength + j] & 0xff) - Integer.parseInt(hash.substring(2 * j, 2 * j + 2), 16);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+
+        @Nonnull
+        private String getHash(int commit) {
+            StringBuilder hash = new StringBuilder(myHashLength * 2);
+            for (int j = 0; j < myHashLength; j++) {
+                int b = myHashes[commit * myHashLength + j] & 0xff;
+                hash.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hash.toString();
+        }
+
+        /**
+         * @return the commits reachable from the tips (and from the tagged commits, if requested) matching the user and date filters,
+         * newest first
+         */
+        @Nonnull
+        List<Integer> filter(
+            @Nonnull Set<String> tips,
+            boolean includeTags,
+            @Nullable List<String> userNames,
+            @Nullable VcsLogDateFilter dateFilter
+        ) {
+            BitSet matchingAuthors = null;
+            if (userNames != null) {
+                matchingAuthors = new BitSet();
+                for (int author = 0; author < myAuthorNames.size(); author++) {
+                    String authorName = myAuthorNames.get(author).toLowerCase(Locale.ROOT);
+                    for (String userName : userNames) {
+                        if (authorName.contains(userName)) {
+                            matchingAuthors.set(author);
+                            break;
+                        }
+                    }
+                }
+            }
+            long after = dateFilter == null || dateFilter.getAfter() == null ? Long.MIN_VALUE : dateFilter.getAfter().getTime() / 1000;
+            long before = dateFilter == null || dateFilter.getBefore() == null ? Long.MAX_VALUE : dateFilter.getBefore().getTime() / 1000;
+
+            BitSet reachable = new BitSet(myCount);
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (String tip : tips) {
+                int commit = find(tip);
+                if (commit >= 0 && !reachable.get(commit)) {
+                    reachable.set(commit);
+                    queue.add(commit);
+                }
+            }
+            if (includeTags) {
+                for (int commit = myTagged.nextSetBit(0); commit >= 0; commit = myTagged.nextSetBit(commit + 1)) {
+                    if (!reachable.get(commit)) {
+                        reachable.set(commit);
+                        queue.add(commit);
+                    }
+                }
+            }
+            List<Integer> matching = new ArrayList<>();
+            while (!queue.isEmpty()) {
+                int commit = queue.poll();
+                if ((matchingAuthors == null || matchingAuthors.get(myAuthors[commit])) &&
+                    myTimes[commit] >= after && myTimes[commit] <= before) {
+                    matching.add(commit);
+                }
+                for (int i = myParentStarts[commit]; i < myParentStarts[commit + 1]; i++) {
+                    int parent = myParents[i];
+                    if (parent >= 0 && !reachable.get(parent)) {
+                        reachable.set(parent);
+                        queue.add(parent);
+                    }
+                }
+            }
+            matching.sort((commit1, commit2) -> {
+                int result = Long.compare(myTimes[commit2], myTimes[commit1]);
+                return result != 0 ? result : Integer.compare(commit1, commit2);
+            });
+            return matching;
+        }
+
+        /**
+         * @return the commits which change any of the paths, in the same order,
+         * or null if there are merges among the commits and the paths should be filtered by {@code git log}
+         */
+        @Nullable
+        List<Integer> filterByPaths(
+            @Nonnull List<Integer> commits,
+            @Nonnull Predicate<String> mayChangePaths,
+            @Nonnull List<String> paths
+        ) throws VcsException {
+            List<String> candidates = new ArrayList<>();
+            for (int commit : commits) {
+                if (myParentStarts[commit + 1] - myParentStarts[commit] > 1) {
+                    // the Bloom filters are computed against the first parent only, and simplifying merges needs the whole history
+                    return null;
+                }
+                String hash = getHash(commit);
+                if (mayChangePaths.test(hash)) {
+                    candidates.add(hash);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            GitSimpleHandler h = new GitSimpleHandler(myProject, myRoot, GitCommand.DIFF_TREE);
+            h.setSilent(true);
+            h.setStdoutSuppressed(true);
+            h.addParameters("--stdin", "--root", "-r", "--name-only", "--format=" + "%x01%H");
+            h.endOptions();
+            h.addParameters(paths);
+            h.setInputProcessor(stdin -> {
+                try (Writer out = new OutputStreamWriter(stdin, StandardCharsets.US_ASCII)) {
+                    for (String hash : candidates) {
+                        out.write(hash + "\n");
+                    }
+                    return true;
+                }
+                catch (IOException e) {
+                    LOG.warn("Couldn't pass the commits to git diff-tree", e);
+                    return false;
+                }
+            });
+            Set<String> changed = new HashSet<>();
+            for (String line : h.run().split("\n")) {
+                if (line.startsWith(COMMIT_START)) {
+                    changed.add(line.substring(COMMIT_START.length()).trim());
+                }
+            }
+            LOG.debug("Checked " + candidates.size() + " of " + commits.size() + " commits for changes in " + paths);
+
+            List<Integer> result = new ArrayList<>();
+            for (int commit : commits) {
+                if (changed.contains(getHash(commit))) {
+                    result.add(commit);
+                }
+            }
+            return result;
+        }
+
+        @Nonnull
+        TimedVcsCommit createCommit(int commit, @Nonnull VcsLogObjectsFactory factory) {
+            List<Hash> parents = new ArrayList<>(myParentStarts[commit + 1] - myParentStarts[commit]);
+            for (int i = myParentStarts[commit]; i < myParentStarts[commit + 1]; i++) {
+                if (myParents[i] >= 0) {
+                    parents.add(factory.createHash(getHash(myParents[i])));
+                }
+            }
+            return factory.createTimedCommit(factory.createHash(getHash(commit)), parents, myTimes[commit] * 1000);
+        }
+
+        /**
+         * @return the commit-graph, read again if it was rewritten, or null if there is none
+         */
+        @Nullable
+        GitCommitGraph getCommitGraph(@Nonnull GitRepository repository) {
+            File infoDir = repository.getRepositoryFiles().getObjectsInfoDir();
+            File single = new File(infoDir, "commit-graph");
+            File chain = new File(new File(infoDir, "commit-graphs"), "commit-graph-chain");
+            File file = single.isFile() ? single : chain;
+            long stamp = file.isFile() ? file.lastModified() * 31 + file.length() : -1;
+            if (stamp != myCommitGraphStamp) {
+                myCommitGraphStamp = stamp;
+                try {
+                    myCommitGraph = stamp == -1 ? null : GitCommitGraph.read(infoDir);
+                }
+                catch (IOException e) {
+                    LOG.info("Couldn't read the commit-graph of " + myRoot.getPath(), e);
+                    myCommitGraph = null;
+                }
+            }
+            return myCommitGraph;
+        }
+    }
+
+    /**
+     * The commits read by the last {@code git log}, in the order of the output
+     */
+    private static class NewCommits {
+        @Nonnull
+        private final List<String> myHashes = new ArrayList<>();
+        @Nonnull
+        private final List<String[]> myParents = new ArrayList<>();
+        @Nonnull
+        private final List<Long> myTimes = new ArrayList<>();
+        @Nonnull
+        private final List<String> myAuthors = new ArrayList<>();
+
+        /**
+         * @param record {@code <hash> SEP <parents> SEP <commit time> SEP <author>}
+         */
+        void add(@Nonnull String record) {
+            String[] fields = record.split(String.valueOf(SEPARATOR), -1);
+            String parents = fields[1].trim();
+            myHashes.add(fields[0]);
+            myParents.add(parents.isEmpty() ? new String[0] : parents.split(" "));
+            myTimes.add(Long.parseLong(fields[2].trim()));
+            myAuthors.add(fields[3]);
+        }
+    }
+}
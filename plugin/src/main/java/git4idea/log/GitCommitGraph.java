@@ -0,0 +1,351 @@
+package git4idea.log;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * <p>Reads the changed-path Bloom filters from the commit-graph written by {@code git commit-graph write --changed-paths} (Git 2.27+):
+ * either the single {@code objects/info/commit-graph} file, or the chain of files in {@code objects/info/commit-graphs}.</p>
+ *
+ * <p>The filter of a commit tells if the commit may have changed a path compared to its first parent.
+ * A negative answer is exact, a positive one may be false. Commits which are not in the commit-graph or have no filter
+ * are reported as possibly changing any path.</p>
+ *
+ * <p>Only the object ids and the Bloom filter chunks are read into memory.</p>
+ */
+class GitCommitGraph {
+    private static final int SIGNATURE = 0x43475048; // "CGPH"
+    private static final int CHUNK_OID_FANOUT = 0x4f494446; // "OIDF"
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c; // "OIDL"
+    private static final int CHUNK_BLOOM_INDEXES = 0x42494458; // "BIDX"
+    private static final int CHUNK_BLOOM_DATA = 0x42444154; // "BDAT"
+    private static final int BLOOM_DATA_HEADER_SIZE = 12;
+    private static final int BLOOM_SEED_0 = 0x293ae76f;
+    private static final int BLOOM_SEED_1 = 0x7e646e2c;
+
+    @Nonnull
+    private final List<Layer> myLayers;
+
+    private GitCommitGraph(@Nonnull List<Layer> layers) {
+        myLayers = layers;
+    }
+
+    /**
+     * @return the commit-graph of the repository, or null if there is none
+     */
+    @Nullable
+    static GitCommitGraph read(@Nonnull File objectsInfoDir) throws IOException {
+        List<File> files = new ArrayList<>();
+        File single = new File(objectsInfoDir, "commit-graph");
+        File chain = new File(new File(objectsInfoDir, "commit-graphs"), "commit-graph-chain");
+        if (single.isFile()) {
+            files.add(single);
+        }
+        else if (chain.isFile()) {
+            for (String line : Files.readAllLines(chain.toPath(), StandardCharsets.US_ASCII)) {
+                if (!line.isBlank()) {
+                    files.add(new File(chain.getParentFile(), "graph-" + line.trim() + ".graph"));
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            return null;
+        }
+        List<Layer> layers = new ArrayList<>();
+        for (File file : files) {
+            layers.add(Layer.read(file));
+        }
+        return new GitCommitGraph(layers);
+    }
+
+    boolean hasBloomFilters() {
+        for (Layer layer : myLayers) {
+            if (layer.myBloomIndexes != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param paths the paths relative to the root, separated by {@code /}; directories are supported,
+     *              since Git adds all the parent directories of a changed path to the filter
+     * @return the predicate telling whether the commit with the given hash may have changed any of the paths
+     */
+    @Nonnull
+    Predicate<String> mayChangeAnyOf(@Nonnull List<String> paths) {
+        List<int[][]> layerKeys = new ArrayList<>(myLayers.size());
+        for (Layer layer : myLayers) {
+            layerKeys.add(layer.myBloomIndexes == null ? null : layer.computeKeys(paths));
+        }
+        return hash -> {
+            byte[] id = parseHash(hash);
+            for (int i = 0; i < myLayers.size(); i++) {
+                Layer layer = myLayers.get(i);
+                int position = layer.find(id);
+                if (position >= 0) {
+                    int[][] keys = layerKeys.get(i);
+                    return keys == null || layer.mayContainAnyOf(position, keys);
+                }
+            }
+            return true;
+        };
+    }
+
+    @Nonnull
+    private static byte[] parseHash(@Nonnull String hash) {
+        byte[] bytes = new byte[hash.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte)Integer.parseInt(hash.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static class Layer {
+        private final int myHashLength;
+        @Nonnull
+        private final int[] myFanout;
+        @Nonnull
+        private final byte[] myOids;
+        @Nullable
+        private int[] myBloomIndexes;
+        @Nullable
+        private byte[] myBloomData;
+        private int myBloomHashVersion;
+        private int myBloomHashCount;
+
+        private Layer(int hashLength, @Nonnull int[] fanout, @Nonnull byte[] oids) {
+            myHashLength = hashLength;
+            myFanout = fanout;
+            myOids = oids;
+        }
+
+        @Nonnull
+        static Layer read(@Nonnull File file) throws IOException {
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                if (in.readInt() != SIGNATURE) {
+                    throw new IOException("Not a commit-graph file: " + file);
+                }
+                int version = in.readUnsignedByte();
+                int hashVersion = in.readUnsignedByte();
+                int chunkCount = in.readUnsignedByte();
+                in.readUnsignedByte(); // the number of base graphs
+                if (version != 1 || (hashVersion != 1 && hashVersion != 2)) {
+                    throw new IOException("Unsupported commit-graph version " + version + "/" + hashVersion + ": " + file);
+                }
+                int hashLength = hashVersion == 1 ? 20 : 32;
+
+                int[] ids = new int[chunkCount + 1];
+                long[] offsets = new long[chunkCount + 1];
+                for (int i = 0; i <= chunkCount; i++) {
+                    ids[i] = in.readInt();
+                    offsets[i] = in.readLong();
+                }
+                long fanoutOffset = findChunk(ids, offsets, CHUNK_OID_FANOUT);
+                long oidsOffset = findChunk(ids, offsets, CHUNK_OID_LOOKUP);
+                if (fanoutOffset < 0 || oidsOffset < 0) {
+                    throw new IOException("Required commit-graph chunks are missing: " + file);
+                }
+
+                int[] fanout = new int[256];
+                in.seek(fanoutOffset);
+                for (int i = 0; i < fanout.length; i++) {
+                    fanout[i] = in.readInt();
+                }
+                int commitCount = fanout[255];
+                byte[] oids = new byte[commitCount * hashLength];
+                in.seek(oidsOffset);
+                in.readFully(oids);
+                Layer layer = new Layer(hashLength, fanout, oids);
+
+                long indexesOffset = findChunk(ids, offsets, CHUNK_BLOOM_INDEXES);
+                long dataOffset = findChunk(ids, offsets, CHUNK_BLOOM_DATA);
+                if (indexesOffset >= 0 && dataOffset >= 0) {
+                    int[] indexes = new int[commitCount];
+                    in.seek(indexesOffset);
+                    for (int i = 0; i < commitCount; i++) {
+                        indexes[i] = in.readInt();
+                    }
+                    in.seek(dataOffset);
+                    int bloomHashVersion = in.readInt();
+                    int bloomHashCount = in.readInt();
+                    in.readInt(); // bits per entry
+                    long dataEnd = getChunkEnd(offsets, dataOffset);
+                    byte[] data = new byte[(int)(dataEnd - dataOffset - BLOOM_DATA_HEADER_SIZE)];
+                    in.readFully(data);
+                    if (bloomHashVersion == 1 || bloomHashVersion == 2) {
+                        layer.myBloomIndexes = indexes;
+                        layer.myBloomData = data;
+                        layer.myBloomHashVersion = bloomHashVersion;
+                        layer.myBloomHashCount = bloomHashCount;
+                    }
+                }
+                return layer;
+            }
+        }
+
+        private static long findChunk(@Nonnull int[] ids, @Nonnull long[] offsets, int id) {
+            for (int i = 0; i < ids.length - 1; i++) {
+                if (ids[i] == id) {
+                    return offsets[i];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Chunks are not necessarily stored in the order of the table: the chunk ends where the nearest next chunk starts.
+         */
+        private static long getChunkEnd(@Nonnull long[] offsets, long start) {
+            long end = Long.MAX_VALUE;
+            for (long offset : offsets) {
+                if (offset > start && offset < end) {
+                    end = offset;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * @return the position of the commit in this layer, or -1 if it is not here
+         */
+        int find(@Nonnull byte[] hash) {
+            if (hash.length != myHashLength) {
+                return -1;
+            }
+            int first = hash[0] & 0xff;
+            int low = first == 0 ? 0 : myFanout[first - 1];
+            int high = myFanout[first] - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compare(middle, hash);
+                if (comparison < 0) {
+                    low = middle + 1;
+                }
+                else if (comparison > 0) {
+                    high = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int position, @Nonnull byte[] hash) {
+            int offset = position * myHashLength;
+            for (int i = 0; i < myHashLength; i++) {
+                int difference = (myOids[offset + i] & 0xff) - (hash[i] & 0xff);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+
+        @Nonnull
+        int[][] computeKeys(@Nonnull List<String> paths) {
+            int[][] keys = new int[paths.size()][];
+            for (int i = 0; i < paths.size(); i++) {
+                byte[] path = paths.get(i).getBytes(StandardCharsets.UTF_8);
+                int hash0 = murmur3(BLOOM_SEED_0, path, myBloomHashVersion == 1);
+                int hash1 = murmur3(BLOOM_SEED_1, path, myBloomHashVersion == 1);
+                keys[i] = new int[myBloomHashCount];
+                for (int j = 0; j < myBloomHashCount; j++) {
+                    keys[i][j] = hash0 + j * hash1;
+                }
+            }
+            return keys;
+        }
+
+        boolean mayContainAnyOf(int position, @Nonnull int[][] keys) {
+            int[] indexes = myBloomIndexes;
+            byte[] data = myBloomData;
+            if (indexes == null || data == null) {
+                return true;
+            }
+            int start = position == 0 ? 0 : indexes[position - 1];
+            int length = indexes[position] - start;
+            if (length <= 0) {
+                // the filter was not computed
+                return true;
+            }
+            for (int[] key : keys) {
+                if (contains(data, start, length, key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean contains(@Nonnull byte[] data, int start, int length, @Nonnull int[] key) {
+            long bitCount = length * 8L;
+            for (int hash : key) {
+                long bit = Integer.toUnsignedLong(hash) % bitCount;
+                if ((data[start + (int)(bit >>> 3)] & (1 << (bit & 7))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The 32-bit murmur3 hash, as Git computes it. Version 1 of the Bloom filters was written with the bytes of the path
+     * taken as signed, which differs from the standard hash for non-ASCII paths.
+     */
+    static int murmur3(int seed, @Nonnull byte[] data, boolean signedBytes) {
+        int c1 = 0xcc9e2d51;
+        int c2 = 0x1b873593;
+        int hash = seed;
+        int blocks = data.length / 4;
+        for (int i = 0; i < blocks; i++) {
+            int k = byteAt(data, 4 * i, signedBytes)
+                | byteAt(data, 4 * i + 1, signedBytes) << 8
+                | byteAt(data, 4 * i + 2, signedBytes) << 16
+                | byteAt(data, 4 * i + 3, signedBytes) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            hash ^= k;
+            hash = Integer.rotateLeft(hash, 13);
+            hash = hash * 5 + 0xe6546b64;
+        }
+
+        int tail = blocks * 4;
+        int k = 0;
+        switch (data.length & 3) {
+            case 3:
+                k ^= byteAt(data, tail + 2, signedBytes) << 16;
+            case 2:
+                k ^= byteAt(data, tail + 1, signedBytes) << 8;
+            case 1:
+                k ^= byteAt(data, tail, signedBytes);
+                k *= c1;
+                k = Integer.rotateLeft(k, 15);
+                k *= c2;
+                hash ^= k;
+        }
+
+        hash ^= data.length;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static int byteAt(@Nonnull byte[] data, int index, boolean signed) {
+        return signed ? data[index] : data[index] & 0xff;
+    }
+}
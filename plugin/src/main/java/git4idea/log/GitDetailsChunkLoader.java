@@ -0,0 +1,195 @@
+package git4idea.log;
+
+import consulo.application.progress.ProgressIndicator;
+import consulo.application.progress.ProgressManager;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.component.ProcessCanceledException;
+import consulo.logging.Logger;
+import consulo.util.lang.function.ThrowableFunction;
+import consulo.versionControlSystem.VcsException;
+import consulo.versionControlSystem.log.VcsShortCommitDetails;
+import consulo.versionControlSystem.util.VcsFileUtil;
+import git4idea.commands.GitProcessScheduler;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * <p>Reads the details of the given commits in chunks, one {@code git log --no-walk} per chunk, running up to
+ * {@code git.log.details.parallel.chunks} chunks at the same time. The details are passed to the consumer in the calling thread,
+ * chunk by chunk in the order of the requested hashes, and each commit is passed once.</p>
+ *
+ * <p>A chunk never exceeds the command line limit. Within it, the number of hashes is adapted to the time the previous chunks took,
+ * so that a chunk takes about {@link #TARGET_CHUNK_TIME_MS}: slow chunks (large commits with many changes) get smaller
+ * and can be spread over more processes, fast chunks get larger to save on process starts.</p>
+ */
+class GitDetailsChunkLoader<T extends VcsShortCommitDetails> {
+    private static final Logger LOG = Logger.getInstance(GitDetailsChunkLoader.class);
+
+    private static final int MIN_CHUNK_SIZE = 16;
+    private static final int INITIAL_CHUNK_SIZE = 64;
+    private static final long TARGET_CHUNK_TIME_MS = 500;
+    private static final long WAIT_CHECK_INTERVAL_MS = 50;
+
+    @Nonnull
+    private final ThrowableFunction<List<String>, List<? extends T>, VcsException> myReader;
+    private int myChunkSize = INITIAL_CHUNK_SIZE;
+
+    private GitDetailsChunkLoader(@Nonnull ThrowableFunction<List<String>, List<? extends T>, VcsException> reader) {
+        myReader = reader;
+    }
+
+    /**
+     * @param reader reads the details of a chunk of hashes, may be called from several threads at the same time
+     */
+    static <T extends VcsShortCommitDetails> void load(
+        @Nonnull List<String> hashes,
+        @Nonnull ThrowableFunction<List<String>, List<? extends T>, VcsException> reader,
+        @Nonnull Consumer<? super T> consumer
+    ) throws VcsException {
+        new GitDetailsChunkLoader<>(reader).load(new ArrayList<>(new LinkedHashSet<>(hashes)), consumer);
+    }
+
+    private void load(@Nonnull List<String> hashes, @Nonnull Consumer<? super T> consumer) throws VcsException {
+        Set<String> delivered = new HashSet<>();
+        Consumer<T> deduplicatingConsumer = details -> {
+            if (delivered.add(details.getId().asString())) {
+                consumer.accept(details);
+            }
+        };
+
+        List<String> firstChunk = nextChunk(hashes, 0);
+        if (firstChunk.size() == hashes.size()) {
+            // a single process, nothing to run in parallel
+            myReader.apply(firstChunk).forEach(deduplicatingConsumer);
+            return;
+        }
+
+        int parallelism = Math.max(1, Registry.intValue("git.log.details.parallel.chunks", 3));
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        GitProcessScheduler.Priority priority = GitProcessScheduler.getThreadPriority();
+        Deque<Future<ChunkResult<T>>> running = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < hashes.size() || !running.isEmpty()) {
+                while (next < hashes.size() && running.size() < parallelism) {
+                    List<String> chunk = nextChunk(hashes, next);
+                    next += chunk.size();
+                    running.add(AppExecutorUtil.getAppExecutorService().submit(() -> readChunk(chunk, indicator, priority)));
+                }
+
+                ChunkResult<T> result = waitFor(running.peekFirst());
+                running.removeFirst();
+                if (result.myException != null) {
+                    throw result.myException;
+                }
+                adaptChunkSize(result);
+                result.myDetails.forEach(deduplicatingConsumer);
+            }
+        }
+        finally {
+            for (Future<ChunkResult<T>> future : running) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @Nonnull
+    private ChunkResult<T> readChunk(
+        @Nonnull List<String> chunk,
+        @Nullable ProgressIndicator indicator,
+        @Nullable GitProcessScheduler.Priority priority
+    ) {
+        ChunkResult<T> result = new ChunkResult<>(chunk.size());
+        Runnable read = () -> {
+            long start = System.currentTimeMillis();
+            try {
+                result.myDetails = myReader.apply(chunk);
+            }
+            catch (VcsException e) {
+                result.myException = e;
+            }
+            result.myTime = System.currentTimeMillis() - start;
+        };
+        Runnable readWithPriority = priority == null ? read : () -> GitProcessScheduler.runWithPriority(priority, read);
+        if (indicator != null) {
+            ProgressManager.getInstance().runProcess(readWithPriority, indicator);
+        }
+        else {
+            readWithPriority.run();
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static <T> T waitFor(@Nonnull Future<T> future) throws VcsException {
+        while (true) {
+            ProgressManager.checkCanceled();
+            try {
+                return future.get(WAIT_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e) {
+                // check the cancellation and wait again
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException(e);
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new VcsException(cause);
+            }
+        }
+    }
+
+    /**
+     * @return the hashes starting from {@code start}, at most the current chunk size, fitting into the command line limit
+     */
+    @Nonnull
+    private List<String> nextChunk(@Nonnull List<String> hashes, int start) {
+        int end = start;
+        int length = 0;
+        while (end < hashes.size() && end - start < myChunkSize) {
+            length += hashes.get(end).length() + 1;
+            if (length > VcsFileUtil.FILE_PATH_LIMIT && end > start) {
+                break;
+            }
+            end++;
+        }
+        return hashes.subList(start, end);
+    }
+
+    private void adaptChunkSize(@Nonnull ChunkResult<T> result) {
+        if (result.mySize < myChunkSize / 2) {
+            // the last chunk: its time says little
+            return;
+        }
+        long perCommit = Math.max(1, result.myTime / Math.max(1, result.mySize));
+        int desired = (int)(TARGET_CHUNK_TIME_MS / perCommit);
+        myChunkSize = Math.max(MIN_CHUNK_SIZE, (myChunkSize + desired) / 2);
+        LOG.debug("Read " + result.mySize + " commits in " + result.myTime + " ms, next chunk size is " + myChunkSize);
+    }
+
+    private static class ChunkResult<T> {
+        private final int mySize;
+        @Nonnull
+        private List<? extends T> myDetails = Collections.emptyList();
+        @Nullable
+        private VcsException myException;
+        private long myTime;
+
+        ChunkResult(int size) {
+            mySize = size;
+        }
+    }
+}
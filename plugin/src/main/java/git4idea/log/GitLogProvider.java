@@ -24,10 +24,8 @@ import consulo.project.Project;
 import consulo.util.collection.ArrayUtil;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.collection.HashingStrategy;
-import consulo.util.interner.Interner;
 import consulo.util.lang.ObjectUtil;
 import consulo.util.lang.StringUtil;
-import consulo.util.lang.function.ThrowableFunction;
 import consulo.versionControlSystem.FilePath;
 import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.VcsKey;
@@ -44,6 +42,7 @@ import consulo.virtualFileSystem.VirtualFile;
 import git4idea.*;
 import git4idea.branch.GitBranchUtil;
 import git4idea.branch.GitBranchesCollection;
+import git4idea.commands.GitProcessScheduler;
 import git4idea.config.GitVersionSpecialty;
 import git4idea.history.GitHistoryUtils;
 import git4idea.repo.GitRepository;
@@ -86,6 +85,8 @@ public class GitLogProvider implements VcsLogProvider {
     private final VcsLogRefManager myRefSorter;
     @Nonnull
     private final VcsLogObjectsFactory myVcsObjectsFactory;
+    @Nonnull
+    private final GitRefTable myRefTable;
 
     @Inject
     public GitLogProvider(
@@ -98,6 +99,7 @@ public class GitLogProvider implements VcsLogProvider {
         myUserRegistry = userRegistry;
         myRefSorter = new GitRefManager(myRepositoryManager);
         myVcsObjectsFactory = factory;
+        myRefTable = GitRefTable.getInstance(project);
         myVcs = ObjectUtil.assertNotNull(GitVcs.getInstance(project));
     }
 
@@ -126,11 +128,11 @@ public class GitLogProvider implements VcsLogProvider {
         DetailedLogData data = GitHistoryUtils.loadMetadata(myProject, root, params);
 
         Set<VcsRef> safeRefs = data.getRefs();
-        Interner<VcsRef> allRefs = Interner.createHashInterner(DONT_CONSIDER_SHA);
-        allRefs.internAll(safeRefs);
+        GitRefTable.RefCollector allRefs = new GitRefTable.RefCollector();
+        allRefs.addAll(safeRefs);
 
         Set<VcsRef> branches = readBranches(repository);
-        addNewElements(allRefs, branches);
+        allRefs.addAll(branches);
 
         Collection<VcsCommitMetadata> allDetails;
         Set<String> currentTagNames = null;
@@ -155,7 +157,7 @@ public class GitLogProvider implements VcsLogProvider {
             if (!newUnmatchedTags.isEmpty()) {
                 commitsFromTags = loadSomeCommitsOnTaggedBranches(root, commitCount, newUnmatchedTags);
                 addNewElements(allDetails, commitsFromTags.getCommits());
-                addNewElements(allRefs, commitsFromTags.getRefs());
+                allRefs.addAll(commitsFromTags.getRefs());
             }
         }
 
@@ -164,16 +166,19 @@ public class GitLogProvider implements VcsLogProvider {
         sortedCommits = sortedCommits.subList(0, Math.min(sortedCommits.size(), requirements.getCommitCount()));
         sw.report();
 
+        // unchanged refs are the same objects as on the previous refresh, so if nothing moved, the previous set is returned as is
+        Set<VcsRef> refs = refresh ? allRefs.toSet(((VcsLogProviderRequirementsEx) requirements).getPreviousRefs()) : allRefs.toSet();
+
         if (LOG.isDebugEnabled()) {
-            validateDataAndReportError(root, allRefs, sortedCommits, data, branches, currentTagNames, commitsFromTags);
+            validateDataAndReportError(root, refs, sortedCommits, data, branches, currentTagNames, commitsFromTags);
         }
 
-        return new LogDataImpl(allRefs.getValues(), sortedCommits);
+        return new LogDataImpl(refs, sortedCommits);
     }
 
     private static void validateDataAndReportError(
         @Nonnull final VirtualFile root,
-        @Nonnull final Interner<VcsRef> allRefs,
+        @Nonnull final Set<VcsRef> allRefs,
         @Nonnull final List<VcsCommitMetadata> sortedCommits,
         @Nonnull final DetailedLogData firstBlockSyncData,
         @Nonnull final Set<VcsRef> manuallyReadBranches,
@@ -181,7 +186,7 @@ public class GitLogProvider implements VcsLogProvider {
         @Nullable final DetailedLogData commitsFromTags
     ) {
         StopWatch sw = StopWatch.start("validating data in " + root.getName());
-        final Set<Hash> refs = ContainerUtil.map2Set(allRefs.getValues(), VcsRef::getCommitHash);
+        final Set<Hash> refs = ContainerUtil.map2Set(allRefs, VcsRef::getCommitHash);
 
         PermanentGraph.newInstance(sortedCommits, new GraphColorManager<>() {
             @Override
@@ -219,7 +224,7 @@ public class GitLogProvider implements VcsLogProvider {
     @SuppressWarnings("StringConcatenationInsideStringBufferAppend")
     private static String printErrorDetails(
         @Nonnull VirtualFile root,
-        @Nonnull Interner<VcsRef> allRefs,
+        @Nonnull Set<VcsRef> allRefs,
         @Nonnull List<VcsCommitMetadata> sortedCommits,
         @Nonnull DetailedLogData firstBlockSyncData,
         @Nonnull Set<VcsRef> manuallyReadBranches,
@@ -251,7 +256,7 @@ public class GitLogProvider implements VcsLogProvider {
         sb.append("\nCommits (last 100): \n");
         sb.append(printCommits(sortedCommits));
         sb.append("\nAll refs:\n");
-        sb.append(printRefs(allRefs.getValues()));
+        sb.append(printRefs(allRefs));
         return sb.toString();
     }
 
@@ -284,14 +289,14 @@ public class GitLogProvider implements VcsLogProvider {
     }
 
     private static void addOldStillExistingTags(
-        @Nonnull Interner<VcsRef> allRefs,
+        @Nonnull GitRefTable.RefCollector allRefs,
         @Nonnull Set<String> currentTags,
         @Nonnull Collection<VcsRef> previousRefs
     ) {
         for (VcsRef ref : previousRefs) {
-            VcsRef t = allRefs.get(ref);
-            if (t == null && currentTags.contains(ref.getName())) {
-                allRefs.intern(ref);
+            if (currentTags.contains(ref.getName())) {
+                // a ref with the same name and type read from Git wins
+                allRefs.add(ref);
             }
         }
     }
@@ -315,15 +320,6 @@ public class GitLogProvider implements VcsLogProvider {
         return result;
     }
 
-    private static <T> void addNewElements(@Nonnull Interner<T> original, @Nonnull Collection<T> toAdd) {
-        for (T item : toAdd) {
-            T t = original.get(item);
-            if (t == null) {
-                original.intern(item);
-            }
-        }
-    }
-
     private static <T> void addNewElements(@Nonnull Collection<T> original, @Nonnull Collection<T> toAdd) {
         for (T item : toAdd) {
             if (!original.contains(item)) {
@@ -364,14 +360,20 @@ public class GitLogProvider implements VcsLogProvider {
         GitBekParentFixer parentFixer = GitBekParentFixer.prepare(root, this);
         Set<VcsUser> userRegistry = newHashSet();
         Set<VcsRef> refs = newHashSet();
-        GitHistoryUtils.readCommits(
-            myProject,
-            root,
-            parameters,
-            userRegistry::add,
-            refs::add,
-            commit -> commitConsumer.accept(parentFixer.fixCommit(commit))
-        );
+        // reading the whole history is needed for the index and the graph, so it should not delay interactive commands
+        GitProcessScheduler.computeWithPriority(GitProcessScheduler.Priority.BACKGROUND, () -> {
+            GitHistoryUtils.readCommits(
+                myProject,
+                root,
+                parameters,
+                userRegistry::add,
+                refs::add,
+                commit -> commitConsumer.accept(parentFixer.fixCommit(commit))
+            );
+            return null;
+        });
+        // all refs are read here, so the deleted ones can be forgotten
+        myRefTable.retainAll(root, refs);
         return new LogDataImpl(refs, userRegistry);
     }
 
@@ -381,7 +383,10 @@ public class GitLogProvider implements VcsLogProvider {
             return;
         }
 
-        GitHistoryUtils.loadDetails(myProject, root, commitConsumer, ArrayUtil.toStringArray(GitHistoryUtils.LOG_ALL));
+        GitProcessScheduler.computeWithPriority(GitProcessScheduler.Priority.BACKGROUND, () -> {
+            GitHistoryUtils.loadDetails(myProject, root, commitConsumer, ArrayUtil.toStringArray(GitHistoryUtils.LOG_ALL));
+            return null;
+        });
     }
 
     @Override
@@ -394,13 +399,15 @@ public class GitLogProvider implements VcsLogProvider {
             return;
         }
 
-        VcsFileUtil.foreachChunk(hashes, 1, hashesChunk -> {
-            String noWalk = GitVersionSpecialty.NO_WALK_UNSORTED.existsIn(myVcs.getVersion()) ? "--no-walk=unsorted" : "--no-walk";
+        String noWalk = GitVersionSpecialty.NO_WALK_UNSORTED.existsIn(myVcs.getVersion()) ? "--no-walk=unsorted" : "--no-walk";
+        GitDetailsChunkLoader.<VcsFullCommitDetails>load(hashes, hashesChunk -> {
             List<String> parameters = new ArrayList<>();
             parameters.add(noWalk);
             parameters.addAll(hashesChunk);
-            GitHistoryUtils.loadDetails(myProject, root, commitConsumer, ArrayUtil.toStringArray(parameters));
-        });
+            List<VcsFullCommitDetails> details = new ArrayList<>(hashesChunk.size());
+            GitHistoryUtils.loadDetails(myProject, root, details::add, ArrayUtil.toStringArray(parameters));
+            return details;
+        }, commitConsumer);
     }
 
     @Nonnull
@@ -409,14 +416,13 @@ public class GitLogProvider implements VcsLogProvider {
         @Nonnull final VirtualFile root,
         @Nonnull List<String> hashes
     ) throws VcsException {
-        //noinspection Convert2Lambda
-        return VcsFileUtil.foreachChunk(hashes, new ThrowableFunction<List<String>, List<? extends VcsShortCommitDetails>, VcsException>() {
-            @Nonnull
-            @Override
-            public List<? extends VcsShortCommitDetails> apply(@Nonnull List<String> hashes) throws VcsException {
-                return GitHistoryUtils.readMiniDetails(myProject, root, hashes);
-            }
-        });
+        List<VcsShortCommitDetails> result = new ArrayList<>(hashes.size());
+        GitDetailsChunkLoader.<VcsShortCommitDetails>load(
+            hashes,
+            hashesChunk -> GitHistoryUtils.readMiniDetails(myProject, root, hashesChunk),
+            result::add
+        );
+        return result;
     }
 
     @Nonnull
@@ -431,16 +437,16 @@ public class GitLogProvider implements VcsLogProvider {
         for (GitLocalBranch localBranch : localBranches) {
             Hash hash = branches.getHash(localBranch);
             assert hash != null;
-            refs.add(myVcsObjectsFactory.createRef(hash, localBranch.getName(), GitRefManager.LOCAL_BRANCH, root));
+            refs.add(myRefTable.intern(root, hash, localBranch.getName(), GitRefManager.LOCAL_BRANCH));
         }
         for (GitRemoteBranch remoteBranch : remoteBranches) {
             Hash hash = branches.getHash(remoteBranch);
             assert hash != null;
-            refs.add(myVcsObjectsFactory.createRef(hash, remoteBranch.getNameForLocalOperations(), GitRefManager.REMOTE_BRANCH, root));
+            refs.add(myRefTable.intern(root, hash, remoteBranch.getNameForLocalOperations(), GitRefManager.REMOTE_BRANCH));
         }
         String currentRevision = repository.getCurrentRevision();
         if (currentRevision != null) { // null => fresh repository
-            refs.add(myVcsObjectsFactory.createRef(HashImpl.build(currentRevision), "HEAD", GitRefManager.HEAD, root));
+            refs.add(myRefTable.intern(root, HashImpl.build(currentRevision), "HEAD", GitRefManager.HEAD));
         }
         sw.report();
         return refs;
@@ -485,6 +491,15 @@ public class GitLogProvider implements VcsLogProvider {
             return Collections.emptyList();
         }
 
+        GitRepository indexedRepository = getRepository(root);
+        if (indexedRepository != null) {
+            List<TimedVcsCommit> indexed = GitCommitFilterIndex.getInstance(myProject)
+                .getCommitsMatchingFilter(indexedRepository, filterCollection, maxCount, myVcsObjectsFactory);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+
         List<String> filterParameters = new ArrayList<>();
 
         VcsLogBranchFilter branchFilter = filterCollection.getBranchFilter();
@@ -0,0 +1,164 @@
+package git4idea.log;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.logging.Logger;
+import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
+import consulo.versionControlSystem.log.Hash;
+import consulo.versionControlSystem.log.VcsLogObjectsFactory;
+import consulo.versionControlSystem.log.VcsRef;
+import consulo.versionControlSystem.log.VcsRefType;
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>The references of each root known to the log, kept between the log refreshes.</p>
+ *
+ * <p>References are interned by their name and type: while a reference points to the same commit, the same {@link VcsRef} object
+ * is returned for it, so a refresh creates new objects only for the references which were added or moved.
+ * Interning doesn't take locks, the references read by parallel log commands are swapped by compare-and-set.</p>
+ *
+ * <p>{@link RefCollector} gathers the references of a single refresh, detecting the duplicates by name and type in constant time.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.PROJECT)
+@ServiceImpl
+public class GitRefTable {
+    private static final Logger LOG = Logger.getInstance(GitRefTable.class);
+
+    @Nonnull
+    private final VcsLogObjectsFactory myFactory;
+    @Nonnull
+    private final Map<VirtualFile, ConcurrentMap<VcsRefType, ConcurrentMap<String, VcsRef>>> myRefs = ContainerUtil.newConcurrentMap();
+
+    @Inject
+    public GitRefTable(@Nonnull VcsLogObjectsFactory factory) {
+        myFactory = factory;
+    }
+
+    @Nonnull
+    public static GitRefTable getInstance(@Nonnull Project project) {
+        return project.getInstance(GitRefTable.class);
+    }
+
+    /**
+     * @return the known reference with the given name and type if it points to the hash, or a new reference replacing it
+     */
+    @Nonnull
+    public VcsRef intern(@Nonnull VirtualFile root, @Nonnull Hash hash, @Nonnull String name, @Nonnull VcsRefType type) {
+        ConcurrentMap<String, VcsRef> refs = getRefs(root, type);
+        while (true) {
+            VcsRef known = refs.get(name);
+            if (known != null && known.getCommitHash().equals(hash)) {
+                return known;
+            }
+            VcsRef ref = myFactory.createRef(hash, name, type, root);
+            if (known == null ? refs.putIfAbsent(name, ref) == null : refs.replace(name, known, ref)) {
+                return ref;
+            }
+        }
+    }
+
+    /**
+     * Forgets the references of the root which are not in the given complete set of its references, e.g. deleted branches and tags
+     */
+    public void retainAll(@Nonnull VirtualFile root, @Nonnull Collection<VcsRef> refs) {
+        Map<VcsRefType, ConcurrentMap<String, VcsRef>> rootRefs = myRefs.get(root);
+        if (rootRefs == null) {
+            return;
+        }
+        RefCollector current = new RefCollector();
+        for (VcsRef ref : refs) {
+            current.add(ref);
+        }
+        for (Map.Entry<VcsRefType, ConcurrentMap<String, VcsRef>> entry : rootRefs.entrySet()) {
+            Map<String, VcsRef> retained = current.myRefs.get(entry.getKey());
+            entry.getValue().keySet().removeIf(name -> retained == null || !retained.containsKey(name));
+        }
+    }
+
+    @Nonnull
+    private ConcurrentMap<String, VcsRef> getRefs(@Nonnull VirtualFile root, @Nonnull VcsRefType type) {
+        ConcurrentMap<VcsRefType, ConcurrentMap<String, VcsRef>> rootRefs = myRefs.get(root);
+        if (rootRefs == null) {
+            rootRefs = myRefs.computeIfAbsent(root, r -> ContainerUtil.newConcurrentMap());
+        }
+        ConcurrentMap<String, VcsRef> refs = rootRefs.get(type);
+        if (refs == null) {
+            refs = rootRefs.computeIfAbsent(type, t -> ContainerUtil.newConcurrentMap());
+        }
+        return refs;
+    }
+
+    /**
+     * The references gathered by a single refresh of a root: the first reference with a name and type wins. Not thread-safe.
+     */
+    public static class RefCollector {
+        @Nonnull
+        private final Map<VcsRefType, Map<String, VcsRef>> myRefs = new HashMap<>();
+        private int mySize;
+
+        /**
+         * @return null if the reference was added, or the reference with the same name and type added before
+         */
+        @Nullable
+        public VcsRef add(@Nonnull VcsRef ref) {
+            VcsRef existing = myRefs.computeIfAbsent(ref.getType(), t -> new HashMap<>()).putIfAbsent(ref.getName(), ref);
+            if (existing == null) {
+                mySize++;
+            }
+            return existing;
+        }
+
+        public void addAll(@Nonnull Collection<VcsRef> refs) {
+            for (VcsRef ref : refs) {
+                add(ref);
+            }
+        }
+
+        @Nonnull
+        public Set<VcsRef> toSet() {
+            Set<VcsRef> result = new HashSet<>(mySize);
+            for (Map<String, VcsRef> refs : myRefs.values()) {
+                result.addAll(refs.values());
+            }
+            return result;
+        }
+
+        /**
+         * @param previous the references returned by the previous refresh
+         * @return {@code previous} itself if no reference was added, removed or moved since then, otherwise a new set
+         */
+        @Nonnull
+        public Set<VcsRef> toSet(@Nonnull Collection<VcsRef> previous) {
+            if (previous instanceof Set<VcsRef> previousSet && previousSet.size() == mySize && isContainedIn(previousSet)) {
+                return previousSet;
+            }
+            Set<VcsRef> result = toSet();
+            if (LOG.isDebugEnabled()) {
+                long added = result.stream().filter(ref -> !previous.contains(ref)).count();
+                LOG.debug("References changed: " + added + " added or moved, " + (previous.size() + added - result.size()) + " removed or moved");
+            }
+            return result;
+        }
+
+        private boolean isContainedIn(@Nonnull Set<VcsRef> refs) {
+            for (Map<String, VcsRef> refsOfType : myRefs.values()) {
+                for (VcsRef ref : refsOfType.values()) {
+                    if (!refs.contains(ref)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
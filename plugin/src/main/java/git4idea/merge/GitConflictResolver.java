@@ -16,6 +16,7 @@
 package git4idea.merge;
 
 import consulo.application.Application;
+import consulo.disposer.Disposer;
 import consulo.localize.LocalizeValue;
 import consulo.logging.Logger;
 import consulo.project.Project;
@@ -29,7 +30,6 @@ import consulo.versionControlSystem.AbstractVcsHelper;
 import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.VcsNotifier;
 import consulo.versionControlSystem.merge.MergeDialogCustomizer;
-import consulo.versionControlSystem.merge.MergeProvider;
 import consulo.virtualFileSystem.VirtualFile;
 import git4idea.GitUtil;
 import git4idea.GitVcs;
@@ -250,8 +250,13 @@ public class GitConflictResolver {
         Application application = myProject.getApplication();
         application.invokeAndWait(
             () -> {
-                MergeProvider mergeProvider = new GitMergeProvider(myProject, myParams.reverse);
-                myVcsHelper.showMergeDialog(new ArrayList<>(initiallyUnmergedFiles), mergeProvider, myParams.myMergeDialogCustomizer);
+                GitMergeProvider mergeProvider = new GitMergeProvider(myProject, myParams.reverse);
+                try {
+                    myVcsHelper.showMergeDialog(new ArrayList<>(initiallyUnmergedFiles), mergeProvider, myParams.myMergeDialogCustomizer);
+                }
+                finally {
+                    Disposer.dispose(mergeProvider);
+                }
             },
             application.getDefaultModalityState()
         );
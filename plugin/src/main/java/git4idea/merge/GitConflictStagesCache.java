@@ -0,0 +1,239 @@
+package git4idea.merge;
+
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.disposer.Disposable;
+import consulo.project.Project;
+import consulo.versionControlSystem.VcsException;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitObjectQueries;
+import git4idea.commands.GitSimpleHandler;
+import git4idea.util.StringScanner;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Conflict information of a merge session: the index stages of all unmerged files
+ * and the contents of their stage blobs.</p>
+ *
+ * <p>The stages of a root are read by a single {@code git ls-files -s --unmerged} call when the root is first requested.
+ * Then the contents of the stage blobs are fetched in background one by one from the {@link GitObjectQueries cat-file worker},
+ * so that stepping through conflicted files doesn't start {@code git show} for each side of each file.
+ * A file which is requested before its blobs are prefetched reads them from the worker at once instead of waiting for the prefetching.</p>
+ *
+ * <p>At most {@code git.merge.prefetch.max.kb} of blob contents are prefetched per root, the rest are loaded on request.
+ * The contents of a file are dropped when its conflict is resolved, and the whole root when all its conflicts are resolved.
+ * Disposing the cache stops the prefetching and drops the contents.</p>
+ */
+final class GitConflictStagesCache implements Disposable {
+    static final int STAGES_COUNT = 3;
+
+    @Nonnull
+    private final Project myProject;
+    @Nonnull
+    private final Map<VirtualFile, RootConflicts> myRoots = new HashMap<>();
+
+    GitConflictStagesCache(@Nonnull Project project) {
+        myProject = project;
+    }
+
+    @Nonnull
+    synchronized RootConflicts getConflicts(@Nonnull VirtualFile root) throws VcsException {
+        RootConflicts conflicts = myRoots.get(root);
+        if (conflicts == null) {
+            conflicts = readConflicts(root);
+            myRoots.put(root, conflicts);
+        }
+        return conflicts;
+    }
+
+    /**
+     * Drops the contents of the resolved file, and the whole root if it has no unresolved files left
+     */
+    void fileResolved(@Nonnull VirtualFile root, @Nonnull String relativePath) {
+        RootConflicts conflicts;
+        synchronized (this) {
+            conflicts = myRoots.get(root);
+            if (conflicts == null || !conflicts.resolved(relativePath)) {
+                return;
+            }
+            myRoots.remove(root);
+        }
+        conflicts.cancel();
+    }
+
+    @Override
+    public void dispose() {
+        List<RootConflicts> roots;
+        synchronized (this) {
+            roots = new ArrayList<>(myRoots.values());
+            myRoots.clear();
+        }
+        for (RootConflicts conflicts : roots) {
+            conflicts.cancel();
+        }
+    }
+
+    @Nonnull
+    private RootConflicts readConflicts(@Nonnull VirtualFile root) throws VcsException {
+        GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.LS_FILES);
+        h.setStdoutSuppressed(true);
+        h.setSilent(true);
+        h.addParameters("--exclude-standard", "--unmerged", "--stage", "-z");
+        h.endOptions();
+        String output = h.run();
+
+        // in the order of ls-files, which is the order of paths the merge dialog shows
+        Map<String, String[]> stages = new LinkedHashMap<>();
+        StringScanner s = new StringScanner(output);
+        while (s.hasMoreData()) {
+            s.spaceToken(); // permissions
+            String hash = s.spaceToken();
+            int stage = Integer.parseInt(s.tabToken());
+            String file = s.boundedToken('\u0000');
+            if (stage < 1 || stage > STAGES_COUNT) {
+                throw new IllegalStateException("Unknown revision " + stage + " for the file: " + file);
+            }
+            stages.computeIfAbsent(file, f -> new String[STAGES_COUNT + 1])[stage] = hash;
+        }
+
+        RootConflicts conflicts = new RootConflicts(myProject, root, output, stages);
+        conflicts.myPrefetch = AppExecutorUtil.getAppExecutorService().submit(conflicts::prefetch);
+        return conflicts;
+    }
+
+    static final class RootConflicts {
+        @Nonnull
+        private final Project myProject;
+        @Nonnull
+        private final VirtualFile myRoot;
+        // the raw ls-files output, for diagnostics
+        @Nonnull
+        private final String myOutput;
+        // relative path -> blob hashes indexed by the stage number; absent stages are null
+        @Nonnull
+        private final Map<String, String[]> myStages;
+        // the blobs to prefetch, in the order of files
+        @Nonnull
+        private final List<String> myHashes = new ArrayList<>();
+        // blob hash -> content, or null if the blob wasn't prefetched
+        @Nonnull
+        private final ConcurrentMap<String, CompletableFuture<byte[]>> myBlobs = new ConcurrentHashMap<>();
+        private volatile boolean myCancelled;
+        private volatile Future<?> myPrefetch;
+
+        private RootConflicts(@Nonnull Project project, @Nonnull VirtualFile root, @Nonnull String output, @Nonnull Map<String, String[]> stages) {
+            myProject = project;
+            myRoot = root;
+            myOutput = output;
+            myStages = new ConcurrentHashMap<>(stages);
+            for (String[] fileStages : stages.values()) {
+                for (String hash : fileStages) {
+                    if (hash != null && myBlobs.putIfAbsent(hash, new CompletableFuture<>()) == null) {
+                        myHashes.add(hash);
+                    }
+                }
+            }
+        }
+
+        @Nonnull
+        String getOutput() {
+            return myOutput;
+        }
+
+        @Nullable
+        String[] getStages(@Nonnull String relativePath) {
+            return myStages.get(relativePath);
+        }
+
+        /**
+         * @return the content of the given stage of the file, an empty array if the file has no such stage,
+         * or null if the content can't be read from the cat-file worker and should be loaded separately.
+         */
+        @Nullable
+        byte[] getContent(@Nonnull String relativePath, int stage) {
+            String[] fileStages = myStages.get(relativePath);
+            if (fileStages == null) {
+                return null;
+            }
+            String hash = fileStages[stage];
+            if (hash == null) {
+                return new byte[0];
+            }
+            CompletableFuture<byte[]> blob = myBlobs.get(hash);
+            if (blob == null) {
+                return null;
+            }
+            if (!blob.isDone()) {
+                // not prefetched yet: read only this blob instead of waiting for the blobs before it
+                blob.complete(GitObjectQueries.getInstance(myProject).readBlob(myRoot, hash));
+            }
+            return blob.getNow(null);
+        }
+
+        private void prefetch() {
+            long budget = Registry.intValue("git.merge.prefetch.max.kb", 32 * 1024) * 1024L;
+            GitObjectQueries queries = GitObjectQueries.getInstance(myProject);
+            try {
+                for (String hash : myHashes) {
+                    if (myCancelled || budget <= 0) {
+                        break;
+                    }
+                    CompletableFuture<byte[]> blob = myBlobs.get(hash);
+                    if (blob == null || blob.isDone()) {
+                        // resolved or already read on request
+                        continue;
+                    }
+                    byte[] content = queries.readBlob(myRoot, hash);
+                    if (content == null) {
+                        // the worker is not available, the contents are loaded separately
+                        break;
+                    }
+                    budget -= content.length;
+                    blob.complete(content);
+                }
+            }
+            finally {
+                // the rest are read on request
+                myHashes.clear();
+            }
+        }
+
+        /**
+         * @return true if no unresolved files are left
+         */
+        private boolean resolved(@Nonnull String relativePath) {
+            String[] fileStages = myStages.remove(relativePath);
+            if (fileStages != null) {
+                Set<String> used = new HashSet<>();
+                for (String[] stages : myStages.values()) {
+                    Collections.addAll(used, stages);
+                }
+                for (String hash : fileStages) {
+                    if (hash != null && !used.contains(hash)) {
+                        myBlobs.remove(hash);
+                    }
+                }
+            }
+            return myStages.isEmpty();
+        }
+
+        private void cancel() {
+            myCancelled = true;
+            Future<?> prefetch = myPrefetch;
+            if (prefetch != null) {
+                // not interrupted: the worker is shared with other queries
+                prefetch.cancel(false);
+            }
+            myStages.clear();
+            myBlobs.clear();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package git4idea.merge;
 
+import consulo.disposer.Disposable;
 import consulo.git.localize.GitLocalize;
 import consulo.logging.Logger;
 import consulo.project.Project;
@@ -24,7 +25,6 @@ import consulo.versionControlSystem.FilePath;
 import consulo.versionControlSystem.VcsException;
 import consulo.versionControlSystem.history.VcsRevisionNumber;
 import consulo.versionControlSystem.merge.MergeData;
-import consulo.versionControlSystem.merge.MergeProvider;
 import consulo.versionControlSystem.merge.MergeProvider2;
 import consulo.versionControlSystem.merge.MergeSession;
 import consulo.versionControlSystem.util.VcsFileUtil;
@@ -34,11 +34,8 @@ import consulo.virtualFileSystem.VirtualFile;
 import git4idea.GitFileRevision;
 import git4idea.GitRevisionNumber;
 import git4idea.GitUtil;
-import git4idea.commands.GitCommand;
-import git4idea.commands.GitSimpleHandler;
 import git4idea.repo.GitRepository;
 import git4idea.util.GitFileUtils;
-import git4idea.util.StringScanner;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
@@ -46,9 +43,11 @@ import java.io.IOException;
 import java.util.*;
 
 /**
- * Merge-changes provider for Git, used by IDEA internal 3-way merge tool
+ * Merge-changes provider for Git, used by IDEA internal 3-way merge tool.
+ * The prefetched conflict contents are dropped as the conflicts are resolved;
+ * dispose the provider when the merge dialog is closed to drop them at once and stop the prefetching.
  */
-public class GitMergeProvider implements MergeProvider2 {
+public class GitMergeProvider implements MergeProvider2, Disposable {
     private static final int ORIGINAL_REVISION_NUM = 1; // common parent
     private static final int YOURS_REVISION_NUM = 2; // file content on the local branch: "Yours"
     private static final int THEIRS_REVISION_NUM = 3; // remote file content: "Theirs"
@@ -63,6 +62,11 @@ public class GitMergeProvider implements MergeProvider2 {
      */
     @Nonnull
     private final Set<VirtualFile> myReverseRoots;
+    @Nonnull
+    private final GitConflictStagesCache myConflictStages;
+    // resolved once per root, since the merge heads don't change while conflicts are being resolved
+    @Nonnull
+    private final Map<VirtualFile, VcsRevisionNumber> myLastRevisionNumbers = new HashMap<>();
 
     private enum ReverseRequest {
         REVERSE,
@@ -73,6 +77,7 @@ public class GitMergeProvider implements MergeProvider2 {
     private GitMergeProvider(@Nonnull Project project, @Nonnull Set<VirtualFile> reverseRoots) {
         myProject = project;
         myReverseRoots = reverseRoots;
+        myConflictStages = new GitConflictStagesCache(project);
     }
 
     public GitMergeProvider(@Nonnull Project project, boolean reverse) {
@@ -80,7 +85,7 @@ public class GitMergeProvider implements MergeProvider2 {
     }
 
     @Nonnull
-    public static MergeProvider detect(@Nonnull Project project) {
+    public static GitMergeProvider detect(@Nonnull Project project) {
         return new GitMergeProvider(project, findReverseRoots(project, ReverseRequest.DETECT));
     }
 
@@ -113,21 +118,31 @@ public class GitMergeProvider implements MergeProvider2 {
         FilePath path = VcsUtil.getFilePath(file.getPath());
 
         VcsRunnable runnable = () -> {
+            GitConflictStagesCache.RootConflicts conflicts = myConflictStages.getConflicts(root);
+            String relativePath = VcsFileUtil.relativePath(root, file);
             GitFileRevision original = new GitFileRevision(myProject, path, new GitRevisionNumber(":" + ORIGINAL_REVISION_NUM));
             GitFileRevision current = new GitFileRevision(myProject, path, new GitRevisionNumber(":" + yoursRevision(root)));
             GitFileRevision last = new GitFileRevision(myProject, path, new GitRevisionNumber(":" + theirsRevision(root)));
             try {
-                try {
-                    mergeData.ORIGINAL = original.getContent();
-                }
-                catch (Exception ex) {
-                    /// unable to load original revision, use the current instead
-                    /// This could happen in case if rebasing.
+                String[] stages = conflicts.getStages(relativePath);
+                if (stages != null && stages[ORIGINAL_REVISION_NUM] == null) {
+                    // no common parent, e.g. when rebasing: use the current content instead
                     mergeData.ORIGINAL = file.contentsToByteArray();
                 }
-                mergeData.CURRENT = loadRevisionCatchingErrors(current);
-                mergeData.LAST = loadRevisionCatchingErrors(last);
-                mergeData.LAST_REVISION_NUMBER = findLastRevisionNumber(root);
+                else {
+                    byte[] content = conflicts.getContent(relativePath, ORIGINAL_REVISION_NUM);
+                    try {
+                        mergeData.ORIGINAL = content != null ? content : original.getContent();
+                    }
+                    catch (Exception ex) {
+                        /// unable to load original revision, use the current instead
+                        /// This could happen in case if rebasing.
+                        mergeData.ORIGINAL = file.contentsToByteArray();
+                    }
+                }
+                mergeData.CURRENT = loadRevision(conflicts, relativePath, yoursRevision(root), current);
+                mergeData.LAST = loadRevision(conflicts, relativePath, theirsRevision(root), last);
+                mergeData.LAST_REVISION_NUMBER = getLastRevisionNumber(root);
             }
             catch (IOException e) {
                 throw new IllegalStateException("Failed to load file content", e);
@@ -137,6 +152,16 @@ public class GitMergeProvider implements MergeProvider2 {
         return mergeData;
     }
 
+    @Nullable
+    private VcsRevisionNumber getLastRevisionNumber(@Nonnull VirtualFile root) {
+        synchronized (myLastRevisionNumbers) {
+            if (!myLastRevisionNumbers.containsKey(root)) {
+                myLastRevisionNumbers.put(root, findLastRevisionNumber(root));
+            }
+            return myLastRevisionNumbers.get(root);
+        }
+    }
+
     @Nullable
     private VcsRevisionNumber findLastRevisionNumber(@Nonnull VirtualFile root) {
         if (myReverseRoots.contains(root)) {
@@ -171,6 +196,17 @@ public class GitMergeProvider implements MergeProvider2 {
         }
     }
 
+    @Nonnull
+    private static byte[] loadRevision(
+        @Nonnull GitConflictStagesCache.RootConflicts conflicts,
+        @Nonnull String relativePath,
+        int stage,
+        @Nonnull GitFileRevision revision
+    ) throws VcsException, IOException {
+        byte[] content = conflicts.getContent(relativePath, stage);
+        return content != null ? content : loadRevisionCatchingErrors(revision);
+    }
+
     private static byte[] loadRevisionCatchingErrors(@Nonnull GitFileRevision revision) throws VcsException, IOException {
         try {
             return revision.getContent();
@@ -210,7 +246,9 @@ public class GitMergeProvider implements MergeProvider2 {
             return;
         }
         try {
-            GitFileUtils.addFiles(myProject, GitUtil.getGitRoot(file), file);
+            VirtualFile root = GitUtil.getGitRoot(file);
+            GitFileUtils.addFiles(myProject, root, file);
+            myConflictStages.fileResolved(root, VcsFileUtil.relativePath(root, file));
         }
         catch (VcsException e) {
             LOG.error("Confirming conflict resolution failed", e);
@@ -222,6 +260,11 @@ public class GitMergeProvider implements MergeProvider2 {
         return file.getFileType().isBinary();
     }
 
+    @Override
+    public void dispose() {
+        myConflictStages.dispose();
+    }
+
     @Nonnull
     @Override
     public MergeSession createMergeSession(List<VirtualFile> files) {
@@ -254,44 +297,13 @@ public class GitMergeProvider implements MergeProvider2 {
             // get conflict type by the file
             try {
                 for (Map.Entry<VirtualFile, List<VirtualFile>> e : GitUtil.sortFilesByGitRoot(filesToMerge).entrySet()) {
-                    Map<String, Conflict> cs = new HashMap<>();
                     VirtualFile root = e.getKey();
                     List<VirtualFile> files = e.getValue();
-                    GitSimpleHandler h = new GitSimpleHandler(myProject, root, GitCommand.LS_FILES);
-                    h.setStdoutSuppressed(true);
-                    h.setSilent(true);
-                    h.addParameters("--exclude-standard", "--unmerged", "-t", "-z");
-                    h.endOptions();
-                    String output = h.run();
-                    StringScanner s = new StringScanner(output);
-                    while (s.hasMoreData()) {
-                        if (!"M".equals(s.spaceToken())) {
-                            s.boundedToken('\u0000');
-                            continue;
-                        }
-                        s.spaceToken(); // permissions
-                        s.spaceToken(); // commit hash
-                        int source = Integer.parseInt(s.tabToken());
-                        String file = s.boundedToken('\u0000');
-                        Conflict c = cs.get(file);
-                        if (c == null) {
-                            c = new Conflict();
-                            c.myRoot = root;
-                            cs.put(file, c);
-                        }
-                        if (source == theirsRevision(root)) {
-                            c.myStatusTheirs = Conflict.Status.MODIFIED;
-                        }
-                        else if (source == yoursRevision(root)) {
-                            c.myStatusYours = Conflict.Status.MODIFIED;
-                        }
-                        else if (source != ORIGINAL_REVISION_NUM) {
-                            throw new IllegalStateException("Unknown revision " + source + " for the file: " + file);
-                        }
-                    }
+                    GitConflictStagesCache.RootConflicts conflicts = myConflictStages.getConflicts(root);
+                    String output = conflicts.getOutput();
                     for (VirtualFile f : files) {
                         String path = VcsFileUtil.relativePath(root, f);
-                        Conflict c = cs.get(path);
+                        Conflict c = createConflict(root, conflicts.getStages(path));
                         LOG.assertTrue(
                             c != null,
                             String.format(
@@ -317,6 +329,22 @@ public class GitMergeProvider implements MergeProvider2 {
             }
         }
 
+        @Nullable
+        private Conflict createConflict(@Nonnull VirtualFile root, @Nullable String[] stages) {
+            if (stages == null) {
+                return null;
+            }
+            Conflict c = new Conflict();
+            c.myRoot = root;
+            if (stages[theirsRevision(root)] != null) {
+                c.myStatusTheirs = Conflict.Status.MODIFIED;
+            }
+            if (stages[yoursRevision(root)] != null) {
+                c.myStatusYours = Conflict.Status.MODIFIED;
+            }
+            return c;
+        }
+
         @Override
         public ColumnInfo[] getMergeInfoColumns() {
             return new ColumnInfo[]{new StatusColumn(false), new StatusColumn(true)};
@@ -350,6 +378,7 @@ public class GitMergeProvider implements MergeProvider2 {
                     default:
                         throw new IllegalArgumentException("Unsupported status(" + file.getPath() + "): " + status);
                 }
+                myConflictStages.fileResolved(c.myRoot, VcsFileUtil.relativePath(c.myRoot, file));
             }
             catch (VcsException e) {
                 LOG.error("Unexpected exception during the git operation (" + file.getPath() + ")", e);
@@ -15,6 +15,7 @@
  */
 package git4idea.merge;
 
+import consulo.disposer.Disposer;
 import consulo.localHistory.Label;
 import consulo.localHistory.LocalHistory;
 import consulo.localize.LocalizeValue;
@@ -32,7 +33,6 @@ import consulo.versionControlSystem.update.UpdatedFiles;
 import consulo.virtualFileSystem.LocalFileSystem;
 import consulo.virtualFileSystem.VirtualFile;
 import git4idea.GitRevisionNumber;
-import git4idea.GitVcs;
 import git4idea.actions.GitRepositoryAction;
 
 import javax.swing.*;
@@ -130,9 +130,12 @@ public class GitMergeUtil {
                     }
                 }
                 UIUtil.invokeLaterIfNeeded(() -> {
-                    GitVcs vcs = GitVcs.getInstance(project);
-                    if (vcs != null) {
-                        AbstractVcsHelper.getInstance(project).showMergeDialog(unmerged, vcs.getMergeProvider());
+                    GitMergeProvider mergeProvider = GitMergeProvider.detect(project);
+                    try {
+                        AbstractVcsHelper.getInstance(project).showMergeDialog(unmerged, mergeProvider);
+                    }
+                    finally {
+                        Disposer.dispose(mergeProvider);
                     }
                 });
             });
@@ -25,6 +25,7 @@ import consulo.util.lang.ref.SimpleReference;
 import consulo.virtualFileSystem.VirtualFile;
 import git4idea.DialogManager;
 import git4idea.commands.GitHandler;
+import git4idea.commands.GitProcessScheduler;
 import jakarta.annotation.Nonnull;
 
 import java.io.Closeable;
@@ -115,7 +116,8 @@ public class GitInteractiveRebaseEditorHandler implements Closeable, GitRebaseEd
     public int editCommits(String path) {
         ensureOpen();
         SimpleReference<Boolean> isSuccess = new SimpleReference<>();
-        myProject.getApplication().invokeAndWait(() -> {
+        // the rebase process waits for the editor: git commands reading the config or the commits must not queue behind it
+        myProject.getApplication().invokeAndWait(() -> GitProcessScheduler.runNested(() -> {
             try {
                 myEditorCancelled = false;
                 myNoopSituation = false;
@@ -177,7 +179,7 @@ public class GitInteractiveRebaseEditorHandler implements Closeable, GitRebaseEd
                 LOG.error("Failed to edit the git rebase file: " + path, e);
             }
             isSuccess.set(false);
-        });
+        }));
         return (isSuccess.isNull() || !isSuccess.get()) ? GitRebaseEditorMain.ERROR_EXIT_CODE : 0;
     }
 
@@ -0,0 +1,205 @@
+package git4idea.rebase;
+
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.logging.Logger;
+import consulo.util.io.FileUtil;
+import consulo.util.io.NioFiles;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>The rebase editor implemented as a shell script, so that no JVM is started each time Git invokes the editor.</p>
+ *
+ * <p>The script and a named pipe accepting requests are created in a private temporary directory.
+ * The script creates a named pipe for the answer, writes the request {@code <handler no>\0<answer pipe>\0<file path>\0} to the request pipe
+ * and blocks reading the exit code from the answer pipe; the fields are terminated by NUL, which can't appear in paths.
+ * The request pipe is read by a pooled thread, and each request is passed to the {@link GitRebaseEditorHandler} on its own thread,
+ * since editing may wait for the user. Every request with a valid answer pipe is answered, with an error code if it can't be handled.</p>
+ *
+ * <p>If reading the requests fails, the request pipe is removed, so that the scripts started later exit with an error
+ * instead of waiting for a reader, and the {@link GitRebaseEditorService} switches to the Java editor.</p>
+ *
+ * <p>Named pipes are only available on Unix; on Windows the {@link GitRebaseEditorMain Java editor} is used.</p>
+ */
+class GitRebaseEditorPipe {
+    private static final Logger LOG = Logger.getInstance(GitRebaseEditorPipe.class);
+
+    private static final String REQUESTS = "requests";
+    private static final String SCRIPT = "editor.sh";
+    private static final long MKFIFO_TIMEOUT_SECONDS = 10;
+    private static final int REQUEST_FIELDS = 3;
+
+    @Nonnull
+    private final File myDirectory;
+    @Nonnull
+    private final File myRequests;
+    @Nonnull
+    private final File myScript;
+    @Nonnull
+    private final GitRebaseEditorService myService;
+    private volatile boolean myStopped;
+    private volatile boolean myReading = true;
+
+    private GitRebaseEditorPipe(@Nonnull File directory, @Nonnull GitRebaseEditorService service) {
+        myDirectory = directory;
+        myRequests = new File(directory, REQUESTS);
+        myScript = new File(directory, SCRIPT);
+        myService = service;
+    }
+
+    /**
+     * Creates the script and the request pipe, and starts serving the requests.
+     *
+     * @return the started editor, or null if named pipes can't be created
+     */
+    @Nullable
+    static GitRebaseEditorPipe start(@Nonnull GitRebaseEditorService service) {
+        File directory = null;
+        try {
+            directory = Files.createTempDirectory(GitRebaseEditorService.GIT_REBASE_EDITOR_PREFIX).toFile();
+            GitRebaseEditorPipe pipe = new GitRebaseEditorPipe(directory, service);
+            mkfifo(pipe.myRequests);
+            pipe.writeScript();
+            AppExecutorUtil.getAppExecutorService().execute(pipe::readRequests);
+            return pipe;
+        }
+        catch (IOException e) {
+            LOG.info("Couldn't create the native rebase editor, the Java editor will be used", e);
+            if (directory != null) {
+                FileUtil.delete(directory);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return the editor command to pass to Git
+     */
+    @Nonnull
+    String getEditorCommand() {
+        return "\"" + myScript.getPath() + "\"";
+    }
+
+    private static void mkfifo(@Nonnull File file) throws IOException {
+        Process process = new ProcessBuilder("mkfifo", "-m", "600", file.getPath()).redirectErrorStream(true).start();
+        try {
+            if (!process.waitFor(MKFIFO_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroy();
+                throw new IOException("mkfifo timed out");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("mkfifo failed: " + new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void writeScript() throws IOException {
+        String directory = myDirectory.getPath().replace("'", "'\\''");
+        String script = "#!/bin/sh\n" +
+                        "dir='" + directory + "'\n" +
+                        "answer=\"$dir/answer-$$\"\n" +
+                        "case \"$1\" in\n" +
+                        "  /*) file=\"$1\" ;;\n" +
+                        "  *) file=\"$(pwd)/$1\" ;;\n" +
+                        "esac\n" +
+                        "[ -p \"$dir/" + REQUESTS + "\" ] || exit " + GitRebaseEditorMain.ERROR_EXIT_CODE + "\n" +
+                        "rm -f \"$answer\"\n" +
+                        "mkfifo -m 600 \"$answer\" || exit " + GitRebaseEditorMain.ERROR_EXIT_CODE + "\n" +
+                        "printf '%s\\0%s\\0%s\\0' \"$" + GitRebaseEditorMain.IDEA_REBASE_HANDER_NO + "\" \"$answer\" \"$file\" > \"$dir/" + REQUESTS + "\"\n" +
+                        "read code < \"$answer\"\n" +
+                        "rm -f \"$answer\"\n" +
+                        "exit ${code:-" + GitRebaseEditorMain.ERROR_EXIT_CODE + "}\n";
+        Files.writeString(myScript.toPath(), script, StandardCharsets.UTF_8);
+        NioFiles.setExecutable(myScript.toPath());
+    }
+
+    private void readRequests() {
+        while (!myStopped) {
+            // opening blocks until the script opens the pipe for writing; end of stream means all writers have closed it
+            try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(myRequests), StandardCharsets.UTF_8))) {
+                List<String> fields = new ArrayList<>(REQUEST_FIELDS);
+                StringBuilder field = new StringBuilder();
+                int c;
+                while ((c = reader.read()) != -1) {
+                    if (c != 0) {
+                        field.append((char) c);
+                        continue;
+                    }
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    if (fields.size() == REQUEST_FIELDS) {
+                        String[] request = fields.toArray(new String[0]);
+                        fields.clear();
+                        AppExecutorUtil.getAppExecutorService().execute(() -> handleRequest(request));
+                    }
+                }
+            }
+            catch (IOException e) {
+                if (!myStopped) {
+                    LOG.warn("Couldn't read rebase editor requests, switching to the Java editor", e);
+                    myReading = false;
+                    FileUtil.delete(myRequests);
+                    myService.editorPipeFailed(this);
+                    return;
+                }
+            }
+        }
+        myReading = false;
+    }
+
+    private void handleRequest(@Nonnull String[] request) {
+        // the handler number may be preceded by a line feed written by stop()
+        String handlerNo = request[0].trim();
+        File answerPipe = new File(request[1]);
+        String file = request[2];
+        if (!isAnswerPipe(answerPipe)) {
+            LOG.warn("Invalid rebase editor request: " + String.join(" ", request));
+            return;
+        }
+        int exitCode = GitRebaseEditorMain.ERROR_EXIT_CODE;
+        try {
+            exitCode = myService.getHandler(Integer.parseInt(handlerNo)).editCommits(file);
+        }
+        catch (RuntimeException e) {
+            LOG.warn("Rebase editor request failed: " + String.join(" ", request), e);
+        }
+        try (Writer answer = new OutputStreamWriter(new FileOutputStream(answerPipe), StandardCharsets.UTF_8)) {
+            answer.write(exitCode + "\n");
+        }
+        catch (IOException e) {
+            LOG.warn("Couldn't answer the rebase editor", e);
+        }
+    }
+
+    private boolean isAnswerPipe(@Nonnull File file) {
+        // writing to a path which is not a pipe would create a file instead of answering
+        return myDirectory.equals(file.getParentFile()) && file.getName().startsWith("answer-") && file.exists() && !file.isFile();
+    }
+
+    void stop() {
+        myStopped = true;
+        AppExecutorUtil.getAppExecutorService().execute(() -> {
+            if (myReading) {
+                // the reader may be blocked opening the pipe until somebody opens it for writing
+                try (OutputStream out = new FileOutputStream(myRequests)) {
+                    out.write('\n');
+                }
+                catch (IOException e) {
+                    LOG.debug(e);
+                }
+            }
+            FileUtil.delete(myDirectory);
+        });
+    }
+}
@@ -21,9 +21,13 @@ import consulo.annotation.component.ServiceImpl;
 import consulo.builtinWebServer.BuiltInServerManager;
 import consulo.builtinWebServer.xml.XmlRpcServer;
 import consulo.application.Application;
+import consulo.application.util.registry.Registry;
+import consulo.disposer.Disposable;
+import consulo.platform.Platform;
 import git4idea.commands.GitCommand;
 import git4idea.commands.GitLineHandler;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.inject.Singleton;
 import org.apache.commons.codec.DecoderException;
 import org.apache.ws.commons.serialize.DOMSerializer;
@@ -37,16 +41,26 @@ import java.util.Map;
 import java.util.Random;
 
 /**
- * The service that generates editor script for
+ * The service that generates editor script for rebase.
+ * On Unix the editor is a {@link GitRebaseEditorPipe shell script}, elsewhere it is the {@link GitRebaseEditorMain Java application}.
  */
 @Singleton
 @ServiceAPI(ComponentScope.APPLICATION)
 @ServiceImpl
-public class GitRebaseEditorService {
+public class GitRebaseEditorService implements Disposable {
     /**
      * The editor command that is set to env variable
      */
     private String myEditorCommand;
+    /**
+     * The native editor, if it is used
+     */
+    @Nullable
+    private GitRebaseEditorPipe myEditorPipe;
+    /**
+     * True if the native editor has failed, and the Java editor is used since then
+     */
+    private boolean myEditorPipeFailed;
     /**
      * The lock object
      */
@@ -66,7 +80,7 @@ public class GitRebaseEditorService {
     /**
      * The prefix for rebase editors
      */
-    private static final String GIT_REBASE_EDITOR_PREFIX = "git-rebase-editor-";
+    static final String GIT_REBASE_EDITOR_PREFIX = "git-rebase-editor-";
 
     /**
      * @return an instance of the server
@@ -91,6 +105,13 @@ public class GitRebaseEditorService {
     @Nonnull
     public synchronized String getEditorCommand() {
         synchronized (myScriptLock) {
+            if (myEditorCommand == null && !myEditorPipeFailed && !Platform.current().os().isWindows()
+                && Registry.is("git.rebase.editor.native", true)) {
+                myEditorPipe = GitRebaseEditorPipe.start(this);
+                if (myEditorPipe != null) {
+                    myEditorCommand = myEditorPipe.getEditorCommand();
+                }
+            }
             if (myEditorCommand == null) {
                 ScriptGenerator generator = new ScriptGenerator(GIT_REBASE_EDITOR_PREFIX, GitRebaseEditorMain.class);
                 generator.addInternal(Integer.toString(BuiltInServerManager.getInstance().getPort()));
@@ -101,6 +122,19 @@ public class GitRebaseEditorService {
         }
     }
 
+    /**
+     * Called by the native editor when it can't serve the requests anymore: the Java editor is used from now on
+     */
+    void editorPipeFailed(@Nonnull GitRebaseEditorPipe pipe) {
+        synchronized (myScriptLock) {
+            if (myEditorPipe == pipe) {
+                myEditorPipe = null;
+                myEditorCommand = null;
+                myEditorPipeFailed = true;
+            }
+        }
+    }
+
     /**
      * Register the handler in the service
      *
@@ -167,6 +201,16 @@ public class GitRebaseEditorService {
         h.setEnvironment(GitRebaseEditorMain.IDEA_REBASE_HANDER_NO, Integer.toString(editorNo));
     }
 
+    @Override
+    public void dispose() {
+        synchronized (myScriptLock) {
+            if (myEditorPipe != null) {
+                myEditorPipe.stop();
+                myEditorPipe = null;
+            }
+        }
+    }
+
     /**
      * The internal xml rcp handler
      */
@@ -0,0 +1,166 @@
+package git4idea.repo;
+
+import consulo.logging.Logger;
+import consulo.versionControlSystem.distributed.DvcsUtil;
+import consulo.versionControlSystem.log.base.HashImpl;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Reads the current revision from {@code .git/HEAD} and the single ref it points to,
+ * without reading all refs, the config and other information which {@link GitRepository#update()} reads.</p>
+ *
+ * <p>The result is cached and revalidated by the modification time, size and file key (inode) of the files it was read from:
+ * Git writes these files via a lock file and rename, so any change produces a new stamp.</p>
+ */
+final class GitHeadRevisionReader {
+    private static final Logger LOG = Logger.getInstance(GitHeadRevisionReader.class);
+
+    private static final String REF_PREFIX = "ref:";
+
+    @Nonnull
+    private final File myHeadFile;
+    @Nonnull
+    private final File myCommonDir;
+    @Nonnull
+    private final File myPackedRefsFile;
+
+    @Nullable
+    private volatile CachedRevision myCache;
+
+    GitHeadRevisionReader(@Nonnull GitRepositoryFiles gitFiles) {
+        myHeadFile = gitFiles.getHeadFile();
+        myCommonDir = gitFiles.getRefsHeadsFile().getParentFile().getParentFile();
+        myPackedRefsFile = gitFiles.getPackedRefsPath();
+    }
+
+    /**
+     * @return the current revision, or null if it can't be identified quickly, e.g. in a fresh repository or on unexpected file format.
+     */
+    @Nullable
+    String readCurrentRevision() {
+        FileStamp headStamp = FileStamp.read(myHeadFile);
+        if (headStamp == null) {
+            return null;
+        }
+        CachedRevision cache = myCache;
+        if (cache != null && cache.isUpToDate(headStamp, myPackedRefsFile)) {
+            return cache.revision();
+        }
+
+        String headContent = DvcsUtil.tryLoadFileOrReturn(myHeadFile, null, StandardCharsets.UTF_8);
+        if (headContent == null) {
+            return null;
+        }
+        headContent = headContent.trim();
+        if (!headContent.startsWith(REF_PREFIX)) {
+            // detached HEAD
+            if (!isHash(headContent)) {
+                return null;
+            }
+            myCache = new CachedRevision(headStamp, null, null, null, headContent);
+            return headContent;
+        }
+
+        String refName = headContent.substring(REF_PREFIX.length()).trim();
+        File looseRefFile = new File(myCommonDir, refName);
+        FileStamp looseRefStamp = FileStamp.read(looseRefFile);
+        if (looseRefStamp != null) {
+            String hash = DvcsUtil.tryLoadFileOrReturn(looseRefFile, null, StandardCharsets.UTF_8);
+            if (hash == null || !isHash(hash.trim())) {
+                return null;
+            }
+            myCache = new CachedRevision(headStamp, looseRefFile, looseRefStamp, null, hash.trim());
+            return hash.trim();
+        }
+
+        FileStamp packedRefsStamp = FileStamp.read(myPackedRefsFile);
+        if (packedRefsStamp == null) {
+            return null;
+        }
+        String hash = findPackedRef(refName);
+        if (hash == null) {
+            return null;
+        }
+        myCache = new CachedRevision(headStamp, looseRefFile, null, packedRefsStamp, hash);
+        return hash;
+    }
+
+    @Nullable
+    private String findPackedRef(@Nonnull String refName) {
+        try (BufferedReader reader = Files.newBufferedReader(myPackedRefsFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space > 0 && line.charAt(0) != '#' && line.charAt(0) != '^' && refName.equals(line.substring(space + 1).trim())) {
+                    String hash = line.substring(0, space);
+                    return isHash(hash) ? hash : null;
+                }
+            }
+        }
+        catch (IOException e) {
+            LOG.debug("Couldn't read " + myPackedRefsFile, e);
+        }
+        return null;
+    }
+
+    private static boolean isHash(@Nonnull String value) {
+        try {
+            HashImpl.build(value);
+            return true;
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
+
+    private record CachedRevision(
+        @Nonnull FileStamp headStamp,
+        @Nullable File refFile,
+        @Nullable FileStamp looseRefStamp,
+        @Nullable FileStamp packedRefsStamp,
+        @Nonnull String revision
+    ) {
+        boolean isUpToDate(@Nonnull FileStamp currentHeadStamp, @Nonnull File packedRefsFile) {
+            if (!headStamp.equals(currentHeadStamp)) {
+                return false;
+            }
+            if (refFile == null) {
+                return true;
+            }
+            // if the revision was read from packed-refs, the loose ref must still be absent
+            return Objects.equals(looseRefStamp, FileStamp.read(refFile))
+                && (packedRefsStamp == null || packedRefsStamp.equals(FileStamp.read(packedRefsFile)));
+        }
+    }
+
+    private record FileStamp(long modified, long size, @Nullable Object fileKey) {
+        @Nullable
+        static FileStamp read(@Nonnull File file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    return null;
+                }
+                return new FileStamp(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size(), attributes.fileKey());
+            }
+            catch (NoSuchFileException e) {
+                return null;
+            }
+            catch (IOException e) {
+                LOG.debug("Couldn't read attributes of " + file, e);
+                return null;
+            }
+        }
+    }
+}
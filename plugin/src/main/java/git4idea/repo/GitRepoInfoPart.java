@@ -0,0 +1,29 @@
+package git4idea.repo;
+
+/**
+ * Parts of the {@link GitRepoInfo} which can be re-read independently when the corresponding {@code .git} service files change.
+ *
+ * @see GitRepositoryUpdater
+ */
+public enum GitRepoInfoPart {
+    /**
+     * {@code .git/config}: remotes and branch tracking information.
+     */
+    CONFIG,
+    /**
+     * {@code .git/HEAD}: current branch and revision.
+     */
+    HEAD,
+    /**
+     * Loose refs in {@code .git/refs/heads}, {@code .git/refs/remotes} and {@code .git/packed-refs}.
+     */
+    REFS,
+    /**
+     * Merge and rebase service files defining the repository state.
+     */
+    STATE,
+    /**
+     * Tags in {@code .git/refs/tags}: not stored in the {@link GitRepoInfo}, but interesting for listeners, e.g. the VCS log.
+     */
+    TAGS
+}
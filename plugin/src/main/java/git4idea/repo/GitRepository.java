@@ -109,6 +109,16 @@ public interface GitRepository extends Repository {
 
     boolean isOnBranch();
 
+    /**
+     * Reads the current revision directly from {@code .git/HEAD} and the ref it points to, without updating the repository.
+     * Unlike {@link #getCurrentRevision()}, doesn't depend on the asynchronous update having caught up,
+     * and unlike {@link #update()}, doesn't read all refs and the config.
+     *
+     * @return the current revision, or null if it can't be identified this way: {@link #update()} should be used then.
+     */
+    @Nullable
+    String readCurrentRevisionFromDisk();
+
     @Nonnull
     @Override
     GitVcs getVcs();
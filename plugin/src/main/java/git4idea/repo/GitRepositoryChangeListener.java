@@ -19,12 +19,25 @@ import consulo.annotation.component.ComponentScope;
 import consulo.annotation.component.TopicAPI;
 import jakarta.annotation.Nonnull;
 
+import java.util.Set;
+
 /**
  * {@link #repositoryChanged(GitRepository)} is called on every {@link GitRepository} change.
+ * <p>
+ * Changes caused by bursts of {@code .git} file modifications (e.g. fetch or rebase) are coalesced into a single event,
+ * see {@link #repositoryChanged(GitRepository, Set)}.
  *
  * @author Kirill Likhodedov
  */
 @TopicAPI(ComponentScope.PROJECT)
 public interface GitRepositoryChangeListener {
     void repositoryChanged(@Nonnull GitRepository repository);
+
+    /**
+     * Called instead of {@link #repositoryChanged(GitRepository)} with the summary of the repository parts changed since the last event.
+     * By default delegates to {@link #repositoryChanged(GitRepository)}.
+     */
+    default void repositoryChanged(@Nonnull GitRepository repository, @Nonnull Set<GitRepoInfoPart> changedParts) {
+        repositoryChanged(repository);
+    }
 }
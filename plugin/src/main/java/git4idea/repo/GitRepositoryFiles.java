@@ -44,6 +44,7 @@ public class GitRepositoryFiles {
     private static final String INDEX = "index";
     private static final String INFO = "info";
     private static final String INFO_EXCLUDE = INFO + "/exclude";
+    private static final String OBJECTS_INFO = "objects/info";
     private static final String MERGE_HEAD = "MERGE_HEAD";
     private static final String MERGE_MSG = "MERGE_MSG";
     private static final String ORIG_HEAD = "ORIG_HEAD";
@@ -55,6 +56,7 @@ public class GitRepositoryFiles {
     private static final String TAGS = "tags";
     private static final String REMOTES = "remotes";
     private static final String SQUASH_MSG = "SQUASH_MSG";
+    private static final String SEQUENCER = "sequencer";
     private static final String HOOKS = "hooks";
     private static final String PRE_COMMIT_HOOK = "pre-commit";
     private static final String PRE_PUSH_HOOK = "pre-push";
@@ -70,6 +72,7 @@ public class GitRepositoryFiles {
     private final String myOrigHeadPath;
     private final String myRebaseApplyPath;
     private final String myRebaseMergePath;
+    private final String mySequencerPath;
     private final String myPackedRefsPath;
     private final String myRefsHeadsDirPath;
     private final String myRefsRemotesDirPath;
@@ -80,6 +83,7 @@ public class GitRepositoryFiles {
     private final String myInfoDirPath;
     private final String myExcludePath;
     private final String myHooksDirPath;
+    private final String myObjectsInfoDirPath;
 
     private GitRepositoryFiles(@Nonnull VirtualFile mainDir, @Nonnull VirtualFile worktreeDir) {
         myMainDir = mainDir;
@@ -95,6 +99,7 @@ public class GitRepositoryFiles {
         myInfoDirPath = mainPath + slash(INFO);
         myExcludePath = mainPath + slash(INFO_EXCLUDE);
         myHooksDirPath = mainPath + slash(HOOKS);
+        myObjectsInfoDirPath = mainPath + slash(OBJECTS_INFO);
 
         String worktreePath = myWorktreeDir.getPath();
         myHeadFilePath = worktreePath + slash(HEAD);
@@ -107,6 +112,7 @@ public class GitRepositoryFiles {
         myMergeSquashPath = worktreePath + slash(SQUASH_MSG);
         myRebaseApplyPath = worktreePath + slash(REBASE_APPLY);
         myRebaseMergePath = worktreePath + slash(REBASE_MERGE);
+        mySequencerPath = worktreePath + slash(SEQUENCER);
     }
 
     @Nonnull
@@ -209,6 +215,14 @@ public class GitRepositoryFiles {
         return file(myCherryPickHeadPath);
     }
 
+    /**
+     * {@code .git/sequencer}, the state of a cherry-pick or revert of several commits
+     */
+    @Nonnull
+    public File getSequencerDir() {
+        return file(mySequencerPath);
+    }
+
     @Nonnull
     public File getMergeMessageFile() {
         return file(myMergeMessagePath);
@@ -219,6 +233,14 @@ public class GitRepositoryFiles {
         return file(myMergeSquashPath);
     }
 
+    /**
+     * {@code .git/objects/info}, which holds the commit-graph
+     */
+    @Nonnull
+    public File getObjectsInfoDir() {
+        return file(myObjectsInfoDirPath);
+    }
+
     @Nonnull
     public File getPreCommitHookFile() {
         return file(myHooksDirPath + slash(PRE_COMMIT_HOOK));
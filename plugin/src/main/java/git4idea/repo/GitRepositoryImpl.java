@@ -32,6 +32,10 @@ import jakarta.annotation.Nullable;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 
 import static consulo.util.lang.ObjectUtil.assertNotNull;
 import static consulo.versionControlSystem.distributed.DvcsUtil.getShortRepositoryName;
@@ -45,10 +49,16 @@ public class GitRepositoryImpl extends RepositoryImpl implements GitRepository {
     private final VirtualFile myGitDir;
     @Nonnull
     private final GitRepositoryFiles myRepositoryFiles;
+    @Nonnull
+    private final GitHeadRevisionReader myHeadRevisionReader;
 
     @Nullable
     private final GitUntrackedFilesHolder myUntrackedFilesHolder;
 
+    @Nonnull
+    private final Object myUpdateLock = new Object();
+    @Nonnull
+    private volatile GitConfig myConfig;
     @Nonnull
     private volatile GitRepoInfo myInfo;
 
@@ -64,7 +74,9 @@ public class GitRepositoryImpl extends RepositoryImpl implements GitRepository {
         myGitDir = gitDir;
         myRepositoryFiles = GitRepositoryFiles.getInstance(gitDir);
         myReader = new GitRepositoryReader(myRepositoryFiles);
-        myInfo = readRepoInfo();
+        myHeadRevisionReader = new GitHeadRevisionReader(myRepositoryFiles);
+        myConfig = GitConfig.read(myRepositoryFiles.getConfigFile());
+        myInfo = readRepoInfo(myConfig);
         if (!light) {
             myUntrackedFilesHolder = new GitUntrackedFilesHolder(this, myRepositoryFiles);
             Disposer.register(this, myUntrackedFilesHolder);
@@ -90,7 +102,7 @@ public class GitRepositoryImpl extends RepositoryImpl implements GitRepository {
         if (listenToRepoChanges) {
             repository.getUntrackedFilesHolder().setupVfsListener(project);
             repository.setupUpdater();
-            notifyListenersAsync(repository);
+            notifyListenersAsync(repository, EnumSet.allOf(GitRepoInfoPart.class));
         }
         return repository;
     }
@@ -140,6 +152,12 @@ public class GitRepositoryImpl extends RepositoryImpl implements GitRepository {
         return myInfo.currentRevision();
     }
 
+    @Nullable
+    @Override
+    public String readCurrentRevisionFromDisk() {
+        return myHeadRevisionReader.readCurrentRevision();
+    }
+
     @Nonnull
     @Override
     public State getState() {
@@ -210,16 +228,96 @@ public class GitRepositoryImpl extends RepositoryImpl implements GitRepository {
 
     @Override
     public void update() {
-        GitRepoInfo previousInfo = myInfo;
-        myInfo = readRepoInfo();
-        notifyIfRepoChanged(this, previousInfo, myInfo);
+        GitRepoInfo previousInfo;
+        GitRepoInfo info;
+        synchronized (myUpdateLock) {
+            previousInfo = myInfo;
+            myConfig = GitConfig.read(myRepositoryFiles.getConfigFile());
+            info = readRepoInfo(myConfig);
+            myInfo = info;
+        }
+        notifyIfRepoChanged(this, previousInfo, info, EnumSet.allOf(GitRepoInfoPart.class));
+    }
+
+    /**
+     * Re-reads only the given parts of the repository information, reusing the rest from the previous {@link GitRepoInfo}.
+     * Hooks are re-read each time, since it is cheap. {@code .gitmodules} is a working tree file, which is not watched by
+     * the {@link GitRepositoryUpdater}: it is re-read when the current revision or the repository state changes, since it is changed
+     * by checkout, merge, rebase and reset, and reused when only the config or other refs change, e.g. on fetch.
+     * An uncommitted edit of it is picked up by the next full {@link #update()}.
+     * Listeners are notified if the information has changed, or if tags have changed.
+     */
+    void update(@Nonnull Set<GitRepoInfoPart> changedParts) {
+        Set<GitRepoInfoPart> infoParts = EnumSet.noneOf(GitRepoInfoPart.class);
+        infoParts.addAll(changedParts);
+        infoParts.remove(GitRepoInfoPart.TAGS);
+
+        GitRepoInfo previousInfo;
+        GitRepoInfo info;
+        synchronized (myUpdateLock) {
+            previousInfo = myInfo;
+            info = infoParts.isEmpty() ? previousInfo : readRepoInfo(previousInfo, infoParts);
+            myInfo = info;
+        }
+        if (changedParts.contains(GitRepoInfoPart.TAGS)) {
+            if (!getProject().isDisposed()) {
+                notifyListenersAsync(this, changedParts);
+            }
+        }
+        else {
+            notifyIfRepoChanged(this, previousInfo, info, changedParts);
+        }
+    }
+
+    @Nonnull
+    private GitRepoInfo readRepoInfo(@Nonnull GitRepoInfo previousInfo, @Nonnull Set<GitRepoInfoPart> changedParts) {
+        StopWatch sw = StopWatch.start("Reading " + changedParts + " of Git repo info in " + getShortRepositoryName(this));
+        boolean configChanged = changedParts.contains(GitRepoInfoPart.CONFIG);
+        boolean refsChanged = configChanged || changedParts.contains(GitRepoInfoPart.REFS);
+
+        GitConfig config = myConfig;
+        Collection<GitRemote> remotes = previousInfo.remotes();
+        if (configChanged) {
+            config = GitConfig.read(myRepositoryFiles.getConfigFile());
+            myConfig = config;
+            remotes = config.parseRemotes();
+        }
+
+        GitBranchState state;
+        if (refsChanged) {
+            // remote branches refer to remotes, so they are re-created if the config has changed
+            state = myReader.readState(remotes);
+        }
+        else {
+            state = myReader.readState(previousInfo.localBranches(), previousInfo.remoteBranches());
+        }
+
+        Collection<GitBranchTrackInfo> trackInfos = refsChanged
+            ? config.parseTrackInfos(state.getLocalBranches().keySet(), state.getRemoteBranches().keySet())
+            : previousInfo.branchTrackInfos();
+        boolean workingTreeMayChange = changedParts.contains(GitRepoInfoPart.STATE) ||
+            !Objects.equals(state.getCurrentRevision(), previousInfo.getCurrentRevision());
+        Collection<GitSubmoduleInfo> submodules = workingTreeMayChange
+            ? new GitModulesFileReader().read(getSubmoduleFile())
+            : previousInfo.submodules();
+        GitHooksInfo hooksInfo = myReader.readHooksInfo();
+        sw.report();
+        return new GitRepoInfo(
+            state.getCurrentBranch(),
+            state.getCurrentRevision(),
+            state.getState(),
+            remotes,
+            state.getLocalBranches(),
+            state.getRemoteBranches(),
+            trackInfos,
+            submodules,
+            hooksInfo
+        );
     }
 
     @Nonnull
-    private GitRepoInfo readRepoInfo() {
+    private GitRepoInfo readRepoInfo(@Nonnull GitConfig config) {
         StopWatch sw = StopWatch.start("Reading Git repo info in " + getShortRepositoryName(this));
-        File configFile = myRepositoryFiles.getConfigFile();
-        GitConfig config = GitConfig.read(configFile);
         Collection<GitRemote> remotes = config.parseRemotes();
         GitBranchState state = myReader.readState(remotes);
         Collection<GitBranchTrackInfo> trackInfos =
@@ -248,18 +346,20 @@ public class GitRepositoryImpl extends RepositoryImpl implements GitRepository {
     private static void notifyIfRepoChanged(
         @Nonnull GitRepository repository,
         @Nonnull GitRepoInfo previousInfo,
-        @Nonnull GitRepoInfo info
+        @Nonnull GitRepoInfo info,
+        @Nonnull Set<GitRepoInfoPart> changedParts
     ) {
         if (!repository.getProject().isDisposed() && !info.equals(previousInfo)) {
-            notifyListenersAsync(repository);
+            notifyListenersAsync(repository, changedParts);
         }
     }
 
-    private static void notifyListenersAsync(@Nonnull GitRepository repository) {
+    private static void notifyListenersAsync(@Nonnull GitRepository repository, @Nonnull Set<GitRepoInfoPart> changedParts) {
+        Set<GitRepoInfoPart> parts = Collections.unmodifiableSet(EnumSet.copyOf(changedParts));
         repository.getProject().getApplication().executeOnPooledThread((Runnable) () -> {
             Project project = repository.getProject();
             if (!project.isDisposed()) {
-                project.getMessageBus().syncPublisher(GitRepositoryChangeListener.class).repositoryChanged(repository);
+                project.getMessageBus().syncPublisher(GitRepositoryChangeListener.class).repositoryChanged(repository, parts);
             }
         });
     }
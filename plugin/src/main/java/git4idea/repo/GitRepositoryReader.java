@@ -81,8 +81,15 @@ public class GitRepositoryReader {
     @Nonnull
     GitBranchState readState(@Nonnull Collection<GitRemote> remotes) {
         Pair<Map<GitLocalBranch, Hash>, Map<GitRemoteBranch, Hash>> branches = readBranches(remotes);
-        Map<GitLocalBranch, Hash> localBranches = branches.first;
+        return readState(branches.first, branches.second);
+    }
 
+    /**
+     * Reads {@code .git/HEAD} and the repository state, reusing the given branches instead of reading all refs from disk.
+     * Used when only HEAD, merge or rebase files have changed.
+     */
+    @Nonnull
+    GitBranchState readState(@Nonnull Map<GitLocalBranch, Hash> localBranches, @Nonnull Map<GitRemoteBranch, Hash> remoteBranches) {
         HeadInfo headInfo = readHead();
         Repository.State state = readRepositoryState(headInfo);
 
@@ -103,7 +110,7 @@ public class GitRepositoryReader {
         if (currentBranch == null && currentRevision == null) {
             LOG.error("Couldn't identify neither current branch nor current revision. .git/HEAD content: [" + headInfo.content + "]");
         }
-        return new GitBranchState(currentRevision, currentBranch, state, localBranches, branches.second);
+        return new GitBranchState(currentRevision, currentBranch, state, localBranches, remoteBranches);
     }
 
     @Nonnull
@@ -220,7 +227,7 @@ public class GitRepositoryReader {
     }
 
     @Nonnull
-    private Pair<Map<GitLocalBranch, Hash>, Map<GitRemoteBranch, Hash>> readBranches(@Nonnull Collection<GitRemote> remotes) {
+    Pair<Map<GitLocalBranch, Hash>, Map<GitRemoteBranch, Hash>> readBranches(@Nonnull Collection<GitRemote> remotes) {
         Map<String, String> data = readBranchRefsFromFiles();
         Map<String, Hash> resolvedRefs = resolveRefs(data);
         return createBranchesFromData(remotes, resolvedRefs);
@@ -0,0 +1,131 @@
+package git4idea.repo;
+
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.disposer.Disposable;
+import consulo.logging.Logger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>Coalesces repository update requests coming from {@link GitRepositoryUpdater}.</p>
+ *
+ * <p>Requests are merged into a single set of {@link GitRepoInfoPart changed parts}, which is passed to the updater
+ * when no new requests arrive during the debounce window ({@code git.repository.update.debounce.ms}),
+ * but not later than the maximum delay ({@code git.repository.update.max.delay.ms}) after the first pending request.
+ * Thus a burst of {@code .git} changes, e.g. during {@code git fetch} or an interactive rebase, results in a single update.</p>
+ *
+ * <p>Updates are never executed concurrently: requests received while an update is running are postponed until it finishes.</p>
+ */
+final class GitRepositoryUpdateScheduler implements Disposable {
+    private static final Logger LOG = Logger.getInstance(GitRepositoryUpdateScheduler.class);
+
+    @Nonnull
+    private final Consumer<Set<GitRepoInfoPart>> myUpdater;
+    private final long myDebounceMs;
+    private final long myMaxDelayMs;
+
+    @Nonnull
+    private final Object myLock = new Object();
+    @Nonnull
+    private final Set<GitRepoInfoPart> myPendingParts = EnumSet.noneOf(GitRepoInfoPart.class);
+    private long myFirstPendingRequestTime = -1;
+    private int myPendingRequests;
+    @Nullable
+    private ScheduledFuture<?> myScheduledUpdate;
+    private boolean myUpdateRunning;
+    private boolean myDisposed;
+
+    GitRepositoryUpdateScheduler(@Nonnull Consumer<Set<GitRepoInfoPart>> updater) {
+        this(
+            updater,
+            Registry.intValue("git.repository.update.debounce.ms", 300),
+            Registry.intValue("git.repository.update.max.delay.ms", 2000)
+        );
+    }
+
+    GitRepositoryUpdateScheduler(@Nonnull Consumer<Set<GitRepoInfoPart>> updater, long debounceMs, long maxDelayMs) {
+        myUpdater = updater;
+        myDebounceMs = Math.max(0, debounceMs);
+        myMaxDelayMs = Math.max(myDebounceMs, maxDelayMs);
+    }
+
+    void schedule(@Nonnull Set<GitRepoInfoPart> changedParts) {
+        if (changedParts.isEmpty()) {
+            return;
+        }
+        synchronized (myLock) {
+            if (myDisposed) {
+                return;
+            }
+            myPendingParts.addAll(changedParts);
+            myPendingRequests++;
+            long now = System.currentTimeMillis();
+            if (myFirstPendingRequestTime < 0) {
+                myFirstPendingRequestTime = now;
+            }
+            if (!myUpdateRunning) {
+                rescheduleUpdate(now);
+            }
+        }
+    }
+
+    private void rescheduleUpdate(long now) {
+        if (myScheduledUpdate != null) {
+            myScheduledUpdate.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(myDebounceMs, myFirstPendingRequestTime + myMaxDelayMs - now));
+        myScheduledUpdate = AppExecutorUtil.getAppScheduledExecutorService().schedule(this::runUpdate, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void runUpdate() {
+        Set<GitRepoInfoPart> parts;
+        synchronized (myLock) {
+            if (myDisposed || myUpdateRunning || myPendingParts.isEmpty()) {
+                return;
+            }
+            parts = EnumSet.copyOf(myPendingParts);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Updating " + parts + " after " + myPendingRequests + " coalesced requests");
+            }
+            myPendingParts.clear();
+            myPendingRequests = 0;
+            myFirstPendingRequestTime = -1;
+            myScheduledUpdate = null;
+            myUpdateRunning = true;
+        }
+
+        try {
+            myUpdater.accept(parts);
+        }
+        catch (Throwable e) {
+            LOG.error("Couldn't update the repository", e);
+        }
+        finally {
+            synchronized (myLock) {
+                myUpdateRunning = false;
+                if (!myDisposed && !myPendingParts.isEmpty()) {
+                    rescheduleUpdate(System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (myLock) {
+            myDisposed = true;
+            myPendingParts.clear();
+            if (myScheduledUpdate != null) {
+                myScheduledUpdate.cancel(false);
+                myScheduledUpdate = null;
+            }
+        }
+    }
+}
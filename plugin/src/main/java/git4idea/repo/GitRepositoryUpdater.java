@@ -15,7 +15,6 @@
  */
 package git4idea.repo;
 
-import consulo.application.util.concurrent.QueueProcessor;
 import consulo.component.messagebus.MessageBusConnection;
 import consulo.disposer.Disposable;
 import consulo.project.Project;
@@ -31,23 +30,22 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
 /**
  * Listens to .git service files changes and updates {@link GitRepository} when needed.
+ * Only the {@link GitRepoInfoPart parts} of the repository information corresponding to the changed files are re-read.
+ * Bursts of changes are coalesced into a single update by the {@link GitRepositoryUpdateScheduler}.
  */
 final class GitRepositoryUpdater implements Disposable, BulkFileListener {
-    @Nonnull
-    private final GitRepository myRepository;
     @Nonnull
     private final GitRepositoryFiles myRepositoryFiles;
     @Nullable
     private final MessageBusConnection myMessageBusConnection;
     @Nonnull
-    private final QueueProcessor<Object> myUpdateQueue;
-    @Nonnull
-    private final Object DUMMY_UPDATE_OBJECT = new Object();
+    private final GitRepositoryUpdateScheduler myUpdateScheduler;
     @Nullable
     private final VirtualFile myRemotesDir;
     @Nullable
@@ -57,8 +55,7 @@ final class GitRepositoryUpdater implements Disposable, BulkFileListener {
     @Nullable
     private final Set<LocalFileSystem.WatchRequest> myWatchRequests;
 
-    GitRepositoryUpdater(@Nonnull GitRepository repository, @Nonnull GitRepositoryFiles gitFiles) {
-        myRepository = repository;
+    GitRepositoryUpdater(@Nonnull GitRepositoryImpl repository, @Nonnull GitRepositoryFiles gitFiles) {
         Collection<String> rootPaths = ContainerUtil.map(gitFiles.getRootDirs(), VirtualFile::getPath);
         myWatchRequests = LocalFileSystem.getInstance().addRootsToWatch(rootPaths, true);
 
@@ -69,7 +66,11 @@ final class GitRepositoryUpdater implements Disposable, BulkFileListener {
         myTagsDir = VcsUtil.getVirtualFile(myRepositoryFiles.getRefsTagsFile());
 
         Project project = repository.getProject();
-        myUpdateQueue = new QueueProcessor<>(new DvcsUtil.Updater(repository), project.getDisposed());
+        myUpdateScheduler = new GitRepositoryUpdateScheduler(parts -> {
+            if (!project.isDisposed()) {
+                repository.update(parts);
+            }
+        });
         if (!project.isDisposed()) {
             myMessageBusConnection = project.getMessageBus().connect();
             myMessageBusConnection.subscribe(BulkFileListener.class, this);
@@ -81,6 +82,7 @@ final class GitRepositoryUpdater implements Disposable, BulkFileListener {
 
     @Override
     public void dispose() {
+        myUpdateScheduler.dispose();
         LocalFileSystem.getInstance().removeWatchedRoots(myWatchRequests);
         if (myMessageBusConnection != null) {
             myMessageBusConnection.disconnect();
@@ -95,53 +97,42 @@ final class GitRepositoryUpdater implements Disposable, BulkFileListener {
     @Override
     public void after(@Nonnull List<? extends VFileEvent> events) {
         // which files in .git were changed
-        boolean configChanged = false;
-        boolean headChanged = false;
-        boolean branchFileChanged = false;
-        boolean packedRefsChanged = false;
-        boolean rebaseFileChanged = false;
-        boolean mergeFileChanged = false;
-        boolean tagChanged = false;
+        Set<GitRepoInfoPart> changedParts = EnumSet.noneOf(GitRepoInfoPart.class);
         for (VFileEvent event : events) {
             String filePath = GitFileUtils.stripFileProtocolPrefix(event.getPath());
             if (myRepositoryFiles.isConfigFile(filePath)) {
-                configChanged = true;
+                changedParts.add(GitRepoInfoPart.CONFIG);
             }
             else if (myRepositoryFiles.isHeadFile(filePath)) {
-                headChanged = true;
+                changedParts.add(GitRepoInfoPart.HEAD);
             }
             else if (myRepositoryFiles.isBranchFile(filePath)) {
                 // it is also possible, that a local branch with complex name ("folder/branch")
                 // was created => the folder also to be watched.
-                branchFileChanged = true;
+                changedParts.add(GitRepoInfoPart.REFS);
                 DvcsUtil.ensureAllChildrenInVfs(myHeadsDir);
             }
             else if (myRepositoryFiles.isRemoteBranchFile(filePath)) {
                 // it is possible, that a branch from a new remote was fetch => we need to add new remote folder to the VFS
-                branchFileChanged = true;
+                changedParts.add(GitRepoInfoPart.REFS);
                 DvcsUtil.ensureAllChildrenInVfs(myRemotesDir);
             }
             else if (myRepositoryFiles.isPackedRefs(filePath)) {
-                packedRefsChanged = true;
+                changedParts.add(GitRepoInfoPart.REFS);
             }
             else if (myRepositoryFiles.isRebaseFile(filePath)) {
-                rebaseFileChanged = true;
+                changedParts.add(GitRepoInfoPart.STATE);
             }
             else if (myRepositoryFiles.isMergeFile(filePath)) {
-                mergeFileChanged = true;
+                changedParts.add(GitRepoInfoPart.STATE);
             }
             else if (myRepositoryFiles.isTagFile(filePath)) {
                 DvcsUtil.ensureAllChildrenInVfs(myTagsDir);
-                tagChanged = true;
+                changedParts.add(GitRepoInfoPart.TAGS);
             }
         }
 
-        if (headChanged || configChanged || branchFileChanged || packedRefsChanged || rebaseFileChanged || mergeFileChanged) {
-            myUpdateQueue.add(DUMMY_UPDATE_OBJECT);
-        }
-        else if (tagChanged) {
-            myRepository.getProject().getMessageBus().syncPublisher(GitRepositoryChangeListener.class).repositoryChanged(myRepository);
-        }
+        myUpdateScheduler.schedule(changedParts);
     }
 
     private void visitSubDirsInVfs() {
@@ -18,8 +18,10 @@ package git4idea.repo;
 import consulo.component.messagebus.MessageBusConnection;
 import consulo.disposer.Disposable;
 import consulo.application.Application;
+import consulo.application.util.concurrent.AppExecutorUtil;
 import consulo.logging.Logger;
 import consulo.project.Project;
+import consulo.util.io.FileUtil;
 import consulo.versionControlSystem.FilePath;
 import consulo.versionControlSystem.ProjectLevelVcsManager;
 import consulo.versionControlSystem.VcsException;
@@ -32,12 +34,16 @@ import consulo.virtualFileSystem.event.*;
 import git4idea.GitLocalBranch;
 import git4idea.GitUtil;
 import git4idea.commands.Git;
+import git4idea.commands.GitProcessScheduler;
 import git4idea.ignore.GitRepositoryIgnoredFilesHolder;
 import git4idea.status.GitNewChangesCollector;
+import git4idea.util.GitCompactPathSet;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * <p>Stores files which are untracked by the Git repository.
@@ -70,11 +76,14 @@ import java.util.*;
  * <p>Also, if .git/index changes, then a full refresh is initiated. The reason is not only untracked files tracking, but also handling
  * committing outside IDEA, etc.</p>
  *
+ * <p>Untracked files are stored as paths relative to the root in an immutable {@link GitCompactPathSet},
+ * which is read without locking and returned to callers as is, without copying.</p>
+ *
  * <p>Synchronization policy used in this class:<br/>
- * myDefinitelyUntrackedFiles is accessed under the myDefinitelyUntrackedFiles lock.<br/>
+ * myDefinitelyUntrackedPaths is modified under the DEFINITELY_UNTRACKED_LOCK lock, but git is never called under this lock:
+ * the result of git is applied only if no file was added or removed while git was running, otherwise it is requested again.<br/>
  * myPossiblyUntrackedFiles and myReady is accessed under the LOCK lock.<br/>
- * This is done so, because the latter two variables are accessed from the AWT in after() and we don't want to lock the AWT long,
- * while myDefinitelyUntrackedFiles is modified along with native request to Git.</p>
+ * This is done so, because the latter two variables are accessed from the AWT in after() and we don't want to lock the AWT long.</p>
  *
  * @author Kirill Likhodedov
  */
@@ -82,6 +91,10 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
 
     private static final Logger LOG = Logger.getInstance(GitUntrackedFilesHolder.class);
 
+    private static final int MIN_FILES_FOR_PARALLEL_VERIFICATION = 100;
+    private static final int MAX_VERIFICATION_SHARDS = 4;
+    private static final int MAX_VERIFICATION_ATTEMPTS = 3;
+
     private final Project myProject;
     private final VirtualFile myRoot;
     private final GitRepository myRepository;
@@ -91,7 +104,12 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
     private final GitRepositoryFiles myRepositoryFiles;
     private final Git myGit;
 
-    private final Set<VirtualFile> myDefinitelyUntrackedFiles = new HashSet<>();
+    private volatile GitCompactPathSet myDefinitelyUntrackedPaths = GitCompactPathSet.EMPTY;
+    // the paths added or removed during each running verification, guarded by DEFINITELY_UNTRACKED_LOCK
+    private final List<Set<String>> myVerificationChanges = new ArrayList<>();
+    private final Object DEFINITELY_UNTRACKED_LOCK = new Object();
+    // the files found for the paths by the last retrieveUntrackedFiles(): reused until the paths change or the files are deleted
+    private volatile ResolvedFiles myResolvedFiles = ResolvedFiles.EMPTY;
     private final Set<VirtualFile> myPossiblyUntrackedFiles = new HashSet<>();
     private boolean myReady;   // if false, total refresh is needed
     private final Object LOCK = new Object();
@@ -121,8 +139,12 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
     }
 
     public boolean containsUntrackedFile(VirtualFile file) {
+        String relativePath = getRelativePath(file);
+        if (relativePath != null && myDefinitelyUntrackedPaths.contains(relativePath)) {
+            return true;
+        }
         synchronized (LOCK) {
-            return myDefinitelyUntrackedFiles.contains(file) || myPossiblyUntrackedFiles.contains(file);
+            return myPossiblyUntrackedFiles.contains(file);
         }
     }
 
@@ -137,9 +159,10 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
 
     @Override
     public void dispose() {
-        synchronized (myDefinitelyUntrackedFiles) {
-            myDefinitelyUntrackedFiles.clear();
+        synchronized (DEFINITELY_UNTRACKED_LOCK) {
+            myDefinitelyUntrackedPaths = GitCompactPathSet.EMPTY;
         }
+        myResolvedFiles = ResolvedFiles.EMPTY;
         synchronized (LOCK) {
             myPossiblyUntrackedFiles.clear();
         }
@@ -150,17 +173,23 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
      * Adds the file to the list of untracked.
      */
     public void add(@Nonnull VirtualFile file) {
-        synchronized (myDefinitelyUntrackedFiles) {
-            myDefinitelyUntrackedFiles.add(file);
-        }
+        add(Collections.singletonList(file));
     }
 
     /**
      * Adds several files to the list of untracked.
      */
     public void add(@Nonnull Collection<VirtualFile> files) {
-        synchronized (myDefinitelyUntrackedFiles) {
-            myDefinitelyUntrackedFiles.addAll(files);
+        synchronized (DEFINITELY_UNTRACKED_LOCK) {
+            GitCompactPathSet.Builder builder = myDefinitelyUntrackedPaths.toBuilder();
+            for (VirtualFile file : files) {
+                String relativePath = getRelativePath(file);
+                if (relativePath != null) {
+                    builder.add(relativePath);
+                    recordChange(relativePath);
+                }
+            }
+            myDefinitelyUntrackedPaths = builder.build();
         }
     }
 
@@ -168,29 +197,91 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
      * Removes several files from untracked.
      */
     public void remove(@Nonnull Collection<VirtualFile> files) {
-        synchronized (myDefinitelyUntrackedFiles) {
-            myDefinitelyUntrackedFiles.removeAll(files);
+        synchronized (DEFINITELY_UNTRACKED_LOCK) {
+            GitCompactPathSet.Builder builder = myDefinitelyUntrackedPaths.toBuilder();
+            for (VirtualFile file : files) {
+                String relativePath = getRelativePath(file);
+                if (relativePath != null) {
+                    builder.remove(relativePath);
+                    recordChange(relativePath);
+                }
+            }
+            myDefinitelyUntrackedPaths = builder.build();
         }
     }
 
     /**
      * Returns the list of unversioned files.
      * This method may be slow, if the full-refresh of untracked files is needed.
+     * Files found by the previous call are reused, so only the paths added since then are looked up in the file system.
      *
      * @return untracked files.
      * @throws VcsException if there is an unexpected error during Git execution.
      */
     @Nonnull
     public Collection<VirtualFile> retrieveUntrackedFiles() throws VcsException {
+        GitCompactPathSet paths = retrieveUntrackedFilePaths();
+        ResolvedFiles resolved = myResolvedFiles;
+        if (resolved.myPaths != paths || resolved.myFiles.size() != paths.size()) {
+            resolved = resolve(paths, resolved);
+            myResolvedFiles = resolved;
+        }
+        return resolved.myFiles;
+    }
+
+    /**
+     * Returns paths of unversioned files relative to the root.
+     * The returned set is an immutable snapshot, which is not affected by further changes.
+     * This method may be slow, if the full-refresh of untracked files is needed.
+     *
+     * @throws VcsException if there is an unexpected error during Git execution.
+     */
+    @Nonnull
+    public GitCompactPathSet retrieveUntrackedFilePaths() throws VcsException {
         if (isReady()) {
             verifyPossiblyUntrackedFiles();
         }
         else {
             rescanAll();
         }
-        synchronized (myDefinitelyUntrackedFiles) {
-            return new ArrayList<>(myDefinitelyUntrackedFiles);
-        }
+        return myDefinitelyUntrackedPaths;
+    }
+
+    /**
+     * Both sets are walked in the order of {@link GitCompactPathSet#forEach}, and the previous files are found by their paths,
+     * so that no map from paths to files is kept along with the paths.
+     */
+    @Nonnull
+    private ResolvedFiles resolve(@Nonnull GitCompactPathSet relativePaths, @Nonnull ResolvedFiles previous) {
+        List<VirtualFile> files = new ArrayList<>(relativePaths.size());
+        Iterator<VirtualFile> previousFiles = previous.myFiles.iterator();
+        VirtualFile[] previousFile = {null};
+        String[] previousPath = {null};
+        relativePaths.forEach(relativePath -> {
+            while (previousPath[0] == null || GitCompactPathSet.compare(previousPath[0], relativePath) < 0) {
+                if (!previousFiles.hasNext()) {
+                    previousFile[0] = null;
+                    break;
+                }
+                previousFile[0] = previousFiles.next();
+                String path = previousFile[0].isValid() ? getRelativePath(previousFile[0]) : null;
+                // an invalid file is skipped by an empty path, which precedes any other one
+                previousPath[0] = path == null ? "" : path;
+            }
+            VirtualFile file = previousFile[0] != null && relativePath.equals(previousPath[0]) ? previousFile[0] : null;
+            if (file == null) {
+                file = myRoot.findFileByRelativePath(relativePath);
+            }
+            if (file == null) {
+                // files was created on disk, but VirtualFile hasn't yet been created,
+                // when the GitChangeProvider has already been requested about changes.
+                LOG.debug(String.format("VirtualFile for path [%s] is null", relativePath));
+            }
+            else {
+                files.add(file);
+            }
+        });
+        return new ResolvedFiles(relativePaths, Collections.unmodifiableList(files));
     }
 
     public void invalidate() {
@@ -204,10 +295,10 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
      * Resets the list of untracked files after retrieving the full list of them from Git.
      */
     private void rescanAll() throws VcsException {
-        Set<VirtualFile> untrackedFiles = myGit.untrackedFiles(myProject, myRoot, null);
-        synchronized (myDefinitelyUntrackedFiles) {
-            myDefinitelyUntrackedFiles.clear();
-            myDefinitelyUntrackedFiles.addAll(untrackedFiles);
+        GitCompactPathSet.Builder untrackedPaths = GitCompactPathSet.builder();
+        myGit.untrackedFilePaths(myProject, myRoot, null, untrackedPaths::add);
+        synchronized (DEFINITELY_UNTRACKED_LOCK) {
+            myDefinitelyUntrackedPaths = untrackedPaths.build();
         }
         synchronized (LOCK) {
             myPossiblyUntrackedFiles.clear();
@@ -225,7 +316,7 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
     }
 
     /**
-     * Queries Git to check the status of {@code myPossiblyUntrackedFiles} and moves them to {@code myDefinitelyUntrackedFiles}.
+     * Queries Git to check the status of {@code myPossiblyUntrackedFiles} and moves them to {@code myDefinitelyUntrackedPaths}.
      */
     private void verifyPossiblyUntrackedFiles() throws VcsException {
         Set<VirtualFile> suspiciousFiles = new HashSet<>();
@@ -234,15 +325,173 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
             myPossiblyUntrackedFiles.clear();
         }
 
-        synchronized (myDefinitelyUntrackedFiles) {
-            Set<VirtualFile> untrackedFiles = myGit.untrackedFiles(myProject, myRoot, suspiciousFiles);
-            suspiciousFiles.removeAll(untrackedFiles);
-            // files that were suspicious (and thus passed to 'git ls-files'), but are not untracked, are definitely tracked.
-            @SuppressWarnings("UnnecessaryLocalVariable") Set<VirtualFile> trackedFiles = suspiciousFiles;
+        if (suspiciousFiles.isEmpty()) {
+            return;
+        }
 
-            myDefinitelyUntrackedFiles.addAll(untrackedFiles);
-            myDefinitelyUntrackedFiles.removeAll(trackedFiles);
+        Collection<VirtualFile> filesToVerify = suspiciousFiles;
+        for (int attempt = 0; attempt < MAX_VERIFICATION_ATTEMPTS; attempt++) {
+            Set<String> changedPaths = new HashSet<>();
+            synchronized (DEFINITELY_UNTRACKED_LOCK) {
+                myVerificationChanges.add(changedPaths);
+            }
+
+            // git is called outside the lock, so that add(), remove() and containsUntrackedFile() are never blocked by a git process;
+            // the answer for a file added or removed meanwhile may be older than that change, so only such files are asked again.
+            List<String> untrackedPaths;
+            try {
+                untrackedPaths = collectUntrackedPaths(filesToVerify);
+            }
+            catch (VcsException | RuntimeException e) {
+                synchronized (DEFINITELY_UNTRACKED_LOCK) {
+                    myVerificationChanges.remove(changedPaths);
+                }
+                markPossiblyUntracked(filesToVerify);
+                throw e;
+            }
+
+            List<VirtualFile> changedFiles = new ArrayList<>();
+            synchronized (DEFINITELY_UNTRACKED_LOCK) {
+                myVerificationChanges.remove(changedPaths);
+                GitCompactPathSet.Builder builder = myDefinitelyUntrackedPaths.toBuilder();
+                // files that were suspicious (and thus passed to 'git ls-files'), but are not untracked, are definitely tracked.
+                for (VirtualFile file : filesToVerify) {
+                    String relativePath = getRelativePath(file);
+                    if (relativePath != null && changedPaths.contains(relativePath)) {
+                        changedFiles.add(file);
+                    }
+                    else if (relativePath != null) {
+                        builder.remove(relativePath);
+                    }
+                }
+                for (String untrackedPath : untrackedPaths) {
+                    if (!changedPaths.contains(untrackedPath)) {
+                        builder.add(untrackedPath);
+                    }
+                }
+                myDefinitelyUntrackedPaths = builder.build();
+            }
+            if (changedFiles.isEmpty()) {
+                return;
+            }
+            filesToVerify = changedFiles;
         }
+
+        // the files keep changing: leave them to the next verification instead of applying a stale answer
+        LOG.debug("Untracked files changed during each verification, postponing " + filesToVerify.size() + " files");
+        markPossiblyUntracked(filesToVerify);
+    }
+
+    // under DEFINITELY_UNTRACKED_LOCK
+    private void recordChange(@Nonnull String relativePath) {
+        for (Set<String> changedPaths : myVerificationChanges) {
+            changedPaths.add(relativePath);
+        }
+    }
+
+    private void markPossiblyUntracked(@Nonnull Collection<VirtualFile> files) {
+        synchronized (LOCK) {
+            myPossiblyUntrackedFiles.addAll(files);
+        }
+    }
+
+    /**
+     * Runs {@code git ls-files --others} on the given files.
+     * Many files are split into shards by their top-level directory, which are checked by several git processes in parallel.
+     */
+    @Nonnull
+    private List<String> collectUntrackedPaths(@Nonnull Collection<VirtualFile> files) throws VcsException {
+        List<List<VirtualFile>> shards = splitIntoShards(files);
+        if (shards.size() <= 1) {
+            List<String> untrackedPaths = new ArrayList<>();
+            myGit.untrackedFilePaths(myProject, myRoot, files, untrackedPaths::add);
+            return untrackedPaths;
+        }
+
+        List<Future<List<String>>> futures = new ArrayList<>(shards.size());
+        for (List<VirtualFile> shard : shards) {
+            futures.add(AppExecutorUtil.getAppExecutorService().submit(() -> {
+                List<String> untrackedPaths = new ArrayList<>();
+                myGit.untrackedFilePaths(myProject, myRoot, shard, untrackedPaths::add);
+                return untrackedPaths;
+            }));
+        }
+
+        List<String> untrackedPaths = new ArrayList<>();
+        try {
+            for (Future<List<String>> future : futures) {
+                untrackedPaths.addAll(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new VcsException(e);
+        }
+        catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof VcsException vcsException) {
+                throw vcsException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new VcsException(cause);
+        }
+        return untrackedPaths;
+    }
+
+    /**
+     * Groups files by their top-level directory and distributes the groups among at most {@link #MAX_VERIFICATION_SHARDS} shards.
+     */
+    @Nonnull
+    private List<List<VirtualFile>> splitIntoShards(@Nonnull Collection<VirtualFile> files) {
+        if (files.size() < MIN_FILES_FOR_PARALLEL_VERIFICATION) {
+            return Collections.singletonList(new ArrayList<>(files));
+        }
+
+        Map<String, List<VirtualFile>> byTopLevelDir = new HashMap<>();
+        for (VirtualFile file : files) {
+            String relativePath = getRelativePath(file);
+            int slash = relativePath == null ? -1 : relativePath.indexOf('/');
+            String topLevelDir = slash < 0 ? "" : relativePath.substring(0, slash);
+            byTopLevelDir.computeIfAbsent(topLevelDir, dir -> new ArrayList<>()).add(file);
+        }
+
+        List<List<VirtualFile>> groups = new ArrayList<>(byTopLevelDir.values());
+        groups.sort((g1, g2) -> Integer.compare(g2.size(), g1.size()));
+        int shardCount = Math.min(MAX_VERIFICATION_SHARDS, groups.size());
+        List<List<VirtualFile>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        // the largest group goes to the currently smallest shard
+        for (List<VirtualFile> group : groups) {
+            List<VirtualFile> smallest = Collections.min(shards, Comparator.comparingInt(List::size));
+            smallest.addAll(group);
+        }
+        return shards;
+    }
+
+    private static class ResolvedFiles {
+        private static final ResolvedFiles EMPTY = new ResolvedFiles(GitCompactPathSet.EMPTY, Collections.emptyList());
+
+        @Nonnull
+        private final GitCompactPathSet myPaths;
+        // in the order of the paths
+        @Nonnull
+        private final List<VirtualFile> myFiles;
+
+        ResolvedFiles(@Nonnull GitCompactPathSet paths, @Nonnull List<VirtualFile> files) {
+            myPaths = paths;
+            myFiles = files;
+        }
+    }
+
+    @Nullable
+    private String getRelativePath(@Nonnull VirtualFile file) {
+        return FileUtil.getRelativePath(myRoot.getPath(), file.getPath(), '/');
     }
 
     @Override
@@ -397,7 +646,10 @@ public class GitUntrackedFilesHolder implements Disposable, BulkFileListener {
             myProject.getApplication().executeOnPooledThread(() -> {
                 try {
                     // Use path-based FilePaths so files not yet in the VFS are still tracked
-                    Set<FilePath> newPaths = myGit.ignoredFilePaths(myProject, myRoot);
+                    Set<FilePath> newPaths = GitProcessScheduler.computeWithPriority(
+                        GitProcessScheduler.Priority.BACKGROUND,
+                        () -> myGit.ignoredFilePaths(myProject, myRoot)
+                    );
                     synchronized (IGNORED_LOCK) {
                         myIgnoredPaths = Collections.unmodifiableSet(newPaths);
                         myInitialized = true;
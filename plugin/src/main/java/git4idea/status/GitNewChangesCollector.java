@@ -42,9 +42,10 @@ import git4idea.repo.GitUntrackedFilesHolder;
 import jakarta.annotation.Nonnull;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>
@@ -61,9 +62,11 @@ import java.util.Set;
 public class GitNewChangesCollector extends GitChangesCollector {
 
     private static final Logger LOG = Logger.getInstance(GitNewChangesCollector.class);
+    private static final AtomicLong ourAvoidedFullUpdates = new AtomicLong();
+
     private final GitRepository myRepository;
     private final Collection<Change> myChanges = new HashSet<Change>();
-    private final Set<VirtualFile> myUnversionedFiles = new HashSet<VirtualFile>();
+    private final Collection<VirtualFile> myUnversionedFiles = new ArrayList<>();
     @Nonnull
     private final Git myGit;
     private final VcsRevisionNumber myHead;
@@ -111,6 +114,14 @@ public class GitNewChangesCollector extends GitChangesCollector {
         return myHead;
     }
 
+    /**
+     * Returns how many times the current revision was read directly from {@code .git/HEAD} instead of the full repository update,
+     * for {@link git4idea.commands.GitCommandStatistics}.
+     */
+    public static long getAvoidedFullUpdatesCount() {
+        return ourAvoidedFullUpdates.get();
+    }
+
     // calls 'git status' and parses the output, feeding myChanges.
     private void collectChanges(Collection<FilePath> dirtyPaths) throws VcsException {
         GitSimpleHandler handler = statusHandler(dirtyPaths);
@@ -295,10 +306,21 @@ public class GitNewChangesCollector extends GitChangesCollector {
 
     @NotNull
     static VcsRevisionNumber getHead(@NotNull GitRepository repository) {
-        // we force update the GitRepository, because update is asynchronous, and thus the GitChangeProvider may be asked for changes
-        // before the GitRepositoryUpdater has captures the current revision change and has updated the GitRepository.
-        repository.update();
-        final String rev = repository.getCurrentRevision();
+        // GitRepository is updated asynchronously, and thus the GitChangeProvider may be asked for changes
+        // before the GitRepositoryUpdater has captured the current revision change and has updated the GitRepository.
+        // So we read .git/HEAD directly, leaving the full update to the GitRepositoryUpdater,
+        // and force the full update only if the current revision can't be read this way.
+        String rev = repository.readCurrentRevisionFromDisk();
+        if (rev != null) {
+            long avoided = ourAvoidedFullUpdates.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Read HEAD of " + repository.getRoot().getPath() + " without full update (" + avoided + " updates avoided so far)");
+            }
+        }
+        else {
+            repository.update();
+            rev = repository.getCurrentRevision();
+        }
         return rev != null ? new GitRevisionNumber(rev) : VcsRevisionNumber.NULL;
     }
 
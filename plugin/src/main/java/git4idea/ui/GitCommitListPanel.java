@@ -79,18 +79,29 @@ public class GitCommitListPanel extends JPanel implements UiDataProvider {
     }
 
     public void addListMultipleSelectionListener(@Nonnull Consumer<List<Change>> listener) {
-        myTable.getSelectionModel().addListSelectionListener(e -> {
-            List<GitCommit> commits = myTable.getSelectedObjects();
+        addCommitsSelectionListener(commits -> listener.accept(getMergedChanges(commits)));
+    }
 
-            List<Change> changes = new ArrayList<>();
-            // We need changes in asc order for zipChanges, and they are in desc order in Table
-            ListIterator<GitCommit> iterator = commits.listIterator(commits.size());
-            while (iterator.hasPrevious()) {
-                changes.addAll(iterator.previous().getChanges());
-            }
+    /**
+     * Adds a listener that would be called with the selected commits, in the table order.
+     * Unlike {@link #addListMultipleSelectionListener(Consumer)} it doesn't request the changes, so they may be loaded in background.
+     */
+    public void addCommitsSelectionListener(@Nonnull Consumer<List<GitCommit>> listener) {
+        myTable.getSelectionModel().addListSelectionListener(e -> listener.accept(myTable.getSelectedObjects()));
+    }
 
-            listener.accept(ChangesBrowserUtil.zipChanges(changes));
-        });
+    /**
+     * @return the changes of the given commits as if they were made by a single commit
+     */
+    @Nonnull
+    public static List<Change> getMergedChanges(@Nonnull List<GitCommit> commits) {
+        List<Change> changes = new ArrayList<>();
+        // We need changes in asc order for zipChanges, and they are in desc order in Table
+        ListIterator<GitCommit> iterator = commits.listIterator(commits.size());
+        while (iterator.hasPrevious()) {
+            changes.addAll(iterator.previous().getChanges());
+        }
+        return ChangesBrowserUtil.zipChanges(changes);
     }
 
     /**
@@ -157,7 +168,8 @@ public class GitCommitListPanel extends JPanel implements UiDataProvider {
             new ColumnInfo<GitCommit, String>("Subject") {
                 @Override
                 public String valueOf(GitCommit commit) {
-                    return commit.getSubject();
+                    // the patch is on the other side as well, marked as by git log --cherry-mark
+                    return commit.isPatchEquivalent() ? "= " + commit.getSubject() : commit.getSubject();
                 }
             },
             new GitCommitColumnInfo("Author", author.myItem) {
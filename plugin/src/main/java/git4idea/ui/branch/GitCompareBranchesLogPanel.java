@@ -17,6 +17,7 @@ package git4idea.ui.branch;
 
 import consulo.application.Application;
 import consulo.project.Project;
+import consulo.ui.ModalityState;
 import consulo.ui.ex.awt.JBLabel;
 import consulo.ui.ex.awt.Splitter;
 import consulo.ui.ex.awt.UIUtil;
@@ -55,6 +56,8 @@ class GitCompareBranchesLogPanel extends JPanel {
 
     private GitCommitListPanel myHeadToBranchListPanel;
     private GitCommitListPanel myBranchToHeadListPanel;
+    // the last selection which changes are being loaded, accessed in EDT
+    private int myChangesRequest;
 
     GitCompareBranchesLogPanel(
         @Nonnull Project project,
@@ -161,14 +164,37 @@ class GitCompareBranchesLogPanel extends JPanel {
         return myCompareInfo.getInfoType();
     }
 
-    private static void addSelectionListener(
+    private void addSelectionListener(
         @Nonnull GitCommitListPanel sourcePanel,
         @Nonnull GitCommitListPanel otherPanel,
         @Nonnull ChangesBrowser changesBrowser
     ) {
-        sourcePanel.addListMultipleSelectionListener(changes -> {
-            changesBrowser.setChangesToDisplay(changes);
+        sourcePanel.addCommitsSelectionListener(commits -> {
+            if (commits.isEmpty()) {
+                return;
+            }
             otherPanel.clearSelection();
+            loadChanges(commits, changesBrowser);
+        });
+    }
+
+    /**
+     * Changes of the compared commits are not loaded with the commits, so they are loaded in background when the commits are selected.
+     */
+    private void loadChanges(@Nonnull List<GitCommit> commits, @Nonnull ChangesBrowser changesBrowser) {
+        Application application = Application.get();
+        ModalityState modalityState = application.getCurrentModalityState();
+        int request = ++myChangesRequest;
+        application.executeOnPooledThread((Runnable) () -> {
+            List<Change> changes = GitCommitListPanel.getMergedChanges(commits);
+            application.invokeLater(
+                () -> {
+                    if (request == myChangesRequest) {
+                        changesBrowser.setChangesToDisplay(changes);
+                    }
+                },
+                modalityState
+            );
         });
     }
 
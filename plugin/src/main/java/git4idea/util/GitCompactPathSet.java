@@ -0,0 +1,326 @@
+package git4idea.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * <p>Immutable set of paths relative to a Git root, stored as a trie of path segments,
+ * so that common parent directories are stored only once.</p>
+ *
+ * <p>Instances are created via {@link Builder}. A builder created by {@link #toBuilder()} shares all untouched subtrees
+ * with the original set, so applying a small modification to a large set doesn't copy it.</p>
+ */
+public final class GitCompactPathSet {
+    private static final String[] EMPTY_NAMES = new String[0];
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+    public static final GitCompactPathSet EMPTY = new GitCompactPathSet(new Node(EMPTY_NAMES, EMPTY_CHILDREN, false), 0);
+
+    @Nonnull
+    private final Node myRoot;
+    private final int mySize;
+
+    private GitCompactPathSet(@Nonnull Node root, int size) {
+        myRoot = root;
+        mySize = size;
+    }
+
+    @Nonnull
+    public static Builder builder() {
+        return new Builder(EMPTY);
+    }
+
+    @Nonnull
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public int size() {
+        return mySize;
+    }
+
+    public boolean isEmpty() {
+        return mySize == 0;
+    }
+
+    /**
+     * @param relativePath path relative to the Git root, separated by {@code '/'}.
+     */
+    public boolean contains(@Nonnull String relativePath) {
+        Node node = myRoot;
+        int start = 0;
+        while (node != null) {
+            int end = relativePath.indexOf('/', start);
+            if (end < 0) {
+                end = relativePath.length();
+            }
+            if (end > start) {
+                node = node.findChild(relativePath.substring(start, end));
+            }
+            if (end >= relativePath.length()) {
+                return node != null && node.myContained;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Passes all relative paths of this set to the consumer, parents before their children.
+     */
+    public void forEach(@Nonnull Consumer<String> consumer) {
+        forEach(myRoot, new StringBuilder(), consumer);
+    }
+
+    private static void forEach(@Nonnull Node node, @Nonnull StringBuilder path, @Nonnull Consumer<String> consumer) {
+        int length = path.length();
+        for (int i = 0; i < node.myNames.length; i++) {
+            if (length > 0) {
+                path.append('/');
+            }
+            path.append(node.myNames[i]);
+            Node child = node.myChildren[i];
+            if (child.myContained) {
+                consumer.accept(path.toString());
+            }
+            forEach(child, path, consumer);
+            path.setLength(length);
+        }
+    }
+
+    /**
+     * Compares relative paths in the order of {@link #forEach}: segment by segment, a parent before its children.
+     */
+    public static int compare(@Nonnull String relativePath1, @Nonnull String relativePath2) {
+        int start1 = 0;
+        int start2 = 0;
+        while (start1 < relativePath1.length() && start2 < relativePath2.length()) {
+            int end1 = relativePath1.indexOf('/', start1);
+            if (end1 < 0) {
+                end1 = relativePath1.length();
+            }
+            int end2 = relativePath2.indexOf('/', start2);
+            if (end2 < 0) {
+                end2 = relativePath2.length();
+            }
+            int result = relativePath1.substring(start1, end1).compareTo(relativePath2.substring(start2, end2));
+            if (result != 0) {
+                return result;
+            }
+            start1 = end1 + 1;
+            start2 = end2 + 1;
+        }
+        return Boolean.compare(start1 < relativePath1.length(), start2 < relativePath2.length());
+    }
+
+    @Nonnull
+    public List<String> toList() {
+        List<String> result = new ArrayList<>(mySize);
+        forEach(result::add);
+        return result;
+    }
+
+    private static final class Node {
+        // sorted segment names and corresponding children
+        @Nonnull
+        private final String[] myNames;
+        @Nonnull
+        private final Node[] myChildren;
+        private final boolean myContained;
+
+        private Node(@Nonnull String[] names, @Nonnull Node[] children, boolean contained) {
+            myNames = names;
+            myChildren = children;
+            myContained = contained;
+        }
+
+        @Nullable
+        private Node findChild(@Nonnull String name) {
+            int index = Arrays.binarySearch(myNames, name);
+            return index >= 0 ? myChildren[index] : null;
+        }
+    }
+
+    /**
+     * Not thread-safe.
+     */
+    public static final class Builder {
+        @Nonnull
+        private final MutableNode myRoot;
+        private int mySize;
+
+        private Builder(@Nonnull GitCompactPathSet origin) {
+            myRoot = new MutableNode(origin.myRoot);
+            mySize = origin.mySize;
+        }
+
+        /**
+         * @return true if the path was not in the set before.
+         */
+        public boolean add(@Nonnull String relativePath) {
+            MutableNode node = myRoot;
+            for (String segment : splitPath(relativePath)) {
+                node = node.getOrCreateChild(segment);
+            }
+            if (node == myRoot || node.myContained) {
+                return false;
+            }
+            node.myContained = true;
+            mySize++;
+            return true;
+        }
+
+        /**
+         * @return true if the path was in the set.
+         */
+        public boolean remove(@Nonnull String relativePath) {
+            MutableNode node = myRoot;
+            for (String segment : splitPath(relativePath)) {
+                node = node.findChild(segment);
+                if (node == null) {
+                    return false;
+                }
+            }
+            if (node == myRoot || !node.myContained) {
+                return false;
+            }
+            node.myContained = false;
+            mySize--;
+            return true;
+        }
+
+        public int size() {
+            return mySize;
+        }
+
+        @Nonnull
+        public GitCompactPathSet build() {
+            Node root = myRoot.freeze();
+            return new GitCompactPathSet(root == null ? EMPTY.myRoot : root, mySize);
+        }
+
+        @Nonnull
+        private static List<String> splitPath(@Nonnull String relativePath) {
+            List<String> segments = new ArrayList<>();
+            int start = 0;
+            while (start <= relativePath.length()) {
+                int end = relativePath.indexOf('/', start);
+                if (end < 0) {
+                    end = relativePath.length();
+                }
+                if (end > start) {
+                    segments.add(relativePath.substring(start, end));
+                }
+                start = end + 1;
+            }
+            return segments;
+        }
+    }
+
+    /**
+     * A node under modification. Children are thawed from the original frozen node only when they are touched,
+     * untouched frozen subtrees are reused as is by {@link #freeze()}.
+     */
+    private static final class MutableNode {
+        @Nullable
+        private final Node myOrigin;
+        // values are either frozen Nodes or MutableNodes
+        @Nullable
+        private Map<String, Object> myChildren;
+        private boolean myContained;
+        private boolean myModified;
+
+        private MutableNode(@Nullable Node origin) {
+            myOrigin = origin;
+            myContained = origin != null && origin.myContained;
+        }
+
+        @Nonnull
+        private Map<String, Object> thawChildren() {
+            if (myChildren == null) {
+                myChildren = new HashMap<>();
+                if (myOrigin != null) {
+                    for (int i = 0; i < myOrigin.myNames.length; i++) {
+                        myChildren.put(myOrigin.myNames[i], myOrigin.myChildren[i]);
+                    }
+                }
+            }
+            myModified = true;
+            return myChildren;
+        }
+
+        @Nullable
+        private MutableNode findChild(@Nonnull String name) {
+            Object child;
+            if (myChildren != null) {
+                child = myChildren.get(name);
+            }
+            else {
+                child = myOrigin == null ? null : myOrigin.findChild(name);
+            }
+            if (child == null) {
+                return null;
+            }
+            return child instanceof MutableNode mutableNode ? mutableNode : thaw(name, (Node) child);
+        }
+
+        @Nonnull
+        private MutableNode getOrCreateChild(@Nonnull String name) {
+            MutableNode child = findChild(name);
+            if (child == null) {
+                child = new MutableNode(null);
+                thawChildren().put(name, child);
+            }
+            return child;
+        }
+
+        @Nonnull
+        private MutableNode thaw(@Nonnull String name, @Nonnull Node frozen) {
+            MutableNode child = new MutableNode(frozen);
+            thawChildren().put(name, child);
+            return child;
+        }
+
+        /**
+         * @return frozen node, or null if neither this node nor any of its descendants is contained in the set.
+         */
+        @Nullable
+        private Node freeze() {
+            if (!myModified) {
+                if (myOrigin != null && myOrigin.myContained == myContained) {
+                    return myOrigin.myNames.length == 0 && !myContained ? null : myOrigin;
+                }
+                if (myOrigin == null && !myContained) {
+                    return null;
+                }
+            }
+
+            List<String> names = new ArrayList<>();
+            List<Node> children = new ArrayList<>();
+            if (myChildren != null) {
+                List<String> sortedNames = new ArrayList<>(myChildren.keySet());
+                Collections.sort(sortedNames);
+                for (String name : sortedNames) {
+                    Object child = myChildren.get(name);
+                    Node frozenChild = child instanceof MutableNode mutableNode ? mutableNode.freeze() : (Node) child;
+                    if (frozenChild != null) {
+                        names.add(name);
+                        children.add(frozenChild);
+                    }
+                }
+            }
+            else if (myOrigin != null) {
+                names.addAll(Arrays.asList(myOrigin.myNames));
+                children.addAll(Arrays.asList(myOrigin.myChildren));
+            }
+
+            if (names.isEmpty() && !myContained) {
+                return null;
+            }
+            return new Node(names.toArray(EMPTY_NAMES), children.toArray(EMPTY_CHILDREN), myContained);
+        }
+    }
+}
@@ -27,6 +27,7 @@ module com.intellij.git {
     requires xmlrpc.client;
     requires xmlrpc.common;
     requires ws.commons.util;
+    requires jdk.jfr;
 
     // TODO remove
     requires java.desktop;
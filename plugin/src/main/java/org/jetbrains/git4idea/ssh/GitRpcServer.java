@@ -0,0 +1,225 @@
+package org.jetbrains.git4idea.ssh;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.Application;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.disposer.Disposable;
+import consulo.logging.Logger;
+import git4idea.commands.GitProcessScheduler;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.jetbrains.git4idea.rt.GitRpcProtocol;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Serves calls of the external applications started by Git (SSH and askpass) via {@link GitRpcProtocol}
+ * on a loopback socket.</p>
+ *
+ * <p>Calls are dispatched to the registered handlers by the method name and the number of arguments,
+ * in the same way as XML RPC did, so the handlers don't depend on the transport.
+ * Only the methods of the interface a handler is registered with can be called.</p>
+ *
+ * <p>A connection must start with the access token of the IDE passed to the applications in {@link GitRpcProtocol#TOKEN_ENV},
+ * so that other local processes can't ask the handlers for credentials.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.APPLICATION)
+@ServiceImpl
+public class GitRpcServer implements Disposable {
+  private static final Logger LOG = Logger.getInstance(GitRpcServer.class);
+
+  @Nonnull
+  private final Map<String, Handler> myHandlers = new ConcurrentHashMap<>();
+  @Nonnull
+  private final String myToken = UUID.randomUUID().toString();
+  @Nonnull
+  private final Object myLock = new Object();
+  @Nullable
+  private ServerSocket myServerSocket;
+  private boolean myDisposed;
+
+  @Inject
+  GitRpcServer() {
+  }
+
+  @Nonnull
+  public static GitRpcServer getInstance() {
+    return Application.get().getInstance(GitRpcServer.class);
+  }
+
+  /**
+   * @return the port of the loopback socket accepting calls; the socket is opened on the first call.
+   */
+  public int getPort() throws IOException {
+    synchronized (myLock) {
+      if (myDisposed) {
+        throw new IOException("The Git RPC server is disposed");
+      }
+      if (myServerSocket == null) {
+        ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        myServerSocket = serverSocket;
+        AppExecutorUtil.getAppExecutorService().execute(() -> acceptConnections(serverSocket));
+      }
+      return myServerSocket.getLocalPort();
+    }
+  }
+
+  /**
+   * @return the token which the applications must pass to call the handlers, see {@link GitRpcProtocol#TOKEN_ENV}
+   */
+  @Nonnull
+  public String getToken() {
+    return myToken;
+  }
+
+  public boolean hasHandler(@Nonnull String name) {
+    return myHandlers.containsKey(name);
+  }
+
+  /**
+   * @param rpcInterface the interface implemented by the handler: only its methods can be called
+   */
+  public void addHandler(@Nonnull String name, @Nonnull Object handler, @Nonnull Class<?> rpcInterface) {
+    if (!rpcInterface.isInterface() || !rpcInterface.isInstance(handler)) {
+      throw new IllegalArgumentException(handler + " doesn't implement the interface " + rpcInterface);
+    }
+    myHandlers.put(name, new Handler(handler, rpcInterface));
+  }
+
+  private void acceptConnections(@Nonnull ServerSocket serverSocket) {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        AppExecutorUtil.getAppExecutorService().execute(() -> serveConnection(socket));
+      }
+      catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          LOG.warn("Couldn't accept Git RPC connection", e);
+        }
+      }
+    }
+  }
+
+  private void serveConnection(@Nonnull Socket socket) {
+    try (Socket s = socket) {
+      s.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      byte[] token = GitRpcProtocol.readFrame(in);
+      if (token == null || !MessageDigest.isEqual(token, myToken.getBytes(StandardCharsets.UTF_8))) {
+        LOG.warn("Git RPC connection with invalid token rejected");
+        return;
+      }
+      byte[] request;
+      while ((request = GitRpcProtocol.readFrame(in)) != null) {
+        GitRpcProtocol.writeFrame(out, handleRequest(request));
+      }
+    }
+    catch (IOException e) {
+      LOG.debug("Git RPC connection failed", e);
+    }
+  }
+
+  @Nonnull
+  private byte[] handleRequest(@Nonnull byte[] request) throws IOException {
+    long start = System.nanoTime();
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+    String methodName = in.readUTF();
+    int count = in.readInt();
+    List<Object> arguments = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      arguments.add(GitRpcProtocol.readValue(in));
+    }
+
+    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(reply);
+    try {
+      Object result = invoke(methodName, arguments);
+      out.writeByte(GitRpcProtocol.OK);
+      GitRpcProtocol.writeValue(out, result);
+    }
+    catch (Throwable e) {
+      LOG.warn("Git RPC call " + methodName + " failed", e);
+      reply.reset();
+      out.writeByte(GitRpcProtocol.ERROR);
+      out.writeUTF(String.valueOf(e.getMessage()));
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Git RPC call " + methodName + " handled in " + (System.nanoTime() - start) / 1000 + " us");
+    }
+    return reply.toByteArray();
+  }
+
+  @Nullable
+  private Object invoke(@Nonnull String methodName, @Nonnull List<Object> arguments) throws Throwable {
+    int dot = methodName.lastIndexOf('.');
+    Handler handler = dot < 0 ? null : myHandlers.get(methodName.substring(0, dot));
+    if (handler == null) {
+      throw new IllegalArgumentException("No handler for " + methodName);
+    }
+    Method method = findMethod(handler.myInterface, methodName.substring(dot + 1), arguments.size());
+    try {
+      // the helper process calling us is started by a Git process, which holds a permit of the scheduler
+      return GitProcessScheduler.computeNested(() -> method.invoke(handler.myHandler, arguments.toArray()));
+    }
+    catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Nonnull
+  private static Method findMethod(@Nonnull Class<?> rpcInterface, @Nonnull String name, int parameterCount) {
+    // the methods declared by the interface itself: the methods of Object and of the implementation can't be called
+    for (Method method : rpcInterface.getDeclaredMethods()) {
+      if (method.getName().equals(name) && method.getParameterCount() == parameterCount && Modifier.isAbstract(method.getModifiers())) {
+        return method;
+      }
+    }
+    throw new IllegalArgumentException("No method " + name + " with " + parameterCount + " parameters in " + rpcInterface.getName());
+  }
+
+  private static class Handler {
+    @Nonnull
+    private final Object myHandler;
+    @Nonnull
+    private final Class<?> myInterface;
+
+    Handler(@Nonnull Object handler, @Nonnull Class<?> rpcInterface) {
+      myHandler = handler;
+      myInterface = rpcInterface;
+    }
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (myLock) {
+      myDisposed = true;
+      if (myServerSocket != null) {
+        try {
+          myServerSocket.close();
+        }
+        catch (IOException e) {
+          LOG.debug(e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,503 @@
+package org.jetbrains.git4idea.ssh;
+
+import com.trilead.ssh2.ChannelCondition;
+import com.trilead.ssh2.Connection;
+import com.trilead.ssh2.Session;
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.Application;
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.application.util.registry.Registry;
+import consulo.disposer.Disposable;
+import consulo.logging.Logger;
+import consulo.util.collection.ContainerUtil;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.jetbrains.git4idea.rt.ssh.GitSSHHandler;
+import org.jetbrains.git4idea.rt.ssh.SSHConfig;
+import org.jetbrains.git4idea.rt.ssh.SSHMain;
+import org.jetbrains.git4idea.rt.ssh.SSHRelay;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Pool of authenticated SSH connections, keyed by user, host and port, and by the settings the connection is opened with:
+ * the proxy and whether the known hosts are checked.</p>
+ *
+ * <p>When the pool is enabled, {@link SSHMain} started by Git acts as a thin relay: instead of opening a new connection
+ * with full key exchange and authentication, it passes the command to the pool via a loopback socket (see {@link SSHRelay}),
+ * and the pool executes it in a new session on an already authenticated connection.
+ * So fetching many roots from the same host pays the handshake once.</p>
+ *
+ * <p>A connection carries at most {@code git.ssh.pool.max.sessions} sessions, below the default {@code MaxSessions} of sshd;
+ * more concurrent requests to the same host open more connections. If the server refuses a session on a connection,
+ * the connection isn't used for new sessions, but is closed only when its running sessions end.
+ * Connections which have no sessions for {@code git.ssh.pool.idle.timeout.ms} are closed.</p>
+ *
+ * <p>Connections are established without holding any lock; requests waiting for a connection being established by another request
+ * give up after {@code git.ssh.pool.connect.wait.ms} and use a separate connection.</p>
+ */
+@Singleton
+@ServiceAPI(ComponentScope.APPLICATION)
+@ServiceImpl
+public class GitSshConnectionPool implements Disposable {
+  private static final Logger LOG = Logger.getInstance(GitSshConnectionPool.class);
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+  private static final long EXPIRATION_CHECK_PERIOD_MS = 10_000;
+  /**
+   * The settings a connection is opened with, besides the host: connections opened with different values are not shared
+   */
+  private static final String[] CONNECTION_ENV = {
+    GitSSHHandler.SSH_IGNORE_KNOWN_HOSTS_ENV,
+    GitSSHHandler.SSH_USE_PROXY_ENV,
+    GitSSHHandler.SSH_PROXY_HOST_ENV,
+    GitSSHHandler.SSH_PROXY_PORT_ENV,
+    GitSSHHandler.SSH_PROXY_AUTHENTICATION_ENV,
+    GitSSHHandler.SSH_PROXY_USER_ENV
+  };
+
+  @Nonnull
+  private final String myToken = UUID.randomUUID().toString();
+  @Nonnull
+  private final Map<String, List<PooledConnection>> myConnections = new HashMap<>();
+  @Nonnull
+  private final Object myLock = new Object();
+  @Nullable
+  private ServerSocket myServerSocket;
+  @Nullable
+  private ScheduledFuture<?> myExpirationCheck;
+  private boolean myDisposed;
+
+  @Nonnull
+  private final AtomicLong myCreatedConnections = new AtomicLong();
+  @Nonnull
+  private final AtomicLong myReusedConnections = new AtomicLong();
+
+  @Inject
+  GitSshConnectionPool() {
+  }
+
+  @Nonnull
+  public static GitSshConnectionPool getInstance() {
+    return Application.get().getInstance(GitSshConnectionPool.class);
+  }
+
+  public static boolean isEnabled() {
+    return Registry.is("git.ssh.connection.pool", true);
+  }
+
+  /**
+   * @return the port of the loopback socket accepting relay requests; the socket is opened on the first call.
+   */
+  public int getPort() throws IOException {
+    synchronized (myLock) {
+      if (myDisposed) {
+        throw new IOException("The SSH connection pool is disposed");
+      }
+      if (myServerSocket == null) {
+        ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        myServerSocket = serverSocket;
+        AppExecutorUtil.getAppExecutorService().execute(() -> acceptRequests(serverSocket));
+        myExpirationCheck = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+          this::closeIdleConnections, EXPIRATION_CHECK_PERIOD_MS, EXPIRATION_CHECK_PERIOD_MS, TimeUnit.MILLISECONDS);
+      }
+      return myServerSocket.getLocalPort();
+    }
+  }
+
+  /**
+   * @return the token which the relay must pass to use the pool, so that other local processes can't use the authenticated connections.
+   */
+  @Nonnull
+  public String getToken() {
+    return myToken;
+  }
+
+  public long getCreatedConnectionsCount() {
+    return myCreatedConnections.get();
+  }
+
+  public long getReusedConnectionsCount() {
+    return myReusedConnections.get();
+  }
+
+  private void acceptRequests(@Nonnull ServerSocket serverSocket) {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        AppExecutorUtil.getAppExecutorService().execute(() -> handleRequest(socket));
+      }
+      catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          LOG.warn("Couldn't accept SSH relay request", e);
+        }
+      }
+    }
+  }
+
+  private void handleRequest(@Nonnull Socket socket) {
+    try (Socket s = socket) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      SSHRelay.Request request = SSHRelay.Request.read(in);
+      if (!myToken.equals(request.token)) {
+        LOG.warn("SSH relay request with invalid token rejected");
+        return;
+      }
+      try {
+        int exitCode = execute(request, in, out);
+        SSHRelay.writeExit(out, exitCode);
+      }
+      catch (IOException | RuntimeException e) {
+        LOG.info("Couldn't execute the SSH command via the connection pool", e);
+        byte[] message = (e.getMessage() + "\n").getBytes(StandardCharsets.UTF_8);
+        SSHRelay.writeFrame(out, SSHRelay.STDERR, message, message.length);
+        SSHRelay.writeExit(out, 1);
+      }
+    }
+    catch (IOException e) {
+      LOG.debug("SSH relay connection failed", e);
+    }
+  }
+
+  private int execute(@Nonnull SSHRelay.Request request, @Nonnull InputStream relayIn, @Nonnull DataOutputStream relayOut)
+    throws IOException {
+    SSHConfig.Host host = SSHConfig.load().lookup(request.user, request.host, request.port);
+    OpenedSession opened = openSession(host, request.env);
+    Session session = opened.mySession;
+    try {
+      session.execCommand(request.command);
+      Future<?> stdin = AppExecutorUtil.getAppExecutorService().submit(() -> copyStdin(relayIn, session.getStdin()));
+      Future<?> stdout = AppExecutorUtil.getAppExecutorService().submit(() -> copyOutput(session.getStdout(), relayOut, SSHRelay.STDOUT));
+      copyOutput(session.getStderr(), relayOut, SSHRelay.STDERR);
+      stdout.get();
+      session.waitForCondition(ChannelCondition.EXIT_STATUS, Long.MAX_VALUE);
+      // if the remote process exited, none is interested in stdin anyway
+      stdin.cancel(true);
+      Integer exitStatus = session.getExitStatus();
+      return exitStatus == null ? 1 : exitStatus;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    finally {
+      session.close();
+      opened.close();
+    }
+  }
+
+  private static void copyStdin(@Nonnull InputStream from, @Nonnull OutputStream to) {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (OutputStream out = to) {
+      int rc;
+      while ((rc = from.read(buffer)) != -1) {
+        out.write(buffer, 0, rc);
+        out.flush();
+      }
+    }
+    catch (IOException e) {
+      LOG.debug("Stdin forwarding stopped", e);
+    }
+  }
+
+  private static void copyOutput(@Nonnull InputStream from, @Nonnull DataOutputStream relayOut, byte type) {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = from) {
+      int rc;
+      while ((rc = in.read(buffer)) != -1) {
+        SSHRelay.writeFrame(relayOut, type, buffer, rc);
+      }
+    }
+    catch (IOException e) {
+      LOG.debug("Output forwarding stopped", e);
+    }
+  }
+
+  /**
+   * Opens a session on a pooled connection with a free session slot, connecting a new pooled connection if there is none.
+   * If the connection of another request is still being established after {@code git.ssh.pool.connect.wait.ms},
+   * the session is opened on a separate connection, which is closed with the session.
+   */
+  @Nonnull
+  private OpenedSession openSession(@Nonnull SSHConfig.Host host, @Nonnull Map<String, String> env) throws IOException {
+    String key = getKey(host, env);
+    for (int attempt = 0; ; attempt++) {
+      PooledConnection pooled;
+      boolean connect;
+      synchronized (myLock) {
+        if (myDisposed) {
+          throw new IOException("The SSH connection pool is disposed");
+        }
+        pooled = findAvailable(key);
+        connect = pooled == null;
+        if (connect) {
+          pooled = new PooledConnection(key);
+          myConnections.computeIfAbsent(key, k -> new ArrayList<>()).add(pooled);
+        }
+        pooled.mySessions++;
+      }
+
+      Connection connection;
+      try {
+        connection = connect ? connect(pooled, host, env) : awaitConnection(pooled);
+      }
+      catch (IOException | RuntimeException e) {
+        release(pooled, connect);
+        throw e;
+      }
+      if (connection == null) {
+        release(pooled, false);
+        LOG.debug("SSH connection to " + key + " is still being established, opening a separate one");
+        return openUnpooledSession(host, env);
+      }
+
+      try {
+        Session session = connection.openSession();
+        if (!connect) {
+          myReusedConnections.incrementAndGet();
+          LOG.debug("Reusing SSH connection to " + key);
+        }
+        return new OpenedSession(session, pooled, null);
+      }
+      catch (IOException | IllegalStateException e) {
+        // the connection is broken, or the server allows less sessions per connection than git.ssh.pool.max.sessions:
+        // the sessions already running on it are left alone, and new ones use another connection
+        LOG.debug("Couldn't open a session on the pooled SSH connection to " + key, e);
+        release(pooled, true);
+        if (attempt > 0) {
+          throw e instanceof IOException ioException ? ioException : new IOException(e);
+        }
+      }
+    }
+  }
+
+  @Nonnull
+  private Connection connect(@Nonnull PooledConnection pooled, @Nonnull SSHConfig.Host host, @Nonnull Map<String, String> env)
+    throws IOException {
+    try {
+      Connection connection = SSHMain.connect(host, env);
+      myCreatedConnections.incrementAndGet();
+      LOG.debug("Opened SSH connection to " + pooled.myKey);
+      pooled.myConnection.complete(connection);
+      return connection;
+    }
+    catch (IOException | RuntimeException e) {
+      pooled.myConnection.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * @return the connection being established by another request, or null if it isn't established in time
+   */
+  @Nullable
+  private static Connection awaitConnection(@Nonnull PooledConnection pooled) throws IOException {
+    try {
+      return pooled.myConnection.get(Registry.intValue("git.ssh.pool.connect.wait.ms", 10_000), TimeUnit.MILLISECONDS);
+    }
+    catch (TimeoutException e) {
+      return null;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    catch (ExecutionException e) {
+      throw new IOException("Couldn't connect to " + pooled.myKey, e.getCause());
+    }
+  }
+
+  @Nonnull
+  private OpenedSession openUnpooledSession(@Nonnull SSHConfig.Host host, @Nonnull Map<String, String> env) throws IOException {
+    Connection connection = SSHMain.connect(host, env);
+    myCreatedConnections.incrementAndGet();
+    try {
+      return new OpenedSession(connection.openSession(), null, connection);
+    }
+    catch (IOException | RuntimeException e) {
+      connection.close();
+      throw e;
+    }
+  }
+
+  // guarded by myLock
+  @Nullable
+  private PooledConnection findAvailable(@Nonnull String key) {
+    List<PooledConnection> connections = myConnections.get(key);
+    if (connections == null) {
+      return null;
+    }
+    int maxSessions = Math.max(1, Registry.intValue("git.ssh.pool.max.sessions", 8));
+    for (PooledConnection pooled : connections) {
+      if (pooled.mySessions < maxSessions && !pooled.myConnection.isCompletedExceptionally()) {
+        return pooled;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Releases a session slot of the connection. A retired connection is removed from the pool at once,
+   * but it is closed only when its last session is released.
+   */
+  private void release(@Nonnull PooledConnection pooled, boolean retire) {
+    Connection toClose = null;
+    synchronized (myLock) {
+      pooled.mySessions--;
+      pooled.myLastUsed = System.currentTimeMillis();
+      if (retire) {
+        retire(pooled);
+      }
+      if (pooled.myRetired && pooled.mySessions == 0) {
+        toClose = pooled.getEstablishedConnection();
+      }
+    }
+    if (toClose != null) {
+      LOG.debug("Closing SSH connection to " + pooled.myKey);
+      toClose.close();
+    }
+  }
+
+  // guarded by myLock
+  private void retire(@Nonnull PooledConnection pooled) {
+    if (pooled.myRetired) {
+      return;
+    }
+    pooled.myRetired = true;
+    List<PooledConnection> connections = myConnections.get(pooled.myKey);
+    if (connections != null) {
+      connections.remove(pooled);
+      if (connections.isEmpty()) {
+        myConnections.remove(pooled.myKey);
+      }
+    }
+  }
+
+  @Nonnull
+  private static String getKey(@Nonnull SSHConfig.Host host, @Nonnull Map<String, String> env) {
+    StringBuilder key = new StringBuilder().append(host.getUser()).append("@").append(host.getHostName()).append(":").append(host.getPort());
+    for (String name : CONNECTION_ENV) {
+      String value = env.get(name);
+      if (value != null) {
+        key.append(" ").append(name).append("=").append(value);
+      }
+    }
+    return key.toString();
+  }
+
+  private void closeIdleConnections() {
+    long idleTimeout = Registry.intValue("git.ssh.pool.idle.timeout.ms", 60_000);
+    long now = System.currentTimeMillis();
+    List<Connection> idle = new ArrayList<>();
+    synchronized (myLock) {
+      for (List<PooledConnection> connections : new ArrayList<>(myConnections.values())) {
+        for (PooledConnection pooled : new ArrayList<>(connections)) {
+          if (pooled.mySessions == 0 && now - pooled.myLastUsed >= idleTimeout) {
+            retire(pooled);
+            ContainerUtil.addIfNotNull(idle, pooled.getEstablishedConnection());
+          }
+        }
+      }
+    }
+    for (Connection connection : idle) {
+      connection.close();
+    }
+  }
+
+  @Override
+  public void dispose() {
+    List<Connection> connections;
+    synchronized (myLock) {
+      myDisposed = true;
+      if (myExpirationCheck != null) {
+        myExpirationCheck.cancel(false);
+      }
+      if (myServerSocket != null) {
+        try {
+          myServerSocket.close();
+        }
+        catch (IOException e) {
+          LOG.debug(e);
+        }
+      }
+      connections = new ArrayList<>();
+      for (List<PooledConnection> entries : new ArrayList<>(myConnections.values())) {
+        for (PooledConnection pooled : new ArrayList<>(entries)) {
+          retire(pooled);
+          // connections with running sessions are closed when the sessions end
+          if (pooled.mySessions == 0) {
+            ContainerUtil.addIfNotNull(connections, pooled.getEstablishedConnection());
+          }
+        }
+      }
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+    LOG.info("SSH connection pool: " + myCreatedConnections.get() + " connections created, " + myReusedConnections.get() + " reused");
+  }
+
+  /**
+   * A pooled connection: established once by the request which created the entry, then shared by up to
+   * {@code git.ssh.pool.max.sessions} sessions. The counters and flags are guarded by the pool lock.
+   */
+  private static class PooledConnection {
+    @Nonnull
+    private final String myKey;
+    @Nonnull
+    private final CompletableFuture<Connection> myConnection = new CompletableFuture<>();
+    // the sessions running or being opened on the connection, including the one of the request establishing it
+    private int mySessions;
+    private long myLastUsed = System.currentTimeMillis();
+    // removed from the pool, closed when the last session is released
+    private boolean myRetired;
+
+    PooledConnection(@Nonnull String key) {
+      myKey = key;
+    }
+
+    @Nullable
+    Connection getEstablishedConnection() {
+      return myConnection.isDone() && !myConnection.isCompletedExceptionally() ? myConnection.join() : null;
+    }
+  }
+
+  private class OpenedSession {
+    @Nonnull
+    private final Session mySession;
+    @Nullable
+    private final PooledConnection myPooled;
+    @Nullable
+    private final Connection myUnpooled;
+
+    OpenedSession(@Nonnull Session session, @Nullable PooledConnection pooled, @Nullable Connection unpooled) {
+      mySession = session;
+      myPooled = pooled;
+      myUnpooled = unpooled;
+    }
+
+    void close() {
+      if (myPooled != null) {
+        release(myPooled, false);
+      }
+      else if (myUnpooled != null) {
+        myUnpooled.close();
+      }
+    }
+  }
+}
@@ -16,15 +16,10 @@
 package org.jetbrains.git4idea.ssh;
 
 import com.trilead.ssh2.ProxyData;
-import consulo.builtinWebServer.BuiltInServerManager;
-import consulo.builtinWebServer.xml.XmlRpcServer;
 import consulo.disposer.Disposable;
 import consulo.disposer.Disposer;
-import org.apache.commons.codec.DecoderException;
-import org.apache.ws.commons.serialize.DOMSerializer;
-import org.apache.xmlrpc.XmlRpcConfig;
-import org.apache.xmlrpc.client.XmlRpcClient;
 import org.jetbrains.git4idea.rt.GitExternalApp;
+import org.jetbrains.git4idea.rt.GitRpcProtocol;
 import org.jetbrains.git4idea.util.ScriptGenerator;
 
 import jakarta.annotation.Nonnull;
@@ -45,8 +40,8 @@ import java.util.UUID;
  * (e.g. {@code GIT_SSH} for SSH connections, or {@code GIT_ASKPASS} for HTTP) pointing to the script.</li>
  * <li>{@link #registerHandler(Object) Register} the handler of Git requests.</li>
  * <li>Call Git operation.</li>
- * <li>If the operation requires user interaction, the registered handler is called via XML RPC protocol.
- * It can show a dialog in the GUI and return the answer via XML RPC to the external application, that further provides
+ * <li>If the operation requires user interaction, the registered handler is called via {@link GitRpcProtocol} (see {@link GitRpcServer}).
+ * It can show a dialog in the GUI and return the answer to the external application, that further provides
  * this value to the Git process.</li>
  * <li>{@link #unregisterHandler(int) Unregister} the handler after operation has completed.</li>
  * </ol>
@@ -72,7 +67,7 @@ public abstract class GitXmlRpcHandlerService<T> {
   private final Object HANDLERS_LOCK = new Object();
 
   /**
-   * @param handlerName Returns the name of the handler to be used by XML RPC client to call remote methods of a proper object.
+   * @param handlerName Returns the name of the handler to be used by the RPC client to call remote methods of a proper object.
    * @param aClass      Main class of the external application invoked by Git,
    *                    which is able to handle its requests and pass to the main IDEA instance.
    */
@@ -83,10 +78,18 @@ public abstract class GitXmlRpcHandlerService<T> {
   }
 
   /**
-   * @return the port number for XML RCP
+   * @return the port number of the {@link GitRpcServer}
    */
-  public int getXmlRcpPort() {
-    return BuiltInServerManager.getInstance().getPort();
+  public int getXmlRcpPort() throws IOException {
+    return GitRpcServer.getInstance().getPort();
+  }
+
+  /**
+   * @return the access token of the {@link GitRpcServer}, to pass in {@link GitRpcProtocol#TOKEN_ENV}
+   */
+  @Nonnull
+  public String getRpcToken() {
+    return GitRpcServer.getInstance().getToken();
   }
 
   /**
@@ -98,13 +101,7 @@ public abstract class GitXmlRpcHandlerService<T> {
   @Nonnull
   public File getScriptPath() throws IOException {
     ScriptGenerator generator = new ScriptGenerator(myScriptTempFilePrefix, myScriptMainClass);
-    generator.addClasses(
-        XmlRpcClient.class,
-        XmlRpcConfig.class,
-        DOMSerializer.class,
-        DecoderException.class,
-        ProxyData.class
-    );
+    generator.addClasses(ProxyData.class);
     customizeScriptGenerator(generator);
 
     synchronized (SCRIPT_FILE_LOCK) {
@@ -129,9 +126,9 @@ public abstract class GitXmlRpcHandlerService<T> {
    */
   public UUID registerHandler(@Nonnull T handler, @Nonnull Disposable parentDisposable) {
     synchronized (HANDLERS_LOCK) {
-      XmlRpcServer xmlRpcServer = XmlRpcServer.getInstance();
-      if (!xmlRpcServer.hasHandler(myHandlerName)) {
-        xmlRpcServer.addHandler(myHandlerName, createRpcRequestHandlerDelegate());
+      GitRpcServer rpcServer = GitRpcServer.getInstance();
+      if (!rpcServer.hasHandler(myHandlerName)) {
+        rpcServer.addHandler(myHandlerName, createRpcRequestHandlerDelegate(), getRpcInterface());
       }
 
       final UUID key = UUID.randomUUID();
@@ -147,14 +144,21 @@ public abstract class GitXmlRpcHandlerService<T> {
   }
 
   /**
-   * Creates an implementation of the xml rpc handler, which methods will be called from the external application.
+   * Creates an implementation of the rpc handler, which methods will be called from the external application.
    * This method should just delegate the call to the specific handler of type {@link T}, which can be achieved by {@link #getHandler(int)}.
    *
-   * @return New instance of the xml rpc handler delegate.
+   * @return New instance of the rpc handler delegate.
    */
   @Nonnull
   protected abstract Object createRpcRequestHandlerDelegate();
 
+  /**
+   * @return the interface implemented by the {@link #createRpcRequestHandlerDelegate rpc handler}:
+   * only its methods can be called from the external application
+   */
+  @Nonnull
+  protected abstract Class<?> getRpcInterface();
+
   /**
    * Get handler for the key
    *
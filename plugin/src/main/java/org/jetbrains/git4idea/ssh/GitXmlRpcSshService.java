@@ -54,6 +54,12 @@ public class GitXmlRpcSshService extends GitXmlRpcHandlerService<GitSSHGUIHandle
     return new InternalRequestHandler();
   }
 
+  @Nonnull
+  @Override
+  protected Class<?> getRpcInterface() {
+    return GitSSHHandler.class;
+  }
+
   /**
    * Internal handler implementation class, do not use it.
    */
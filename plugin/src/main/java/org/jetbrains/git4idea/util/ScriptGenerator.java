@@ -15,6 +15,8 @@
  */
 package org.jetbrains.git4idea.util;
 
+import consulo.application.util.registry.Registry;
+import consulo.container.boot.ContainerPathManager;
 import consulo.platform.Platform;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.io.FileUtil;
@@ -35,6 +37,7 @@ import java.net.URL;
 import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Script generator utility class. It uses to generate a temporary scripts that
@@ -45,6 +48,15 @@ public class ScriptGenerator {
      * The extension of the ssh script name
      */
     public static final String SCRIPT_EXT = Platform.current().os().isWindows() ? ".bat" : ".sh";
+    /**
+     * Startup options of the helper JVM: the helpers are short-lived and do little work,
+     * so the C1 compiler, a small heap and the serial GC start faster.
+     */
+    private static final String[] STARTUP_OPTIONS = {"-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xms8m", "-Xmx64m"};
+    /**
+     * The first Java version supporting {@code -XX:+AutoCreateSharedArchive}
+     */
+    private static final int AUTO_CREATE_SHARED_ARCHIVE_VERSION = 19;
     /**
      * The script prefix
      */
@@ -163,18 +175,12 @@ public class ScriptGenerator {
     public String commandLine() {
         StringBuilder cmd = new StringBuilder();
         cmd.append('\"').append(System.getProperty("java.home")).append(File.separatorChar).append("bin").append(File.separatorChar)
-            .append("java\" -cp \"");
-        boolean first = true;
-        for (String p : myPaths) {
-            if (!first) {
-                cmd.append(File.pathSeparatorChar);
-            }
-            else {
-                first = false;
-            }
-            cmd.append(p);
+            .append("java\" ");
+        String classPath = String.join(File.pathSeparator, myPaths);
+        for (String option : startupOptions(classPath)) {
+            cmd.append(option).append(' ');
         }
-        cmd.append("\" ");
+        cmd.append("-cp \"").append(classPath).append("\" ");
         cmd.append(myMainClass.getName());
         for (String p : myInternalParameters) {
             cmd.append(' ');
@@ -186,4 +192,46 @@ public class ScriptGenerator {
         }
         return line;
     }
+
+    /**
+     * <p>JVM options making the helper start faster.</p>
+     *
+     * <p>On Java 19+ the helper uses an AppCDS archive of its classes, so the classes are mapped from the archive
+     * instead of being loaded and verified on each start. The archive is created by the JVM when the helper exits for the first time,
+     * and recreated if it doesn't match the JVM or the classpath anymore. If it can't be mapped, the JVM silently starts without it.</p>
+     */
+    @Nonnull
+    private List<String> startupOptions(@Nonnull String classPath) {
+        List<String> options = new ArrayList<>();
+        if (!Registry.is("git.helper.fast.startup", true)) {
+            return options;
+        }
+        ContainerUtil.addAll(options, STARTUP_OPTIONS);
+        File archive = getSharedArchive(classPath);
+        if (archive != null) {
+            options.add("-Xshare:auto");
+            options.add("-XX:+AutoCreateSharedArchive");
+            options.add("\"-XX:SharedArchiveFile=" + archive.getPath() + "\"");
+        }
+        return options;
+    }
+
+    /**
+     * @return the AppCDS archive for the helper, named by the main class and the hash of the JVM and the classpath,
+     * so that different helpers and IDE updates don't overwrite the archives of each other;
+     * or null if the archive can't be used.
+     */
+    @Nullable
+    private File getSharedArchive(@Nonnull String classPath) {
+        if (Runtime.version().feature() < AUTO_CREATE_SHARED_ARCHIVE_VERSION) {
+            return null;
+        }
+        File directory = new File(ContainerPathManager.get().getSystemPath(), "git-helpers-cds");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return null;
+        }
+        String hash = Integer.toHexString((System.getProperty("java.home") + File.pathSeparator + classPath).hashCode());
+        String name = myMainClass.getSimpleName().toLowerCase(Locale.ROOT) + "-" + hash + ".jsa";
+        return new File(directory, name);
+    }
 }
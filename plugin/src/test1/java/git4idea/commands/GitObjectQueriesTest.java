@@ -0,0 +1,116 @@
+package git4idea.commands;
+
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.changes.GitChangeUtils;
+import git4idea.history.browser.SHAHash;
+import git4idea.test.GitTest;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the answers of the {@link GitCatFileWorker cat-file worker} and the cases which are left to the usual Git commands.
+ */
+public class GitObjectQueriesTest extends GitTest {
+    private static final String UNKNOWN_HASH = "0123456789012345678901234567890123456789";
+
+    @Test
+    public void testReadCommit() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        String hash = myRepo.addCommit("initial");
+        VirtualFile root = myRepo.getVFRootDir();
+
+        GitObjectQueries.CommitInfo commit = GitObjectQueries.getInstance(myProject).readCommit(root, "HEAD");
+        assertNotNull(commit);
+        assertNotSame(commit, GitObjectQueries.MISSING);
+        assertEquals(commit.getHash(), hash);
+        assertEquals(commit.getCommitTime(), Long.parseLong(myRepo.log("-n1", "--format=%ct").trim()) * 1000);
+        assertEquals(commit.getAuthorTime(), Long.parseLong(myRepo.log("-n1", "--format=%at").trim()) * 1000);
+
+        // the same commit by the short hash and by the tree-ish syntax
+        assertEquals(GitObjectQueries.getInstance(myProject).readCommit(root, hash.substring(0, 10)).getHash(), hash);
+        assertEquals(GitObjectQueries.getInstance(myProject).readCommit(root, "master~0").getHash(), hash);
+    }
+
+    @Test
+    public void testMissingCommit() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        myRepo.addCommit("initial");
+        VirtualFile root = myRepo.getVFRootDir();
+        GitObjectQueries queries = GitObjectQueries.getInstance(myProject);
+
+        assertSame(queries.readCommit(root, UNKNOWN_HASH), GitObjectQueries.MISSING);
+        assertSame(queries.readCommit(root, "unknown-branch"), GitObjectQueries.MISSING);
+        // the worker keeps answering after a missing object
+        assertNotSame(queries.readCommit(root, "HEAD"), GitObjectQueries.MISSING);
+    }
+
+    @Test
+    public void testUnsupportedReferences() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        myRepo.addCommit("initial");
+        VirtualFile root = myRepo.getVFRootDir();
+        GitObjectQueries queries = GitObjectQueries.getInstance(myProject);
+
+        // left to the Git commands
+        for (String reference : new String[]{"HEAD..master", "-n1", "^HEAD", "HEAD^@", "HEAD^!", "HEAD^-", "HEAD master", ""}) {
+            assertNull(queries.readCommit(root, reference), reference);
+            assertNull(queries.exists(root, reference, "a.txt"), reference);
+        }
+        assertNull(queries.exists(root, "HEAD", "a\nb.txt"));
+    }
+
+    @Test
+    public void testReadBlob() throws Exception {
+        myRepo.createFile("a.txt", "content");
+        String commit = myRepo.addCommit("initial");
+        VirtualFile root = myRepo.getVFRootDir();
+        GitObjectQueries queries = GitObjectQueries.getInstance(myProject);
+
+        String blob = myRepo.run("rev-parse", "HEAD:a.txt").trim();
+        assertEquals(new String(queries.readBlob(root, blob), StandardCharsets.UTF_8), "content");
+        // not a blob
+        assertNull(queries.readBlob(root, commit));
+        assertNull(queries.readBlob(root, UNKNOWN_HASH));
+    }
+
+    @Test
+    public void testExists() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        myRepo.createDir("dir");
+        myRepo.createFile("dir/b.txt", "b");
+        String first = myRepo.addCommit("initial");
+        myRepo.rm("a.txt");
+        myRepo.commit("delete a");
+        VirtualFile root = myRepo.getVFRootDir();
+        GitObjectQueries queries = GitObjectQueries.getInstance(myProject);
+
+        assertEquals(queries.exists(root, first, "a.txt"), Boolean.TRUE);
+        assertEquals(queries.exists(root, "HEAD", "a.txt"), Boolean.FALSE);
+        assertEquals(queries.exists(root, "HEAD", "dir/b.txt"), Boolean.TRUE);
+        assertEquals(queries.exists(root, "HEAD", "dir"), Boolean.TRUE);
+        assertEquals(queries.exists(root, UNKNOWN_HASH, "a.txt"), Boolean.FALSE);
+    }
+
+    @Test
+    public void testCommitExists() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        String first = myRepo.addCommit("initial");
+        myRepo.createFile("b.txt", "b");
+        String second = myRepo.addCommit("second");
+        VirtualFile root = myRepo.getVFRootDir();
+
+        SHAHash head = GitChangeUtils.commitExists(myProject, root, "HEAD", null);
+        assertNotNull(head);
+        assertEquals(head.getValue(), second);
+        assertNull(GitChangeUtils.commitExists(myProject, root, UNKNOWN_HASH, null));
+
+        // a range is answered by git log, the same way as before the worker
+        SHAHash range = GitChangeUtils.commitExists(myProject, root, first + ".." + second, null);
+        assertNotNull(range);
+        assertEquals(range.getValue(), second);
+        assertNull(GitChangeUtils.commitExists(myProject, root, second + ".." + first, null));
+    }
+}
@@ -0,0 +1,155 @@
+package git4idea.history;
+
+import consulo.util.io.FileUtil;
+import consulo.versionControlSystem.FilePath;
+import consulo.versionControlSystem.util.VcsUtil;
+import git4idea.GitRevisionNumber;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import git4idea.test.GitTest;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+/**
+ * Compares the answers of {@link GitLastCommitIndex} with {@code git log -n1 -- <path>}.
+ * The index is built in background, so the tests wait until it answers.
+ */
+public class GitLastCommitIndexTest extends GitTest {
+    private static final long TIMEOUT = 10000;
+
+    @Test
+    public void testLinearHistory() throws Exception {
+        myRepo.createFile("a.txt", "1");
+        myRepo.createFile("c.txt", "1");
+        myRepo.createDir("dir");
+        myRepo.createFile("dir/b.txt", "1");
+        myRepo.addCommit("initial");
+        edit("a.txt", "2");
+        myRepo.addCommit("edit a");
+        edit("dir/b.txt", "2");
+        myRepo.addCommit("edit b");
+        myRepo.rm("c.txt");
+        myRepo.commit("delete c");
+        updateRepository();
+
+        GitLastCommitIndex.LastCommit a = waitForIndex("a.txt");
+        assertEquals(hash(a), gitLastCommit("a.txt"));
+        assertFalse(a.isDeleted());
+        assertEquals(hash(query("dir/b.txt")), gitLastCommit("dir/b.txt"));
+
+        GitLastCommitIndex.LastCommit c = query("c.txt");
+        assertNotNull(c);
+        assertEquals(hash(c), gitLastCommit("c.txt"));
+        assertTrue(c.isDeleted());
+
+        GitLastCommitIndex.LastCommit unknown = query("unknown.txt");
+        assertNotNull(unknown);
+        assertNull(unknown.getRevision());
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        myRepo.createFile("a.txt", "1");
+        myRepo.addCommit("initial");
+        updateRepository();
+        waitForIndex("a.txt");
+
+        edit("a.txt", "2");
+        String edit = myRepo.addCommit("edit a");
+        updateRepository();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        String answer = null;
+        while (!edit.equals(answer) && System.currentTimeMillis() < deadline) {
+            // null until the index reaches the new HEAD: the callers ask git meanwhile
+            answer = hash(query("a.txt"));
+            Thread.sleep(50);
+        }
+        assertEquals(answer, edit);
+    }
+
+    @Test
+    public void testMerges() throws Exception {
+        myRepo.createFile("base.txt", "1");
+        myRepo.createFile("side.txt", "1");
+        myRepo.createFile("main.txt", "1");
+        myRepo.createFile("conflict.txt", "1");
+        myRepo.addCommit("initial");
+
+        myRepo.createBranch("side");
+        edit("side.txt", "side");
+        edit("conflict.txt", "side");
+        myRepo.addCommit("side");
+
+        myRepo.checkout("master");
+        edit("main.txt", "main");
+        edit("conflict.txt", "main");
+        myRepo.addCommit("main");
+        myRepo.run("merge", "side", "-m", "merge");
+        // the conflict is resolved by the merge itself
+        edit("conflict.txt", "resolved");
+        myRepo.addCommit("merge side");
+        String merge = myRepo.lastCommit();
+        updateRepository();
+
+        waitForIndex("base.txt");
+        for (String path : Arrays.asList("base.txt", "side.txt", "main.txt", "conflict.txt")) {
+            GitLastCommitIndex.LastCommit lastCommit = query(path);
+            // paths the merge took from one side as is are left to git, the rest must match it
+            if (lastCommit != null) {
+                assertEquals(hash(lastCommit), gitLastCommit(path), path);
+            }
+        }
+        assertEquals(hash(query("conflict.txt")), merge);
+        assertEquals(hash(query("base.txt")), gitLastCommit("base.txt"));
+        // git log follows the side the merge took side.txt from
+        assertNull(query("side.txt"));
+    }
+
+    private void edit(@Nonnull String path, @Nonnull String content) throws Exception {
+        FileUtil.writeToFile(new File(myRepo.getRootDir(), path), content);
+    }
+
+    private void updateRepository() {
+        myRepo.refresh();
+        GitRepository repository = GitUtil.getRepositoryManager(myProject).getRepositoryForRoot(myRepo.getVFRootDir());
+        assertNotNull(repository);
+        repository.update();
+    }
+
+    @Nonnull
+    private GitLastCommitIndex.LastCommit waitForIndex(@Nonnull String path) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            GitLastCommitIndex.LastCommit lastCommit = query(path);
+            if (lastCommit != null) {
+                return lastCommit;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("The last commit index was not built in " + TIMEOUT + " ms");
+    }
+
+    @Nullable
+    private GitLastCommitIndex.LastCommit query(@Nonnull String path) {
+        FilePath filePath = VcsUtil.getFilePath(new File(myRepo.getRootDir(), path), false);
+        return GitLastCommitIndex.getInstance(myProject).getLastCommitInHead(filePath);
+    }
+
+    @Nonnull
+    private String gitLastCommit(@Nonnull String path) throws Exception {
+        return myRepo.log("-n1", "--format=%H", "--", path).trim();
+    }
+
+    @Nullable
+    private static String hash(@Nullable GitLastCommitIndex.LastCommit lastCommit) {
+        GitRevisionNumber revision = lastCommit == null ? null : lastCommit.getRevision();
+        return revision == null ? null : revision.asString();
+    }
+}
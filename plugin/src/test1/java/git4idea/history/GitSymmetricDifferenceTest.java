@@ -0,0 +1,109 @@
+package git4idea.history;
+
+import consulo.util.lang.Couple;
+import git4idea.GitCommit;
+import git4idea.test.GitTest;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests {@link GitHistoryUtils#loadSymmetricDifference}, in particular the sides of the patch-equivalent commits,
+ * which {@code --cherry-mark} prints without the side mark.
+ */
+public class GitSymmetricDifferenceTest extends GitTest {
+    @Test
+    public void testPatchEquivalentCommitsStayOnTheirSides() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        myRepo.addCommit("initial");
+        myRepo.createBranch("feature");
+        myRepo.createFile("b.txt", "b");
+        String picked = myRepo.addCommit("B");
+        myRepo.createFile("c.txt", "c");
+        myRepo.addCommit("C");
+
+        myRepo.checkout("master");
+        myRepo.run("cherry-pick", picked);
+        myRepo.createFile("d.txt", "d");
+        myRepo.addCommit("D");
+
+        Couple<List<GitCommit>> difference = GitHistoryUtils.loadSymmetricDifference(myProject, myRepo.getVFRootDir(), "master", "feature");
+
+        // only in feature
+        assertEquals(subjects(difference.first), new HashSet<>(Arrays.asList("B", "C")));
+        assertEquals(patchEquivalent(difference.first), Collections.singleton("B"));
+        // only in master
+        assertEquals(subjects(difference.second), new HashSet<>(Arrays.asList("B", "D")));
+        assertEquals(patchEquivalent(difference.second), Collections.singleton("B"));
+    }
+
+    @Test
+    public void testPatchEquivalentTips() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        myRepo.addCommit("initial");
+        myRepo.createBranch("feature");
+        myRepo.createFile("b.txt", "b");
+        String b = myRepo.addCommit("B");
+        myRepo.createFile("c.txt", "c");
+        String c = myRepo.addCommit("C");
+
+        myRepo.checkout("master");
+        myRepo.run("cherry-pick", b, c);
+
+        Couple<List<GitCommit>> difference = GitHistoryUtils.loadSymmetricDifference(myProject, myRepo.getVFRootDir(), "master", "feature");
+
+        // all the commits are marked "=", so the sides come from the tips and their parents
+        assertEquals(subjects(difference.first), new HashSet<>(Arrays.asList("B", "C")));
+        assertEquals(patchEquivalent(difference.first), subjects(difference.first));
+        assertEquals(subjects(difference.second), new HashSet<>(Arrays.asList("B", "C")));
+        assertEquals(patchEquivalent(difference.second), subjects(difference.second));
+        assertEquals(hashes(difference.first), new HashSet<>(Arrays.asList(b, c)));
+    }
+
+    @Test
+    public void testNoPatchEquivalentCommits() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        myRepo.addCommit("initial");
+        myRepo.createBranch("feature");
+        myRepo.createFile("b.txt", "b");
+        myRepo.addCommit("B");
+        myRepo.checkout("master");
+        myRepo.createFile("d.txt", "d");
+        myRepo.addCommit("D");
+
+        Couple<List<GitCommit>> difference = GitHistoryUtils.loadSymmetricDifference(myProject, myRepo.getVFRootDir(), "master", "feature");
+
+        assertEquals(subjects(difference.first), Collections.singleton("B"));
+        assertEquals(subjects(difference.second), Collections.singleton("D"));
+        assertTrue(patchEquivalent(difference.first).isEmpty());
+        assertTrue(patchEquivalent(difference.second).isEmpty());
+    }
+
+    private static Set<String> subjects(List<GitCommit> commits) {
+        Set<String> subjects = new HashSet<>();
+        for (GitCommit commit : commits) {
+            subjects.add(commit.getSubject());
+        }
+        return subjects;
+    }
+
+    private static Set<String> patchEquivalent(List<GitCommit> commits) {
+        Set<String> subjects = new HashSet<>();
+        for (GitCommit commit : commits) {
+            if (commit.isPatchEquivalent()) {
+                subjects.add(commit.getSubject());
+            }
+        }
+        return subjects;
+    }
+
+    private static Set<String> hashes(List<GitCommit> commits) {
+        Set<String> hashes = new HashSet<>();
+        for (GitCommit commit : commits) {
+            hashes.add(commit.getId().asString());
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,146 @@
+package git4idea.log;
+
+import consulo.util.io.FileUtil;
+import consulo.versionControlSystem.FilePath;
+import consulo.versionControlSystem.log.TimedVcsCommit;
+import consulo.versionControlSystem.log.VcsLogObjectsFactory;
+import consulo.versionControlSystem.util.VcsUtil;
+import git4idea.GitUtil;
+import git4idea.repo.GitRepository;
+import git4idea.test.GitTest;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Compares the answers of {@link GitCommitFilterIndex} with {@code git log --full-history --simplify-merges}.
+ */
+public class GitCommitFilterIndexTest extends GitTest {
+    @Test
+    public void testWithoutFilters() throws Exception {
+        createLinearHistory();
+        myRepo.createBranch("feature");
+        edit("b.txt", "feature");
+        myRepo.addCommit("feature");
+        myRepo.checkout("master");
+        myRepo.run("merge", "--no-ff", "feature", "-m", "merge");
+
+        List<String> commits = query(null);
+        assertNotNull(commits);
+        assertSameCommits(commits, gitLog(), "no filters");
+    }
+
+    @Test
+    public void testStructureFilter() throws Exception {
+        createLinearHistory();
+        myRepo.createBranch("feature");
+        edit("dir/c.txt", "feature");
+        myRepo.addCommit("feature");
+        myRepo.checkout("master");
+        writeCommitGraph();
+
+        for (String path : Arrays.asList("a.txt", "b.txt", "dir/c.txt", "dir", "unknown.txt")) {
+            List<String> commits = query(path);
+            assertNotNull(commits, path);
+            assertSameCommits(commits, gitLog(path), path);
+        }
+    }
+
+    @Test
+    public void testStructureFilterWithMerges() throws Exception {
+        createLinearHistory();
+        myRepo.createBranch("feature");
+        edit("b.txt", "feature");
+        myRepo.addCommit("feature");
+        myRepo.checkout("master");
+        edit("a.txt", "master");
+        myRepo.addCommit("master");
+        myRepo.run("merge", "--no-ff", "feature", "-m", "merge");
+        writeCommitGraph();
+
+        // which merges git keeps depends on the simplified history of the paths, so the merges are left to git
+        for (String path : Arrays.asList("a.txt", "b.txt", "dir")) {
+            List<String> commits = query(path);
+            if (commits != null) {
+                assertSameCommits(commits, gitLog(path), path);
+            }
+        }
+        assertNull(query("b.txt"));
+    }
+
+    private void createLinearHistory() throws Exception {
+        myRepo.createFile("a.txt", "1");
+        myRepo.createFile("b.txt", "1");
+        myRepo.createDir("dir");
+        myRepo.createFile("dir/c.txt", "1");
+        myRepo.addCommit("initial");
+        edit("a.txt", "2");
+        myRepo.addCommit("edit a");
+        edit("dir/c.txt", "2");
+        myRepo.addCommit("edit c");
+        edit("a.txt", "3");
+        edit("b.txt", "3");
+        myRepo.addCommit("edit a and b");
+    }
+
+    private void edit(@Nonnull String path, @Nonnull String content) throws Exception {
+        FileUtil.writeToFile(new File(myRepo.getRootDir(), path), content);
+    }
+
+    private void writeCommitGraph() throws Exception {
+        myRepo.run("commit-graph", "write", "--reachable", "--changed-paths");
+        if (!new File(myRepo.getRootDir(), ".git/objects/info/commit-graph").exists()) {
+            throw new SkipException("Git doesn't write changed-path Bloom filters");
+        }
+    }
+
+    /**
+     * @return the hashes of the matching commits, or null if the index left the filter to git
+     */
+    @Nullable
+    private List<String> query(@Nullable String path) throws Exception {
+        myRepo.refresh();
+        GitRepository repository = GitUtil.getRepositoryManager(myProject).getRepositoryForRoot(myRepo.getVFRootDir());
+        assertNotNull(repository);
+        repository.update();
+
+        Collection<FilePath> files = null;
+        if (path != null) {
+            File file = new File(myRepo.getRootDir(), path);
+            files = Collections.singletonList(VcsUtil.getFilePath(file, file.isDirectory()));
+        }
+        VcsLogObjectsFactory factory = myProject.getInstance(VcsLogObjectsFactory.class);
+        List<TimedVcsCommit> commits =
+            GitCommitFilterIndex.getInstance(myProject).getCommitsMatchingFilter(repository, null, null, null, files, -1, factory);
+        if (commits == null) {
+            return null;
+        }
+        List<String> hashes = new ArrayList<>();
+        for (TimedVcsCommit commit : commits) {
+            hashes.add(commit.getId().asString());
+        }
+        return hashes;
+    }
+
+    /**
+     * The commits made within a second may be listed in a different order, so only the sets are compared.
+     */
+    private static void assertSameCommits(@Nonnull List<String> actual, @Nonnull List<String> expected, @Nonnull String message) {
+        assertEquals(actual.size(), expected.size(), message);
+        assertEquals(new HashSet<>(actual), new HashSet<>(expected), message);
+    }
+
+    @Nonnull
+    private List<String> gitLog(@Nonnull String... paths) throws Exception {
+        List<String> params = new ArrayList<>(Arrays.asList("--full-history", "--simplify-merges", "--format=%H", "--branches", "HEAD", "--"));
+        params.addAll(Arrays.asList(paths));
+        String output = myRepo.log(params.toArray(new String[0])).trim();
+        return output.isEmpty() ? new ArrayList<>() : Arrays.asList(output.split("\n"));
+    }
+}
@@ -0,0 +1,143 @@
+package git4idea.log;
+
+import consulo.versionControlSystem.log.Hash;
+import consulo.versionControlSystem.log.VcsLogObjectsFactory;
+import consulo.versionControlSystem.log.VcsRef;
+import consulo.versionControlSystem.log.VcsRefType;
+import consulo.versionControlSystem.log.base.HashImpl;
+import consulo.virtualFileSystem.VirtualFile;
+import git4idea.history.GitHistoryUtils;
+import git4idea.test.GitTest;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Tests the interning of the references parsed from {@code git log --decorate=full} and the gathering of the references of a refresh.
+ */
+public class GitRefTableTest extends GitTest {
+    private static final Hash HASH1 = HashImpl.build("0123456789012345678901234567890123456789");
+    private static final Hash HASH2 = HashImpl.build("9876543210987654321098765432109876543210");
+
+    @Test
+    public void testParsedReferences() throws Exception {
+        myRepo.createFile("a.txt", "a");
+        String first = myRepo.addCommit("initial");
+        myRepo.run("branch", "feature");
+        myRepo.run("branch", "stable");
+        myRepo.createFile("b.txt", "b");
+        String second = myRepo.addCommit("second");
+
+        // the branches which are not checked out, so that their decorations don't depend on the version of git
+        Set<VcsRef> refs = loadRefs();
+        VcsRef feature = find(refs, "feature", GitRefManager.LOCAL_BRANCH);
+        VcsRef stable = find(refs, "stable", GitRefManager.LOCAL_BRANCH);
+        assertNotNull(feature);
+        assertNotNull(stable);
+        assertEquals(feature.getCommitHash().asString(), first);
+
+        myRepo.run("branch", "-f", "feature", second);
+
+        Set<VcsRef> newRefs = loadRefs();
+        VcsRef movedFeature = find(newRefs, "feature", GitRefManager.LOCAL_BRANCH);
+        assertNotNull(movedFeature);
+        assertEquals(movedFeature.getCommitHash().asString(), second);
+        assertNotSame(movedFeature, feature);
+        // the references which didn't move are the same objects
+        assertSame(find(newRefs, "stable", GitRefManager.LOCAL_BRANCH), stable);
+    }
+
+    @Test
+    public void testIntern() {
+        GitRefTable table = new GitRefTable(getFactory());
+        VirtualFile root = myRepo.getVFRootDir();
+
+        VcsRef ref = table.intern(root, HASH1, "master", GitRefManager.LOCAL_BRANCH);
+        assertSame(table.intern(root, HASH1, "master", GitRefManager.LOCAL_BRANCH), ref);
+        assertNotSame(table.intern(root, HASH1, "master", GitRefManager.REMOTE_BRANCH), ref);
+
+        VcsRef moved = table.intern(root, HASH2, "master", GitRefManager.LOCAL_BRANCH);
+        assertNotSame(moved, ref);
+        assertEquals(moved.getCommitHash(), HASH2);
+        assertSame(table.intern(root, HASH2, "master", GitRefManager.LOCAL_BRANCH), moved);
+    }
+
+    @Test
+    public void testRetainAll() {
+        GitRefTable table = new GitRefTable(getFactory());
+        VirtualFile root = myRepo.getVFRootDir();
+
+        VcsRef master = table.intern(root, HASH1, "master", GitRefManager.LOCAL_BRANCH);
+        VcsRef tag = table.intern(root, HASH1, "v1", GitRefManager.TAG);
+        table.retainAll(root, Collections.singletonList(master));
+
+        assertSame(table.intern(root, HASH1, "master", GitRefManager.LOCAL_BRANCH), master);
+        // the forgotten reference is created again
+        assertNotSame(table.intern(root, HASH1, "v1", GitRefManager.TAG), tag);
+    }
+
+    @Test
+    public void testCollectorDuplicates() {
+        VcsLogObjectsFactory factory = getFactory();
+        VirtualFile root = myRepo.getVFRootDir();
+        VcsRef master = factory.createRef(HASH1, "master", GitRefManager.LOCAL_BRANCH, root);
+        VcsRef movedMaster = factory.createRef(HASH2, "master", GitRefManager.LOCAL_BRANCH, root);
+        VcsRef remoteMaster = factory.createRef(HASH1, "master", GitRefManager.REMOTE_BRANCH, root);
+
+        GitRefTable.RefCollector collector = new GitRefTable.RefCollector();
+        assertNull(collector.add(master));
+        // the first reference with the name and type wins
+        assertSame(collector.add(movedMaster), master);
+        assertNull(collector.add(remoteMaster));
+        assertEquals(collector.toSet(), new HashSet<>(Arrays.asList(master, remoteMaster)));
+    }
+
+    @Test
+    public void testCollectorReturnsPreviousSet() {
+        VcsLogObjectsFactory factory = getFactory();
+        VirtualFile root = myRepo.getVFRootDir();
+        VcsRef master = factory.createRef(HASH1, "master", GitRefManager.LOCAL_BRANCH, root);
+        VcsRef tag = factory.createRef(HASH1, "v1", GitRefManager.TAG, root);
+        Set<VcsRef> previous = new HashSet<>(Arrays.asList(master, tag));
+
+        GitRefTable.RefCollector same = new GitRefTable.RefCollector();
+        same.addAll(Arrays.asList(tag, master));
+        assertSame(same.toSet(previous), previous);
+
+        GitRefTable.RefCollector removed = new GitRefTable.RefCollector();
+        removed.add(master);
+        assertEquals(removed.toSet(previous), Collections.singleton(master));
+
+        GitRefTable.RefCollector moved = new GitRefTable.RefCollector();
+        moved.add(factory.createRef(HASH2, "master", GitRefManager.LOCAL_BRANCH, root));
+        moved.add(tag);
+        Set<VcsRef> movedSet = moved.toSet(previous);
+        assertNotSame(movedSet, previous);
+        assertEquals(find(movedSet, "master", GitRefManager.LOCAL_BRANCH).getCommitHash(), HASH2);
+    }
+
+    @Nonnull
+    private Set<VcsRef> loadRefs() throws Exception {
+        myRepo.refresh();
+        return GitHistoryUtils.loadMetadata(myProject, myRepo.getVFRootDir(), "--branches").getRefs();
+    }
+
+    @Nonnull
+    private VcsLogObjectsFactory getFactory() {
+        return myProject.getInstance(VcsLogObjectsFactory.class);
+    }
+
+    @Nullable
+    private static VcsRef find(@Nonnull Collection<VcsRef> refs, @Nonnull String name, @Nonnull VcsRefType type) {
+        for (VcsRef ref : refs) {
+            if (ref.getName().equals(name) && ref.getType().equals(type)) {
+                return ref;
+            }
+        }
+        return null;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package git4idea.tests;
 
+import consulo.versionControlSystem.VcsException;
 import git4idea.GitUtil;
 import org.junit.Assert;
 import org.junit.Test;
@@ -28,4 +29,20 @@ public class GitUtilsTest {
     Assert.assertEquals("0000000000000000", GitUtil.formatLongRev(0));
     Assert.assertEquals("fffffffffffffffe", GitUtil.formatLongRev(-2));
   }
+
+  @Test
+  public void testUnescapePath() throws VcsException {
+    Assert.assertEquals("dir/a b.txt", GitUtil.unescapePath("dir/a b.txt"));
+    Assert.assertEquals("a\"b\\c", GitUtil.unescapePath("\"a\\\"b\\\\c\""));
+    Assert.assertEquals("a\tb\nc\rd", GitUtil.unescapePath("\"a\\tb\\nc\\rd\""));
+    Assert.assertEquals("\u0007\b\f\u000B", GitUtil.unescapePath("\"\\a\\b\\f\\v\""));
+    // multi-byte UTF-8 characters are escaped byte by byte
+    Assert.assertEquals("\u0444\u0430\u0439\u043b.txt", GitUtil.unescapePath("\"\\321\\204\\320\\260\\320\\271\\320\\273.txt\""));
+    Assert.assertEquals("\u20ac1", GitUtil.unescapePath("\"\\342\\202\\2541\""));
+  }
+
+  @Test(expected = VcsException.class)
+  public void testUnescapePathWithUnknownEscape() throws VcsException {
+    GitUtil.unescapePath("\"a\\qb\"");
+  }
 }
@@ -0,0 +1,100 @@
+package git4idea.util;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class GitCompactPathSetTest {
+    @Test
+    public void testAddAndContains() {
+        GitCompactPathSet.Builder builder = GitCompactPathSet.builder();
+        assertTrue(builder.add("a.txt"));
+        assertTrue(builder.add("dir/b.txt"));
+        assertTrue(builder.add("dir/sub/c.txt"));
+        assertFalse(builder.add("dir/b.txt"));
+        GitCompactPathSet set = builder.build();
+
+        assertEquals(set.size(), 3);
+        assertTrue(set.contains("a.txt"));
+        assertTrue(set.contains("dir/b.txt"));
+        assertTrue(set.contains("dir/sub/c.txt"));
+        // parent directories of the contained paths are not contained themselves
+        assertFalse(set.contains("dir"));
+        assertFalse(set.contains("dir/sub"));
+        assertFalse(set.contains("b.txt"));
+        assertFalse(set.contains("dir/sub/c.txt/d"));
+    }
+
+    @Test
+    public void testRemove() {
+        GitCompactPathSet set = GitCompactPathSet.builder().build();
+        GitCompactPathSet.Builder builder = set.toBuilder();
+        builder.add("dir/a.txt");
+        builder.add("dir/b.txt");
+        set = builder.build();
+
+        builder = set.toBuilder();
+        assertTrue(builder.remove("dir/a.txt"));
+        assertFalse(builder.remove("dir/a.txt"));
+        assertFalse(builder.remove("dir"));
+        assertFalse(builder.remove("unknown/a.txt"));
+        GitCompactPathSet removed = builder.build();
+
+        assertEquals(removed.toList(), Arrays.asList("dir/b.txt"));
+        // the original snapshot is not affected
+        assertEquals(set.toList(), Arrays.asList("dir/a.txt", "dir/b.txt"));
+
+        builder = removed.toBuilder();
+        builder.remove("dir/b.txt");
+        GitCompactPathSet empty = builder.build();
+        assertTrue(empty.isEmpty());
+        assertFalse(empty.contains("dir/b.txt"));
+    }
+
+    @Test
+    public void testOrderOfPaths() {
+        List<String> paths = Arrays.asList("b", "a/z", "a", "a-b/c", "a/b/c", "c/d");
+        GitCompactPathSet.Builder builder = GitCompactPathSet.builder();
+        paths.forEach(builder::add);
+        GitCompactPathSet set = builder.build();
+
+        List<String> expected = Arrays.asList("a", "a/b/c", "a/z", "a-b/c", "b", "c/d");
+        assertEquals(set.toList(), expected);
+
+        List<String> sorted = new ArrayList<>(paths);
+        sorted.sort(GitCompactPathSet::compare);
+        assertEquals(sorted, expected, "compare() must follow the order of forEach()");
+    }
+
+    @Test
+    public void testCompare() {
+        assertEquals(GitCompactPathSet.compare("a/b", "a/b"), 0);
+        assertTrue(GitCompactPathSet.compare("a", "a/b") < 0);
+        assertTrue(GitCompactPathSet.compare("a/b", "a") > 0);
+        // a parent comes before its children even if the separator sorts after another character
+        assertTrue(GitCompactPathSet.compare("a/z", "a-b") < 0);
+        assertTrue(GitCompactPathSet.compare("a/b", "a/c") < 0);
+    }
+
+    @Test
+    public void testBuilderSharesUntouchedSnapshot() {
+        GitCompactPathSet.Builder builder = GitCompactPathSet.builder();
+        builder.add("x/1");
+        builder.add("y/2");
+        GitCompactPathSet set = builder.build();
+
+        GitCompactPathSet same = set.toBuilder().build();
+        assertEquals(same.toList(), set.toList());
+        assertEquals(same.size(), set.size());
+
+        GitCompactPathSet.Builder modified = set.toBuilder();
+        modified.add("x/3");
+        GitCompactPathSet bigger = modified.build();
+        assertEquals(bigger.toList(), Arrays.asList("x/1", "x/3", "y/2"));
+        assertEquals(set.toList(), Arrays.asList("x/1", "y/2"));
+    }
+}
@@ -6,8 +6,6 @@ module com.intellij.git.rt {
     requires static jakarta.annotation;
     
     requires trilead.ssh2;
-    requires xmlrpc.common;
-    requires xmlrpc.client;
 
     exports org.jetbrains.git4idea.rt;
     exports org.jetbrains.git4idea.rt.http;
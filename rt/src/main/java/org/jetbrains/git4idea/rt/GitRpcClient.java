@@ -0,0 +1,88 @@
+package org.jetbrains.git4idea.rt;
+
+import jakarta.annotation.Nullable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Calls handlers in the IDE via {@link GitRpcProtocol}. The connection is opened on the first call and reused by the next calls.
+ */
+public class GitRpcClient implements Closeable
+{
+	private final int myPort;
+	private final String myToken;
+	@Nullable
+	private Socket mySocket;
+	@Nullable
+	private DataInputStream myIn;
+	@Nullable
+	private DataOutputStream myOut;
+
+	/**
+	 * @param port  the port of the IDE
+	 * @param token the access token of the IDE, see {@link GitRpcProtocol#TOKEN_ENV}
+	 */
+	public GitRpcClient(int port, String token)
+	{
+		myPort = port;
+		myToken = token;
+	}
+
+	/**
+	 * Call the method of the handler registered in the IDE
+	 *
+	 * @param methodName the full method name: {@code handler.method}
+	 * @param parameters the parameters
+	 * @return the value returned by the method
+	 * @throws IOException if the call failed
+	 */
+	@Nullable
+	public synchronized Object execute(String methodName, List<?> parameters) throws IOException
+	{
+		if(mySocket == null)
+		{
+			mySocket = new Socket(InetAddress.getLoopbackAddress(), myPort);
+			mySocket.setTcpNoDelay(true);
+			myIn = new DataInputStream(new BufferedInputStream(mySocket.getInputStream()));
+			myOut = new DataOutputStream(new BufferedOutputStream(mySocket.getOutputStream()));
+			GitRpcProtocol.writeFrame(myOut, myToken.getBytes(StandardCharsets.UTF_8));
+		}
+
+		ByteArrayOutputStream request = new ByteArrayOutputStream();
+		DataOutputStream requestOut = new DataOutputStream(request);
+		requestOut.writeUTF(methodName);
+		requestOut.writeInt(parameters.size());
+		for(Object parameter : parameters)
+		{
+			GitRpcProtocol.writeValue(requestOut, parameter);
+		}
+		GitRpcProtocol.writeFrame(myOut, request.toByteArray());
+
+		byte[] reply = GitRpcProtocol.readFrame(myIn);
+		if(reply == null)
+		{
+			throw new EOFException("The IDE closed the connection");
+		}
+		DataInputStream replyIn = new DataInputStream(new ByteArrayInputStream(reply));
+		byte status = replyIn.readByte();
+		if(status != GitRpcProtocol.OK)
+		{
+			throw new IOException(replyIn.readUTF());
+		}
+		return GitRpcProtocol.readValue(replyIn);
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if(mySocket != null)
+		{
+			mySocket.close();
+			mySocket = null;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package org.jetbrains.git4idea.rt;
+
+import jakarta.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * <p>The protocol used by {@link GitExternalApp external applications} to call handlers in the IDE,
+ * a lightweight replacement of XML RPC over HTTP.</p>
+ *
+ * <p>Each call is a length-prefixed frame containing the full method name ({@code handler.method}), the number of arguments
+ * and the arguments. The reply is a length-prefixed frame containing the status ({@link #OK} or {@link #ERROR})
+ * and the returned value or the error message. Values are strings, integers, booleans and lists of them,
+ * each prefixed by its type tag. Several calls can be made over a single connection.</p>
+ *
+ * <p>The first frame of a connection is the access token of the IDE passed in {@link #TOKEN_ENV}:
+ * connections without it are closed, so that other local processes can't call the handlers.</p>
+ */
+public final class GitRpcProtocol
+{
+	/**
+	 * The environment variable containing the access token of the IDE
+	 */
+	public static final String TOKEN_ENV = "GIT4IDEA_RPC_TOKEN";
+
+	public static final byte OK = 0;
+	public static final byte ERROR = 1;
+
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INT = 2;
+	private static final byte BOOLEAN = 3;
+	private static final byte LIST = 4;
+
+	/**
+	 * The maximum size of a frame, to fail fast on garbage instead of allocating huge buffers
+	 */
+	public static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+	private GitRpcProtocol()
+	{
+	}
+
+	public static void writeValue(DataOutputStream out, @Nullable Object value) throws IOException
+	{
+		if(value == null)
+		{
+			out.writeByte(NULL);
+		}
+		else if(value instanceof String s)
+		{
+			out.writeByte(STRING);
+			out.writeUTF(s);
+		}
+		else if(value instanceof Integer i)
+		{
+			out.writeByte(INT);
+			out.writeInt(i);
+		}
+		else if(value instanceof Boolean b)
+		{
+			out.writeByte(BOOLEAN);
+			out.writeBoolean(b);
+		}
+		else if(value instanceof List<?> list)
+		{
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for(Object element : list)
+			{
+				writeValue(out, element);
+			}
+		}
+		else
+		{
+			throw new IllegalArgumentException("Unsupported value type: " + value.getClass());
+		}
+	}
+
+	/**
+	 * Lists are read as {@link Vector}s, as XML RPC did, so that handler signatures don't change.
+	 */
+	@Nullable
+	public static Object readValue(DataInputStream in) throws IOException
+	{
+		byte type = in.readByte();
+		switch(type)
+		{
+			case NULL:
+				return null;
+			case STRING:
+				return in.readUTF();
+			case INT:
+				return in.readInt();
+			case BOOLEAN:
+				return in.readBoolean();
+			case LIST:
+				int size = in.readInt();
+				if(size < 0 || size > MAX_FRAME_SIZE)
+				{
+					throw new IOException("Invalid list size: " + size);
+				}
+				Vector<Object> list = new Vector<>(size);
+				for(int i = 0; i < size; i++)
+				{
+					list.add(readValue(in));
+				}
+				return list;
+			default:
+				throw new IOException("Unknown value type: " + type);
+		}
+	}
+
+	public static void writeFrame(DataOutputStream out, byte[] frame) throws IOException
+	{
+		out.writeInt(frame.length);
+		out.write(frame);
+		out.flush();
+	}
+
+	/**
+	 * @return the frame, or null if the stream has ended before the frame
+	 */
+	@Nullable
+	public static byte[] readFrame(DataInputStream in) throws IOException
+	{
+		int b = in.read();
+		if(b == -1)
+		{
+			return null;
+		}
+		int length = (b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+		if(length < 0 || length > MAX_FRAME_SIZE)
+		{
+			throw new IOException("Invalid frame size: " + length);
+		}
+		byte[] frame = new byte[length];
+		in.readFully(frame);
+		return frame;
+	}
+}
@@ -17,6 +17,7 @@ package org.jetbrains.git4idea.rt.http;
 
 import jakarta.annotation.Nonnull;
 import org.jetbrains.git4idea.rt.GitExternalApp;
+import org.jetbrains.git4idea.rt.GitRpcProtocol;
 
 /**
  * <p>This is a program that would be called by Git when an HTTP connection is needed, that requires authorization,
@@ -88,7 +89,7 @@ public class GitAskPassApp implements GitExternalApp {
 
       String token = getNotNull(GitAskPassXmlRpcHandler.GIT_ASK_PASS_HANDLER_ENV);
       int xmlRpcPort = Integer.parseInt(getNotNull(GitAskPassXmlRpcHandler.GIT_ASK_PASS_PORT_ENV));
-      GitAskPassXmlRpcClient xmlRpcClient = new GitAskPassXmlRpcClient(xmlRpcPort);
+      GitAskPassXmlRpcClient xmlRpcClient = new GitAskPassXmlRpcClient(xmlRpcPort, getNotNull(GitRpcProtocol.TOKEN_ENV));
 
       if (arguments.usernameNeeded()) {
         String username = xmlRpcClient.askUsername(token, arguments.url());
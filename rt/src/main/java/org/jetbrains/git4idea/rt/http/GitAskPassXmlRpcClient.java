@@ -15,32 +15,26 @@
  */
 package org.jetbrains.git4idea.rt.http;
 
-import org.apache.xmlrpc.XmlRpcException;
-import org.apache.xmlrpc.client.XmlRpcClient;
-import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
 import jakarta.annotation.Nonnull;
+import org.jetbrains.git4idea.rt.GitRpcClient;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Calls {@link GitAskPassXmlRpcHandler} methods via XML RPC.
+ * Calls {@link GitAskPassXmlRpcHandler} methods via {@link org.jetbrains.git4idea.rt.GitRpcProtocol}.
  *
  * @author Kirill Likhodedov
  */
 class GitAskPassXmlRpcClient
 {
 	@Nonnull
-	private final XmlRpcClient myClient;
+	private final GitRpcClient myClient;
 
-	GitAskPassXmlRpcClient(int port) throws MalformedURLException
+	GitAskPassXmlRpcClient(int port, String rpcToken)
 	{
-		XmlRpcClientConfigImpl clientConfig = new XmlRpcClientConfigImpl();
-		clientConfig.setServerURL(new URL("http://127.0.0.1:" + port + "/RPC2"));
-		myClient = new XmlRpcClient();
-		myClient.setConfig(clientConfig);
+		myClient = new GitRpcClient(port, rpcToken);
 	}
 
 	String askUsername(String token, @Nonnull String url)
@@ -53,7 +47,7 @@ class GitAskPassXmlRpcClient
 		{
 			return (String) myClient.execute(methodName("askUsername"), parameters);
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -69,7 +63,7 @@ class GitAskPassXmlRpcClient
 		{
 			return (String) myClient.execute(methodName("askPassword"), parameters);
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -51,6 +51,11 @@ public interface GitSSHHandler
 	String SSH_PROXY_AUTHENTICATION_ENV = "GIT4IDEA_SSH_PROXY_AUTHENTICATION";
 	String SSH_PROXY_USER_ENV = "GIT4IDEA_SSH_PROXY_USER";
 	String SSH_PROXY_PASSWORD_ENV = "GIT4IDEA_SSH_PROXY_PASSWORD";
+	/**
+	 * The port and the access token of the SSH connection pool in the IDE, see {@link SSHRelay}
+	 */
+	String SSH_POOL_PORT_ENV = "GIT4IDEA_SSH_POOL_PORT";
+	String SSH_POOL_TOKEN_ENV = "GIT4IDEA_SSH_POOL_TOKEN";
 
 	/**
 	 * Verify server host key
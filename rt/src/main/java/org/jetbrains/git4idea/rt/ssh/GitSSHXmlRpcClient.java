@@ -16,13 +16,9 @@
 package org.jetbrains.git4idea.rt.ssh;
 
 import jakarta.annotation.Nullable;
-import org.apache.xmlrpc.XmlRpcException;
-import org.apache.xmlrpc.client.XmlRpcClient;
-import org.apache.xmlrpc.client.XmlRpcClientConfigImpl;
-import org.apache.xmlrpc.client.XmlRpcHttpClientConfig;
+import org.jetbrains.git4idea.rt.GitRpcClient;
 
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
@@ -34,19 +30,20 @@ import java.util.Vector;
 public class GitSSHXmlRpcClient implements GitSSHHandler
 {
 	/**
-	 * XML RPC client
+	 * RPC client, the connection is reused by all calls of the SSH session
 	 */
 	@Nullable
-	private final XmlRpcClient myClient;
+	private final GitRpcClient myClient;
 
 	/**
 	 * A constructor
 	 *
 	 * @param port      port number
+	 * @param rpcToken  the access token of the IDE
 	 * @param batchMode if true, the client is run in the batch mode, so nothing should be prompted
 	 * @throws IOException if there is IO problem
 	 */
-	GitSSHXmlRpcClient(int port, boolean batchMode) throws IOException
+	GitSSHXmlRpcClient(int port, String rpcToken, boolean batchMode) throws IOException
 	{
 		//noinspection HardCodedStringLiteral
 		if(batchMode)
@@ -55,12 +52,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		}
 		else
 		{
-			XmlRpcClientConfigImpl clientConfig = new XmlRpcClientConfigImpl();
-			clientConfig.setEncoding("UTF-8");
-			clientConfig.setServerURL(new URL("http://127.0.0.1:" + port + "/RPC2"));
-
-			myClient = new XmlRpcClient();
-			myClient.setConfig(clientConfig);
+			myClient = new GitRpcClient(port, rpcToken);
 		}
 	}
 
@@ -92,7 +84,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		{
 			return (Boolean) myClient.execute(methodName("verifyServerHostKey"), parameters);
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -131,7 +123,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		{
 			return adjustNull(((String) myClient.execute(methodName("askPassphrase"), parameters)));
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -170,7 +162,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		{
 			return adjustNull((List<String>) myClient.execute(methodName("replyToChallenge"), parameters));
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -197,7 +189,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		{
 			return adjustNull(((String) myClient.execute(methodName("askPassword"), parameters)));
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -220,7 +212,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		{
 			return (String) myClient.execute(methodName("setLastSuccessful"), parameters);
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
@@ -244,16 +236,15 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 		{
 			return (String) myClient.execute(methodName("getLastSuccessful"), parameters);
 		}
-		catch(XmlRpcException e)
+		catch(IOException e)
 		{
-			XmlRpcHttpClientConfig clientConfig = (XmlRpcHttpClientConfig) myClient.getConfig();
-			log("getLastSuccessful failed. token: " + token + ", userName: " + userName + ", client: " + clientConfig.getServerURL());
+			log("getLastSuccessful failed. token: " + token + ", userName: " + userName);
 			throw new RuntimeException("Invocation failed " + e.getMessage(), e);
 		}
 	}
 
 	/**
-	 * Since XML RPC client does not understand null values, the value should be
+	 * The handlers encode null values as XML RPC did, so the value should be
 	 * adjusted (The password is {@code "-"} if null, {@code "+"+s) if non-null).
 	 *
 	 * @param s a value to adjust
@@ -266,7 +257,7 @@ public class GitSSHXmlRpcClient implements GitSSHHandler
 	}
 
 	/**
-	 * Since XML RPC client does not understand null values, the value should be
+	 * The handlers encode null values as XML RPC did, so the value should be
 	 * adjusted. This is done by replacing empty array with null.
 	 *
 	 * @param s a value to adjust
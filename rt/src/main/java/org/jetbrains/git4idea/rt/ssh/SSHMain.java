@@ -19,6 +19,7 @@ import com.trilead.ssh2.*;
 import com.trilead.ssh2.crypto.PEMDecoder;
 import jakarta.annotation.Nullable;
 import org.jetbrains.git4idea.rt.GitExternalApp;
+import org.jetbrains.git4idea.rt.GitRpcProtocol;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -58,6 +59,10 @@ public class SSHMain implements GitExternalApp
 	 * the command to run
 	 */
 	private final String myCommand;
+	/**
+	 * the environment
+	 */
+	private final Map<String, String> myEnv;
 	/**
 	 * the exit code
 	 */
@@ -113,22 +118,34 @@ public class SSHMain implements GitExternalApp
 	/**
 	 * A constructor
 	 *
-	 * @param host     a host
-	 * @param username a name of user (from URL)
-	 * @param port     a port
-	 * @param command  a command
-	 * @throws IOException if config file could not be loaded
+	 * @param host    a host
+	 * @param env     the environment defining the handler and the proxy settings
+	 * @param command a command, or null if only the connection is needed
 	 */
-	private SSHMain(String host, String username, Integer port, String command) throws IOException
+	private SSHMain(SSHConfig.Host host, Map<String, String> env, @Nullable String command)
 	{
-		SSHConfig config = SSHConfig.load();
-		myHost = config.lookup(username, host, port);
-		myHandlerNo = System.getenv(GitSSHHandler.SSH_HANDLER_ENV);
-		int xmlRpcPort = Integer.parseInt(System.getenv(GitSSHHandler.SSH_PORT_ENV));
-		myXmlRpcClient = new GitSSHXmlRpcClient(xmlRpcPort, myHost.isBatchMode());
+		myHost = host;
+		myEnv = env;
+		myHandlerNo = env.get(GitSSHHandler.SSH_HANDLER_ENV);
+		int xmlRpcPort = Integer.parseInt(env.get(GitSSHHandler.SSH_PORT_ENV));
+		myXmlRpcClient = new GitSSHXmlRpcClient(xmlRpcPort, env.get(GitRpcProtocol.TOKEN_ENV), myHost.isBatchMode());
 		myCommand = command;
 	}
 
+	/**
+	 * Open the connection and authenticate, asking the IDE for passwords and host key verification if needed.
+	 * Used by the SSH connection pool in the IDE.
+	 *
+	 * @param host a host
+	 * @param env  the environment of the relay, see {@link SSHRelay#RELAYED_ENV}
+	 * @return the authenticated connection
+	 * @throws IOException if there is a problem with connection or authentication
+	 */
+	public static Connection connect(SSHConfig.Host host, Map<String, String> env) throws IOException
+	{
+		return new SSHMain(host, env, null).connect();
+	}
+
 	/**
 	 * The application entry point
 	 *
@@ -138,7 +155,18 @@ public class SSHMain implements GitExternalApp
 	{
 		try
 		{
-			SSHMain app = parseArguments(args);
+			SSHRelay.Request request = parseArguments(args);
+			String poolPort = System.getenv(GitSSHHandler.SSH_POOL_PORT_ENV);
+			if(poolPort != null)
+			{
+				Integer exitCode = SSHRelay.relay(Integer.parseInt(poolPort), request);
+				if(exitCode != null)
+				{
+					System.exit(exitCode);
+				}
+				// the pool is not available, connect directly
+			}
+			SSHMain app = new SSHMain(SSHConfig.load().lookup(request.user, request.host, request.port), System.getenv(), request.command);
 			app.start();
 			System.exit(app.myExitCode);
 		}
@@ -157,29 +185,9 @@ public class SSHMain implements GitExternalApp
 	 */
 	private void start() throws IOException, InterruptedException
 	{
-		Connection c = new Connection(myHost.getHostName(), myHost.getPort());
+		Connection c = connect();
 		try
 		{
-			configureKnownHosts(c);
-
-			boolean useHttpProxy = Boolean.valueOf(System.getenv(GitSSHHandler.SSH_USE_PROXY_ENV));
-			if(useHttpProxy)
-			{
-				String proxyHost = System.getenv(GitSSHHandler.SSH_PROXY_HOST_ENV);
-				Integer proxyPort = Integer.valueOf(System.getenv(GitSSHHandler.SSH_PROXY_PORT_ENV));
-				boolean proxyAuthentication = Boolean.valueOf(System.getenv(GitSSHHandler.SSH_PROXY_AUTHENTICATION_ENV));
-				String proxyUser = null;
-				String proxyPassword = null;
-				if(proxyAuthentication)
-				{
-					proxyUser = System.getenv(GitSSHHandler.SSH_PROXY_USER_ENV);
-					proxyPassword = System.getenv(GitSSHHandler.SSH_PROXY_PASSWORD_ENV);
-				}
-				c.setProxyData(new HTTPProxyData(proxyHost, proxyPort, proxyUser, proxyPassword));
-			}
-
-			c.connect(new HostKeyVerifier());
-			authenticate(c);
 			Session s = c.openSession();
 			try
 			{
@@ -212,6 +220,46 @@ public class SSHMain implements GitExternalApp
 		}
 	}
 
+	/**
+	 * Open the connection and authenticate
+	 *
+	 * @return the authenticated connection
+	 * @throws IOException if there is a problem with connection or authentication
+	 */
+	private Connection connect() throws IOException
+	{
+		Connection c = new Connection(myHost.getHostName(), myHost.getPort());
+		try
+		{
+			configureKnownHosts(c);
+
+			boolean useHttpProxy = Boolean.valueOf(myEnv.get(GitSSHHandler.SSH_USE_PROXY_ENV));
+			if(useHttpProxy)
+			{
+				String proxyHost = myEnv.get(GitSSHHandler.SSH_PROXY_HOST_ENV);
+				Integer proxyPort = Integer.valueOf(myEnv.get(GitSSHHandler.SSH_PROXY_PORT_ENV));
+				boolean proxyAuthentication = Boolean.valueOf(myEnv.get(GitSSHHandler.SSH_PROXY_AUTHENTICATION_ENV));
+				String proxyUser = null;
+				String proxyPassword = null;
+				if(proxyAuthentication)
+				{
+					proxyUser = myEnv.get(GitSSHHandler.SSH_PROXY_USER_ENV);
+					proxyPassword = myEnv.get(GitSSHHandler.SSH_PROXY_PASSWORD_ENV);
+				}
+				c.setProxyData(new HTTPProxyData(proxyHost, proxyPort, proxyUser, proxyPassword));
+			}
+
+			c.connect(new HostKeyVerifier());
+			authenticate(c);
+			return c;
+		}
+		catch(IOException | RuntimeException e)
+		{
+			c.close();
+			throw e;
+		}
+	}
+
 	/**
 	 * Authenticate using some supported methods. If authentication fails,
 	 * the method throws {@link IOException}.
@@ -548,13 +596,12 @@ public class SSHMain implements GitExternalApp
 	}
 
 	/**
-	 * Parse command line arguments and create application instance.
+	 * Parse command line arguments.
 	 *
 	 * @param args command line arguments
-	 * @return application instance
-	 * @throws IOException if loading configuration file failed
+	 * @return the request to run the command
 	 */
-	private static SSHMain parseArguments(String[] args) throws IOException
+	private static SSHRelay.Request parseArguments(String[] args)
 	{
 		if(args.length != 2 && args.length != 4)
 		{
@@ -582,7 +629,8 @@ public class SSHMain implements GitExternalApp
 			host = host.substring(atIndex + 1);
 		}
 		String command = args[i];
-		return new SSHMain(host, user, port, command);
+		String token = System.getenv(GitSSHHandler.SSH_POOL_TOKEN_ENV);
+		return new SSHRelay.Request(token == null ? "" : token, user, host, port, command, System.getenv());
 	}
 
 
@@ -648,7 +696,7 @@ public class SSHMain implements GitExternalApp
 		{
 			try
 			{
-				String s = System.getenv(GitSSHHandler.SSH_IGNORE_KNOWN_HOSTS_ENV);
+				String s = myEnv.get(GitSSHHandler.SSH_IGNORE_KNOWN_HOSTS_ENV);
 				if(s != null && Boolean.parseBoolean(s))
 				{
 					return true;
@@ -0,0 +1,222 @@
+package org.jetbrains.git4idea.rt.ssh;
+
+import jakarta.annotation.Nullable;
+import org.jetbrains.git4idea.rt.GitRpcProtocol;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The protocol between {@link SSHMain} acting as a thin relay and the SSH connection pool in the IDE,
+ * which keeps authenticated connections and opens a new channel on them for each Git remote operation.
+ * <p>
+ * The relay connects to the pool via a loopback socket and writes the request:
+ * the access token, the user, host, port and command from the command line, and the values of {@link #RELAYED_ENV}.
+ * Then the standard input is sent as is, and the end of the input is signalled by shutting down the socket output.
+ * The pool answers by frames: the frame type byte, the payload length and the payload for {@link #STDOUT} and {@link #STDERR},
+ * or the exit code instead of the length for {@link #EXIT}.
+ */
+public final class SSHRelay
+{
+	public static final byte STDOUT = 1;
+	public static final byte STDERR = 2;
+	public static final byte EXIT = 3;
+
+	/**
+	 * Environment variables of the relay needed to open the connection on its behalf
+	 */
+	public static final String[] RELAYED_ENV = {
+			GitSSHHandler.SSH_HANDLER_ENV,
+			GitSSHHandler.SSH_PORT_ENV,
+			GitRpcProtocol.TOKEN_ENV,
+			GitSSHHandler.SSH_IGNORE_KNOWN_HOSTS_ENV,
+			GitSSHHandler.SSH_USE_PROXY_ENV,
+			GitSSHHandler.SSH_PROXY_HOST_ENV,
+			GitSSHHandler.SSH_PROXY_PORT_ENV,
+			GitSSHHandler.SSH_PROXY_AUTHENTICATION_ENV,
+			GitSSHHandler.SSH_PROXY_USER_ENV,
+			GitSSHHandler.SSH_PROXY_PASSWORD_ENV
+	};
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private SSHRelay()
+	{
+	}
+
+	/**
+	 * The request of the relay
+	 */
+	public static final class Request
+	{
+		public final String token;
+		@Nullable
+		public final String user;
+		public final String host;
+		@Nullable
+		public final Integer port;
+		public final String command;
+		public final Map<String, String> env;
+
+		public Request(String token, @Nullable String user, String host, @Nullable Integer port, String command, Map<String, String> env)
+		{
+			this.token = token;
+			this.user = user;
+			this.host = host;
+			this.port = port;
+			this.command = command;
+			this.env = env;
+		}
+
+		public void write(DataOutputStream out) throws IOException
+		{
+			out.writeUTF(token);
+			writeNullable(out, user);
+			out.writeUTF(host);
+			out.writeInt(port == null ? -1 : port);
+			out.writeUTF(command);
+			for(String name : RELAYED_ENV)
+			{
+				writeNullable(out, env.get(name));
+			}
+		}
+
+		public static Request read(DataInputStream in) throws IOException
+		{
+			String token = in.readUTF();
+			String user = readNullable(in);
+			String host = in.readUTF();
+			int port = in.readInt();
+			String command = in.readUTF();
+			Map<String, String> env = new HashMap<>();
+			for(String name : RELAYED_ENV)
+			{
+				String value = readNullable(in);
+				if(value != null)
+				{
+					env.put(name, value);
+				}
+			}
+			return new Request(token, user, host, port < 0 ? null : port, command, env);
+		}
+
+		private static void writeNullable(DataOutputStream out, @Nullable String value) throws IOException
+		{
+			out.writeBoolean(value != null);
+			if(value != null)
+			{
+				out.writeUTF(value);
+			}
+		}
+
+		@Nullable
+		private static String readNullable(DataInputStream in) throws IOException
+		{
+			return in.readBoolean() ? in.readUTF() : null;
+		}
+	}
+
+	/**
+	 * Writes a frame. Frames may be written from several threads, so the output is locked.
+	 */
+	public static void writeFrame(DataOutputStream out, byte type, byte[] data, int length) throws IOException
+	{
+		synchronized(out)
+		{
+			out.writeByte(type);
+			out.writeInt(length);
+			out.write(data, 0, length);
+			out.flush();
+		}
+	}
+
+	public static void writeExit(DataOutputStream out, int exitCode) throws IOException
+	{
+		synchronized(out)
+		{
+			out.writeByte(EXIT);
+			out.writeInt(exitCode);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Runs the command via the connection pool in the IDE.
+	 *
+	 * @return the exit code of the remote command, or null if the pool is not available and the connection should be opened directly
+	 * @throws IOException if the pool failed after the request was sent
+	 */
+	@Nullable
+	static Integer relay(int poolPort, Request request) throws IOException
+	{
+		Socket socket;
+		try
+		{
+			socket = new Socket(InetAddress.getLoopbackAddress(), poolPort);
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			request.write(out);
+			out.flush();
+
+			Thread stdin = new Thread(() -> {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				try
+				{
+					int rc;
+					while((rc = System.in.read(buffer)) != -1)
+					{
+						out.write(buffer, 0, rc);
+						out.flush();
+					}
+					socket.shutdownOutput();
+				}
+				catch(IOException ignored)
+				{
+					// the remote process has exited, none is interested in stdin anyway
+				}
+			}, "Forwarding stdin");
+			stdin.setDaemon(true);
+			stdin.start();
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while(true)
+			{
+				int type = in.read();
+				if(type == -1)
+				{
+					throw new EOFException("The connection pool closed the connection");
+				}
+				int length = in.readInt();
+				if(type == EXIT)
+				{
+					System.out.flush();
+					System.err.flush();
+					return length;
+				}
+				PrintStream target = type == STDOUT ? System.out : System.err;
+				while(length > 0)
+				{
+					int chunk = Math.min(length, buffer.length);
+					in.readFully(buffer, 0, chunk);
+					target.write(buffer, 0, chunk);
+					length -= chunk;
+				}
+				target.flush();
+			}
+		}
+		finally
+		{
+			socket.close();
+		}
+	}
+}